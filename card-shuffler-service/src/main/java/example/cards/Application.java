@@ -1,32 +1,88 @@
 package example.cards;
 
+import com.google.inject.Stage;
+import example.cards.filter.AdmissionReleaseFilter;
+import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.Server;
-import org.eclipse.jetty.webapp.WebAppContext;
-import org.jboss.resteasy.plugins.guice.GuiceResteasyBootstrapServletContextListener;
+import org.eclipse.jetty.server.handler.StatisticsHandler;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.component.LifeCycle;
 import org.jboss.resteasy.plugins.server.servlet.HttpServletDispatcher;
 
+import javax.servlet.DispatcherType;
+import javax.ws.rs.HttpMethod;
 import java.io.File;
+import java.util.EnumSet;
 
 /**
- * Application which starts up a Jetty container.
+ * Application which starts up a Jetty container, listening on http.port (default 8080).
+ * <p>
+ * Stopping the server, which the main method does on JVM shut down, is graceful: the service first reports itself
+ * draining (see {@link ServiceContextListener}), then the server stops accepting connections, answers requests on
+ * open connections with a 503, and waits up to drain.timeoutMillis (default 30000) for the requests in flight to
+ * complete before the service is shut down.
  */
 public class Application {
+
+    public static final String PORT_PROPERTY = "http.port";
+    public static final String COMPRESSION_MIN_SIZE_PROPERTY = "compression.minSize";
+    public static final String COMPRESSION_LEVEL_PROPERTY = "compression.level";
+    public static final String GUICE_STAGE_PROPERTY = "guice.stage";
+    public static final String DRAIN_TIMEOUT_PROPERTY = "drain.timeoutMillis";
+
     public static void main(String[] args) throws Exception {
         System.out.println("Running Jetty server...");
-        startJetty(8080, "jetty");
+        Server server = startJetty(Integer.getInteger(PORT_PROPERTY, 8080), "jetty");
+        server.setStopAtShutdown(true);
         System.out.println("Jetty server started...");
     }
 
     public static Server startJetty(int port, String relativeResourceBase) throws Exception {
         Server server = new Server(port);
-        WebAppContext context = new WebAppContext();
+        // A plain servlet context, as there is no web.xml, annotated servlet or web fragment to scan for.
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.NO_SESSIONS);
         context.addServlet(HttpServletDispatcher.class, "/*");
-        context.addEventListener(new GuiceResteasyBootstrapServletContextListener());
+        // Releases admission slots of requests which fail without going through the response filters.
+        context.addFilter(AdmissionReleaseFilter.class, "/*", EnumSet.of(DispatcherType.REQUEST));
+        ServiceContextListener serviceListener = new ServiceContextListener();
+        context.addEventListener(serviceListener);
         context.setResourceBase(new File(relativeResourceBase).getAbsolutePath());
         context.setInitParameter("resteasy.guice.modules", ServiceModule.class.getName());
-        context.setServer(server);
-        server.setHandler(context);
+        // Development stage creates singletons on first use rather than all at startup.
+        context.setInitParameter("resteasy.guice.stage",
+                System.getProperty(GUICE_STAGE_PROPERTY, Stage.DEVELOPMENT.name()));
+        // Counts the requests in flight, so that stopping waits for them to complete.
+        StatisticsHandler statisticsHandler = new StatisticsHandler();
+        statisticsHandler.setHandler(gzipHandler(context));
+        server.setHandler(statisticsHandler);
+        server.setStopTimeout(Long.getLong(DRAIN_TIMEOUT_PROPERTY, 30_000L));
+        server.addLifeCycleListener(new AbstractLifeCycle.AbstractLifeCycleListener() {
+            @Override
+            public void lifeCycleStopping(LifeCycle event) {
+                serviceListener.drain();
+            }
+        });
         server.start();
         return server;
     }
+
+    /**
+     * Wraps the handler so responses are gzip compressed for clients sending Accept-Encoding: gzip.  Bodies
+     * smaller than compression.minSize bytes (default 1024) are sent as is, as the compression overhead isn't
+     * worth it for e.g. a 404 or a small deck.  A negative size disables compression altogether.
+     */
+    private static Handler gzipHandler(ServletContextHandler context) {
+        int minSize = Integer.getInteger(COMPRESSION_MIN_SIZE_PROPERTY, 1024);
+        if (minSize < 0) {
+            return context;
+        }
+        GzipHandler gzipHandler = new GzipHandler();
+        gzipHandler.setMinGzipSize(minSize);
+        gzipHandler.setCompressionLevel(Integer.getInteger(COMPRESSION_LEVEL_PROPERTY, 6));
+        gzipHandler.setIncludedMethods(HttpMethod.GET, HttpMethod.POST); // shuffles respond to a POST
+        gzipHandler.setHandler(context);
+        return gzipHandler;
+    }
 }
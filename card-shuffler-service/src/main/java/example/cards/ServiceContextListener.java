@@ -0,0 +1,132 @@
+package example.cards;
+
+import com.google.inject.Injector;
+import example.cards.dao.DeckDao;
+import example.cards.dao.DeckReaper;
+import example.cards.dao.TieredStorage;
+import example.cards.importer.DeckImporter;
+import example.cards.lifecycle.Readiness;
+import example.cards.lifecycle.WarmUp;
+import example.cards.model.ImportResultDto;
+import example.cards.replication.ReplicationPrimary;
+import example.cards.replication.ReplicationStandby;
+import example.cards.shuffler.ShufflerRegistry;
+import org.jboss.resteasy.plugins.guice.GuiceResteasyBootstrapServletContextListener;
+
+import javax.servlet.ServletContextEvent;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Bootstraps RESTEasy with the service module, and runs the start up and shut down tasks which need the injector.
+ * <p>
+ * When the import.file system property names a newline delimited JSON file, its decks are imported before the
+ * context finishes starting, so the service never serves requests with a partially loaded data set.  The hot
+ * paths are then warmed up (see {@link WarmUp}) for at least warmup.iterations iterations (default 10000, 0 to
+ * skip) and at most warmup.maxMillis (default 10000), after which the service reports itself ready.
+ * <p>
+ * Expired decks are reaped in the background while the service runs, and changes are replicated to and from other
+ * instances of the service when configured to (see {@link ReplicationPrimary} and {@link ReplicationStandby}).
+ * <p>
+ * On shut down, the service reports itself draining for drain.delayMillis (default 0) before it stops accepting
+ * requests, giving load balancers time to stop sending them, and cold storage is closed and the permutation pool's
+ * workers stopped once the requests in flight completed.
+ */
+public class ServiceContextListener extends GuiceResteasyBootstrapServletContextListener {
+
+    public static final String IMPORT_FILE_PROPERTY = "import.file";
+    public static final String WARMUP_ITERATIONS_PROPERTY = "warmup.iterations";
+    public static final String WARMUP_MAX_MILLIS_PROPERTY = "warmup.maxMillis";
+    public static final String DRAIN_DELAY_PROPERTY = "drain.delayMillis";
+
+    private volatile Readiness readiness;
+    private volatile DeckDao deckDao;
+    private volatile DeckReaper deckReaper;
+    private volatile ReplicationPrimary replicationPrimary;
+    private volatile ReplicationStandby replicationStandby;
+    private volatile ShufflerRegistry shufflers;
+
+    @Override
+    protected void withInjector(Injector injector) {
+        String importFile = System.getProperty(IMPORT_FILE_PROPERTY);
+        if (importFile != null) {
+            File file = new File(importFile);
+            System.out.println("Importing decks from " + file.getAbsolutePath() + "...");
+            ImportResultDto result = injector.getInstance(DeckImporter.class).importFile(file,
+                    (bytesDone, totalBytes, decks) -> System.out.println(
+                            String.format("Imported %d decks, %d%% done.", decks, 100 * bytesDone / totalBytes)));
+            System.out.println(String.format("Imported %d decks from %s in %dms, %d lines skipped.",
+                    result.getDecks(), result.getFile(), result.getElapsedMillis(), result.getErrors()));
+        }
+
+        shufflers = injector.getInstance(ShufflerRegistry.class);
+        long start = System.currentTimeMillis();
+        int iterations = new WarmUp(shufflers,
+                Integer.getInteger(WARMUP_ITERATIONS_PROPERTY, WarmUp.DEFAULT_MIN_ITERATIONS),
+                Long.getLong(WARMUP_MAX_MILLIS_PROPERTY, WarmUp.DEFAULT_MAX_MILLIS)).run();
+        if (iterations > 0) {
+            System.out.println(String.format("Warmed up with %d iterations in %dms.", iterations,
+                    System.currentTimeMillis() - start));
+        }
+        deckDao = injector.getInstance(DeckDao.class);
+        deckReaper = injector.getInstance(DeckReaper.class).start();
+        try {
+            replicationPrimary = injector.getInstance(ReplicationPrimary.class).start();
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to listen for standbys", ioe);
+        }
+        replicationStandby = injector.getInstance(ReplicationStandby.class).start();
+        readiness = injector.getInstance(Readiness.class);
+        readiness.ready();
+    }
+
+    /**
+     * Reports the service draining, and waits for drain.delayMillis before the server stops accepting requests.
+     */
+    void drain() {
+        Readiness current = readiness;
+        if (current == null || current.getState() == Readiness.State.DRAINING) {
+            return;
+        }
+        current.drain();
+        long delay = Long.getLong(DRAIN_DELAY_PROPERTY, 0L);
+        if (delay > 0) {
+            System.out.println(String.format("Draining for %dms...", delay));
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        super.contextDestroyed(event);
+        if (deckReaper != null) {
+            deckReaper.close();
+        }
+        if (replicationStandby != null) {
+            replicationStandby.close();
+        }
+        if (replicationPrimary != null) {
+            replicationPrimary.close();
+        }
+        ShufflerRegistry registry = shufflers;
+        if (registry != null) {
+            registry.close();
+        }
+        DeckDao current = deckDao;
+        TieredStorage storage = current == null ? null : current.getTieredStorage();
+        if (storage != null) {
+            synchronized (storage) {
+                try {
+                    storage.getColdStore().close();
+                } catch (IOException ioe) {
+                    System.err.println("Unable to close cold storage: " + ioe);
+                }
+            }
+        }
+    }
+}
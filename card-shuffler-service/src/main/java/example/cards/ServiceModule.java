@@ -1,18 +1,37 @@
 package example.cards;
 
-import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
+import example.cards.dao.ColdDeckStore;
 import example.cards.dao.DeckDao;
-import example.cards.shuffler.DeckShuffler;
+import example.cards.dao.DeckReadCache;
+import example.cards.dao.DeckSnapshots;
+import example.cards.dao.DeckReaper;
+import example.cards.dao.TieredStorage;
+import example.cards.filter.AdaptiveConcurrencyLimit;
+import example.cards.filter.AdmissionFilter;
+import example.cards.filter.DeckETagFilter;
+import example.cards.filter.StandbyFilter;
+import example.cards.filter.TracingFilter;
+import example.cards.lifecycle.Readiness;
+import example.cards.metrics.Metrics;
+import example.cards.provider.PooledJacksonJsonProvider;
+import example.cards.quality.ShuffleQualityAnalyzer;
+import example.cards.replication.ReplicationPrimary;
+import example.cards.replication.ReplicationStandby;
+import example.cards.resource.AdminResourceImpl;
 import example.cards.resource.DeckResourceImpl;
-import example.cards.shuffler.RandomShuffler;
-import io.swagger.jaxrs.config.BeanConfig;
-import io.swagger.jaxrs.listing.ApiListingResource;
-import io.swagger.jaxrs.listing.SwaggerSerializers;
+import example.cards.resource.SwaggerResource;
+import example.cards.shuffler.MeteredShuffler;
+import example.cards.shuffler.PermutationPoolShuffler;
+import example.cards.shuffler.ShufflerRegistry;
+import example.cards.shuffler.Shufflers;
+import example.cards.trace.SlowRequests;
 
 import javax.inject.Named;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Module created for service injection.
@@ -20,46 +39,300 @@ import javax.inject.Named;
 public class ServiceModule extends AbstractModule {
 
     public static final String ALGORITHM_PROPERTY = "algorithm";
+    public static final String RATE_LIMIT_PROPERTY = "admission.rate";
+    public static final String BURST_PROPERTY = "admission.burst";
+    public static final String ADDRESS_RATE_LIMIT_PROPERTY = "admission.addressRate";
+    public static final String ADDRESS_BURST_PROPERTY = "admission.addressBurst";
+    public static final String MAX_CONCURRENCY_PROPERTY = "admission.maxConcurrency";
+    public static final String HOT_CARDS_PROPERTY = "storage.hotCards";
+    public static final String COLD_DIRECTORY_PROPERTY = "storage.coldDirectory";
+    public static final String SEGMENT_SIZE_PROPERTY = "storage.segmentSize";
+    public static final String IMPORT_DIRECTORY_PROPERTY = "import.directory";
+    public static final String CACHE_TTL_PROPERTY = "cache.ttlMillis";
+    public static final String CACHE_MAX_DECKS_PROPERTY = "cache.maxDecks";
+    public static final String SNAPSHOT_TTL_PROPERTY = "snapshot.ttlMillis";
+    public static final String SNAPSHOT_MAX_PROPERTY = "snapshot.maxSnapshots";
+    public static final String TRACE_SLOWEST_PROPERTY = "trace.slowest";
+    public static final String EXPIRY_PERIOD_PROPERTY = "expiry.periodMillis";
+    public static final String EXPIRY_BATCH_SIZE_PROPERTY = "expiry.batchSize";
+    public static final String REPLICATION_PORT_PROPERTY = "replication.port";
+    public static final String REPLICATION_QUEUE_CAPACITY_PROPERTY = "replication.queueCapacity";
+    public static final String REPLICATION_BATCH_SIZE_PROPERTY = "replication.batchSize";
+    public static final String REPLICATION_PRIMARY_PROPERTY = "replication.primary";
+    public static final String REPLICATION_RETRY_PROPERTY = "replication.retryMillis";
+    public static final String QUALITY_PARALLELISM_PROPERTY = "quality.parallelism";
 
     @Override
     public void configure() {
-        // Creates the swagger configuration - should be made configurable.
-        BeanConfig beanConfig = new BeanConfig();
-        beanConfig.setVersion("1.0.2");
-        beanConfig.setSchemes(new String[]{"http"}); // should support https in future.
-        beanConfig.setHost("localhost:8080"); // should be configured to DNS in future.
-        beanConfig.setBasePath("/api");
-        beanConfig.setResourcePackage("com.nike.cards.resource");
-        beanConfig.setScan(true);
-
-        bind(SwaggerSerializers.class);
-        bind(JacksonJsonProvider.class);
-        bind(ApiListingResource.class);
+        // The swagger spec is generated by the build, see SwaggerSpec.
+        bind(SwaggerResource.class);
+        bind(PooledJacksonJsonProvider.class);
+        bind(DeckETagFilter.class);
         bind(DeckResourceImpl.class);
+        bind(AdminResourceImpl.class);
     }
 
     @Provides
     @Named(ALGORITHM_PROPERTY)
     public String getAlgorithmConfig() {
-        return System.getProperty(ALGORITHM_PROPERTY, "random");
+        return System.getProperty(ALGORITHM_PROPERTY, Shufflers.DEFAULT);
     }
 
     /**
-     * Deck shuffler which loads up a deck shuffler based on algorithm.
-     * @param algorithm algorithm used to shuffle cards
-     * @return non null DeckShuffler to shuffle the card
+     * Directory the admin import endpoint may read files from, empty when imports through the API are disabled.
+     * @return import directory, or empty string
      */
     @Provides
-    public DeckShuffler deckShuffler(@Named(ALGORITHM_PROPERTY) String algorithm) {
-        switch(algorithm) {
-            default:
-                return new RandomShuffler();
-        }
+    @Named(IMPORT_DIRECTORY_PROPERTY)
+    public String getImportDirectoryConfig() {
+        return System.getProperty(IMPORT_DIRECTORY_PROPERTY, "");
+    }
+
+    /**
+     * Shufflers requests choose from, defaulting to the algorithm named by the algorithm system property.
+     * @param algorithm algorithm used to shuffle cards when a request doesn't choose one
+     * @return singleton registry of every algorithm's shared shuffler, closed with the service
+     */
+    @Provides
+    @Singleton
+    public ShufflerRegistry getShufflerRegistry(@Named(ALGORITHM_PROPERTY) String algorithm) {
+        return ShufflerRegistry.create(algorithm);
+    }
+
+    /**
+     * Shuffle quality analyzer, shuffling on a pool of its own of quality.parallelism threads (default half the
+     * processors).
+     * @return singleton analyzer shared by every analysis
+     */
+    @Provides
+    @Singleton
+    public ShuffleQualityAnalyzer getShuffleQualityAnalyzer() {
+        return new ShuffleQualityAnalyzer(Integer.getInteger(QUALITY_PARALLELISM_PROPERTY,
+                Math.max(1, Runtime.getRuntime().availableProcessors() / 2)));
     }
 
+    /**
+     * Deck dao, keeping every deck on heap unless storage.hotCards is set to bound the number of cards on heap.
+     * Cards beyond that budget are spilled to memory-mapped segment files of storage.segmentSize bytes (default
+     * 64MB) in storage.coldDirectory (default the temp directory).  Reads of a deck are shared for up to
+     * cache.ttlMillis (default 1000) across up to cache.maxDecks decks (default 10000).  Snapshots of listings are
+     * held for snapshot.ttlMillis after their last page was read (default 60000), up to snapshot.maxSnapshots
+     * (default 10000).
+     * @return singleton dao
+     */
     @Provides
     @Singleton
     public DeckDao getDeckDao() {
-        return new DeckDao();
+        DeckReadCache readCache = new DeckReadCache(
+                Long.getLong(CACHE_TTL_PROPERTY, DeckReadCache.DEFAULT_TTL_MILLIS),
+                Integer.getInteger(CACHE_MAX_DECKS_PROPERTY, DeckReadCache.DEFAULT_MAX_DECKS));
+        DeckSnapshots snapshots = new DeckSnapshots(
+                Long.getLong(SNAPSHOT_TTL_PROPERTY, DeckSnapshots.DEFAULT_TTL_MILLIS),
+                Integer.getInteger(SNAPSHOT_MAX_PROPERTY, DeckSnapshots.DEFAULT_MAX_SNAPSHOTS));
+        long hotCards = Long.getLong(HOT_CARDS_PROPERTY, 0L);
+        if (hotCards <= 0) {
+            return new DeckDao(null, readCache, snapshots);
+        }
+        ColdDeckStore coldStore = new ColdDeckStore(
+                new File(System.getProperty(COLD_DIRECTORY_PROPERTY, System.getProperty("java.io.tmpdir"))),
+                Integer.getInteger(SEGMENT_SIZE_PROPERTY, 64 * 1024 * 1024));
+        return new DeckDao(new TieredStorage(hotCards, coldStore), readCache, snapshots);
+    }
+
+    /**
+     * Reaper of the dao's expired decks, looking for them every expiry.periodMillis (default 1000) in batches of
+     * expiry.batchSize decks (default 256).  Started and stopped with the service.
+     * @param deckDao dao whose decks are expired
+     * @return singleton reaper, not started
+     */
+    @Provides
+    @Singleton
+    public DeckReaper getDeckReaper(DeckDao deckDao) {
+        return new DeckReaper(deckDao,
+                Long.getLong(EXPIRY_PERIOD_PROPERTY, DeckReaper.DEFAULT_PERIOD_MILLIS),
+                Integer.getInteger(EXPIRY_BATCH_SIZE_PROPERTY, DeckReaper.DEFAULT_BATCH_SIZE));
+    }
+
+    /**
+     * Primary side of the replication, shipping the dao's changes to standbys connecting to replication.port on the
+     * loopback interface, in batches of up to replication.batchSize changes (default 1024), a standby being
+     * disconnected once replication.queueCapacity changes (default 65536) are queued for it.  Disabled unless
+     * replication.port is set.  Started and stopped with the service.
+     * @param deckDao dao whose changes are shipped
+     * @return singleton primary, not started
+     */
+    @Provides
+    @Singleton
+    public ReplicationPrimary getReplicationPrimary(DeckDao deckDao) {
+        return new ReplicationPrimary(deckDao,
+                Integer.getInteger(REPLICATION_PORT_PROPERTY, -1),
+                Integer.getInteger(REPLICATION_QUEUE_CAPACITY_PROPERTY, ReplicationPrimary.DEFAULT_QUEUE_CAPACITY),
+                Integer.getInteger(REPLICATION_BATCH_SIZE_PROPERTY, ReplicationPrimary.DEFAULT_MAX_BATCH_SIZE));
+    }
+
+    /**
+     * Standby side of the replication, applying the changes of the primary at replication.primary (host:port) and
+     * connecting again every replication.retryMillis (default 1000) should the connection fail.  Disabled unless
+     * replication.primary is set.  Started and stopped with the service.
+     * @param deckDao dao the changes are applied to
+     * @return singleton standby, not started
+     */
+    @Provides
+    @Singleton
+    public ReplicationStandby getReplicationStandby(DeckDao deckDao) {
+        return new ReplicationStandby(deckDao, System.getProperty(REPLICATION_PRIMARY_PROPERTY),
+                Long.getLong(REPLICATION_RETRY_PROPERTY, ReplicationStandby.DEFAULT_RETRY_MILLIS));
+    }
+
+    /**
+     * Filter rejecting modifications while the service is a standby.
+     * @param standby standby side of the replication
+     * @return singleton filter shared by all requests
+     */
+    @Provides
+    @Singleton
+    public StandbyFilter getStandbyFilter(ReplicationStandby standby) {
+        return new StandbyFilter(standby);
+    }
+
+    /**
+     * Read cache of the dao, so that the json provider can share the serialized form of cached decks.
+     * @return the dao's read cache
+     */
+    @Provides
+    public DeckReadCache getDeckReadCache(DeckDao deckDao) {
+        return deckDao.getReadCache();
+    }
+
+    /**
+     * Admission control filter, configured per client with the admission.rate (requests per second) and
+     * admission.burst system properties, per remote address of requests with an api key with admission.addressRate
+     * and admission.addressBurst, and service wide with admission.maxConcurrency.
+     * @param deckDao dao used to weight shuffles by deck size
+     * @return singleton filter shared by all requests
+     */
+    @Provides
+    @Singleton
+    public AdmissionFilter getAdmissionFilter(DeckDao deckDao) {
+        int maxConcurrency = Integer.getInteger(MAX_CONCURRENCY_PROPERTY, 200);
+        return new AdmissionFilter(
+                deckDao,
+                Double.parseDouble(System.getProperty(RATE_LIMIT_PROPERTY, "1000")),
+                Long.getLong(BURST_PROPERTY, 2000L),
+                Double.parseDouble(System.getProperty(ADDRESS_RATE_LIMIT_PROPERTY, "10000")),
+                Long.getLong(ADDRESS_BURST_PROPERTY, 20000L),
+                new AdaptiveConcurrencyLimit(maxConcurrency, Math.min(10, maxConcurrency), maxConcurrency, 2.0));
+    }
+
+    /**
+     * Readiness of the service, reported once warmed up and until it starts draining.
+     * @return singleton readiness
+     */
+    @Provides
+    @Singleton
+    public Readiness getReadiness() {
+        return new Readiness();
+    }
+
+    /**
+     * Slowest requests traced, keeping trace.slowest requests (default 20).
+     * @return singleton slow request log
+     */
+    @Provides
+    @Singleton
+    public SlowRequests getSlowRequests() {
+        return new SlowRequests(Integer.getInteger(TRACE_SLOWEST_PROPERTY, SlowRequests.DEFAULT_CAPACITY));
+    }
+
+    /**
+     * Request tracing filter, feeding the slowest requests.
+     * @param slowRequests log of the slowest requests
+     * @return singleton filter shared by all requests
+     */
+    @Provides
+    @Singleton
+    public TracingFilter getTracingFilter(SlowRequests slowRequests) {
+        return new TracingFilter(slowRequests);
+    }
+
+    /**
+     * Service metrics, with gauges registered for the components that keep their own counters.
+     * @param admissionFilter filter whose admission counters are exposed
+     * @param deckDao dao whose storage counters are exposed
+     * @param shufflers shufflers whose counters are exposed for each algorithm
+     * @param primary primary side of the replication, whose counters are exposed if enabled
+     * @param standby standby side of the replication, whose counters are exposed if enabled
+     * @return singleton metrics registry
+     */
+    @Provides
+    @Singleton
+    public Metrics getMetrics(AdmissionFilter admissionFilter, DeckDao deckDao, ShufflerRegistry shufflers,
+                              ReplicationPrimary primary, ReplicationStandby standby) {
+        Metrics metrics = new Metrics();
+        metrics.gauge("admission.admitted", admissionFilter::getAdmitted);
+        metrics.gauge("admission.rateLimited", admissionFilter::getRateLimited);
+        metrics.gauge("admission.concurrencyLimited", admissionFilter::getConcurrencyLimited);
+        metrics.gauge("admission.concurrency.limit", () -> admissionFilter.getConcurrencyLimit().getLimit());
+        metrics.gauge("admission.concurrency.inFlight", () -> admissionFilter.getConcurrencyLimit().getInFlight());
+
+        for (String algorithm : shufflers.names()) {
+            MeteredShuffler shuffler = shufflers.get(algorithm);
+            metrics.gauge("shuffler." + algorithm + ".shuffles", shuffler::getShuffles);
+            metrics.gauge("shuffler." + algorithm + ".cards", shuffler::getCards);
+            metrics.gauge("shuffler." + algorithm + ".micros",
+                    () -> TimeUnit.NANOSECONDS.toMicros(shuffler.getNanos()));
+        }
+
+        PermutationPoolShuffler pool = shufflers.getPermutationPool();
+        if (pool != null) {
+            metrics.gauge("shuffler.pool.level", pool::getPoolLevel);
+            metrics.gauge("shuffler.pool.capacity", pool::getPoolCapacity);
+            metrics.gauge("shuffler.pool.pooled", pool::getPooledShuffles);
+            metrics.gauge("shuffler.pool.drained", pool::getDrainedShuffles);
+            metrics.gauge("shuffler.pool.otherSize", pool::getOtherSizeShuffles);
+        }
+
+        metrics.gauge("expiry.scheduled", deckDao::getScheduledExpiries);
+        metrics.gauge("expiry.expired.ttl", deckDao::getExpiredByTtl);
+        metrics.gauge("expiry.expired.idle", deckDao::getExpiredByIdle);
+
+        if (primary.isEnabled()) {
+            metrics.gauge("replication.standbys", primary::getStandbys);
+            metrics.gauge("replication.standbys.synced", primary::getSyncedStandbys);
+            metrics.gauge("replication.sent", primary::getSent);
+            metrics.gauge("replication.batches", primary::getBatches);
+            metrics.gauge("replication.lag", primary::getLag);
+            metrics.gauge("replication.dropped", primary::getDropped);
+        }
+        if (standby.isEnabled()) {
+            metrics.gauge("replication.applied", standby::getApplied);
+            metrics.gauge("replication.connects", standby::getConnects);
+            metrics.gauge("replication.connected", () -> standby.isConnected() ? 1 : 0);
+            metrics.gauge("replication.readOnly", () -> standby.isReadOnly() ? 1 : 0);
+        }
+
+        DeckReadCache readCache = deckDao.getReadCache();
+        metrics.gauge("cache.deck.hits", readCache::getHits);
+        metrics.gauge("cache.deck.coalesced", readCache::getCoalesced);
+        metrics.gauge("cache.deck.misses", readCache::getMisses);
+        metrics.gauge("cache.deck.serializations", readCache::getSerializations);
+
+        DeckSnapshots snapshots = deckDao.getSnapshots();
+        metrics.gauge("snapshots.held", snapshots::getHeld);
+        metrics.gauge("snapshots.taken", snapshots::getTaken);
+        metrics.gauge("snapshots.expired", snapshots::getExpired);
+
+        TieredStorage storage = deckDao.getTieredStorage();
+        if (storage != null) {
+            metrics.gauge("storage.hits", storage::getHits);
+            metrics.gauge("storage.misses", storage::getMisses);
+            metrics.gauge("storage.evictions", storage::getEvictions);
+            metrics.gauge("storage.hot.cards", storage::getHotCards);
+            metrics.gauge("storage.hot.budget", storage::getHotCardBudget);
+            metrics.gauge("storage.cold.liveBytes", storage.getColdStore()::getLiveBytes);
+            metrics.gauge("storage.cold.mappedBytes", storage.getColdStore()::getMappedBytes);
+            metrics.gauge("storage.cold.releasedSegments", storage.getColdStore()::getReleasedSegments);
+        }
+        return metrics;
     }
 }
@@ -0,0 +1,280 @@
+package example.cards.dao;
+
+import com.google.common.base.Preconditions;
+import example.cards.model.CardArray;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append only store of card lists in memory-mapped segment files, holding the cards of decks evicted from the
+ * heap by {@link TieredStorage}.
+ * <p>
+ * A record is the number of cards followed by each card as a length prefixed UTF-8 string (a length of -1 being
+ * a null card).  Records are addressed by segment number in the upper 32 bits and offset in the lower 32 bits.
+ * Space of freed records is only accounted for per segment, not reused.  Records still live in a sparse segment can
+ * be {@link #move(long) moved} to the segment being written, and a segment left without live records, other than
+ * the one being written, is unmapped and its file deleted.  The files are a spill area for a single process and are
+ * deleted on exit.
+ * <p>
+ * Not thread safe, only used by {@link TieredStorage} while synchronized on it.
+ */
+public class ColdDeckStore implements Closeable {
+
+    /**
+     * Largest share of a segment's bytes still live for its records to be worth moving, see
+     * {@link #isSparse(long)}.
+     */
+    static final double SPARSE_RATIO = 0.5;
+
+    private final File directory;
+    private final int segmentSize;
+    // by segment number, null once released
+    private final List<Segment> segments = new ArrayList<>();
+    // only written while synchronized on the tiered storage, volatile so they can be read for metrics without it
+    private volatile long writtenBytes;
+    private volatile long freedBytes;
+    private volatile long mappedBytes;
+    private volatile long releasedSegments;
+
+    /**
+     * @param directory directory the segment files are created in
+     * @param segmentSize size of each segment file in bytes; a record larger than this gets a segment of its own
+     */
+    public ColdDeckStore(File directory, int segmentSize) {
+        Preconditions.checkArgument(segmentSize > 0, "segmentSize must be a positive integer");
+        this.directory = Preconditions.checkNotNull(directory);
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * @param cards cards to store
+     * @return address of the stored record
+     */
+    public long write(List<String> cards) {
+        byte[][] encoded = new byte[cards.size()][];
+        int recordSize = Integer.BYTES;
+        for (int i = 0; i < encoded.length; i++) {
+            String card = cards.get(i);
+            encoded[i] = card == null ? null : card.getBytes(StandardCharsets.UTF_8);
+            recordSize += Integer.BYTES + (card == null ? 0 : encoded[i].length);
+        }
+
+        MappedByteBuffer segment = segmentFor(recordSize);
+        long address = ((long) (segments.size() - 1) << 32) | segment.position();
+        segment.putInt(encoded.length);
+        for (byte[] card : encoded) {
+            if (card == null) {
+                segment.putInt(-1);
+            } else {
+                segment.putInt(card.length);
+                segment.put(card);
+            }
+        }
+        written(recordSize);
+        return address;
+    }
+
+    /**
+     * Copies a record, as is, to the segment being written and frees it, so that its segment may be released.
+     *
+     * @param address address returned by {@link #write(List)} or by this method
+     * @return address of the moved record
+     */
+    public long move(long address) {
+        ByteBuffer record = record(address);
+        int recordSize = recordSize(record.duplicate());
+        record.limit(record.position() + recordSize);
+
+        MappedByteBuffer segment = segmentFor(recordSize);
+        long moved = ((long) (segments.size() - 1) << 32) | segment.position();
+        segment.put(record);
+        written(recordSize);
+        free(address);
+        return moved;
+    }
+
+    /**
+     * @param address address returned by {@link #write(List)}
+     * @return true if the record's segment isn't the one being written, and at most {@link #SPARSE_RATIO} of it
+     *         is live, so that moving its records releases more than they take
+     */
+    public boolean isSparse(long address) {
+        Segment segment = segments.get((int) (address >>> 32));
+        return segment != active() && segment.liveBytes <= segment.buffer.capacity() * SPARSE_RATIO;
+    }
+
+    /**
+     * @param address address returned by {@link #write(List)}
+     * @return the stored cards
+     */
+    public List<String> read(long address) {
+        ByteBuffer record = record(address);
+        String[] cards = new String[record.getInt()];
+        for (int i = 0; i < cards.length; i++) {
+            int length = record.getInt();
+            if (length >= 0) {
+                byte[] card = new byte[length];
+                record.get(card);
+                cards[i] = new String(card, StandardCharsets.UTF_8);
+            }
+        }
+        return CardArray.wrap(cards);
+    }
+
+    /**
+     * @param address address returned by {@link #write(List)}
+     * @return number of cards in the record, without decoding them
+     */
+    public int readSize(long address) {
+        return record(address).getInt();
+    }
+
+    /**
+     * Marks a record as no longer used.
+     *
+     * @param address address returned by {@link #write(List)}
+     */
+    public void free(long address) {
+        int number = (int) (address >>> 32);
+        Segment segment = segments.get(number);
+        int recordSize = recordSize(record(address));
+        segment.liveBytes -= recordSize;
+        freedBytes += recordSize;
+        if (segment.liveBytes == 0 && segment != active()) {
+            release(number);
+        }
+    }
+
+    private static int recordSize(ByteBuffer record) {
+        int recordSize = Integer.BYTES;
+        for (int i = record.getInt(); i > 0; i--) {
+            int length = record.getInt();
+            if (length > 0) {
+                record.position(record.position() + length);
+            }
+            recordSize += Integer.BYTES + Math.max(0, length);
+        }
+        return recordSize;
+    }
+
+    /**
+     * @return bytes taken by records which are still in use
+     */
+    public long getLiveBytes() {
+        return writtenBytes - freedBytes;
+    }
+
+    /**
+     * @return bytes mapped across all segment files
+     */
+    public long getMappedBytes() {
+        return mappedBytes;
+    }
+
+    /**
+     * @return bytes taken by every record written, including those freed since
+     */
+    public long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    /**
+     * @return number of segments released as none of their records were live any more
+     */
+    public long getReleasedSegments() {
+        return releasedSegments;
+    }
+
+    private ByteBuffer record(long address) {
+        ByteBuffer record = segments.get((int) (address >>> 32)).buffer.duplicate();
+        record.position((int) address);
+        return record;
+    }
+
+    private Segment active() {
+        return segments.isEmpty() ? null : segments.get(segments.size() - 1);
+    }
+
+    /**
+     * @return the segment to write a record of the given size to, a new one if the current one is full
+     */
+    private MappedByteBuffer segmentFor(int recordSize) {
+        Segment segment = active();
+        if (segment == null || segment.buffer.remaining() < recordSize) {
+            segment = newSegment(Math.max(segmentSize, recordSize));
+        }
+        return segment.buffer;
+    }
+
+    private void written(int recordSize) {
+        active().liveBytes += recordSize;
+        writtenBytes += recordSize;
+    }
+
+    private Segment newSegment(int size) {
+        try {
+            File file = File.createTempFile("decks-", ".segment", directory);
+            file.deleteOnExit();
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            FileChannel channel = randomAccessFile.getChannel();
+            Segment previous = active();
+            Segment segment = new Segment(file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            segments.add(segment);
+            mappedBytes += size;
+            if (previous != null && previous.liveBytes == 0) {
+                release(segments.size() - 2);
+            }
+            return segment;
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to create deck segment in " + directory, ioe);
+        }
+    }
+
+    /**
+     * Closes and deletes the file of a segment.  The mapping itself goes once the buffer is garbage collected.
+     */
+    private void release(int number) {
+        Segment segment = segments.set(number, null);
+        try {
+            segment.channel.close();
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to close deck segment " + segment.file, ioe);
+        }
+        segment.file.delete();
+        mappedBytes -= segment.buffer.capacity();
+        releasedSegments++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Segment segment : segments) {
+            if (segment != null) {
+                segment.channel.close();
+            }
+        }
+    }
+
+    private static final class Segment {
+        private final File file;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        // bytes of the records written and not freed
+        private long liveBytes;
+
+        private Segment(File file, FileChannel channel, MappedByteBuffer buffer) {
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+}
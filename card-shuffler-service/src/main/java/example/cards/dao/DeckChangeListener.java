@@ -0,0 +1,33 @@
+package example.cards.dao;
+
+import java.util.List;
+
+/**
+ * Listener of every change made to the decks of a {@link DeckDao}, e.g. to ship them to a standby.
+ * <p>
+ * Listeners are called with the lock of the changed deck held, so the changes of a deck are seen in the order they
+ * were made, and must return quickly without calling back into the dao.  Changes of different decks may be seen in
+ * any order.
+ */
+public interface DeckChangeListener {
+
+    /**
+     * A deck was created or its cards replaced.
+     *
+     * @param id id of the deck
+     * @param name name of the deck
+     * @param cards cards of the deck, never modified
+     * @param version version of the deck after the change
+     * @param expiresAt time after which the deck is removed, 0 if it never is
+     * @param idleMillis time after which the deck is removed once no longer read or modified, 0 if it never is
+     */
+    void changed(int id, String name, List<String> cards, long version, long expiresAt, long idleMillis);
+
+    /**
+     * A deck was removed, whether by a client or as it expired.
+     *
+     * @param id id of the deck
+     * @param version version of the deck after its removal
+     */
+    void removed(int id, long version);
+}
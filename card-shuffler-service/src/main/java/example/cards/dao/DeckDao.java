@@ -1,64 +1,292 @@
 package example.cards.dao;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import example.cards.entity.DeckEntity;
+import example.cards.model.CardArray;
+import example.cards.model.CompactionDto;
 import example.cards.model.DeckDto;
 import example.cards.model.DeckListDto;
+import example.cards.model.DeckPageDto;
+import example.cards.model.FootprintDto;
 import example.cards.shuffler.DeckShuffler;
+import example.cards.trace.RequestTrace;
+import example.cards.trace.Stage;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.TreeMap;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
 
 /**
  * Data access layer, injectable at runtime to allow for different deck access/persist/deletion operations.
  * <p>
- * This DAO is a very inefficient implementation to deal with multiple threads.  It basically locks interactions
- * to the underlying data store (a map) for ease of implementation. A better implementation would use a real
- * scalable data store, or would use better concurrency mechanisms to do sub copies of the lists for paging
- * while managed better access to the index variable (locks around index for creations).
+ * Decks are held in a concurrent sorted map, and every operation locks only the decks it touches (see
+ * {@link DeckLocks}), so operations on different decks run in parallel.  Operations spanning several decks, such
+ * as {@link #merge(int, int)}, lock all of them before reading any, making them atomic with respect to every
+ * other operation on those decks.  Shuffles, the most expensive operation on a single deck, are optimistic: see
+ * {@link #shuffleDeck(int, DeckShuffler, Long)}.  Every modification increments the deck's version, which lets
+ * clients make modifications conditional on the deck being unchanged since they read it.
+ * <p>
+ * Decks are also indexed by name, card and size as they change (see {@link DeckIndex}), for searches which don't
+ * scan every deck.
+ * <p>
+ * Decks may be created with a time to live and an idle timeout, after which they are removed by
+ * {@link #expireDecks(long, int)}, called in small batches by a {@link DeckReaper}.  Expiring decks are scheduled
+ * in an {@link ExpiryWheel}, and each is removed with only its own lock held.
+ * <p>
+ * Every change of a deck is also published to a persistent {@link DeckTree}, from which listings take snapshots
+ * that later pages read as of the first, however the decks change meanwhile (see {@link #getDecks(int, int, String)}).
+ * <p>
+ * Every change of a deck is handed to the {@link DeckChangeListener}, if any, with the deck's lock held, and can be
+ * applied to another dao with {@link #replicate(int, String, List, long, long, long)} and {@link #remove(int)}, or
+ * the other dao brought in line with a {@link #snapshot(Consumer)} by {@link #reconcile(DeckEntity)} and
+ * {@link #retainDecks(IntPredicate)}.
+ * <p>
+ * The footprint of the decks is estimated by {@link #getFootprint(int)}, and reduced by {@link #compact(int)}, which
+ * goes through the decks one at a time while requests carry on, or by {@link #startCompaction(int)} which does so on
+ * a thread of its own.
+ * <p>
+ * The cards of tiered storage are shared by every deck, so calls into it are additionally made while synchronized
+ * on the storage, never the other way round.
  */
+// locks are held by try-with-resources without the handle being referenced
+@SuppressWarnings("try")
 public class DeckDao {
 
-    // Starting index definition - static and volatile for multiple thread access.
-    private volatile int index = 0;
+    // Next id to assign, ids are never reused.
+    private final AtomicInteger index = new AtomicInteger();
 
     /**
-     * Decks is defined as a tree map, as order must be preserved by id for pagination purposes, while a map
+     * Decks is defined as a sorted map, as order must be preserved by id for pagination purposes, while a map
      * provides the simplest look up mechanism while preserving the natural order.  If a list were chosen
      * for this implementation we would need to maintain a correlation of id => index which would require
      * more complex logic in additions/deletions, plus additional memory for storing the index to id mapping.
      * <p>
      * The tradeoff is longer lookup times when performing pagination.
      */
-    private final TreeMap<Integer, DeckEntity> decks = Maps.newTreeMap();
+    private final ConcurrentSkipListMap<Integer, DeckEntity> decks = new ConcurrentSkipListMap<>();
+
+    /**
+     * Number of decks, as the size of the map isn't a constant time operation.
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final DeckLocks locks = new DeckLocks();
+
+    private final ExpiryWheel expiries = new ExpiryWheel(System.currentTimeMillis());
+    private final LongAdder expiredByTtl = new LongAdder();
+    private final LongAdder expiredByIdle = new LongAdder();
+
+    /**
+     * Shared instances of the cards, weakly held so that cards no deck holds any more are dropped.
+     */
+    private final Interner<String> cardInterner = Interners.newWeakInterner();
+
+    private final DeckIndex indexes = new DeckIndex(cardInterner, decks);
+
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    // running compaction, or the last one
+    private volatile Compaction compaction;
+
+    private final DeckTree tree = new DeckTree();
+
+    /**
+     * Optional hot/cold storage of the cards, null when every deck is kept on heap.
+     */
+    private final TieredStorage tieredStorage;
+
+    /**
+     * Reads of single decks, shared between concurrent readers.
+     */
+    private final DeckReadCache readCache;
 
     /**
-     * Retrieval of deck, using basic pagination parameters.
+     * Snapshots of the tree held for listings.
+     */
+    private final DeckSnapshots snapshots;
+
+    private volatile DeckChangeListener changeListener;
+
+    public DeckDao() {
+        this(null);
+    }
+
+    /**
+     * @param tieredStorage storage bounding the cards kept on heap, or null to keep every deck on heap
+     */
+    public DeckDao(TieredStorage tieredStorage) {
+        this(tieredStorage, new DeckReadCache());
+    }
+
+    /**
+     * @param tieredStorage storage bounding the cards kept on heap, or null to keep every deck on heap
+     * @param readCache cache of single deck reads
+     */
+    public DeckDao(TieredStorage tieredStorage, DeckReadCache readCache) {
+        this(tieredStorage, readCache, new DeckSnapshots());
+    }
+
+    /**
+     * @param tieredStorage storage bounding the cards kept on heap, or null to keep every deck on heap
+     * @param readCache cache of single deck reads
+     * @param snapshots snapshots held for listings
+     */
+    public DeckDao(TieredStorage tieredStorage, DeckReadCache readCache, DeckSnapshots snapshots) {
+        this.tieredStorage = tieredStorage;
+        this.readCache = Preconditions.checkNotNull(readCache);
+        this.snapshots = Preconditions.checkNotNull(snapshots);
+    }
+
+    /**
+     * Retrieval of deck, using basic pagination parameters, from a new snapshot of the decks.
      *
      * @param start start index from which to retrieve, should be 0 or a positive integer
      * @param limit total limit, should be a positive integer
-     * @return a list of sorted deck entities
+     * @return a list of sorted deck entities, along with the token of the snapshot
      * @throws IllegalArgumentException start or limit is a negative number
+     * @see #getDecks(int, int, String)
      */
-    public synchronized DeckListDto getDecks(int start, int limit) {
+    public DeckListDto getDecks(int start, int limit) {
+        return getDecks(start, limit, null);
+    }
+
+    /**
+     * Retrieval of deck, using basic pagination parameters.  The first page of a listing takes a snapshot of the
+     * decks, and later pages given its token read that same snapshot, so that a listing neither skips nor repeats
+     * decks, and shows each deck as it was when the listing started, whatever was created, shuffled or removed
+     * since.  Taking and reading a snapshot takes no lock, and writers never wait for it.  A snapshot is only held
+     * if the first page doesn't hold every deck.
+     *
+     * @param start start index from which to retrieve, should be 0 or a positive integer
+     * @param limit total limit, should be a positive integer
+     * @param snapshot token of the snapshot to read, or null or empty to take a new one
+     * @return a list of sorted deck entities, along with the token of the snapshot, empty if none was held
+     * @throws IllegalArgumentException start or limit is a negative number
+     * @throws SnapshotExpiredException if the snapshot is unknown or no longer held
+     */
+    public DeckListDto getDecks(int start, int limit, String snapshot) {
         // fail fast
         Preconditions.checkArgument(start >= 0, "start must be 0 or a positive integer");
         Preconditions.checkArgument(limit > 0, "limit must be a positive integer");
 
-        // return an empty array if the start is greater than the size.
-        if (start >= decks.size()) {
-            return DeckListDto.create(decks.size(), start, limit, false, Lists.newArrayList());
+        DeckTree.Root root;
+        boolean taken = Strings.isNullOrEmpty(snapshot);
+        if (taken) {
+            root = tree.snapshot();
+        } else {
+            root = snapshots.get(snapshot);
+            if (root == null) {
+                throw new SnapshotExpiredException(snapshot);
+            }
+        }
+
+        int total = root.size();
+        List<DeckTree.Entry> entries = root.page(start, limit);
+        List<DeckDto> page = Lists.newArrayListWithCapacity(entries.size());
+        for (DeckTree.Entry entry : entries) {
+            page.add(DeckDto.create(entry.id, entry.name, cardsOf(entry), entry.version));
+        }
+        boolean hasMore = (start+limit)<total;
+        if (taken) {
+            // no later page will read a snapshot whose first page held every deck
+            snapshot = hasMore ? snapshots.hold(root) : "";
+        }
+        return DeckListDto.create(total, start, limit, hasMore, snapshot, page);
+    }
+
+    /**
+     * Cards of a deck at the version of a snapshot's entry, without locking.  The entry is given the cards before
+     * the deck changes, so cards read from the deck while the entry has none are those of the entry's version.
+     */
+    private List<String> cardsOf(DeckTree.Entry entry) {
+        List<String> cards = entry.getCards();
+        if (cards != null) {
+            return cards;
+        }
+        CardArray current = peek(entry.deck);
+        cards = entry.getCards();
+        return cards != null ? cards : current;
+    }
+
+    /**
+     * Hands the cards of a deck over to its entry, before the deck changes or is removed, for the snapshots which
+     * hold that entry.
+     */
+    private void supersede(DeckEntity deck, List<String> cards) {
+        DeckTree.Entry entry = tree.snapshot().get(deck.getId());
+        if (entry != null) {
+            entry.supersede(cards);
+        }
+    }
+
+    /**
+     * Search of decks through their indexes, ordered by id and paginated by cursor: each page continues after the
+     * last deck of the previous page, however many decks were created or removed since.  Like
+     * {@link #getDecks(int, int)}, decks are read without locking.
+     *
+     * @param namePrefix prefix of the deck names, or null
+     * @param card card the decks must hold, or null
+     * @param minSize smallest number of cards, inclusive, or null
+     * @param maxSize largest number of cards, inclusive, or null
+     * @param cursor cursor returned with the previous page, or null for the first page
+     * @param limit total limit, should be a positive integer
+     * @return page of matching decks, every deck if no criteria is given
+     * @throws IllegalArgumentException limit is not positive or the cursor is invalid
+     */
+    public DeckPageDto searchDecks(String namePrefix, String card, Integer minSize, Integer maxSize, String cursor,
+                                   int limit) {
+        Preconditions.checkArgument(limit > 0, "limit must be a positive integer");
+        int after = Strings.isNullOrEmpty(cursor) ? DeckIndex.NONE : Integer.parseInt(cursor);
+        Preconditions.checkArgument(after >= DeckIndex.NONE && after < Integer.MAX_VALUE, "invalid cursor");
+
+        List<IntUnaryOperator> filters = indexes.filters(namePrefix, card, minSize, maxSize);
+        if (filters.isEmpty()) {
+            filters = Collections.singletonList(id -> {
+                Integer first = decks.ceilingKey(id);
+                return first == null ? DeckIndex.NONE : first;
+            });
+        }
+
+        List<DeckDto> page = Lists.newArrayListWithCapacity(Math.min(limit, 100));
+        int id = DeckIndex.next(filters, after + 1);
+        while (id != DeckIndex.NONE && page.size() < limit) {
+            DeckEntity entity = decks.get(id);
+            if (entity != null) {
+                long version = entity.getVersion();
+                DeckDto deck = DeckConverter.convertToDto(id, entity.getName(), peek(entity), version);
+                // the indexes may be a step behind a deck being changed
+                if (matches(deck, namePrefix, card, minSize, maxSize)) {
+                    page.add(deck);
+                    after = id;
+                }
+            }
+            id = id == Integer.MAX_VALUE ? DeckIndex.NONE : DeckIndex.next(filters, id + 1);
         }
+        String next = page.isEmpty() ? Strings.nullToEmpty(cursor) : Integer.toString(after);
+        return DeckPageDto.create(limit, id != DeckIndex.NONE, next, page);
+    }
 
-        List<DeckDto> pagedDeckDtos = decks.entrySet().stream()
-                .skip(start)
-                .limit(limit)
-                .map(e -> DeckConverter.convertToDto(e.getValue()))
-                .collect(Collectors.toList());
-        return DeckListDto.create(decks.size(), start, limit, (start+limit)<decks.size(), pagedDeckDtos);
+    private static boolean matches(DeckDto deck, String namePrefix, String card, Integer minSize, Integer maxSize) {
+        int cards = deck.getCards().size();
+        return (namePrefix == null || Strings.nullToEmpty(deck.getName()).startsWith(namePrefix))
+                && (card == null || deck.getCards().contains(card))
+                && (minSize == null || cards >= minSize)
+                && (maxSize == null || cards <= maxSize);
     }
 
     /**
@@ -68,22 +296,223 @@ public class DeckDao {
      * @return created DeckEntity
      * @throws NullPointerException if dto is null
      */
-    public synchronized DeckEntity createDeck(DeckDto dto) {
+    public DeckEntity createDeck(DeckDto dto) {
+        return createDeck(dto, 0, 0);
+    }
+
+    /**
+     * Creates a deck which expires.
+     *
+     * @param dto non-null dto to be translated and stored as a deck entity.
+     * @param ttlMillis time after which the deck is removed, 0 if it never is
+     * @param idleMillis time after which the deck is removed once no longer read or modified, 0 if it never is
+     * @return created DeckEntity
+     * @throws NullPointerException if dto is null
+     * @throws IllegalArgumentException if ttlMillis or idleMillis is negative
+     */
+    public DeckEntity createDeck(DeckDto dto, long ttlMillis, long idleMillis) {
         Preconditions.checkNotNull(dto);
-        DeckEntity entity = DeckConverter.convertToEntity(dto);
-        int deckId = index++;
-        decks.put(deckId, entity.setId(deckId));
+        checkExpiry(ttlMillis, idleMillis);
+        DeckEntity entity = expireIn(DeckConverter.convertToEntity(dto), ttlMillis, idleMillis);
+        insert(entity.setId(index.getAndIncrement()));
         // return true always, no real chance of failure here
         return entity;
     }
 
-    public synchronized DeckDto shuffleDeck(int deckId, DeckShuffler deckShuffler) {
+    /**
+     * Creates decks in bulk.  Ids are assigned consecutively in list order.
+     *
+     * @param dtos non-null dtos to be translated and stored as deck entities
+     * @return id of the first deck created, the others following it in list order
+     * @throws NullPointerException if dtos or any of its elements is null
+     */
+    public int createDecks(List<DeckDto> dtos) {
+        return createDecks(dtos, 0, 0);
+    }
+
+    /**
+     * Creates decks in bulk, which all expire alike.  Ids are assigned consecutively in list order.
+     *
+     * @param dtos non-null dtos to be translated and stored as deck entities
+     * @param ttlMillis time after which the decks are removed, 0 if they never are
+     * @param idleMillis time after which each deck is removed once no longer read or modified, 0 if it never is
+     * @return id of the first deck created, the others following it in list order
+     * @throws NullPointerException if dtos or any of its elements is null
+     * @throws IllegalArgumentException if ttlMillis or idleMillis is negative
+     */
+    public int createDecks(List<DeckDto> dtos, long ttlMillis, long idleMillis) {
+        Preconditions.checkNotNull(dtos);
+        checkExpiry(ttlMillis, idleMillis);
+        DeckEntity[] entities = new DeckEntity[dtos.size()];
+        for (int i = 0; i < entities.length; i++) {
+            entities[i] = expireIn(DeckConverter.convertToEntity(Preconditions.checkNotNull(dtos.get(i))),
+                    ttlMillis, idleMillis);
+        }
+        int firstId = index.getAndAdd(entities.length);
+        for (int i = 0; i < entities.length; i++) {
+            insert(entities[i].setId(firstId + i));
+        }
+        return firstId;
+    }
+
+    /**
+     * Publishes a new deck, then tells the listener about it while still holding the deck's lock.  A listener that
+     * starts listening while decks are being created either hears of a deck or finds it already in the map, and
+     * hears of the deck's creation before any of its later changes.
+     */
+    private void insert(DeckEntity entity) {
+        try (DeckLocks.Held held = locks.lock(entity.getId())) {
+            indexes.add(entity.getId(), entity.getName(), entity.getCards());
+            if (tieredStorage != null) {
+                synchronized (tieredStorage) {
+                    tieredStorage.admit(entity);
+                }
+            }
+            tree.put(new DeckTree.Entry(entity));
+            decks.put(entity.getId(), entity);
+            size.incrementAndGet();
+            if (entity.getExpiresAt() > 0 || entity.getIdleMillis() > 0) {
+                expiries.schedule(entity.getId(), deadline(entity));
+            }
+            DeckChangeListener listener = changeListener;
+            if (listener != null) {
+                listener.changed(entity.getId(), entity.getName(), entity.getCards(), entity.getVersion(),
+                        entity.getExpiresAt(), entity.getIdleMillis());
+            }
+        }
+    }
+
+    public DeckDto shuffleDeck(int deckId, DeckShuffler deckShuffler) {
+        return shuffleDeck(deckId, deckShuffler, null);
+    }
+
+    /**
+     * Shuffles a deck optimistically.  The deck's lock is only held to read the deck, and then to swap in the
+     * shuffled cards if the deck is still at the version read (a compare-and-swap on the version), so the shuffle
+     * itself runs concurrently with other operations on the deck, including other shuffles.  An unconditional
+     * shuffle which loses a race starts again from the newer version, a conditional one fails.
+     *
+     * @param deckId id of the deck
+     * @param deckShuffler shuffler applied to a copy of the deck
+     * @param expectedVersion version the deck must be at, or null to shuffle the deck whatever its version
+     * @return the shuffled deck, null if the deck does not exist
+     * @throws VersionConflictException if the deck is not at the expected version
+     */
+    public DeckDto shuffleDeck(int deckId, DeckShuffler deckShuffler, Long expectedVersion) {
         Preconditions.checkNotNull(deckShuffler);
-        DeckEntity deck = decks.get(deckId);
-        if (deck == null) {
-            return null;
+        while (true) {
+            DeckEntity deck;
+            long version;
+            List<String> cards;
+            try (DeckLocks.Held held = locks.lock(deckId)) {
+                deck = decks.get(deckId);
+                if (deck == null) {
+                    return null;
+                }
+                checkVersion(deck, expectedVersion);
+                version = deck.getVersion();
+                cards = load(deck);
+            }
+
+            CardArray shuffled = CardArray.copyOf(deckShuffler.shuffleDeck(new DeckEntity()
+                    .setId(deckId)
+                    .setName(deck.getName())
+                    .setCards(cards)
+                    .setVersion(version)).getCards());
+            RequestTrace.mark(Stage.SHUFFLE);
+
+            try (DeckLocks.Held held = locks.lock(deckId)) {
+                if (decks.get(deckId) != deck) {
+                    return null; // removed meanwhile
+                } else if (deck.getVersion() == version) {
+                    permute(deck, cards, shuffled);
+                    return DeckConverter.convertToDto(deckId, deck.getName(), shuffled, version + 1);
+                }
+                checkVersion(deck, expectedVersion);
+            }
+        }
+    }
+
+    /**
+     * Shuffles decks in bulk.  Each deck is read as for {@link #shuffleDeck(int, DeckShuffler, Long)}, then decks of
+     * the same size are shuffled together as the positions of their cards (see
+     * {@link DeckShuffler#shuffleDecks(int[], int)}), which for many small decks costs far less than a shuffle
+     * each.  Each shuffled deck is swapped in if still at the version read, and a deck changed meanwhile is shuffled
+     * again on its own.  Decks of fewer than two cards have a single order, and are returned as read.
+     *
+     * @param ids ids of the decks, null ids being skipped
+     * @param deckShuffler shuffler applied to the decks
+     * @return the shuffled decks in the order of the ids, null for null ids and decks which don't exist
+     */
+    public List<DeckDto> shuffleDecks(List<Integer> ids, DeckShuffler deckShuffler) {
+        Preconditions.checkNotNull(deckShuffler);
+        int count = ids.size();
+        DeckEntity[] read = new DeckEntity[count];
+        long[] versions = new long[count];
+        CardArray[] cards = new CardArray[count];
+        // positions in the ids of the decks of each size
+        Map<Integer, List<Integer>> bySize = new LinkedHashMap<>();
+        DeckDto[] shuffled = new DeckDto[count];
+        for (int i = 0; i < count; i++) {
+            Integer id = ids.get(i);
+            if (id == null) {
+                continue;
+            }
+            try (DeckLocks.Held held = locks.lock(id)) {
+                read[i] = decks.get(id);
+                if (read[i] == null) {
+                    continue;
+                }
+                versions[i] = read[i].getVersion();
+                cards[i] = load(read[i]);
+            }
+            if (cards[i].size() < 2) {
+                shuffled[i] = DeckConverter.convertToDto(id, read[i].getName(), cards[i], versions[i]);
+                continue;
+            }
+            bySize.computeIfAbsent(cards[i].size(), size -> Lists.newArrayList()).add(i);
+        }
+
+        for (Map.Entry<Integer, List<Integer>> sameSize : bySize.entrySet()) {
+            int deckSize = sameSize.getKey();
+            List<Integer> positions = sameSize.getValue();
+            int[] batch = new int[deckSize * positions.size()];
+            for (int base = 0; base < batch.length; base += deckSize) {
+                for (int k = 0; k < deckSize; k++) {
+                    batch[base + k] = k;
+                }
+            }
+            deckShuffler.shuffleDecks(batch, deckSize);
+            RequestTrace.mark(Stage.SHUFFLE);
+
+            for (int d = 0; d < positions.size(); d++) {
+                int i = positions.get(d);
+                String[] result = new String[deckSize];
+                for (int k = 0; k < deckSize; k++) {
+                    result[k] = cards[i].get(batch[d * deckSize + k]);
+                }
+                shuffled[i] = swapIn(ids.get(i), read[i], versions[i], cards[i], CardArray.wrap(result));
+                if (shuffled[i] == null) {
+                    shuffled[i] = shuffleDeck(ids.get(i), deckShuffler, null);
+                }
+            }
+        }
+        return Arrays.asList(shuffled);
+    }
+
+    /**
+     * Swaps in the shuffled cards of a deck if it is still at the version read.
+     *
+     * @return the shuffled deck, null if the deck was changed or removed since read
+     */
+    private DeckDto swapIn(int deckId, DeckEntity deck, long version, List<String> cards, CardArray shuffled) {
+        try (DeckLocks.Held held = locks.lock(deckId)) {
+            if (decks.get(deckId) != deck || deck.getVersion() != version) {
+                return null;
+            }
+            permute(deck, cards, shuffled);
+            return DeckConverter.convertToDto(deckId, deck.getName(), shuffled, version + 1);
         }
-        return DeckConverter.convertToDto(deckShuffler.shuffleDeck(deck));
     }
 
     /**
@@ -93,18 +522,707 @@ public class DeckDao {
      * @return DeckDto that is removed - this is to have an implementation consistent with general "remove"
      * mechanisms whereby the consumer can act on the removed object
      */
-    public synchronized DeckEntity remove(int deckId) {
-        return decks.remove(deckId);
+    public DeckEntity remove(int deckId) {
+        return remove(deckId, null);
     }
 
     /**
-     * Lookup deck by identifier.
+     * Removes a deck from the underlying map, if it is at the expected version.
+     *
+     * @param deckId deck id to be removed
+     * @param expectedVersion version the deck must be at, or null to remove the deck whatever its version
+     * @return removed deck, null if the deck does not exist
+     * @throws VersionConflictException if the deck is not at the expected version
+     */
+    public DeckEntity remove(int deckId, Long expectedVersion) {
+        try (DeckLocks.Held held = locks.lock(deckId)) {
+            DeckEntity deck = decks.get(deckId);
+            if (deck == null) {
+                return null;
+            }
+            checkVersion(deck, expectedVersion);
+            delete(deck);
+            return deck;
+        }
+    }
+
+    private static void checkVersion(DeckEntity deck, Long expectedVersion) {
+        if (expectedVersion != null && deck.getVersion() != expectedVersion) {
+            throw new VersionConflictException(deck.getId(), expectedVersion, deck.getVersion());
+        }
+    }
+
+    /**
+     * Moves every card of the source deck onto the bottom of the target deck, and removes the source deck.
+     *
+     * @param targetId id of the deck receiving the cards
+     * @param sourceId id of the deck merged into the target
+     * @return the merged deck, null if either deck does not exist
+     * @throws IllegalArgumentException if both ids are the same
+     */
+    public DeckDto merge(int targetId, int sourceId) {
+        Preconditions.checkArgument(targetId != sourceId, "cannot merge a deck into itself");
+        try (DeckLocks.Held held = locks.lock(targetId, sourceId)) {
+            DeckEntity target = decks.get(targetId);
+            DeckEntity source = decks.get(sourceId);
+            if (target == null || source == null) {
+                return null;
+            }
+            List<String> previous = load(target);
+            List<String> cards = CardArray.concat(previous, load(source));
+            delete(source);
+            update(target, previous, cards);
+            return DeckConverter.convertToDto(target.getId(), target.getName(), cards, target.getVersion());
+        }
+    }
+
+    /**
+     * Splits a deck in two, the cards from the given position onward being moved into a new deck.
+     *
+     * @param deckId id of the deck to split
+     * @param at position of the first card moved to the new deck, between 1 and the number of cards - 1
+     * @param name name of the new deck, or null to use the split deck's name
+     * @return the new deck, null if the deck does not exist
+     * @throws IllegalArgumentException if at doesn't leave at least one card in each deck
+     */
+    public DeckEntity split(int deckId, int at, String name) {
+        while (true) {
+            // checked before reserving the new deck's id, so that rejected splits don't use up ids
+            DeckEntity current = decks.get(deckId);
+            if (current == null) {
+                return null;
+            }
+            Preconditions.checkArgument(at > 0 && at < size(current), "at must leave cards in both decks");
+            // the new deck's lock is taken along with the split deck's, as insert would otherwise take it out of
+            // order, so the deck is checked again once locked: its id is left unused if the deck changed meanwhile
+            int splitId = index.getAndIncrement();
+            try (DeckLocks.Held held = locks.lock(deckId, splitId)) {
+                DeckEntity deck = decks.get(deckId);
+                CardArray cards = deck == null ? null : load(deck);
+                if (cards != null && at < cards.size()) {
+                    DeckEntity split = new DeckEntity()
+                            .setId(splitId)
+                            .setName(name == null ? deck.getName() : name)
+                            .setCards(cards.subList(at, cards.size()))
+                            .setExpiresAt(deck.getExpiresAt())
+                            .setIdleMillis(deck.getIdleMillis())
+                            .setLastUsedAt(System.currentTimeMillis());
+                    update(deck, cards, cards.subList(0, at));
+                    insert(split);
+                    return split;
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves cards from the top of one deck onto the bottom of another.
+     *
+     * @param sourceId id of the deck the cards are taken from
+     * @param targetId id of the deck receiving the cards
+     * @param count number of cards to move, between 1 and the number of cards of the source deck
+     * @return the source and target decks after the transfer, null if either deck does not exist
+     * @throws IllegalArgumentException if both ids are the same or the source deck doesn't have count cards
+     */
+    public List<DeckDto> transfer(int sourceId, int targetId, int count) {
+        Preconditions.checkArgument(sourceId != targetId, "cannot transfer cards within a deck");
+        try (DeckLocks.Held held = locks.lock(sourceId, targetId)) {
+            DeckEntity source = decks.get(sourceId);
+            DeckEntity target = decks.get(targetId);
+            if (source == null || target == null) {
+                return null;
+            }
+            CardArray sourceCards = load(source);
+            Preconditions.checkArgument(count > 0 && count <= sourceCards.size(),
+                    "count must be between 1 and the number of cards in the deck");
+            List<String> remaining = sourceCards.subList(count, sourceCards.size());
+            List<String> targetCards = load(target);
+            List<String> received = CardArray.concat(targetCards, sourceCards.subList(0, count));
+            update(source, sourceCards, remaining);
+            update(target, targetCards, received);
+            return Arrays.asList(
+                    DeckConverter.convertToDto(source.getId(), source.getName(), remaining, source.getVersion()),
+                    DeckConverter.convertToDto(target.getId(), target.getName(), received, target.getVersion()));
+        }
+    }
+
+    /**
+     * Number of cards held by a deck, used to weight the cost of operations on the deck.
+     *
+     * @param id id of the deck
+     * @return number of cards, 0 if the deck does not exist
+     */
+    public int getDeckSize(int id) {
+        DeckEntity deck = decks.get(id);
+        return deck == null ? 0 : size(deck);
+    }
+
+    private int size(DeckEntity deck) {
+        if (tieredStorage == null) {
+            return deck.getCards().size();
+        }
+        synchronized (tieredStorage) {
+            return tieredStorage.size(deck);
+        }
+    }
+
+    /**
+     * Lookup deck by identifier.  Concurrent lookups of the same deck share a single read, see
+     * {@link DeckReadCache}.
      *
      * @param id id of the deck
      * @return null if provided id is null or does not exist in storage
      */
-    public synchronized DeckDto getDeck(int id) {
-        return DeckConverter.convertToDto(decks.get(id));
+    public DeckDto getDeck(int id) {
+        // cached reads don't reach the deck, so its use is recorded here
+        DeckEntity deck = decks.get(id);
+        if (deck != null && deck.getIdleMillis() > 0) {
+            deck.setLastUsedAt(System.currentTimeMillis());
+        }
+        return readCache.get(id, this::readDeck);
+    }
+
+    private DeckReadCache.Snapshot readDeck(int id) {
+        try (DeckLocks.Held held = locks.lock(id)) {
+            DeckEntity deck = decks.get(id);
+            if (deck == null) {
+                return null;
+            }
+            return new DeckReadCache.Snapshot(deck, DeckConverter.convertToDto(deck.getId(), deck.getName(),
+                    load(deck), deck.getVersion()));
+        }
+    }
+
+    /**
+     * Cards of a deck, promoting them from cold storage if needed.  Stored cards are always card arrays, shared
+     * with readers as they are never modified.
+     */
+    private CardArray load(DeckEntity deck) {
+        if (tieredStorage == null) {
+            return CardArray.copyOf(deck.getCards());
+        }
+        synchronized (tieredStorage) {
+            return CardArray.copyOf(tieredStorage.load(deck));
+        }
+    }
+
+    /**
+     * Cards of a deck, read from cold storage without promoting them if needed.
+     */
+    private CardArray peek(DeckEntity deck) {
+        if (tieredStorage == null) {
+            return CardArray.copyOf(deck.getCards());
+        }
+        synchronized (tieredStorage) {
+            return CardArray.copyOf(tieredStorage.peek(deck));
+        }
+    }
+
+    /**
+     * Replaces the cards of a deck, with the deck's lock held.
+     */
+    private void update(DeckEntity deck, List<String> previous, List<String> cards) {
+        update(deck, previous, cards, deck.getVersion() + 1);
+    }
+
+    private void update(DeckEntity deck, List<String> previous, List<String> cards, long version) {
+        indexes.replace(deck.getId(), previous, cards);
+        store(deck, previous, cards, version);
+    }
+
+    /**
+     * Replaces the cards of a deck by a permutation of them, with the deck's lock held.  The set of cards and the
+     * size are unchanged, and so are the indexes, which shuffles don't need to diff.
+     */
+    private void permute(DeckEntity deck, List<String> previous, List<String> shuffled) {
+        store(deck, previous, shuffled, deck.getVersion() + 1);
+    }
+
+    private void store(DeckEntity deck, List<String> previous, List<String> cards, long version) {
+        supersede(deck, previous);
+        if (tieredStorage == null) {
+            deck.setCards(cards);
+        } else {
+            synchronized (tieredStorage) {
+                tieredStorage.replace(deck, cards);
+            }
+        }
+        if (deck.getIdleMillis() > 0) {
+            deck.setLastUsedAt(System.currentTimeMillis());
+        }
+        deck.setVersion(version);
+        tree.put(new DeckTree.Entry(deck));
+        DeckChangeListener listener = changeListener;
+        if (listener != null) {
+            listener.changed(deck.getId(), deck.getName(), cards, version, deck.getExpiresAt(),
+                    deck.getIdleMillis());
+        }
+    }
+
+    /**
+     * Removes a deck, with the deck's lock held.  The entity is left holding its cards.
+     */
+    private void delete(DeckEntity deck) {
+        supersede(deck, tieredStorage == null ? deck.getCards() : peek(deck));
+        tree.remove(deck.getId());
+        decks.remove(deck.getId());
+        size.decrementAndGet();
+        deck.setVersion(deck.getVersion() + 1);
+        readCache.invalidate(deck.getId());
+        if (tieredStorage != null) {
+            synchronized (tieredStorage) {
+                deck.setCards(tieredStorage.peek(deck));
+                tieredStorage.remove(deck);
+            }
+        }
+        indexes.remove(deck.getId(), deck.getName(), deck.getCards());
+        DeckChangeListener listener = changeListener;
+        if (listener != null) {
+            listener.removed(deck.getId(), deck.getVersion());
+        }
+    }
+
+    /**
+     * Applies the change of a deck made in another dao, as {@link #replicate(int, String, List, long, long, long)}
+     * for a deck which never expires.
+     */
+    public boolean replicate(int id, String name, List<String> cards, long version) {
+        return replicate(id, name, cards, version, 0, 0);
+    }
+
+    /**
+     * Applies the change of a deck made in another dao: the deck is created with the given id, or its cards are
+     * replaced, unless it is already at the given version or a later one.  Ids assigned by this dao afterwards
+     * follow the given id.  A deck created expires as in the other dao, its idle timeout counting from now.
+     *
+     * @param id id of the deck
+     * @param name name of the deck, only used when it is created
+     * @param cards cards of the deck
+     * @param version version of the deck in the other dao
+     * @param expiresAt time after which the deck is removed, 0 if it never is, only used when it is created
+     * @param idleMillis idle timeout of the deck, 0 if it has none, only used when it is created
+     * @return true if the change was applied, false if the deck was already at that version
+     * @throws NullPointerException if cards is null
+     */
+    public boolean replicate(int id, String name, List<String> cards, long version, long expiresAt,
+                             long idleMillis) {
+        CardArray replica = CardArray.copyOf(cards);
+        index.accumulateAndGet(id + 1, Math::max);
+        try (DeckLocks.Held held = locks.lock(id)) {
+            DeckEntity deck = decks.get(id);
+            if (deck == null) {
+                insert(replica(id, name, replica, version, expiresAt, idleMillis));
+                return true;
+            } else if (deck.getVersion() >= version) {
+                return false;
+            }
+            update(deck, load(deck), replica, version);
+            return true;
+        }
+    }
+
+    /**
+     * Makes a deck the same as one handed over by another dao's {@link #snapshot(Consumer)}, whatever its version
+     * here, so that decks which diverged are brought back in line without being removed first.  A deck whose name
+     * or expiry differs is created anew, one whose cards differ has them replaced, and one already the same is left
+     * untouched.  Ids assigned by this dao afterwards follow the deck's id.
+     *
+     * @param other deck of the other dao, which must not be modified afterwards
+     * @return true if the deck was created or changed
+     * @throws NullPointerException if other or its cards are null
+     */
+    public boolean reconcile(DeckEntity other) {
+        int id = other.getId();
+        CardArray replica = CardArray.copyOf(other.getCards());
+        index.accumulateAndGet(id + 1, Math::max);
+        try (DeckLocks.Held held = locks.lock(id)) {
+            DeckEntity deck = decks.get(id);
+            if (deck != null && (!Objects.equals(deck.getName(), other.getName())
+                    || deck.getExpiresAt() != other.getExpiresAt() || deck.getIdleMillis() != other.getIdleMillis())) {
+                delete(deck);
+                deck = null;
+            }
+            if (deck == null) {
+                insert(replica(id, other.getName(), replica, other.getVersion(), other.getExpiresAt(),
+                        other.getIdleMillis()));
+                return true;
+            }
+            CardArray cards = load(deck);
+            if (deck.getVersion() == other.getVersion() && cards.equals(replica)) {
+                return false;
+            }
+            update(deck, cards, replica, other.getVersion());
+            return true;
+        }
+    }
+
+    private static DeckEntity replica(int id, String name, CardArray cards, long version, long expiresAt,
+                                      long idleMillis) {
+        return new DeckEntity()
+                .setId(id)
+                .setName(name)
+                .setCards(cards)
+                .setVersion(version)
+                .setExpiresAt(expiresAt)
+                .setIdleMillis(idleMillis)
+                .setLastUsedAt(System.currentTimeMillis());
+    }
+
+    /**
+     * Removes every deck, one at a time.
+     *
+     * @return number of decks removed
+     */
+    public int removeAll() {
+        return retainDecks(id -> false);
+    }
+
+    /**
+     * Removes every deck but those kept, one at a time.
+     *
+     * @param keep whether to keep the deck of the given id
+     * @return number of decks removed
+     */
+    public int retainDecks(IntPredicate keep) {
+        int removed = 0;
+        for (Integer id : decks.keySet()) {
+            if (!keep.test(id) && remove(id) != null) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Hands every deck over in id order, each read with its own lock held so that it is consistent with the changes
+     * listened to, without promoting cards out of cold storage.  Decks created or removed meanwhile may or may not
+     * be handed over.
+     *
+     * @param consumer called with a copy of each deck, its cards never modified, without any lock held
+     */
+    public void snapshot(Consumer<DeckEntity> consumer) {
+        for (Integer id : decks.keySet()) {
+            DeckEntity deck;
+            try (DeckLocks.Held held = locks.lock(id)) {
+                DeckEntity entity = decks.get(id);
+                if (entity == null) {
+                    continue;
+                }
+                deck = new DeckEntity()
+                        .setId(id)
+                        .setName(entity.getName())
+                        .setCards(peek(entity))
+                        .setVersion(entity.getVersion())
+                        .setExpiresAt(entity.getExpiresAt())
+                        .setIdleMillis(entity.getIdleMillis())
+                        .setLastUsedAt(entity.getLastUsedAt());
+            }
+            consumer.accept(deck);
+        }
+    }
+
+    /**
+     * @param changeListener listener of every change from now on, or null to stop listening
+     */
+    public void setChangeListener(DeckChangeListener changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    /**
+     * Removes decks whose time to live or idle timeout elapsed, at most the given number of scheduled decks being
+     * looked at so that the caller can spread the work.  Each deck is removed with only its own lock held.
+     *
+     * @param nowMillis current time, in milliseconds since the epoch
+     * @param maxDecks largest number of scheduled decks to look at
+     * @return number of scheduled decks looked at, less than maxDecks once every deck due was looked at
+     */
+    public int expireDecks(long nowMillis, int maxDecks) {
+        Preconditions.checkArgument(maxDecks > 0, "maxDecks must be a positive integer");
+        return expiries.advance(nowMillis, maxDecks, id -> expire(id, nowMillis));
+    }
+
+    /**
+     * Removes a deck if its deadline passed.
+     *
+     * @return the deck's deadline if it didn't pass, {@link ExpiryWheel#NONE} if it was removed or is gone
+     */
+    private long expire(int id, long nowMillis) {
+        DeckEntity deck = decks.get(id);
+        if (deck == null) {
+            return ExpiryWheel.NONE;
+        } else if (deadline(deck) > nowMillis) {
+            return deadline(deck);
+        }
+        try (DeckLocks.Held held = locks.lock(id)) {
+            long deadline = deadline(deck);
+            if (decks.get(id) != deck) {
+                return ExpiryWheel.NONE;
+            } else if (deadline > nowMillis) {
+                return deadline; // used meanwhile
+            }
+            delete(deck);
+            if (deck.getExpiresAt() > 0 && deck.getExpiresAt() <= nowMillis) {
+                expiredByTtl.increment();
+            } else {
+                expiredByIdle.increment();
+            }
+            return ExpiryWheel.NONE;
+        }
+    }
+
+    /**
+     * @return time after which a deck expires, whichever of its time to live and idle timeout comes first
+     */
+    private static long deadline(DeckEntity deck) {
+        long deadline = deck.getExpiresAt() > 0 ? deck.getExpiresAt() : Long.MAX_VALUE;
+        if (deck.getIdleMillis() > 0) {
+            deadline = Math.min(deadline, deck.getLastUsedAt() + deck.getIdleMillis());
+        }
+        return deadline;
+    }
+
+    private static DeckEntity expireIn(DeckEntity entity, long ttlMillis, long idleMillis) {
+        long now = System.currentTimeMillis();
+        return entity.setExpiresAt(ttlMillis > 0 ? now + ttlMillis : 0)
+                .setIdleMillis(idleMillis)
+                .setLastUsedAt(now);
+    }
+
+    private static void checkExpiry(long ttlMillis, long idleMillis) {
+        Preconditions.checkArgument(ttlMillis >= 0, "ttlMillis must be 0 or a positive integer");
+        Preconditions.checkArgument(idleMillis >= 0, "idleMillis must be 0 or a positive integer");
+    }
+
+    /**
+     * @return number of decks removed as their time to live elapsed
+     */
+    public long getExpiredByTtl() {
+        return expiredByTtl.sum();
+    }
+
+    /**
+     * @return number of decks removed as they were not used within their idle timeout
+     */
+    public long getExpiredByIdle() {
+        return expiredByIdle.sum();
+    }
+
+    /**
+     * @return number of decks scheduled to expire, including removed decks not yet reaped
+     */
+    public long getScheduledExpiries() {
+        return expiries.getScheduled();
+    }
+
+    /**
+     * Estimates the footprint of the decks from an evenly spread sample of them, read without locking.
+     *
+     * @param sampleSize largest number of decks to sample
+     * @return estimated footprint
+     * @throws IllegalArgumentException if sampleSize isn't positive
+     */
+    public FootprintDto getFootprint(int sampleSize) {
+        Preconditions.checkArgument(sampleSize > 0, "sampleSize must be a positive integer");
+        DeckTree.Root root = tree.snapshot();
+        int total = root.size();
+        int samples = Math.min(sampleSize, total);
+        FootprintEstimate estimate = new FootprintEstimate();
+        for (int i = 0; i < samples; i++) {
+            List<String> cards = root.page((int) ((long) i * total / samples), 1).get(0).deck.getCards();
+            if (cards != null) {
+                estimate.add(cards); // spilled decks have no cards on heap
+            }
+        }
+
+        int coldDecks = 0;
+        long coldLiveBytes = 0;
+        long coldMappedBytes = 0;
+        if (tieredStorage != null) {
+            synchronized (tieredStorage) {
+                coldDecks = tieredStorage.getColdDecks();
+                coldLiveBytes = tieredStorage.getColdStore().getLiveBytes();
+                coldMappedBytes = tieredStorage.getColdStore().getMappedBytes();
+            }
+        }
+        int heapDecks = Math.max(0, total - coldDecks);
+        long indexEntries = indexes.size();
+        long indexBytes = (long) total * (FootprintEstimate.MAP_ENTRY_BYTES + FootprintEstimate.TREE_ENTRY_BYTES)
+                + indexEntries * FootprintEstimate.INDEX_ENTRY_BYTES;
+        return FootprintDto.create(total, samples, heapDecks, coldDecks, estimate.getBytesPerDeck(),
+                coldDecks == 0 ? 0 : coldLiveBytes / coldDecks, estimate.getDuplicationRatio(),
+                estimate.getDuplicateBytes(heapDecks), indexEntries, indexBytes, coldLiveBytes, coldMappedBytes);
+    }
+
+    /**
+     * Compacts the decks in place, one deck at a time with only its own lock held, the thread yielding between
+     * batches, so that requests are served throughout:
+     * <ul>
+     *     <li>cards on heap are replaced by their interned instances, so that every deck holding a card shares a
+     *     single string, and cards which are a view of a larger array, as left by splits and transfers, are copied
+     *     into an array of their own;</li>
+     *     <li>spilled cards in sparse segments of cold storage are moved to the segment being written, so that the
+     *     sparse segments are released once empty.</li>
+     * </ul>
+     * The cards are equal before and after, so versions are unchanged and nothing is replicated.  The compaction
+     * runs on the calling thread, see {@link #startCompaction(int)} to run it in the background.
+     *
+     * @param batchSize number of decks compacted between two yields
+     * @return outcome of the compaction
+     * @throws IllegalArgumentException if batchSize isn't positive
+     * @throws IllegalStateException if a compaction is already running
+     */
+    public CompactionDto compact(int batchSize) {
+        Compaction started = begin(batchSize);
+        run(started, batchSize);
+        return started.toDto();
+    }
+
+    /**
+     * Compacts the decks as {@link #compact(int)} does, on a daemon thread of its own, so that the caller doesn't
+     * wait for every deck to be gone through.  Its progress is known from {@link #getCompaction()}.
+     *
+     * @param batchSize number of decks compacted between two yields
+     * @return progress of the compaction, just started
+     * @throws IllegalArgumentException if batchSize isn't positive
+     * @throws IllegalStateException if a compaction is already running
+     */
+    public CompactionDto startCompaction(int batchSize) {
+        Compaction started = begin(batchSize);
+        Thread thread = new Thread(() -> run(started, batchSize), "deck-compaction");
+        thread.setDaemon(true);
+        thread.start();
+        return started.toDto();
+    }
+
+    /**
+     * @return progress of the running compaction, or outcome of the last one, all counts 0 if none ran
+     */
+    public CompactionDto getCompaction() {
+        Compaction current = compaction;
+        return current == null ? CompactionDto.create(0, 0, 0, 0, 0, 0, 0, false) : current.toDto();
+    }
+
+    private Compaction begin(int batchSize) {
+        Preconditions.checkArgument(batchSize > 0, "batchSize must be a positive integer");
+        Preconditions.checkState(compacting.compareAndSet(false, true), "A compaction is already running");
+        Compaction started = new Compaction(
+                tieredStorage == null ? 0 : tieredStorage.getColdStore().getReleasedSegments());
+        compaction = started;
+        return started;
+    }
+
+    private void run(Compaction compaction, int batchSize) {
+        try {
+            for (Integer id : decks.keySet()) {
+                try (DeckLocks.Held held = locks.lock(id)) {
+                    DeckEntity deck = decks.get(id);
+                    if (deck == null) {
+                        continue;
+                    } else if (tieredStorage == null) {
+                        compact(deck, compaction);
+                    } else {
+                        synchronized (tieredStorage) {
+                            if (deck.getCards() != null) {
+                                compact(deck, compaction);
+                            } else if (tieredStorage.repack(deck)) {
+                                compaction.movedRecords++;
+                                compaction.releasedSegments = tieredStorage.getColdStore().getReleasedSegments()
+                                        - compaction.releasedBefore;
+                            }
+                        }
+                    }
+                }
+                if (++compaction.decks % batchSize == 0) {
+                    Thread.yield();
+                }
+            }
+        } finally {
+            compaction.finishedNanos = System.nanoTime();
+            compaction.running = false;
+            compacting.set(false);
+        }
+    }
+
+    /**
+     * Interns and repacks the cards of a deck on heap, with the deck's lock held.
+     */
+    private void compact(DeckEntity deck, Compaction compaction) {
+        List<String> cards = deck.getCards();
+        String[] compacted = null;
+        int interned = 0;
+        for (int i = 0; i < cards.size(); i++) {
+            String card = cards.get(i);
+            String shared = card == null ? null : cardInterner.intern(card);
+            if (shared != card) {
+                if (compacted == null) {
+                    compacted = cards.toArray(new String[cards.size()]);
+                }
+                compacted[i] = shared;
+                interned++;
+            }
+        }
+        boolean view = cards instanceof CardArray && ((CardArray) cards).isView();
+        if (compacted == null && view) {
+            compacted = cards.toArray(new String[cards.size()]);
+        }
+        if (compacted != null) {
+            deck.setCards(CardArray.wrap(compacted));
+        }
+        if (interned > 0) {
+            compaction.internedDecks++;
+            compaction.internedCards += interned;
+        }
+        if (view) {
+            compaction.repackedDecks++;
+        }
+    }
+
+    /**
+     * Counts of a compaction, only written by the thread running it and read by any.
+     */
+    private static final class Compaction {
+        private final long startedNanos = System.nanoTime();
+        private final long releasedBefore;
+        private volatile long decks;
+        private volatile long internedDecks;
+        private volatile long internedCards;
+        private volatile long repackedDecks;
+        private volatile long movedRecords;
+        private volatile long releasedSegments;
+        private volatile long finishedNanos;
+        private volatile boolean running = true;
+
+        private Compaction(long releasedBefore) {
+            this.releasedBefore = releasedBefore;
+        }
+
+        private CompactionDto toDto() {
+            boolean stillRunning = running;
+            long elapsed = (stillRunning ? System.nanoTime() : finishedNanos) - startedNanos;
+            return CompactionDto.create(decks, internedDecks, internedCards, repackedDecks, movedRecords,
+                    releasedSegments, TimeUnit.NANOSECONDS.toMillis(elapsed), stillRunning);
+        }
+    }
+
+    /**
+     * @return tiered storage of the cards, or null if every deck is kept on heap
+     */
+    public TieredStorage getTieredStorage() {
+        return tieredStorage;
+    }
+
+    /**
+     * @return cache of single deck reads
+     */
+    public DeckReadCache getReadCache() {
+        return readCache;
+    }
+
+    /**
+     * @return snapshots held for listings
+     */
+    public DeckSnapshots getSnapshots() {
+        return snapshots;
     }
 
     /**
@@ -121,6 +1239,7 @@ public class DeckDao {
             if (dto == null) {
                 return null;
             }
+            // the dto's cards are an immutable card array, so the entity can share them
             return new DeckEntity()
                     .setName(dto.getName())
                     .setCards(dto.getCards());
@@ -134,7 +1253,19 @@ public class DeckDao {
             if (deckEntity == null) {
                 return null;
             }
-            return DeckDto.create(deckEntity.getId(), deckEntity.getName(), deckEntity.getCards());
+            DeckDto dto = DeckDto.create(deckEntity.getId(), deckEntity.getName(), deckEntity.getCards(),
+                    deckEntity.getVersion());
+            RequestTrace.mark(Stage.CONVERT);
+            return dto;
+        }
+
+        /**
+         * Builds a dto from cards read separately from the entity, e.g. out of tiered storage.
+         */
+        static DeckDto convertToDto(int id, String name, List<String> cards, long version) {
+            DeckDto dto = DeckDto.create(id, name, cards, version);
+            RequestTrace.mark(Stage.CONVERT);
+            return dto;
         }
     }
 }
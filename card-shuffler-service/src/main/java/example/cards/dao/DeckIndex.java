@@ -0,0 +1,273 @@
+package example.cards.dao;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import example.cards.entity.DeckEntity;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Predicate;
+
+/**
+ * Secondary indexes over decks: by name, by card, and by number of cards.
+ * <p>
+ * Each index is a concurrent sorted set of (term, deck id) entries, so the decks holding a term form a range
+ * ordered by id, found in logarithmic time.  A search is a list of filters, each answering the first matching id
+ * at or after a given id, which are intersected by leapfrogging (see {@link #next(List, int)}): the cost of a page
+ * depends on the number of matching terms and on how often the filters disagree, not on the number of decks.
+ * <p>
+ * A name prefix or a size range matches the decks of every term in a range of terms, merged in id order by a cursor
+ * per term (see {@link #merge(NavigableSet, List)}).  Names are usually distinct, so a prefix may match as many
+ * terms as there are decks: beyond {@value #MAX_MERGED_TERMS} names, matching decks are rather found by going
+ * through the decks in id order, which costs the decks skipped between two matches.  As that many decks match, that
+ * is on average at most the number of decks divided by {@value #MAX_MERGED_TERMS}.  Sizes are merged whatever
+ * their number, which is at most the size of the largest deck.
+ * <p>
+ * Entries of a deck are changed by {@link DeckDao} with the deck's lock held, while searches take no lock and may
+ * see a deck being changed under both its old and new terms, so the decks found should be checked once read.
+ * <p>
+ * Card terms are interned, so that the index holds a single instance of each card however many decks hold it, the
+ * same instance decks are given by {@link DeckDao#compact(int)}.  The entries are counted as they are added and
+ * removed, as the size of a concurrent skip list is only known by going through it.
+ */
+class DeckIndex {
+
+    /**
+     * Answer of a filter when no deck at or after the given id matches.
+     */
+    static final int NONE = -1;
+
+    /**
+     * Largest number of names a prefix is merged from, so that a search seeks at most that many times to start.
+     */
+    static final int MAX_MERGED_TERMS = 1024;
+
+    private final NavigableSet<Entry<String>> names = new ConcurrentSkipListSet<>();
+    private final NavigableSet<Entry<String>> cards = new ConcurrentSkipListSet<>();
+    private final NavigableSet<Entry<Integer>> sizes = new ConcurrentSkipListSet<>();
+    private final LongAdder entries = new LongAdder();
+    private final Interner<String> interner;
+    private final NavigableMap<Integer, DeckEntity> decks;
+
+    /**
+     * @param interner interner of the card terms
+     * @param decks decks by id, gone through by searches for prefixes shared by too many names
+     */
+    DeckIndex(Interner<String> interner, NavigableMap<Integer, DeckEntity> decks) {
+        this.interner = interner;
+        this.decks = decks;
+    }
+
+    void add(int id, String name, List<String> deckCards) {
+        add(names, new Entry<>(Strings.nullToEmpty(name), id));
+        for (String card : cardTerms(deckCards)) {
+            add(cards, new Entry<>(interner.intern(card), id));
+        }
+        add(sizes, new Entry<>(deckCards.size(), id));
+    }
+
+    void remove(int id, String name, List<String> deckCards) {
+        remove(names, new Entry<>(Strings.nullToEmpty(name), id));
+        for (String card : cardTerms(deckCards)) {
+            remove(cards, new Entry<>(card, id));
+        }
+        remove(sizes, new Entry<>(deckCards.size(), id));
+    }
+
+    /**
+     * Re-indexes the cards of a deck, by the difference between its distinct cards before and after.  Shuffles
+     * leave the set of cards and the size unchanged, so shuffled decks aren't re-indexed at all.
+     */
+    void replace(int id, List<String> previous, List<String> deckCards) {
+        Set<String> before = cardTerms(previous);
+        Set<String> after = cardTerms(deckCards);
+        for (String card : Sets.difference(after, before)) {
+            add(cards, new Entry<>(interner.intern(card), id));
+        }
+        for (String card : Sets.difference(before, after)) {
+            remove(cards, new Entry<>(card, id));
+        }
+        if (previous.size() != deckCards.size()) {
+            add(sizes, new Entry<>(deckCards.size(), id));
+            remove(sizes, new Entry<>(previous.size(), id));
+        }
+    }
+
+    private <T extends Comparable<T>> void add(NavigableSet<Entry<T>> index, Entry<T> entry) {
+        if (index.add(entry)) {
+            entries.increment();
+        }
+    }
+
+    private <T extends Comparable<T>> void remove(NavigableSet<Entry<T>> index, Entry<T> entry) {
+        if (index.remove(entry)) {
+            entries.decrement();
+        }
+    }
+
+    /**
+     * Distinct cards of a deck to index.  Null cards can't be searched for, so they aren't indexed.
+     */
+    private static Set<String> cardTerms(List<String> deckCards) {
+        Set<String> terms = Sets.newHashSet(deckCards);
+        terms.remove(null);
+        return terms;
+    }
+
+    /**
+     * @return number of entries across the indexes
+     */
+    long size() {
+        return entries.sum();
+    }
+
+    /**
+     * Filters for a search, any of the criteria may be null.  Filters keep their position, so they serve a single
+     * search, asked for ids in increasing order.
+     *
+     * @param namePrefix prefix of the deck names
+     * @param card card the decks hold
+     * @param minSize smallest number of cards, inclusive
+     * @param maxSize largest number of cards, inclusive
+     * @return filters, empty if no criteria was given
+     */
+    List<IntUnaryOperator> filters(String namePrefix, String card, Integer minSize, Integer maxSize) {
+        List<IntUnaryOperator> filters = Lists.newArrayListWithCapacity(3);
+        // a single card is the most selective, so it is tried first
+        if (card != null) {
+            filters.add(merge(cards, Collections.singletonList(card)));
+        }
+        if (!Strings.isNullOrEmpty(namePrefix)) {
+            List<String> terms = terms(names, namePrefix, name -> name.startsWith(namePrefix), MAX_MERGED_TERMS + 1);
+            filters.add(terms.size() > MAX_MERGED_TERMS ? scan(namePrefix) : merge(names, terms));
+        }
+        if (minSize != null || maxSize != null) {
+            int max = maxSize == null ? Integer.MAX_VALUE : maxSize;
+            filters.add(merge(sizes, terms(sizes, minSize == null ? 0 : minSize, size -> size <= max,
+                    Integer.MAX_VALUE)));
+        }
+        return filters;
+    }
+
+    /**
+     * First id at or after the given one accepted by every filter.  Each filter in turn moves the candidate forward
+     * to the first id it accepts, until a full round of filters accepts the candidate unchanged.
+     *
+     * @return matching id, {@link #NONE} if there is none
+     */
+    static int next(List<IntUnaryOperator> filters, int from) {
+        int candidate = from;
+        for (int i = 0, agreed = 0; agreed < filters.size(); i = (i + 1) % filters.size()) {
+            int found = filters.get(i).applyAsInt(candidate);
+            if (found == NONE) {
+                return NONE;
+            } else if (found == candidate) {
+                agreed++;
+            } else {
+                candidate = found;
+                agreed = 1;
+            }
+        }
+        return candidate;
+    }
+
+    /**
+     * Distinct terms of an index, in order from the given term while they satisfy the predicate.  Each term is
+     * found by seeking past every entry of the previous one.
+     *
+     * @param limit largest number of terms returned
+     */
+    private static <T extends Comparable<T>> List<T> terms(NavigableSet<Entry<T>> index, T from,
+                                                           Predicate<T> within, int limit) {
+        List<T> terms = Lists.newArrayList();
+        Entry<T> entry = index.ceiling(new Entry<>(from, NONE));
+        while (entry != null && within.test(entry.term) && terms.size() < limit) {
+            terms.add(entry.term);
+            entry = index.higher(new Entry<>(entry.term, Integer.MAX_VALUE));
+        }
+        return terms;
+    }
+
+    /**
+     * Filter accepting the decks under any of the given terms, merged in id order.  Each term has a cursor on its
+     * first id at or after the last id asked for, and the cursors are queued by id: only the cursors left behind
+     * by the id asked for seek forward, so each id asked for costs a seek per term it skips over rather than a
+     * seek per term.  Asking for an earlier id starts over.
+     */
+    private static <T extends Comparable<T>> IntUnaryOperator merge(NavigableSet<Entry<T>> index, List<T> terms) {
+        PriorityQueue<Entry<T>> cursors = new PriorityQueue<>(Math.max(1, terms.size()),
+                (first, second) -> Integer.compare(first.id, second.id));
+        int[] last = {Integer.MAX_VALUE};
+        return id -> {
+            if (id < last[0]) {
+                cursors.clear();
+                for (T term : terms) {
+                    cursors.add(new Entry<>(term, NONE));
+                }
+            }
+            last[0] = id;
+            while (!cursors.isEmpty() && cursors.peek().id < id) {
+                T term = cursors.poll().term;
+                Entry<T> entry = index.ceiling(new Entry<>(term, id));
+                // a term without decks from there on is done with, as ids are asked for in order
+                if (entry != null && entry.term.equals(term)) {
+                    cursors.add(entry);
+                }
+            }
+            return cursors.isEmpty() ? NONE : cursors.peek().id;
+        };
+    }
+
+    /**
+     * Filter accepting the decks whose name starts with the prefix, going through the decks in id order.
+     */
+    private IntUnaryOperator scan(String namePrefix) {
+        return id -> {
+            for (Map.Entry<Integer, DeckEntity> deck : decks.tailMap(id, true).entrySet()) {
+                if (Strings.nullToEmpty(deck.getValue().getName()).startsWith(namePrefix)) {
+                    return deck.getKey();
+                }
+            }
+            return NONE;
+        };
+    }
+
+    /**
+     * Index entry, ordered by term then deck id.
+     */
+    private static final class Entry<T extends Comparable<T>> implements Comparable<Entry<T>> {
+        private final T term;
+        private final int id;
+
+        Entry(T term, int id) {
+            this.term = term;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Entry<T> other) {
+            int order = term.compareTo(other.term);
+            return order != 0 ? order : Integer.compare(id, other.id);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Entry && term.equals(((Entry<?>) other).term) && id == ((Entry<?>) other).id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * term.hashCode() + id;
+        }
+    }
+}
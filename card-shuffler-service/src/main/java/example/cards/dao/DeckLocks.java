@@ -0,0 +1,106 @@
+package example.cards.dao;
+
+import com.google.common.base.Preconditions;
+import example.cards.trace.RequestTrace;
+import example.cards.trace.Stage;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped per-deck locks.
+ * <p>
+ * Each deck id maps to one of a fixed number of locks, so locking a deck needs no bookkeeping of live decks, at the
+ * price of unrelated decks occasionally sharing a lock.  Locking a single deck costs no allocation either, the
+ * handle of each lock being made once.  Operations spanning several decks lock them through {@link #lock(int...)},
+ * which always acquires the stripes in ascending order, so two operations on the same decks can never deadlock
+ * whatever order they name the decks in.
+ */
+class DeckLocks {
+
+    static final int DEFAULT_STRIPES = 1024;
+
+    private final ReentrantLock[] locks;
+    private final Held[] singles;
+    private final int mask;
+
+    DeckLocks() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripes number of locks, must be a power of two
+     */
+    DeckLocks(int stripes) {
+        Preconditions.checkArgument(stripes > 0 && Integer.bitCount(stripes) == 1,
+                "stripes must be a power of two");
+        locks = new ReentrantLock[stripes];
+        singles = new Held[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+            singles[i] = new Held(new int[] {i});
+        }
+        mask = stripes - 1;
+    }
+
+    /**
+     * Locks a single deck.
+     *
+     * @param id id of the deck
+     * @return handle releasing the lock when closed, shared by every holder of the lock
+     */
+    Held lock(int id) {
+        Held held = singles[stripe(id)];
+        locks[held.stripes[0]].lock();
+        RequestTrace.mark(Stage.LOCK);
+        return held;
+    }
+
+    /**
+     * Locks every given deck.
+     *
+     * @param ids ids of the decks, in any order and possibly repeated
+     * @return handle releasing the locks when closed
+     */
+    Held lock(int... ids) {
+        int[] stripes = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            stripes[i] = stripe(ids[i]);
+        }
+        Arrays.sort(stripes);
+        int count = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            if (i == 0 || stripes[i] != stripes[i - 1]) {
+                stripes[count++] = stripes[i];
+            }
+        }
+        int[] held = Arrays.copyOf(stripes, count);
+        for (int stripe : held) {
+            locks[stripe].lock();
+        }
+        RequestTrace.mark(Stage.LOCK);
+        return new Held(held);
+    }
+
+    private int stripe(int id) {
+        return id & mask;
+    }
+
+    /**
+     * Locks held by an operation.
+     */
+    final class Held implements AutoCloseable {
+        private final int[] stripes;
+
+        private Held(int[] stripes) {
+            this.stripes = stripes;
+        }
+
+        @Override
+        public void close() {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                locks[stripes[i]].unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package example.cards.dao;
+
+import com.google.common.base.Preconditions;
+import example.cards.entity.DeckEntity;
+import example.cards.model.DeckDto;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent reads of the same deck, and keeps the result for a short while.
+ * <p>
+ * The first reader of a deck loads it while later readers wait for, and share, that same {@link DeckDto} rather
+ * than each taking the deck lock to build their own.  The result is kept for up to ttl so that polling of a popular
+ * deck is served without the lock at all, and the dto's serialized form is cached alongside it (see
+ * {@link #serialized(DeckDto, Supplier)}) so that it is serialized once rather than once per reader.
+ * <p>
+ * A cached read records the version of the deck it was read at, and is only served while the deck is still at that
+ * version, so a reader never sees a deck older than its latest shuffle or a deck that has been removed.
+ */
+public class DeckReadCache {
+
+    public static final long DEFAULT_TTL_MILLIS = 1000;
+    public static final int DEFAULT_MAX_DECKS = 10_000;
+
+    private final ConcurrentHashMap<Integer, Read> reads = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final int maxDecks;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder serializations = new LongAdder();
+
+    public DeckReadCache() {
+        this(DEFAULT_TTL_MILLIS, DEFAULT_MAX_DECKS);
+    }
+
+    /**
+     * @param ttlMillis how long a read is served to later readers, 0 to only share reads that are still loading
+     * @param maxDecks number of decks beyond which reads are not kept
+     */
+    public DeckReadCache(long ttlMillis, int maxDecks) {
+        Preconditions.checkArgument(ttlMillis >= 0, "ttlMillis must be 0 or a positive integer");
+        Preconditions.checkArgument(maxDecks > 0, "maxDecks must be a positive integer");
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.maxDecks = maxDecks;
+    }
+
+    /**
+     * @param id id of the deck
+     * @param loader reads the deck under its lock, returning null if it doesn't exist
+     * @return the deck, null if it doesn't exist
+     */
+    DeckDto get(int id, IntFunction<Snapshot> loader) {
+        Read read = reads.get(id);
+        while (true) {
+            if (read != null) {
+                boolean loading = !read.isDone();
+                Snapshot snapshot;
+                try {
+                    snapshot = read.join();
+                } catch (CompletionException e) {
+                    // the loader's failure was reported to its own caller
+                    return load(id, loader);
+                }
+                if (snapshot == null) {
+                    // missing decks aren't shared, the deck may have been created since that read started
+                    return load(id, loader);
+                } else if (snapshot.isCurrent() && (loading || System.nanoTime() - read.started < ttlNanos)) {
+                    (loading ? coalesced : hits).increment();
+                    return snapshot.dto;
+                }
+            }
+
+            Read mine = new Read(System.nanoTime());
+            if (read == null ? reads.putIfAbsent(id, mine) == null : reads.replace(id, read, mine)) {
+                misses.increment();
+                try {
+                    Snapshot snapshot = loader.apply(id);
+                    mine.complete(snapshot);
+                    if (snapshot == null) {
+                        reads.remove(id, mine);
+                        return null;
+                    }
+                    if (reads.size() > maxDecks) {
+                        evict();
+                    }
+                    return snapshot.dto;
+                } catch (RuntimeException e) {
+                    reads.remove(id, mine);
+                    mine.completeExceptionally(e);
+                    throw e;
+                }
+            }
+            // another reader got in first, share its read
+            read = reads.get(id);
+        }
+    }
+
+    private DeckDto load(int id, IntFunction<Snapshot> loader) {
+        misses.increment();
+        Snapshot snapshot = loader.apply(id);
+        return snapshot == null ? null : snapshot.dto;
+    }
+
+    /**
+     * Serialized form of a dto, shared by every reader of the same cached read.
+     *
+     * @param dto dto about to be written
+     * @param serializer serializes the dto, called once per cached read
+     * @return the serialized dto
+     */
+    public byte[] serialized(DeckDto dto, Supplier<byte[]> serializer) {
+        Read read = reads.get(dto.getId());
+        Snapshot snapshot = read == null ? null : read.getNow(null);
+        if (snapshot == null || snapshot.dto != dto) {
+            // not a cached read, e.g. a freshly shuffled deck
+            return serializer.get();
+        }
+        synchronized (snapshot) {
+            if (snapshot.serialized == null) {
+                snapshot.serialized = serializer.get();
+                serializations.increment();
+            }
+            return snapshot.serialized;
+        }
+    }
+
+    /**
+     * Drops the cached read of a deck, which would otherwise linger until evicted.
+     */
+    void invalidate(int id) {
+        reads.remove(id);
+    }
+
+    /**
+     * Drops expired reads, and if that isn't enough, every completed read.
+     */
+    private void evict() {
+        long now = System.nanoTime();
+        reads.values().removeIf(read -> read.isDone() && now - read.started >= ttlNanos);
+        for (Iterator<Read> it = reads.values().iterator(); reads.size() > maxDecks && it.hasNext(); ) {
+            if (it.next().isDone()) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * @return reads served from a completed read
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return reads which waited for, and shared, another reader's load
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return reads which loaded the deck from the dao
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return dtos serialized for sharing
+     */
+    public long getSerializations() {
+        return serializations.sum();
+    }
+
+    /**
+     * A deck as read under its lock, along with the version it was read at.
+     */
+    static final class Snapshot {
+        private final DeckEntity entity;
+        private final long version;
+        private final DeckDto dto;
+        private byte[] serialized;
+
+        Snapshot(DeckEntity entity, DeckDto dto) {
+            this.entity = entity;
+            this.version = entity.getVersion();
+            this.dto = dto;
+        }
+
+        boolean isCurrent() {
+            return entity.getVersion() == version;
+        }
+    }
+
+    /**
+     * A read of a deck, possibly still loading.
+     */
+    private static final class Read extends CompletableFuture<Snapshot> {
+        private final long started;
+
+        Read(long started) {
+            this.started = started;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package example.cards.dao;
+
+import com.google.common.base.Preconditions;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background removal of expired decks, on a single daemon thread.
+ * <p>
+ * Every period, decks due are expired in batches (see {@link DeckDao#expireDecks(long, int)}), the thread yielding
+ * between batches, so a burst of expiries is spread out rather than holding up other work, and no lock other than
+ * that of each expired deck is ever taken.
+ */
+public class DeckReaper implements Closeable {
+
+    public static final long DEFAULT_PERIOD_MILLIS = 1000;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final DeckDao deckDao;
+    private final long periodMillis;
+    private final int batchSize;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param deckDao dao whose decks are expired
+     * @param periodMillis time between two runs
+     * @param batchSize largest number of scheduled decks looked at in a batch
+     */
+    public DeckReaper(DeckDao deckDao, long periodMillis, int batchSize) {
+        Preconditions.checkArgument(periodMillis > 0, "periodMillis must be a positive integer");
+        Preconditions.checkArgument(batchSize > 0, "batchSize must be a positive integer");
+        this.deckDao = Preconditions.checkNotNull(deckDao);
+        this.periodMillis = periodMillis;
+        this.batchSize = batchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "deck-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public DeckReaper start() {
+        scheduler.scheduleWithFixedDelay(this::reap, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    /**
+     * Expires every deck due, batch after batch.
+     */
+    void reap() {
+        try {
+            while (deckDao.expireDecks(System.currentTimeMillis(), batchSize) == batchSize) {
+                Thread.yield();
+            }
+        } catch (RuntimeException e) {
+            // a failure must not cancel the next runs
+            System.err.println("Unable to expire decks: " + e);
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,146 @@
+package example.cards.dao;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Snapshots of the decks held for paginated listings, by token.
+ * <p>
+ * A snapshot is the root of an immutable {@link DeckTree}, so holding one costs nothing until the decks change, and
+ * then only the nodes and superseded cards no longer shared with the current tree.  Snapshots not read within the
+ * ttl are dropped, as are snapshots beyond the maximum number held, and the garbage collector reclaims what they
+ * alone held.  Dropping is done by the listings which take new snapshots, sweeping expired snapshots at most once
+ * per ttl however few are held, so no thread is needed.
+ */
+public class DeckSnapshots {
+
+    public static final long DEFAULT_TTL_MILLIS = 60_000;
+    public static final int DEFAULT_MAX_SNAPSHOTS = 10_000;
+
+    private final ConcurrentHashMap<String, Held> snapshots = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final int maxSnapshots;
+    private final LongAdder taken = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+
+    public DeckSnapshots() {
+        this(DEFAULT_TTL_MILLIS, DEFAULT_MAX_SNAPSHOTS);
+    }
+
+    /**
+     * @param ttlMillis how long a snapshot is held after it was last read
+     * @param maxSnapshots number of snapshots beyond which some are dropped before their ttl
+     */
+    public DeckSnapshots(long ttlMillis, int maxSnapshots) {
+        Preconditions.checkArgument(ttlMillis > 0, "ttlMillis must be a positive integer");
+        Preconditions.checkArgument(maxSnapshots > 0, "maxSnapshots must be a positive integer");
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.maxSnapshots = maxSnapshots;
+    }
+
+    /**
+     * Holds a snapshot under a new token.  Tokens are random rather than sequential, so that a token of an earlier
+     * run of the service isn't taken for one of this run.
+     *
+     * @return token of the snapshot
+     */
+    String hold(DeckTree.Root root) {
+        Held held = new Held(root, System.nanoTime());
+        String token;
+        do {
+            token = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+        } while (snapshots.putIfAbsent(token, held) != null);
+        taken.increment();
+        long now = held.lastRead;
+        long last = lastSweep.get();
+        if (now - last >= ttlNanos && lastSweep.compareAndSet(last, now)) {
+            sweep(now);
+        }
+        if (snapshots.size() > maxSnapshots) {
+            evict();
+        }
+        return token;
+    }
+
+    /**
+     * @return the snapshot of the token, null if it is unknown or was dropped
+     */
+    DeckTree.Root get(String token) {
+        Held held = snapshots.get(token);
+        long now = System.nanoTime();
+        if (held == null) {
+            return null;
+        } else if (now - held.lastRead >= ttlNanos) {
+            if (snapshots.remove(token, held)) {
+                expired.increment();
+            }
+            return null;
+        }
+        held.lastRead = now;
+        return held.root;
+    }
+
+    /**
+     * Drops expired snapshots.
+     */
+    private void sweep(long now) {
+        for (Iterator<Held> it = snapshots.values().iterator(); it.hasNext(); ) {
+            if (now - it.next().lastRead >= ttlNanos) {
+                it.remove();
+                expired.increment();
+            }
+        }
+    }
+
+    /**
+     * Drops expired snapshots, and if that isn't enough, a quarter of the snapshots so that the next few listings
+     * don't each go through every snapshot again.
+     */
+    private void evict() {
+        sweep(System.nanoTime());
+        int target = maxSnapshots - maxSnapshots / 4;
+        for (Iterator<Held> it = snapshots.values().iterator(); snapshots.size() > target && it.hasNext(); ) {
+            it.next();
+            it.remove();
+            expired.increment();
+        }
+    }
+
+    /**
+     * @return number of snapshots held, including expired ones not dropped yet
+     */
+    public int getHeld() {
+        return snapshots.size();
+    }
+
+    /**
+     * @return number of snapshots taken
+     */
+    public long getTaken() {
+        return taken.sum();
+    }
+
+    /**
+     * @return number of snapshots dropped, as they expired or too many were held
+     */
+    public long getExpired() {
+        return expired.sum();
+    }
+
+    private static final class Held {
+        private final DeckTree.Root root;
+        private volatile long lastRead;
+
+        private Held(DeckTree.Root root, long lastRead) {
+            this.root = root;
+            this.lastRead = lastRead;
+        }
+    }
+}
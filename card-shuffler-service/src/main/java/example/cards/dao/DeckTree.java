@@ -0,0 +1,225 @@
+package example.cards.dao;
+
+import com.google.common.collect.Lists;
+import example.cards.entity.DeckEntity;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Persistent radix tree of the decks by id, from which point-in-time snapshots of every deck are taken for free.
+ * <p>
+ * The tree is immutable: a change copies the path from the root down to the deck's entry, at most seven nodes of
+ * 32 children (four for a million decks), shares every other node with the previous tree, and publishes the new
+ * root with a compare-and-swap.  Taking a snapshot is reading the root, and the snapshot stays valid, unchanged,
+ * for as long as it is held, the garbage collector reclaiming the nodes no longer shared with a held tree.  Writers
+ * never wait for readers, and only retry their copy when another change was published meanwhile.
+ * <p>
+ * Each node counts the decks below it, so that reading a page from an offset skips whole sub trees rather than
+ * every deck before the offset.
+ * <p>
+ * Changes of a deck are made by {@link DeckDao} with the deck's lock held, so they are published in order.
+ */
+class DeckTree {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private final AtomicReference<Root> root = new AtomicReference<>(Root.EMPTY);
+
+    /**
+     * @return the current tree, never changed
+     */
+    Root snapshot() {
+        return root.get();
+    }
+
+    void put(Entry entry) {
+        while (true) {
+            Root current = root.get();
+            if (root.compareAndSet(current, current.put(entry))) {
+                return;
+            }
+        }
+    }
+
+    void remove(int id) {
+        while (true) {
+            Root current = root.get();
+            if (current.get(id) == null || root.compareAndSet(current, current.remove(id))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * A deck at a version.  The cards of that version are held by the deck until it changes, and by the entry
+     * from then on, so that the entry keeps them for the snapshots holding it.
+     */
+    static final class Entry {
+        final DeckEntity deck;
+        final int id;
+        final String name;
+        final long version;
+        // set before the deck changes
+        private volatile List<String> cards;
+
+        Entry(DeckEntity deck) {
+            this.deck = deck;
+            this.id = deck.getId();
+            this.name = deck.getName();
+            this.version = deck.getVersion();
+        }
+
+        /**
+         * @return the cards of this version if the deck has changed since, null otherwise
+         */
+        List<String> getCards() {
+            return cards;
+        }
+
+        /**
+         * Keeps the cards of this version, before the deck changes.
+         */
+        void supersede(List<String> cards) {
+            if (this.cards == null) {
+                this.cards = cards;
+            }
+        }
+    }
+
+    /**
+     * Root of an immutable tree.
+     */
+    static final class Root {
+        static final Root EMPTY = new Root(Node.EMPTY, 0);
+
+        private final Node node;
+        // shift of the root's index bits, 0 when its children are entries
+        private final int shift;
+
+        private Root(Node node, int shift) {
+            this.node = node;
+            this.shift = shift;
+        }
+
+        /**
+         * @return number of decks
+         */
+        int size() {
+            return node.count;
+        }
+
+        Entry get(int id) {
+            if (id < 0 || !covers(shift, id)) {
+                return null;
+            }
+            Node current = node;
+            for (int level = shift; level > 0; level -= BITS) {
+                current = (Node) current.children[(id >>> level) & MASK];
+                if (current == null) {
+                    return null;
+                }
+            }
+            return (Entry) current.children[id & MASK];
+        }
+
+        /**
+         * @param start number of decks to skip, in id order
+         * @param limit largest number of decks to return
+         * @return decks from the given position, in id order
+         */
+        List<Entry> page(int start, int limit) {
+            List<Entry> page = Lists.newArrayListWithCapacity(Math.max(0, Math.min(limit, size() - start)));
+            if (start < size()) {
+                collect(node, shift, start, limit, page);
+            }
+            return page;
+        }
+
+        private static void collect(Node node, int shift, int skip, int limit, List<Entry> page) {
+            for (int i = 0; i < WIDTH && page.size() < limit; i++) {
+                Object child = node.children[i];
+                if (child == null) {
+                    continue;
+                } else if (shift == 0) {
+                    if (skip > 0) {
+                        skip--;
+                    } else {
+                        page.add((Entry) child);
+                    }
+                } else if (skip >= ((Node) child).count) {
+                    skip -= ((Node) child).count;
+                } else {
+                    collect((Node) child, shift - BITS, skip, limit, page);
+                    skip = 0;
+                }
+            }
+        }
+
+        Root put(Entry entry) {
+            Node top = node;
+            int level = shift;
+            while (!covers(level, entry.id)) {
+                Object[] children = new Object[WIDTH];
+                children[0] = top;
+                top = new Node(children, top.count);
+                level += BITS;
+            }
+            return new Root(put(top, level, entry), level);
+        }
+
+        private static Node put(Node node, int shift, Entry entry) {
+            Object[] children = node.children.clone();
+            int i = (entry.id >>> shift) & MASK;
+            int count = node.count;
+            if (shift == 0) {
+                count += children[i] == null ? 1 : 0;
+                children[i] = entry;
+            } else {
+                Node child = children[i] == null ? Node.EMPTY : (Node) children[i];
+                Node updated = put(child, shift - BITS, entry);
+                count += updated.count - child.count;
+                children[i] = updated;
+            }
+            return new Node(children, count);
+        }
+
+        /**
+         * @return tree without the given deck, which must be in this tree
+         */
+        Root remove(int id) {
+            return new Root(remove(node, shift, id), shift);
+        }
+
+        private static Node remove(Node node, int shift, int id) {
+            Object[] children = node.children.clone();
+            int i = (id >>> shift) & MASK;
+            if (shift == 0) {
+                children[i] = null;
+            } else {
+                Node updated = remove((Node) children[i], shift - BITS, id);
+                children[i] = updated.count == 0 ? null : updated;
+            }
+            return new Node(children, node.count - 1);
+        }
+
+        private static boolean covers(int shift, int id) {
+            return shift + BITS >= Integer.SIZE || (id >>> (shift + BITS)) == 0;
+        }
+    }
+
+    private static final class Node {
+        static final Node EMPTY = new Node(new Object[WIDTH], 0);
+
+        final Object[] children;
+        // number of entries below
+        final int count;
+
+        Node(Object[] children, int count) {
+            this.children = children;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package example.cards.dao;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Hashed timer wheel of the ids of decks which expire.
+ * <p>
+ * Time is cut in ticks, and the wheel in a fixed number of slots, a deck being scheduled in the slot of the tick
+ * its deadline falls in, wrapping around the wheel for deadlines further than a full turn.  Scheduling is a lock
+ * free append to the slot, whatever the number of decks.  The reaper advances through the ticks that have fully
+ * elapsed, handing each id of their slots over to be expired or, when the deck's deadline moved since it was
+ * scheduled (an idle deck was used, or the deadline is turns of the wheel away), to be scheduled again.
+ * <p>
+ * Deadlines are not updated when a deck is used, only checked when their slot comes round, so a use costs nothing
+ * here.  Removed decks are left in their slot and dropped when it comes round, as finding them would cost more.
+ * <p>
+ * Only a single reaper may {@link #advance(long, int, IntToLongFunction) advance} the wheel at a time.
+ */
+class ExpiryWheel {
+
+    /**
+     * Answer of a handler when the deck handed over is expired or gone.
+     */
+    static final long NONE = -1;
+
+    static final long DEFAULT_TICK_MILLIS = 1000;
+    static final int DEFAULT_SLOTS = 1024;
+
+    private final long tickMillis;
+    private final List<Queue<Integer>> slots;
+    private final int mask;
+    private final AtomicLong scheduled = new AtomicLong();
+    // next tick to go through, only written by the reaper
+    private volatile long cursor;
+
+    ExpiryWheel(long nowMillis) {
+        this(nowMillis, DEFAULT_TICK_MILLIS, DEFAULT_SLOTS);
+    }
+
+    /**
+     * @param nowMillis current time, from which ticks elapse
+     * @param tickMillis duration of a tick, the precision of the deadlines
+     * @param slots number of slots, must be a power of two
+     */
+    ExpiryWheel(long nowMillis, long tickMillis, int slots) {
+        Preconditions.checkArgument(tickMillis > 0, "tickMillis must be a positive integer");
+        Preconditions.checkArgument(slots > 0 && Integer.bitCount(slots) == 1, "slots must be a power of two");
+        this.tickMillis = tickMillis;
+        this.slots = Lists.newArrayListWithCapacity(slots);
+        for (int i = 0; i < slots; i++) {
+            this.slots.add(new ConcurrentLinkedQueue<>());
+        }
+        this.mask = slots - 1;
+        this.cursor = nowMillis / tickMillis;
+    }
+
+    /**
+     * Schedules a deck to be handed over once its deadline's tick has elapsed.
+     */
+    void schedule(int id, long deadlineMillis) {
+        slots.get(slot(Math.max(deadlineMillis / tickMillis, cursor))).add(id);
+        scheduled.incrementAndGet();
+    }
+
+    /**
+     * Goes through the slots of the ticks elapsed by the given time, handing over at most the given number of ids.
+     * The ticks left are gone through on the next call.
+     *
+     * @param nowMillis current time
+     * @param maxIds largest number of ids to hand over
+     * @param due called with each id due, expires the deck if its deadline passed and returns {@link #NONE}, or
+     *            returns the deck's deadline to schedule it again; returns NONE as well if the deck is gone
+     * @return number of ids handed over, less than maxIds once the elapsed ticks have all been gone through
+     */
+    int advance(long nowMillis, int maxIds, IntToLongFunction due) {
+        long now = nowMillis / tickMillis;
+        int handed = 0;
+        for (long tick = cursor; tick < now && handed < maxIds; ) {
+            Queue<Integer> slot = slots.get(slot(tick));
+            // ids due turns of the wheel later go back in this slot once it has been gone through
+            List<Integer> later = Lists.newArrayList();
+            Integer id = null;
+            while (handed < maxIds && (id = slot.poll()) != null) {
+                handed++;
+                scheduled.decrementAndGet();
+                long deadline = due.applyAsLong(id);
+                if (deadline == NONE) {
+                    continue;
+                }
+                long deadlineTick = Math.max(deadline / tickMillis, now);
+                if (slot(deadlineTick) == slot(tick)) {
+                    later.add(id);
+                } else {
+                    slots.get(slot(deadlineTick)).add(id);
+                }
+                scheduled.incrementAndGet();
+            }
+            slot.addAll(later);
+            if (id == null) {
+                cursor = ++tick;
+            }
+        }
+        return handed;
+    }
+
+    /**
+     * @return number of ids scheduled, including those of decks removed since
+     */
+    long getScheduled() {
+        return scheduled.get();
+    }
+
+    long getTickMillis() {
+        return tickMillis;
+    }
+
+    private int slot(long tick) {
+        return (int) (tick & mask);
+    }
+}
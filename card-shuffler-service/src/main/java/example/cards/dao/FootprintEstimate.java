@@ -0,0 +1,88 @@
+package example.cards.dao;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Estimate of the heap taken by decks whose cards are on heap, from a sample of them.
+ * <p>
+ * Sizes follow the layout of objects on a 64-bit JVM with compressed references: 12 byte headers, 4 byte
+ * references, objects aligned on 8 bytes, and strings backed by a char array.  Card strings are counted once per
+ * instance, however many sampled decks share it, so that interned cards weigh next to nothing per deck while
+ * duplicate instances show up as the bytes they waste.
+ */
+final class FootprintEstimate {
+
+    // header, id, name, cards, version, expiresAt, idleMillis and lastUsedAt
+    static final int ENTITY_BYTES = 56;
+    // header, array, offset and size
+    static final int CARD_ARRAY_BYTES = 24;
+    // skip list node, boxed id, and a third of an index node on average
+    static final int MAP_ENTRY_BYTES = 48;
+    // tree entry, and its share of a leaf node of 32 children
+    static final int TREE_ENTRY_BYTES = 48;
+    // index entry, skip list node, and a third of an index node on average
+    static final int INDEX_ENTRY_BYTES = 56;
+
+    private final Set<String> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<String> values = new HashSet<>();
+    private int decks;
+    private long deckBytes;
+    private long instanceBytes;
+    private long valueBytes;
+
+    /**
+     * Adds a sampled deck whose cards are on heap.
+     */
+    void add(List<String> cards) {
+        decks++;
+        deckBytes += ENTITY_BYTES + CARD_ARRAY_BYTES + align(16 + 4 * cards.size());
+        for (String card : cards) {
+            if (card != null && instances.add(card)) {
+                instanceBytes += stringBytes(card);
+                if (values.add(card)) {
+                    valueBytes += stringBytes(card);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of sampled decks
+     */
+    int getDecks() {
+        return decks;
+    }
+
+    /**
+     * @return estimated heap bytes of a deck, including its share of the card strings
+     */
+    long getBytesPerDeck() {
+        return decks == 0 ? 0 : (deckBytes + instanceBytes) / decks;
+    }
+
+    /**
+     * @return card string instances per distinct card, 1 when every card is shared
+     */
+    double getDuplicationRatio() {
+        return values.isEmpty() ? 1 : (double) instances.size() / values.size();
+    }
+
+    /**
+     * @return estimated bytes of duplicate card strings across the given number of decks
+     */
+    long getDuplicateBytes(int heapDecks) {
+        return decks == 0 ? 0 : (instanceBytes - valueBytes) * heapDecks / decks;
+    }
+
+    private static long stringBytes(String card) {
+        return 24 + align(16 + 2 * card.length());
+    }
+
+    private static int align(int bytes) {
+        return (bytes + 7) & ~7;
+    }
+}
@@ -0,0 +1,11 @@
+package example.cards.dao;
+
+/**
+ * Thrown when a listing continues from a snapshot which is unknown or no longer held.
+ */
+public class SnapshotExpiredException extends RuntimeException {
+
+    public SnapshotExpiredException(String token) {
+        super("Snapshot " + token + " is unknown or expired");
+    }
+}
@@ -0,0 +1,167 @@
+package example.cards.dao;
+
+import com.google.common.base.Preconditions;
+import example.cards.entity.DeckEntity;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the cards of recently used decks on heap, and spills the rest to a {@link ColdDeckStore}.
+ * <p>
+ * Heap use is bounded by a budget of cards rather than a number of decks, as a shoe weighs as much as eight
+ * ordinary decks.  The hot tier is a least recently used list; when admitting a deck pushes it over the budget,
+ * the least recently used decks have their cards written to the cold store and dropped from their entity.  The
+ * entity itself (id and name) stays in the DAO index, so paging and lookups are unaffected, and the cards are
+ * promoted back into the hot tier transparently the next time the deck is read or shuffled.
+ * <p>
+ * Not thread safe, every method is expected to be called while synchronized on the storage.
+ */
+public class TieredStorage {
+
+    private final long hotCardBudget;
+    private final ColdDeckStore coldStore;
+    private final LinkedHashMap<Integer, DeckEntity> hot = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Integer, Long> coldAddresses = new HashMap<>();
+    private volatile long hotCards; // only written while synchronized on the storage
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param hotCardBudget maximum number of cards kept on heap, must be positive
+     * @param coldStore store decks are spilled to
+     */
+    public TieredStorage(long hotCardBudget, ColdDeckStore coldStore) {
+        Preconditions.checkArgument(hotCardBudget > 0, "hotCardBudget must be positive");
+        this.hotCardBudget = hotCardBudget;
+        this.coldStore = Preconditions.checkNotNull(coldStore);
+    }
+
+    /**
+     * Adds a deck holding its cards to the hot tier, spilling least recently used decks as needed.  The admitted
+     * deck itself is never spilled, even if it is larger than the whole budget.
+     */
+    void admit(DeckEntity deck) {
+        if (hot.put(deck.getId(), deck) == null) {
+            hotCards += deck.getCards().size();
+        }
+        Iterator<DeckEntity> leastRecentlyUsed = hot.values().iterator();
+        while (hotCards > hotCardBudget && leastRecentlyUsed.hasNext()) {
+            DeckEntity evicted = leastRecentlyUsed.next();
+            if (evicted == deck) {
+                break;
+            }
+            leastRecentlyUsed.remove();
+            hotCards -= evicted.getCards().size();
+            coldAddresses.put(evicted.getId(), coldStore.write(evicted.getCards()));
+            evicted.setCards(null);
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Cards of a deck, promoting the deck to the hot tier if it had been spilled.
+     */
+    List<String> load(DeckEntity deck) {
+        if (deck.getCards() != null) {
+            hits.increment();
+            hot.get(deck.getId()); // marks the deck as most recently used
+            return deck.getCards();
+        }
+        misses.increment();
+        long address = coldAddresses.remove(deck.getId());
+        deck.setCards(coldStore.read(address));
+        coldStore.free(address);
+        admit(deck);
+        return deck.getCards();
+    }
+
+    /**
+     * Cards of a deck, read from the cold store without promoting the deck if it had been spilled.  Used when
+     * listing decks, so a scan through every page doesn't flush the decks actually in use out of the hot tier.
+     */
+    List<String> peek(DeckEntity deck) {
+        return deck.getCards() != null ? deck.getCards() : coldStore.read(coldAddresses.get(deck.getId()));
+    }
+
+    /**
+     * Number of cards of a deck, without loading a spilled deck's cards.
+     */
+    int size(DeckEntity deck) {
+        return deck.getCards() != null ? deck.getCards().size() : coldStore.readSize(coldAddresses.get(deck.getId()));
+    }
+
+    /**
+     * Replaces the cards of a deck, which becomes the most recently used.
+     */
+    void replace(DeckEntity deck, List<String> cards) {
+        remove(deck);
+        deck.setCards(cards);
+        admit(deck);
+    }
+
+    /**
+     * Moves the cards of a spilled deck out of a sparse segment of the cold store, see
+     * {@link ColdDeckStore#isSparse(long)}.
+     *
+     * @return true if the cards were moved, false if the deck is hot or its segment isn't sparse
+     */
+    boolean repack(DeckEntity deck) {
+        Long address = coldAddresses.get(deck.getId());
+        if (address == null || !coldStore.isSparse(address)) {
+            return false;
+        }
+        coldAddresses.put(deck.getId(), coldStore.move(address));
+        return true;
+    }
+
+    /**
+     * Drops a deck from whichever tier holds it.
+     */
+    void remove(DeckEntity deck) {
+        if (hot.remove(deck.getId()) != null) {
+            hotCards -= deck.getCards().size();
+        } else {
+            Long address = coldAddresses.remove(deck.getId());
+            if (address != null) {
+                coldStore.free(address);
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getHotCards() {
+        return hotCards;
+    }
+
+    /**
+     * @return number of decks whose cards are spilled to the cold store
+     */
+    public int getColdDecks() {
+        return coldAddresses.size();
+    }
+
+    public long getHotCardBudget() {
+        return hotCardBudget;
+    }
+
+    public ColdDeckStore getColdStore() {
+        return coldStore;
+    }
+}
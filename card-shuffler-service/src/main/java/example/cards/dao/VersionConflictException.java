@@ -0,0 +1,21 @@
+package example.cards.dao;
+
+/**
+ * Thrown when a conditional modification finds the deck at a different version than expected.
+ */
+public class VersionConflictException extends RuntimeException {
+
+    private final long actualVersion;
+
+    public VersionConflictException(int deckId, long expectedVersion, long actualVersion) {
+        super("Deck " + deckId + " is at version " + actualVersion + ", not " + expectedVersion);
+        this.actualVersion = actualVersion;
+    }
+
+    /**
+     * @return version the deck was found at
+     */
+    public long getActualVersion() {
+        return actualVersion;
+    }
+}
@@ -18,7 +18,11 @@ public class DeckEntity {
 
     private int id;
     private String name;
-    private List<String> cards;
+    private volatile List<String> cards;
+    private volatile long version;
+    private long expiresAt;
+    private long idleMillis;
+    private volatile long lastUsedAt;
 
     public int getId() {
         return id;
@@ -46,4 +50,52 @@ public class DeckEntity {
         this.cards = cards;
         return this;
     }
+
+    /**
+     * @return version of the deck, incremented whenever it is modified or removed
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public DeckEntity setVersion(long version) {
+        this.version = version;
+        return this;
+    }
+
+    /**
+     * @return time after which the deck expires, in milliseconds since the epoch, 0 if it doesn't
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public DeckEntity setExpiresAt(long expiresAt) {
+        this.expiresAt = expiresAt;
+        return this;
+    }
+
+    /**
+     * @return time after which the deck expires once no longer used, in milliseconds, 0 if it doesn't
+     */
+    public long getIdleMillis() {
+        return idleMillis;
+    }
+
+    public DeckEntity setIdleMillis(long idleMillis) {
+        this.idleMillis = idleMillis;
+        return this;
+    }
+
+    /**
+     * @return time the deck was last read or modified, in milliseconds since the epoch
+     */
+    public long getLastUsedAt() {
+        return lastUsedAt;
+    }
+
+    public DeckEntity setLastUsedAt(long lastUsedAt) {
+        this.lastUsedAt = lastUsedAt;
+        return this;
+    }
 }
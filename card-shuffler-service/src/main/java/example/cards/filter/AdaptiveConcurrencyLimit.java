@@ -0,0 +1,87 @@
+package example.cards.filter;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency limit which adapts to observed latency using additive increase / multiplicative decrease.
+ * <p>
+ * The lowest latency seen recently is taken as the no-load latency of the service.  While samples stay within
+ * {@code tolerance} times that latency the limit grows by one, and as soon as a sample goes beyond it (requests
+ * are queueing somewhere, most likely on the DAO) the limit is cut back.  All state is held in atomics, so
+ * acquiring and releasing never blocks.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final double BACKOFF_RATIO = 0.9;
+    // the no-load latency is decayed slowly so that it can recover after e.g. a GC pause or a deploy
+    private static final double MIN_LATENCY_DECAY = 1.001;
+    // latencies below this are never treated as congestion, whatever the no-load latency is
+    private static final long LATENCY_FLOOR_NANOS = 1_000_000L;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong minLatencyNanos = new AtomicLong(Long.MAX_VALUE);
+
+    /**
+     * @param initialLimit starting limit
+     * @param minLimit limit will never drop below this, must be positive
+     * @param maxLimit limit will never grow beyond this
+     * @param tolerance multiple of the no-load latency under which the limit is allowed to grow, must be above 1
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        Preconditions.checkArgument(minLimit > 0, "minLimit must be a positive integer");
+        Preconditions.checkArgument(minLimit <= initialLimit && initialLimit <= maxLimit,
+                "initialLimit must be between minLimit and maxLimit");
+        Preconditions.checkArgument(tolerance > 1, "tolerance must be greater than 1");
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.limit = new AtomicInteger(initialLimit);
+    }
+
+    /**
+     * @return true if a slot was acquired, in which case {@link #release(long)} must be called once done
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit.get()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases a slot taken by {@link #tryAcquire()} and feeds the observed latency back into the limit.
+     *
+     * @param latencyNanos time the request took while holding the slot
+     */
+    public void release(long latencyNanos) {
+        int current = inFlight.getAndDecrement();
+        long minLatency = minLatencyNanos.updateAndGet(
+                min -> latencyNanos < min ? latencyNanos : (long) Math.min(Long.MAX_VALUE, min * MIN_LATENCY_DECAY));
+        if (latencyNanos > Math.max(minLatency, LATENCY_FLOOR_NANOS) * tolerance) {
+            limit.updateAndGet(l -> Math.max(minLimit, (int) (l * BACKOFF_RATIO)));
+        } else if (current * 2 >= limit.get()) {
+            // only grow while the limit is actually being used, otherwise it creeps up during quiet periods
+            limit.updateAndGet(l -> Math.min(maxLimit, l + 1));
+        }
+    }
+
+    public int getLimit() {
+        return limit.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
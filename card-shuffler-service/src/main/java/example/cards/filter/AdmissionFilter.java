@@ -0,0 +1,239 @@
+package example.cards.filter;
+
+import com.google.common.base.Strings;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import example.cards.dao.DeckDao;
+import example.cards.resource.DeckResourceImpl;
+import example.cards.trace.RequestTrace;
+import example.cards.trace.Stage;
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control in front of every resource call, so that a single client can't starve everyone else of the
+ * {@link DeckDao}.
+ * <p>
+ * Two checks are applied, in order:
+ * <ol>
+ *     <li>A {@link TokenBucket} per client, keyed by the {@value #API_KEY_HEADER} header, or the remote address
+ *     of requests without one.  As keys aren't authenticated, requests with a key are also charged to a bucket
+ *     of their remote address, with limits of its own meant for all the clients behind e.g. a load balancer, so
+ *     that making up keys doesn't get around the limits.  Shuffles are charged one token per
+ *     {@value #CARDS_PER_TOKEN} cards of the deck being shuffled, bulk calls as much as the individual calls they
+ *     replace, and every other call a single token, a call never being charged more than the burst so that it
+ *     can always be admitted once the bucket is full.  At most {@value #MAX_CLIENTS} buckets of each kind are
+ *     kept, each dropped once unused for long enough to have filled up again, so that dropping it makes no
+ *     difference.</li>
+ *     <li>A service wide {@link AdaptiveConcurrencyLimit} fed with the latency of every admitted request.</li>
+ * </ol>
+ * Rejected requests receive a 429 with a Retry-After header.  Counters are {@link LongAdder}s so that
+ * concurrent requests don't contend on a single cache line.
+ * <p>
+ * The concurrency slot of an admitted request is released by the response filter, which RESTEasy skips when a
+ * resource throws an exception no mapper handles, so {@link AdmissionReleaseFilter} releases it in that case.
+ */
+@Provider
+public class AdmissionFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    public static final String API_KEY_HEADER = "X-Api-Key";
+    public static final String RATE_LIMITED = "Rate limit exceeded.";
+    public static final String CONCURRENCY_LIMITED = "Too many concurrent requests.";
+    public static final int TOO_MANY_REQUESTS = 429;
+    public static final int CARDS_PER_TOKEN = 52;
+    // roughly the size of a deck of 52 cards in json
+    public static final int BULK_BYTES_PER_TOKEN = 256;
+    public static final int MAX_CLIENTS = 100_000;
+
+    // in a servlet container, request properties are attributes of the servlet request
+    static final String SLOT_PROPERTY = AdmissionFilter.class.getName() + ".slot";
+
+    private final DeckDao deckDao;
+    private final long burst;
+    private final long addressBurst;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final LoadingCache<String, TokenBucket> buckets;
+    private final LoadingCache<String, TokenBucket> addressBuckets;
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder concurrencyLimited = new LongAdder();
+
+    /**
+     * Creates a filter allowing an address as much as a single client.
+     *
+     * @param deckDao dao used to look up deck sizes when weighting shuffles
+     * @param tokensPerSecond sustained request rate allowed per client
+     * @param burst number of requests a client may make at once after being idle
+     * @param concurrencyLimit limit on requests in flight across all clients
+     */
+    public AdmissionFilter(DeckDao deckDao, double tokensPerSecond, long burst,
+                           AdaptiveConcurrencyLimit concurrencyLimit) {
+        this(deckDao, tokensPerSecond, burst, tokensPerSecond, burst, concurrencyLimit);
+    }
+
+    /**
+     * @param deckDao dao used to look up deck sizes when weighting shuffles
+     * @param tokensPerSecond sustained request rate allowed per client
+     * @param burst number of requests a client may make at once after being idle
+     * @param addressTokensPerSecond sustained request rate allowed per remote address, to requests with a key
+     * @param addressBurst number of requests with a key an address may make at once after being idle
+     * @param concurrencyLimit limit on requests in flight across all clients
+     */
+    public AdmissionFilter(DeckDao deckDao, double tokensPerSecond, long burst, double addressTokensPerSecond,
+                           long addressBurst, AdaptiveConcurrencyLimit concurrencyLimit) {
+        this.deckDao = deckDao;
+        this.burst = burst;
+        this.addressBurst = addressBurst;
+        this.concurrencyLimit = concurrencyLimit;
+        this.buckets = buckets(tokensPerSecond, burst);
+        this.addressBuckets = buckets(addressTokensPerSecond, addressBurst);
+    }
+
+    private static LoadingCache<String, TokenBucket> buckets(double tokensPerSecond, long burst) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(MAX_CLIENTS)
+                .expireAfterAccess((long) Math.ceil(burst * 1_000_000_000d / tokensPerSecond), TimeUnit.NANOSECONDS)
+                .build(CacheLoader.from(key -> new TokenBucket(tokensPerSecond, burst)));
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        long now = System.nanoTime();
+        long cost = cost(requestContext);
+        String apiKey = requestContext.getHeaderString(API_KEY_HEADER);
+        String address = remoteAddress();
+        long waitNanos;
+        if (Strings.isNullOrEmpty(apiKey)) {
+            waitNanos = buckets.getUnchecked(address).tryAcquire(Math.min(cost, burst), now);
+        } else {
+            // keys and addresses can't collide, as a key is never looked up in the address buckets
+            waitNanos = buckets.getUnchecked(API_KEY_HEADER + ":" + apiKey).tryAcquire(Math.min(cost, burst), now);
+            if (waitNanos == 0) {
+                waitNanos = addressBuckets.getUnchecked(address).tryAcquire(Math.min(cost, addressBurst), now);
+            }
+        }
+        if (waitNanos > 0) {
+            rateLimited.increment();
+            requestContext.abortWith(tooManyRequests(RATE_LIMITED, waitNanos));
+            return;
+        }
+        if (!concurrencyLimit.tryAcquire()) {
+            concurrencyLimited.increment();
+            requestContext.abortWith(tooManyRequests(CONCURRENCY_LIMITED, 0));
+            return;
+        }
+        admitted.increment();
+        requestContext.setProperty(SLOT_PROPERTY, new Slot(concurrencyLimit, now));
+        RequestTrace.mark(Stage.ADMISSION);
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        // aborted requests pass through here too, but they never took a concurrency slot
+        Object slot = requestContext.getProperty(SLOT_PROPERTY);
+        if (slot instanceof Slot) {
+            requestContext.removeProperty(SLOT_PROPERTY);
+            ((Slot) slot).release();
+        }
+    }
+
+    /**
+     * Shuffles are charged by deck size, as shuffling is the only operation whose cost grows with the deck.
+     */
+    long cost(ContainerRequestContext requestContext) {
+        String method = requestContext.getMethod();
+        if (HttpMethod.PUT.equals(method) && isBulk(requestContext)) {
+            // decks created in bulk are only known once the body is read, so they're charged by its length
+            int length = requestContext.getLength();
+            return 1 + (length < 0 ? DeckResourceImpl.MAX_BULK_SIZE : length / BULK_BYTES_PER_TOKEN);
+        } else if (!HttpMethod.POST.equals(method)) {
+            return 1;
+        } else if (isBulk(requestContext)) {
+            List<String> ids = requestContext.getUriInfo().getQueryParameters().get("id");
+            long cost = 0;
+            for (String id : ids == null ? Collections.<String>emptyList() : ids) {
+                cost += shuffleCost(id);
+            }
+            return Math.max(1, cost);
+        }
+        String deckId = requestContext.getUriInfo().getPathParameters().getFirst("deckId");
+        return deckId == null ? 1 : shuffleCost(deckId);
+    }
+
+    private long shuffleCost(String deckId) {
+        try {
+            return 1 + deckDao.getDeckSize(Integer.parseInt(deckId)) / CARDS_PER_TOKEN;
+        } catch (NumberFormatException nfe) {
+            return 1; // the resource will reject it
+        }
+    }
+
+    private static boolean isBulk(ContainerRequestContext requestContext) {
+        String path = requestContext.getUriInfo().getPath();
+        return path != null && path.contains("decks/bulk");
+    }
+
+    private static String remoteAddress() {
+        HttpServletRequest servletRequest = ResteasyProviderFactory.getContextData(HttpServletRequest.class);
+        return servletRequest == null ? "" : servletRequest.getRemoteAddr();
+    }
+
+    private static Response tooManyRequests(String message, long waitNanos) {
+        return Response.status(TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos)))
+                .entity(message)
+                .build();
+    }
+
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    public long getRateLimited() {
+        return rateLimited.sum();
+    }
+
+    public long getConcurrencyLimited() {
+        return concurrencyLimited.sum();
+    }
+
+    public AdaptiveConcurrencyLimit getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    /**
+     * Concurrency slot taken by an admitted request, released by whichever of the response filter and
+     * {@link AdmissionReleaseFilter} comes first.  Both run on the request's thread, one after the other.
+     */
+    static final class Slot {
+        private final AdaptiveConcurrencyLimit concurrencyLimit;
+        private final long start;
+        private boolean released;
+
+        private Slot(AdaptiveConcurrencyLimit concurrencyLimit, long start) {
+            this.concurrencyLimit = concurrencyLimit;
+            this.start = start;
+        }
+
+        void release() {
+            if (!released) {
+                released = true;
+                concurrencyLimit.release(System.nanoTime() - start);
+            }
+        }
+    }
+}
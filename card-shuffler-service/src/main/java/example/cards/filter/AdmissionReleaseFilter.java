@@ -0,0 +1,39 @@
+package example.cards.filter;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.io.IOException;
+
+/**
+ * Servlet filter around the dispatcher, releasing the concurrency slot taken by {@link AdmissionFilter} whatever
+ * way the request ends.  RESTEasy doesn't run response filters when a resource throws an exception no mapper
+ * handles, so without it such requests would keep their slot forever, until every request is rejected.
+ */
+public class AdmissionReleaseFilter implements Filter {
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Object slot = request.getAttribute(AdmissionFilter.SLOT_PROPERTY);
+            if (slot instanceof AdmissionFilter.Slot) {
+                request.removeAttribute(AdmissionFilter.SLOT_PROPERTY);
+                ((AdmissionFilter.Slot) slot).release();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
@@ -0,0 +1,27 @@
+package example.cards.filter;
+
+import example.cards.model.DeckDto;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Tags every response holding a single deck with the deck's version, to be sent back in an If-Match header for
+ * conditional shuffles and deletes.
+ */
+@Provider
+public class DeckETagFilter implements ContainerResponseFilter {
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        Object entity = responseContext.getEntity();
+        if (entity instanceof DeckDto && !responseContext.getHeaders().containsKey(HttpHeaders.ETAG)) {
+            responseContext.getHeaders().putSingle(HttpHeaders.ETAG,
+                    new EntityTag(Long.toString(((DeckDto) entity).getVersion())));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package example.cards.filter;
+
+import example.cards.replication.ReplicationStandby;
+
+import javax.annotation.Priority;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Rejects requests modifying decks, including imports, with a 405 while the service is a standby which hasn't been
+ * promoted, as they would diverge from the primary.  Reads and other admin operations, promotion among them, are
+ * let through.  Runs ahead of admission control, so rejected requests use up none of the client's rate.
+ */
+@Provider
+@Priority(Priorities.AUTHORIZATION)
+public class StandbyFilter implements ContainerRequestFilter {
+
+    public static final String READ_ONLY = "Standby is read only, modifications must be sent to the primary.";
+
+    private final ReplicationStandby standby;
+
+    public StandbyFilter(ReplicationStandby standby) {
+        this.standby = standby;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        if (!standby.isReadOnly() || isRead(requestContext.getMethod())) {
+            return;
+        }
+        String path = requestContext.getUriInfo().getPath();
+        path = path.startsWith("/") ? path.substring(1) : path;
+        if (path.startsWith("decks") || path.startsWith("admin/import")) {
+            requestContext.abortWith(Response.status(Response.Status.METHOD_NOT_ALLOWED)
+                    .entity(READ_ONLY)
+                    .build());
+        }
+    }
+
+    private static boolean isRead(String method) {
+        return HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method) || HttpMethod.OPTIONS.equals(method);
+    }
+}
@@ -0,0 +1,54 @@
+package example.cards.filter;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket, implemented as a generic cell rate algorithm.
+ * <p>
+ * Instead of storing a token count and a refill timestamp (which would need a lock or a wide CAS to update
+ * together), the bucket only stores the theoretical time at which it would be full again.  Taking tokens pushes
+ * that time forward, and a request is admitted while the time stays within the burst window of now.  A single
+ * {@link AtomicLong} CAS per admitted request is all the synchronization needed.
+ */
+public class TokenBucket {
+
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+
+    /**
+     * @param tokensPerSecond sustained refill rate, must be positive
+     * @param burst maximum number of tokens that may be taken at once from a full bucket, must be positive
+     */
+    public TokenBucket(double tokensPerSecond, long burst) {
+        Preconditions.checkArgument(tokensPerSecond > 0, "tokensPerSecond must be positive");
+        Preconditions.checkArgument(burst > 0, "burst must be positive");
+        this.nanosPerToken = Math.max(1, (long) (1_000_000_000L / tokensPerSecond));
+        this.burstNanos = burst * nanosPerToken;
+        this.fullAt = new AtomicLong(Long.MIN_VALUE); // starts full
+    }
+
+    /**
+     * Attempts to take the given number of tokens.
+     *
+     * @param tokens number of tokens to take, must be positive
+     * @param now current time as returned by {@link System#nanoTime()}
+     * @return 0 if the tokens were taken, otherwise the number of nanoseconds until they would be available
+     */
+    public long tryAcquire(long tokens, long now) {
+        long cost = tokens * nanosPerToken;
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + cost;
+            long waitNanos = next - now - burstNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
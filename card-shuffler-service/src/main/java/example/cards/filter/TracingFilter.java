@@ -0,0 +1,70 @@
+package example.cards.filter;
+
+import example.cards.trace.RequestTrace;
+import example.cards.trace.SlowRequests;
+import example.cards.trace.Stage;
+
+import javax.annotation.Priority;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+
+/**
+ * Traces every request from before admission to the end of its serialization, and keeps the slowest in
+ * {@link SlowRequests}.
+ * <p>
+ * Runs first of the request filters, last of the response filters and outermost of the writer interceptors.
+ * Requests with a response body finish once it is written, others as soon as the response filters ran.
+ */
+@Provider
+@Priority(TracingFilter.PRIORITY)
+public class TracingFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+
+    public static final int PRIORITY = 1;
+
+    private static final String STATUS_PROPERTY = TracingFilter.class.getName() + ".status";
+
+    private final SlowRequests slowRequests;
+
+    public TracingFilter(SlowRequests slowRequests) {
+        this.slowRequests = slowRequests;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        RequestTrace.start(requestContext.getMethod(), requestContext.getUriInfo().getPath());
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        RequestTrace.mark(Stage.RESOURCE);
+        if (!responseContext.hasEntity()) {
+            finish(responseContext.getStatus());
+        } else {
+            requestContext.setProperty(STATUS_PROPERTY, responseContext.getStatus());
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        try {
+            context.proceed();
+        } finally {
+            RequestTrace.mark(Stage.SERIALIZE);
+            Object status = context.getProperty(STATUS_PROPERTY);
+            finish(status == null ? 0 : (Integer) status);
+        }
+    }
+
+    private void finish(int status) {
+        RequestTrace trace = RequestTrace.finish(status);
+        if (trace != null) {
+            slowRequests.offer(trace);
+        }
+    }
+}
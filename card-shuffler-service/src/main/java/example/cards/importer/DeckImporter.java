@@ -0,0 +1,206 @@
+package example.cards.importer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import example.cards.dao.DeckDao;
+import example.cards.metrics.Metrics;
+import example.cards.model.DeckDto;
+import example.cards.model.ImportResultDto;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bulk import of decks from a newline delimited JSON file, one {@link DeckDto} per line (ids are ignored, as with
+ * any created deck).
+ * <p>
+ * The file is cut into chunks of roughly {@link #DEFAULT_CHUNK_SIZE} bytes ending on line boundaries.  Chunks are
+ * memory-mapped, parsed in parallel on a fork-join pool, and each chunk's decks are inserted with a single
+ * {@link DeckDao#createDecks(List)} call, which reserves the ids of the whole batch at once.
+ * Decks from different chunks are inserted in whichever order the chunks finish, so ids don't follow file order.
+ * Lines that can't be parsed, or hold a deck the dao rejects (e.g. {@code null}), are skipped and counted as errors.
+ */
+public class DeckImporter {
+
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private static final ObjectReader READER = new ObjectMapper().readerFor(DeckDto.class);
+
+    private final DeckDao deckDao;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final LongAdder importedDecks;
+    private final LongAdder importedBytes;
+    private final LongAdder importErrors;
+
+    @Inject
+    public DeckImporter(DeckDao deckDao, Metrics metrics) {
+        this(deckDao, metrics, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param deckDao dao the decks are inserted into
+     * @param metrics registry of the import counters, which double as progress of a running import
+     * @param pool pool the chunks are parsed on
+     * @param chunkSize approximate number of bytes parsed and inserted as one batch
+     */
+    public DeckImporter(DeckDao deckDao, Metrics metrics, ForkJoinPool pool, int chunkSize) {
+        Preconditions.checkArgument(chunkSize > 0, "chunkSize must be a positive integer");
+        this.deckDao = deckDao;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+        this.importedDecks = metrics.counter("import.decks");
+        this.importedBytes = metrics.counter("import.bytes");
+        this.importErrors = metrics.counter("import.errors");
+    }
+
+    /**
+     * Imports every deck of the file.
+     *
+     * @param file newline delimited JSON file
+     * @param listener notified as chunks complete, may be null
+     * @return import outcome
+     * @throws UncheckedIOException if the file can't be read
+     */
+    public ImportResultDto importFile(File file, ProgressListener listener) {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<long[]> chunks = chunks(channel, size);
+            AtomicLong bytesDone = new AtomicLong();
+            LongAdder decks = new LongAdder();
+            LongAdder errors = new LongAdder();
+            pool.submit(() -> chunks.parallelStream().forEach(chunk -> {
+                long[] counts = importChunk(channel, chunk[0], chunk[1]);
+                decks.add(counts[0]);
+                errors.add(counts[1]);
+                long done = bytesDone.addAndGet(chunk[1] - chunk[0]);
+                if (listener != null) {
+                    listener.progress(done, size, decks.sum());
+                }
+            })).join();
+            return ImportResultDto.create(file.getName(), decks.sum(), errors.sum(), size,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to import " + file, ioe);
+        }
+    }
+
+    /**
+     * Splits the file into [start, end) ranges of about chunkSize bytes, each ending just after a newline (or at
+     * the end of the file).
+     */
+    List<long[]> chunks(FileChannel channel, long size) throws IOException {
+        List<long[]> chunks = Lists.newArrayList();
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + chunkSize);
+            // extend the chunk to the end of the line it stops in
+            while (end < size) {
+                probe.clear();
+                int read = channel.read(probe, end);
+                int newline = -1;
+                for (int i = 0; i < read && newline < 0; i++) {
+                    if (probe.get(i) == '\n') {
+                        newline = i;
+                    }
+                }
+                if (newline >= 0) {
+                    end += newline + 1;
+                    break;
+                }
+                end += read;
+            }
+            chunks.add(new long[]{start, Math.min(end, size)});
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * @return number of decks created and number of lines skipped
+     */
+    private long[] importChunk(FileChannel channel, long start, long end) {
+        byte[] bytes = new byte[(int) (end - start)];
+        try {
+            channel.map(FileChannel.MapMode.READ_ONLY, start, end - start).get(bytes);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+
+        List<DeckDto> decks = Lists.newArrayList();
+        long errors = 0;
+        int lineStart = 0;
+        for (int i = 0; i <= bytes.length; i++) {
+            if (i == bytes.length || bytes[i] == '\n') {
+                if (!isBlank(bytes, lineStart, i)) {
+                    try {
+                        DeckDto deck = READER.readValue(bytes, lineStart, i - lineStart);
+                        if (deck == null) {
+                            errors++;
+                        } else {
+                            decks.add(deck);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        errors++;
+                    }
+                }
+                lineStart = i + 1;
+            }
+        }
+        long created = decks.size();
+        try {
+            deckDao.createDecks(decks);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            // the dao checks every deck before creating any, so the chunk is created again deck by deck
+            created = 0;
+            for (DeckDto deck : decks) {
+                try {
+                    deckDao.createDeck(deck);
+                    created++;
+                } catch (IllegalArgumentException | NullPointerException rejected) {
+                    errors++;
+                }
+            }
+        }
+        importedDecks.add(created);
+        importedBytes.add(bytes.length);
+        importErrors.add(errors);
+        return new long[]{created, errors};
+    }
+
+    private static boolean isBlank(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!Character.isWhitespace(bytes[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Receives progress of a running import.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * @param bytesDone bytes of the file imported so far
+         * @param totalBytes size of the file
+         * @param decks decks created so far
+         */
+        void progress(long bytesDone, long totalBytes, long decks);
+    }
+}
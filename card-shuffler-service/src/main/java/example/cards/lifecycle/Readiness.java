@@ -0,0 +1,37 @@
+package example.cards.lifecycle;
+
+/**
+ * Whether the service should be sent traffic: not while it warms up, nor once it started draining to shut down.
+ * <p>
+ * Load balancers poll it through the admin resource, so that a deploy only routes requests to an instance after
+ * its warm-up, and stops routing them before the instance stops accepting connections.
+ */
+public class Readiness {
+
+    public enum State {
+        STARTING, READY, DRAINING
+    }
+
+    private volatile State state = State.STARTING;
+
+    /**
+     * Reports the service ready, unless it already started draining.
+     */
+    public synchronized void ready() {
+        if (state == State.STARTING) {
+            state = State.READY;
+        }
+    }
+
+    public synchronized void drain() {
+        state = State.DRAINING;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isReady() {
+        return state == State.READY;
+    }
+}
@@ -0,0 +1,137 @@
+package example.cards.lifecycle;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import example.cards.dao.DeckDao;
+import example.cards.dao.DeckReadCache;
+import example.cards.model.DeckDto;
+import example.cards.model.DeckListDto;
+import example.cards.provider.PooledJacksonJsonProvider;
+import example.cards.shuffler.DeckShuffler;
+import example.cards.shuffler.ShufflerRegistry;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs synthetic requests through the hot paths before the service takes traffic, so that the first real requests
+ * after a deploy run compiled code rather than the interpreter.
+ * <p>
+ * Each iteration creates, reads, shuffles with every algorithm, lists and removes a deck, and serializes and
+ * parses the results with the json provider.  This goes through a dao of its own, sharing the classes, and so the
+ * compiled code, of the service's dao but none of its data, and the service's shufflers, unmetered so that their
+ * metrics only reflect live traffic.  Iterations run in rounds until at least the minimum
+ * number ran and a whole round triggered no further JIT compilation, or the time limit is reached.
+ */
+public class WarmUp {
+
+    public static final int DEFAULT_MIN_ITERATIONS = 10_000;
+    public static final long DEFAULT_MAX_MILLIS = 10_000;
+
+    private static final int ROUND = 1_000;
+    private static final List<String> CARDS = standardDeck();
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+    private final ShufflerRegistry shufflers;
+    private final int minIterations;
+    private final long maxMillis;
+
+    /**
+     * @param shufflers shufflers of the service
+     * @param minIterations iterations to run at least, 0 to skip warming up
+     * @param maxMillis time after which to stop even if code is still being compiled, at least a round is run
+     */
+    public WarmUp(ShufflerRegistry shufflers, int minIterations, long maxMillis) {
+        Preconditions.checkArgument(minIterations >= 0, "minIterations must be 0 or a positive integer");
+        Preconditions.checkArgument(maxMillis >= 0, "maxMillis must be 0 or a positive integer");
+        this.shufflers = shufflers;
+        this.minIterations = minIterations;
+        this.maxMillis = maxMillis;
+    }
+
+    /**
+     * @return number of iterations run
+     */
+    public int run() {
+        if (minIterations == 0) {
+            return 0;
+        }
+        DeckDao deckDao = new DeckDao(null, new DeckReadCache(0, 1));
+        PooledJacksonJsonProvider jsonProvider = new PooledJacksonJsonProvider();
+        List<DeckShuffler> shufflers = Lists.newArrayList();
+        for (String algorithm : this.shufflers.names()) {
+            shufflers.add(this.shufflers.get(algorithm).getShuffler());
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxMillis);
+        long compilationMillis = compilationMillis();
+        int iterations = 0;
+        do {
+            for (int i = 0; i < ROUND; i++) {
+                iterate(deckDao, jsonProvider, shufflers);
+            }
+            iterations += ROUND;
+            long compiled = compilationMillis();
+            if (iterations >= minIterations && (compiled < 0 || compiled == compilationMillis)) {
+                break;
+            }
+            compilationMillis = compiled;
+        } while (System.nanoTime() < deadline);
+        return iterations;
+    }
+
+    private static void iterate(DeckDao deckDao, PooledJacksonJsonProvider jsonProvider,
+                                List<DeckShuffler> shufflers) {
+        int id = deckDao.createDeck(DeckDto.create(0, "warm-up", CARDS)).getId();
+        DeckDto deck = deckDao.getDeck(id);
+        for (DeckShuffler shuffler : shufflers) {
+            deck = deckDao.shuffleDeck(id, shuffler);
+        }
+        DeckDto parsed = (DeckDto) roundTrip(jsonProvider, deck, DeckDto.class);
+        DeckListDto decks = deckDao.getDecks(0, 10);
+        roundTrip(jsonProvider, decks, DeckListDto.class);
+        deckDao.remove(parsed.getId());
+    }
+
+    private static Object roundTrip(PooledJacksonJsonProvider jsonProvider, Object value, Class<?> type) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            jsonProvider.writeTo(value, type, type, NO_ANNOTATIONS, MediaType.APPLICATION_JSON_TYPE,
+                    new MultivaluedHashMap<>(), out);
+            @SuppressWarnings("unchecked")
+            Class<Object> objectType = (Class<Object>) type;
+            return jsonProvider.readFrom(objectType, type, NO_ANNOTATIONS, MediaType.APPLICATION_JSON_TYPE,
+                    new MultivaluedHashMap<>(), new ByteArrayInputStream(out.toByteArray()));
+        } catch (IOException ioe) {
+            throw new IllegalStateException("Unable to serialize " + value, ioe);
+        }
+    }
+
+    /**
+     * @return total time spent compiling, -1 if the JVM doesn't report it
+     */
+    private static long compilationMillis() {
+        CompilationMXBean compilation = ManagementFactory.getCompilationMXBean();
+        if (compilation == null || !compilation.isCompilationTimeMonitoringSupported()) {
+            return -1;
+        }
+        return compilation.getTotalCompilationTime();
+    }
+
+    private static List<String> standardDeck() {
+        List<String> cards = Lists.newArrayListWithCapacity(52);
+        for (String suit : new String[]{"S", "H", "D", "C"}) {
+            for (String rank : new String[]{"A", "2", "3", "4", "5", "6", "7", "8", "9", "10", "J", "Q", "K"}) {
+                cards.add(rank + suit);
+            }
+        }
+        return cards;
+    }
+}
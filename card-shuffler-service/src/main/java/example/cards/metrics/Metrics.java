@@ -0,0 +1,56 @@
+package example.cards.metrics;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Minimal registry of named service metrics, exposed through the admin resource.
+ * <p>
+ * Counters are {@link LongAdder}s, so incrementing them from many request threads doesn't contend on a single
+ * cache line.  Gauges are read on demand from whatever component owns the value.  Metric names are dotted,
+ * e.g. {@code shuffler.pool.level}.
+ */
+public class Metrics {
+
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * @param name name of the counter
+     * @return the counter registered under the name, created on first use
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    /**
+     * Registers a gauge, replacing any gauge previously registered under the same name.
+     *
+     * @param name name of the gauge
+     * @param gauge supplier of the current value, called whenever metrics are read
+     */
+    public void gauge(String name, LongSupplier gauge) {
+        gauges.put(name, Preconditions.checkNotNull(gauge));
+    }
+
+    /**
+     * @return current value of every counter and gauge, sorted by name
+     */
+    public SortedMap<String, Long> snapshot() {
+        SortedMap<String, Long> snapshot = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+            snapshot.put(counter.getKey(), counter.getValue().sum());
+        }
+        for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+            snapshot.put(gauge.getKey(), gauge.getValue().getAsLong());
+        }
+        return snapshot;
+    }
+}
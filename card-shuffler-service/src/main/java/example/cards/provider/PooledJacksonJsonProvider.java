@@ -0,0 +1,110 @@
+package example.cards.provider;
+
+import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
+import example.cards.dao.DeckReadCache;
+import example.cards.model.DeckDto;
+
+import javax.inject.Inject;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.Provider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+/**
+ * Jackson provider which serializes each response into a buffer reused by the request thread, rather than
+ * streaming it through freshly allocated chunks.
+ * <p>
+ * Knowing the full size up front also lets the response go out with a Content-Length instead of chunked
+ * encoding, and lets the gzip handler skip compression of small bodies without buffering them itself.  Buffers
+ * that grew beyond {@link #MAX_RETAINED_BUFFER_SIZE} while writing an unusually large deck are dropped afterwards
+ * so that a handful of huge responses don't pin memory on every request thread.
+ * <p>
+ * Decks served from the {@link DeckReadCache} are serialized once per cached read and the bytes shared by every
+ * reader.
+ */
+@Provider
+@Consumes(MediaType.WILDCARD)
+@Produces(MediaType.WILDCARD)
+public class PooledJacksonJsonProvider extends JacksonJsonProvider {
+
+    public static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    public static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+    private static final ThreadLocal<ReusableOutputStream> BUFFERS =
+            ThreadLocal.withInitial(() -> new ReusableOutputStream(INITIAL_BUFFER_SIZE));
+
+    private final DeckReadCache readCache;
+
+    public PooledJacksonJsonProvider() {
+        this(null);
+    }
+
+    /**
+     * @param readCache cache whose decks' serialized form is shared, may be null
+     */
+    @Inject
+    public PooledJacksonJsonProvider(DeckReadCache readCache) {
+        this.readCache = readCache;
+    }
+
+    @Override
+    public void writeTo(Object value, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                        MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        ReusableOutputStream buffer = BUFFERS.get();
+        try {
+            if (readCache != null && value instanceof DeckDto) {
+                byte[] serialized = readCache.serialized((DeckDto) value, () -> {
+                    serialize(value, type, genericType, annotations, mediaType, httpHeaders, buffer);
+                    return buffer.toByteArray();
+                });
+                httpHeaders.putSingle(HttpHeaders.CONTENT_LENGTH, serialized.length);
+                entityStream.write(serialized);
+                return;
+            }
+            super.writeTo(value, type, genericType, annotations, mediaType, httpHeaders, buffer);
+            httpHeaders.putSingle(HttpHeaders.CONTENT_LENGTH, buffer.size());
+            buffer.writeTo(entityStream);
+        } finally {
+            if (buffer.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+                BUFFERS.remove();
+            } else {
+                buffer.reset();
+            }
+        }
+    }
+
+    private void serialize(Object value, Class<?> type, Type genericType, Annotation[] annotations,
+                           MediaType mediaType, MultivaluedMap<String, Object> httpHeaders,
+                           ReusableOutputStream buffer) {
+        try {
+            super.writeTo(value, type, genericType, annotations, mediaType, httpHeaders, buffer);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    /**
+     * Byte array stream exposing its capacity, and ignoring close as Jackson closes the target once done.
+     */
+    static class ReusableOutputStream extends ByteArrayOutputStream {
+        ReusableOutputStream(int size) {
+            super(size);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
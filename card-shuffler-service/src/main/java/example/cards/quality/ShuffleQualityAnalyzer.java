@@ -0,0 +1,144 @@
+package example.cards.quality;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import example.cards.entity.DeckEntity;
+import example.cards.model.ShuffleQualityDto;
+import example.cards.shuffler.DeckShuffler;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Measures how close a {@link DeckShuffler} comes to a uniformly random permutation, so that faster
+ * implementations can be verified before being swapped in.
+ * <p>
+ * A deck of distinct cards is shuffled many times from the same starting order, and the following are collected:
+ * <ul>
+ *     <li>How often each card lands in each position.  For a uniform shuffle every count is close to
+ *     iterations / deckSize, which is checked with a chi-square test of (deckSize - 1)^2 degrees of freedom.</li>
+ *     <li>The number of rising sequences of each shuffled deck, i.e. runs of cards in their original relative
+ *     order.  Riffle style shuffles that don't mix enough leave too few of them; a uniform shuffle averages
+ *     (deckSize + 1) / 2.</li>
+ *     <li>The number of cards still directly followed by their original successor, averaging
+ *     (deckSize - 1) / deckSize for a uniform shuffle.</li>
+ * </ul>
+ * Shuffles are split evenly across the workers of a fork-join pool, each of which accumulates into its own
+ * primitive count matrix; the matrices are only summed once all workers are done.  The analyzer has a pool of its
+ * own, by default of half the processors, so that analyses neither compete with requests for every core nor hold
+ * up other users of the common pool.
+ */
+public class ShuffleQualityAnalyzer {
+
+    private final ForkJoinPool pool;
+
+    public ShuffleQualityAnalyzer() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    /**
+     * @param parallelism number of shuffling threads of the analyzer's own pool
+     */
+    public ShuffleQualityAnalyzer(int parallelism) {
+        this(new ForkJoinPool(parallelism));
+    }
+
+    public ShuffleQualityAnalyzer(ForkJoinPool pool) {
+        this.pool = Preconditions.checkNotNull(pool);
+    }
+
+    /**
+     * @param algorithm name reported back in the result
+     * @param shuffler shuffler to analyze, must be thread safe
+     * @param deckSize number of cards in the analyzed deck, must be at least 2
+     * @param iterations number of shuffles, must be positive
+     * @return quality report
+     */
+    public ShuffleQualityDto analyze(String algorithm, DeckShuffler shuffler, int deckSize, int iterations) {
+        Preconditions.checkArgument(deckSize >= 2, "deckSize must be at least 2");
+        Preconditions.checkArgument(iterations > 0, "iterations must be a positive integer");
+        long start = System.nanoTime();
+
+        int workers = Math.min(iterations, pool.getParallelism());
+        Counts counts = pool.submit(() -> IntStream.range(0, workers)
+                .parallel()
+                .mapToObj(worker -> run(shuffler, deckSize,
+                        iterations / workers + (worker < iterations % workers ? 1 : 0)))
+                .reduce(Counts::add)
+                .get()).join();
+
+        double expected = iterations / (double) deckSize;
+        double chiSquare = 0;
+        double maxBias = 0;
+        for (long count : counts.positions) {
+            double deviation = count - expected;
+            chiSquare += deviation * deviation / expected;
+            maxBias = Math.max(maxBias, Math.abs(deviation) / expected);
+        }
+        int degreesOfFreedom = (deckSize - 1) * (deckSize - 1);
+
+        return ShuffleQualityDto.create(algorithm, deckSize, iterations, chiSquare,
+                Statistics.chiSquareSurvival(chiSquare, degreesOfFreedom), maxBias,
+                counts.risingSequences / (double) iterations, (deckSize + 1) / 2.0,
+                counts.adjacentPairs / (double) iterations, (deckSize - 1) / (double) deckSize,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private static Counts run(DeckShuffler shuffler, int deckSize, int iterations) {
+        // cards are labelled with their original position, so a card's label is its index into the matrix
+        String[] labels = new String[deckSize];
+        for (int i = 0; i < deckSize; i++) {
+            labels[i] = Integer.toString(i);
+        }
+        Counts counts = new Counts(deckSize);
+        int[] positionOf = new int[deckSize];
+        int[] shuffled = new int[deckSize];
+        for (int n = 0; n < iterations; n++) {
+            DeckEntity deck = new DeckEntity().setCards(Lists.newArrayList(labels));
+            List<String> cards = shuffler.shuffleDeck(deck).getCards();
+            for (int position = 0; position < deckSize; position++) {
+                int card = Integer.parseInt(cards.get(position));
+                shuffled[position] = card;
+                positionOf[card] = position;
+                counts.positions[card * deckSize + position]++;
+            }
+            long risingSequences = 1;
+            for (int card = 1; card < deckSize; card++) {
+                if (positionOf[card] < positionOf[card - 1]) {
+                    risingSequences++;
+                }
+            }
+            counts.risingSequences += risingSequences;
+            for (int position = 1; position < deckSize; position++) {
+                if (shuffled[position] == shuffled[position - 1] + 1) {
+                    counts.adjacentPairs++;
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Counts accumulated by a single worker, merged once every worker is done.
+     */
+    private static class Counts {
+        final long[] positions;
+        long risingSequences;
+        long adjacentPairs;
+
+        Counts(int deckSize) {
+            positions = new long[deckSize * deckSize];
+        }
+
+        Counts add(Counts other) {
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] += other.positions[i];
+            }
+            risingSequences += other.risingSequences;
+            adjacentPairs += other.adjacentPairs;
+            return this;
+        }
+    }
+}
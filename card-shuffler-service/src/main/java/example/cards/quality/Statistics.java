@@ -0,0 +1,38 @@
+package example.cards.quality;
+
+/**
+ * Distribution functions needed by the shuffle quality analysis, kept here rather than pulling in a statistics
+ * library for two functions.
+ */
+final class Statistics {
+
+    private Statistics() {
+    }
+
+    /**
+     * Probability that a chi-square variable with the given degrees of freedom is at least x, using the
+     * Wilson-Hilferty normal approximation.  Accurate to a few parts in a thousand once there are more than a
+     * handful of degrees of freedom, which is plenty to flag a biased shuffle.
+     */
+    static double chiSquareSurvival(double x, int degreesOfFreedom) {
+        if (x <= 0) {
+            return 1;
+        }
+        double k = degreesOfFreedom;
+        double variance = 2 / (9 * k);
+        double z = (Math.cbrt(x / k) - (1 - variance)) / Math.sqrt(variance);
+        return 1 - normalCdf(z);
+    }
+
+    /**
+     * Standard normal cumulative distribution, using the Abramowitz and Stegun 7.1.26 approximation of erf
+     * (absolute error below 1.5e-7).
+     */
+    static double normalCdf(double z) {
+        double x = Math.abs(z) / Math.sqrt(2);
+        double t = 1 / (1 + 0.3275911 * x);
+        double erf = 1 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741 + t * (-1.453152027
+                + t * 1.061405429)))) * Math.exp(-x * x);
+        return z >= 0 ? (1 + erf) / 2 : (1 - erf) / 2;
+    }
+}
@@ -0,0 +1,127 @@
+package example.cards.replication;
+
+import example.cards.model.CardArray;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Record of the replication log: the state of a deck after it changed, the removal of a deck, or the start and end
+ * of a snapshot, the standby removing the decks the snapshot didn't hold once it ends.
+ * <p>
+ * Records are written in frames, each a count of records followed by the records, a record being its type, the
+ * deck's id and version, and for a put the deck's expiry, idle timeout, name and cards.  Strings are written as their length in UTF-8
+ * bytes followed by the bytes, -1 standing for null, as {@link DataOutput#writeUTF(String)} is limited to 64KB.
+ */
+final class Change {
+
+    enum Type {
+        PUT, REMOVE, RESET, SYNCED
+    }
+
+    static final Change RESET = new Change(Type.RESET, -1, null, null, 0, 0, 0);
+    static final Change SYNCED = new Change(Type.SYNCED, -1, null, null, 0, 0, 0);
+
+    private static final Type[] TYPES = Type.values();
+
+    final Type type;
+    final int id;
+    final String name;
+    final List<String> cards;
+    final long version;
+    final long expiresAt;
+    final long idleMillis;
+
+    private Change(Type type, int id, String name, List<String> cards, long version, long expiresAt,
+                   long idleMillis) {
+        this.type = type;
+        this.id = id;
+        this.name = name;
+        this.cards = cards;
+        this.version = version;
+        this.expiresAt = expiresAt;
+        this.idleMillis = idleMillis;
+    }
+
+    static Change put(int id, String name, List<String> cards, long version, long expiresAt, long idleMillis) {
+        return new Change(Type.PUT, id, name, cards, version, expiresAt, idleMillis);
+    }
+
+    static Change remove(int id, long version) {
+        return new Change(Type.REMOVE, id, null, null, version, 0, 0);
+    }
+
+    static void writeFrame(DataOutput out, List<Change> changes) throws IOException {
+        out.writeInt(changes.size());
+        for (Change change : changes) {
+            change.writeTo(out);
+        }
+    }
+
+    private void writeTo(DataOutput out) throws IOException {
+        out.writeByte(type.ordinal());
+        out.writeInt(id);
+        out.writeLong(version);
+        if (type == Type.PUT) {
+            out.writeLong(expiresAt);
+            out.writeLong(idleMillis);
+            writeString(out, name);
+            out.writeInt(cards.size());
+            for (String card : cards) {
+                writeString(out, card);
+            }
+        }
+    }
+
+    static Change readFrom(DataInput in) throws IOException {
+        int type = in.readUnsignedByte();
+        if (type >= TYPES.length) {
+            throw new StreamCorruptedException("Unknown record type " + type);
+        }
+        int id = in.readInt();
+        long version = in.readLong();
+        if (TYPES[type] == Type.REMOVE) {
+            return remove(id, version);
+        } else if (TYPES[type] == Type.RESET) {
+            return RESET;
+        } else if (TYPES[type] == Type.SYNCED) {
+            return SYNCED;
+        }
+        long expiresAt = in.readLong();
+        long idleMillis = in.readLong();
+        String name = readString(in);
+        int size = in.readInt();
+        if (size < 0) {
+            throw new StreamCorruptedException("Negative number of cards " + size);
+        }
+        String[] cards = new String[size];
+        for (int i = 0; i < cards.length; i++) {
+            cards[i] = readString(in);
+        }
+        return put(id, name, CardArray.wrap(cards), version, expiresAt, idleMillis);
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
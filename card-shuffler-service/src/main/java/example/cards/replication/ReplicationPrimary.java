@@ -0,0 +1,308 @@
+package example.cards.replication;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import example.cards.dao.DeckChangeListener;
+import example.cards.dao.DeckDao;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Primary side of the replication: ships every change of the dao's decks to the standbys connected to it (see
+ * {@link ReplicationStandby}).
+ * <p>
+ * The log is state based: each record holds the whole deck as it is after the change, with its version, so the
+ * standby applies records idempotently and never needs records older than those it has.  A standby connecting is
+ * first sent a reset, a snapshot of every deck and the snapshot's end, then the changes made since it connected, in
+ * the order they were made for each deck; changes made while the snapshot is read are sent after it, and are ignored
+ * by the standby if the snapshot already held them.
+ * <p>
+ * Listening to a change only appends it to the queue of each standby, without blocking.  A sender thread per
+ * standby drains its queue in batches, writing each as a single frame, and doesn't wait for the standby to apply a
+ * frame before sending the next one; the number of records applied is sent back by the standby and read on another
+ * thread, for the lag to be known.  A standby falling so far behind that its queue fills up is disconnected, and
+ * catches up from a fresh snapshot once it reconnects.
+ */
+public class ReplicationPrimary implements DeckChangeListener, Closeable {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 65_536;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1024;
+
+    private final DeckDao deckDao;
+    private final int port;
+    private final int queueCapacity;
+    private final int maxBatchSize;
+    private final List<Session> sessions = new CopyOnWriteArrayList<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile ServerSocket serverSocket;
+
+    /**
+     * @param deckDao dao whose changes are shipped
+     * @param port port standbys connect to on the loopback interface, 0 for any free port, or -1 to disable
+     *             replication
+     * @param queueCapacity largest number of changes queued for a standby before it is disconnected
+     * @param maxBatchSize largest number of changes sent in a single frame
+     */
+    public ReplicationPrimary(DeckDao deckDao, int port, int queueCapacity, int maxBatchSize) {
+        Preconditions.checkArgument(port >= -1 && port <= 65535, "port must be between -1 and 65535");
+        Preconditions.checkArgument(queueCapacity > 0, "queueCapacity must be a positive integer");
+        Preconditions.checkArgument(maxBatchSize > 0, "maxBatchSize must be a positive integer");
+        this.deckDao = Preconditions.checkNotNull(deckDao);
+        this.port = port;
+        this.queueCapacity = queueCapacity;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Listens to the dao's changes and accepts standbys, unless replication is disabled.
+     *
+     * @throws IOException if the port can't be listened on
+     */
+    public ReplicationPrimary start() throws IOException {
+        if (!isEnabled()) {
+            return this;
+        }
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        deckDao.setChangeListener(this);
+        daemon(this::accept, "replication-primary").start();
+        return this;
+    }
+
+    private void accept() {
+        ServerSocket server = serverSocket;
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                Session session = new Session(socket);
+                // registered before the snapshot is read, so that no change is missed
+                sessions.add(session);
+                int connection = connections.incrementAndGet();
+                daemon(session::send, "replication-sender-" + connection).start();
+                daemon(session::receiveAcks, "replication-acks-" + connection).start();
+            } catch (IOException ioe) {
+                if (!server.isClosed()) {
+                    System.err.println("Unable to accept standby: " + ioe);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void changed(int id, String name, List<String> cards, long version, long expiresAt, long idleMillis) {
+        offer(Change.put(id, name, cards, version, expiresAt, idleMillis));
+    }
+
+    @Override
+    public void removed(int id, long version) {
+        offer(Change.remove(id, version));
+    }
+
+    private void offer(Change change) {
+        for (Session session : sessions) {
+            if (!session.queue.offer(change)) {
+                dropped.increment();
+                session.close();
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return port >= 0;
+    }
+
+    /**
+     * @return port standbys connect to, -1 if not listening
+     */
+    public int getLocalPort() {
+        ServerSocket server = serverSocket;
+        return server == null ? -1 : server.getLocalPort();
+    }
+
+    /**
+     * @return number of standbys connected
+     */
+    public int getStandbys() {
+        return sessions.size();
+    }
+
+    /**
+     * @return number of standbys connected which were sent the whole snapshot, and so are only sent changes
+     */
+    public int getSyncedStandbys() {
+        int synced = 0;
+        for (Session session : sessions) {
+            if (session.synced) {
+                synced++;
+            }
+        }
+        return synced;
+    }
+
+    /**
+     * @return number of records sent, to every standby
+     */
+    public long getSent() {
+        return sent.sum();
+    }
+
+    /**
+     * @return number of frames sent, to every standby
+     */
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * @return number of standbys disconnected as they fell too far behind
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return largest number of records sent to a standby but not yet applied by it, or still queued
+     */
+    public long getLag() {
+        long lag = 0;
+        for (Session session : sessions) {
+            lag = Math.max(lag, session.sent - session.acked + session.queue.size());
+        }
+        return lag;
+    }
+
+    @Override
+    public void close() {
+        deckDao.setChangeListener(null);
+        ServerSocket server = serverSocket;
+        if (server != null) {
+            try {
+                server.close();
+            } catch (IOException ioe) {
+                System.err.println("Unable to close replication socket: " + ioe);
+            }
+        }
+        sessions.forEach(Session::close);
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Connection of a standby.
+     */
+    private final class Session {
+        private final Socket socket;
+        private final BlockingQueue<Change> queue = new ArrayBlockingQueue<>(queueCapacity);
+        // records sent, only written by the sender thread
+        private volatile long sent;
+        // records applied by the standby, only written by the ack thread
+        private volatile long acked;
+        private volatile boolean synced;
+
+        Session(Socket socket) {
+            this.socket = socket;
+        }
+
+        /**
+         * Sends the snapshot, then the queued changes until the standby disconnects.
+         */
+        void send() {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream(), 64 * 1024))) {
+                List<Change> batch = Lists.newArrayListWithCapacity(maxBatchSize);
+                batch.add(Change.RESET);
+                try {
+                    deckDao.snapshot(deck -> {
+                        batch.add(Change.put(deck.getId(), deck.getName(), deck.getCards(), deck.getVersion(),
+                                deck.getExpiresAt(), deck.getIdleMillis()));
+                        if (batch.size() == maxBatchSize) {
+                            try {
+                                write(out, batch);
+                            } catch (IOException ioe) {
+                                throw new UncheckedIOException(ioe);
+                            }
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                batch.add(Change.SYNCED);
+                write(out, batch);
+                synced = true;
+                while (!socket.isClosed()) {
+                    Change first = queue.poll(1, TimeUnit.SECONDS);
+                    if (first != null) {
+                        batch.add(first);
+                        queue.drainTo(batch, maxBatchSize - 1);
+                        write(out, batch);
+                    }
+                }
+            } catch (IOException ioe) {
+                if (!socket.isClosed()) {
+                    System.err.println("Replication to " + socket.getRemoteSocketAddress() + " failed: " + ioe);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                close();
+            }
+        }
+
+        private void write(DataOutputStream out, List<Change> batch) throws IOException {
+            Change.writeFrame(out, batch);
+            out.flush();
+            sent += batch.size();
+            ReplicationPrimary.this.sent.add(batch.size());
+            batches.increment();
+            batch.clear();
+        }
+
+        /**
+         * Reads the number of records applied by the standby, sent back after each frame.
+         */
+        void receiveAcks() {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+                while (true) {
+                    acked = in.readLong();
+                }
+            } catch (IOException ioe) {
+                // disconnected, the sender stops as well
+            } finally {
+                close();
+            }
+        }
+
+        void close() {
+            sessions.remove(this);
+            try {
+                socket.close();
+            } catch (IOException ioe) {
+                // already closed
+            }
+        }
+    }
+}
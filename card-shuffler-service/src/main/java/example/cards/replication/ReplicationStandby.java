@@ -0,0 +1,250 @@
+package example.cards.replication;
+
+import com.google.common.base.Preconditions;
+import example.cards.dao.DeckDao;
+import example.cards.entity.DeckEntity;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.BitSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Standby side of the replication: applies the changes shipped by a {@link ReplicationPrimary} to the dao's decks,
+ * so that the standby serves reads off the primary and can take over from it.
+ * <p>
+ * Changes are applied on a single thread as frames arrive, independently of the requests served, so reads on the
+ * standby may lag the primary by however many records are in flight.  Once a frame is applied, the number of
+ * records applied is sent back to the primary.  Should the connection fail, the standby keeps serving the decks it
+ * has, connects again every retry period, and is brought up to date by a fresh snapshot.  The snapshot is reconciled
+ * with the decks the standby has, which keep being served while it is applied, those it didn't hold being removed
+ * once it ends.  Decks expire on the standby as they do on the primary, idle timeouts counting from the last change
+ * replicated or read on the standby.
+ * <p>
+ * Until promoted, a standby is read only: requests modifying decks are rejected (see
+ * {@link example.cards.filter.StandbyFilter}), as the primary's changes would overwrite them.  Promoting a standby
+ * stops the replication for good, and ids it assigns follow the last deck replicated.
+ */
+public class ReplicationStandby implements Closeable {
+
+    public static final long DEFAULT_RETRY_MILLIS = 1000;
+
+    private final DeckDao deckDao;
+    private final String host;
+    private final int port;
+    private final long retryMillis;
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder connects = new LongAdder();
+
+    // guarded by this for writes, so that no change is applied once promoted
+    private volatile boolean readOnly;
+    private volatile boolean closed;
+    private volatile boolean connected;
+    private volatile Socket socket;
+    private volatile Thread thread;
+    // ids of the decks of the snapshot being applied, null once it ended, only used by the replication thread
+    private BitSet snapshot;
+
+    /**
+     * @param deckDao dao the changes are applied to
+     * @param primary host:port of the primary, or null if this service isn't a standby
+     * @param retryMillis time between attempts to connect to the primary
+     * @throws IllegalArgumentException if the primary isn't a host and port
+     */
+    public ReplicationStandby(DeckDao deckDao, String primary, long retryMillis) {
+        Preconditions.checkArgument(retryMillis > 0, "retryMillis must be a positive integer");
+        this.deckDao = Preconditions.checkNotNull(deckDao);
+        this.retryMillis = retryMillis;
+        if (primary == null || primary.isEmpty()) {
+            this.host = null;
+            this.port = -1;
+        } else {
+            int colon = primary.lastIndexOf(':');
+            Preconditions.checkArgument(colon > 0, "primary must be host:port");
+            this.host = primary.substring(0, colon);
+            this.port = Integer.parseInt(primary.substring(colon + 1));
+            this.readOnly = true;
+        }
+    }
+
+    /**
+     * Starts replicating from the primary, unless this service isn't a standby.
+     */
+    public ReplicationStandby start() {
+        if (readOnly) {
+            Thread replication = new Thread(this::replicate, "replication-standby");
+            replication.setDaemon(true);
+            thread = replication;
+            replication.start();
+        }
+        return this;
+    }
+
+    private void replicate() {
+        while (readOnly && !closed) {
+            try (Socket connection = new Socket(host, port)) {
+                socket = connection;
+                if (!readOnly || closed) {
+                    return; // closed while connecting
+                }
+                connection.setTcpNoDelay(true);
+                connected = true;
+                connects.increment();
+                apply(new DataInputStream(new BufferedInputStream(connection.getInputStream(), 64 * 1024)),
+                        new DataOutputStream(new BufferedOutputStream(connection.getOutputStream())));
+            } catch (EOFException eof) {
+                if (readOnly && !closed) {
+                    System.err.println("Primary " + host + ":" + port + " closed the replication connection.");
+                }
+            } catch (IOException ioe) {
+                if (readOnly && !closed) {
+                    System.err.println("Unable to replicate from " + host + ":" + port + ": " + ioe);
+                }
+            } finally {
+                connected = false;
+            }
+            try {
+                Thread.sleep(retryMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Applies frames until the connection fails or the standby is promoted.
+     */
+    private void apply(DataInputStream in, DataOutputStream out) throws IOException {
+        long total = 0;
+        while (readOnly) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                if (!apply(Change.readFrom(in))) {
+                    return;
+                }
+            }
+            total += count;
+            applied.add(count);
+            out.writeLong(total);
+            out.flush();
+        }
+    }
+
+    /**
+     * @return false if the change wasn't applied as the standby was promoted, changes from then on overwriting
+     * those made by clients
+     */
+    private synchronized boolean apply(Change change) {
+        if (!readOnly) {
+            return false;
+        }
+        switch (change.type) {
+            case RESET:
+                snapshot = new BitSet();
+                break;
+            case PUT:
+                if (snapshot != null) {
+                    snapshot.set(change.id);
+                    deckDao.reconcile(new DeckEntity()
+                            .setId(change.id)
+                            .setName(change.name)
+                            .setCards(change.cards)
+                            .setVersion(change.version)
+                            .setExpiresAt(change.expiresAt)
+                            .setIdleMillis(change.idleMillis));
+                } else {
+                    deckDao.replicate(change.id, change.name, change.cards, change.version, change.expiresAt,
+                            change.idleMillis);
+                }
+                break;
+            case SYNCED:
+                BitSet held = snapshot;
+                snapshot = null;
+                if (held != null) {
+                    deckDao.retainDecks(held::get);
+                }
+                break;
+            case REMOVE:
+                deckDao.remove(change.id);
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * Stops the replication for good, so that the service accepts modifications.
+     *
+     * @return true if this service was a standby, false if it already was a primary
+     */
+    public boolean promote() {
+        synchronized (this) {
+            if (!readOnly) {
+                return false;
+            }
+            readOnly = false;
+        }
+        close();
+        return true;
+    }
+
+    /**
+     * @return true if this service was configured as a standby, even once promoted
+     */
+    public boolean isEnabled() {
+        return host != null;
+    }
+
+    /**
+     * @return true while this service is a standby which hasn't been promoted
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * @return true while connected to the primary
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * @return number of records applied, across every connection
+     */
+    public long getApplied() {
+        return applied.sum();
+    }
+
+    /**
+     * @return number of times the standby connected to the primary
+     */
+    public long getConnects() {
+        return connects.sum();
+    }
+
+    /**
+     * Stops the replication, leaving the standby read only unless it was promoted.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Thread replication = thread;
+        if (replication != null) {
+            replication.interrupt();
+        }
+        Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException ioe) {
+                // already closed
+            }
+        }
+    }
+}
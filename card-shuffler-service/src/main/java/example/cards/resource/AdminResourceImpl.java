@@ -0,0 +1,195 @@
+package example.cards.resource;
+
+import com.google.common.collect.Lists;
+import example.cards.ServiceModule;
+import example.cards.dao.DeckDao;
+import example.cards.importer.DeckImporter;
+import example.cards.lifecycle.Readiness;
+import example.cards.metrics.Metrics;
+import example.cards.model.CompactionDto;
+import example.cards.model.FootprintDto;
+import example.cards.model.ImportResultDto;
+import example.cards.model.RequestTraceDto;
+import example.cards.model.ShuffleQualityDto;
+import example.cards.quality.ShuffleQualityAnalyzer;
+import example.cards.replication.ReplicationStandby;
+import example.cards.shuffler.ShufflerRegistry;
+import example.cards.trace.RequestTrace;
+import example.cards.trace.SlowRequests;
+import example.cards.trace.Stage;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of the admin resource.
+ */
+public class AdminResourceImpl implements AdminResource {
+
+    public static final String UNKNOWN_ALGORITHM = "Unknown algorithm.";
+    public static final String DECK_SIZE_ERROR = "Deck size must be between 2 and 1000.";
+    public static final String ITERATIONS_ERROR = "Iterations must be between 1 and 10000000.";
+    public static final String ANALYSIS_SIZE_ERROR =
+            "Iterations times deck size times algorithms analyzed must be at most 200000000.";
+    public static final String IMPORT_DISABLED = "Imports are disabled.";
+    public static final String IMPORT_FILE_ERROR = "File must be a readable file within the import directory.";
+    public static final String NOT_STANDBY = "Service is not a standby.";
+    public static final String SAMPLE_SIZE_ERROR = "Sample must be between 1 and 100000.";
+    public static final String COMPACTION_RUNNING = "A compaction is already running.";
+    public static final int MAX_DECK_SIZE = 1000;
+    public static final int MAX_ITERATIONS = 10_000_000;
+    // cards shuffled by a single analysis request, across the algorithms analyzed
+    public static final long MAX_ANALYSIS_CARDS = 200_000_000L;
+    public static final int MAX_SAMPLE_SIZE = 100_000;
+    public static final int COMPACTION_BATCH_SIZE = 256;
+
+    private final ShuffleQualityAnalyzer shuffleQualityAnalyzer;
+    private final Metrics metrics;
+    private final DeckImporter deckImporter;
+    private final String importDirectory;
+    private final SlowRequests slowRequests;
+    private final Readiness readiness;
+    private final ReplicationStandby standby;
+    private final DeckDao deckDao;
+    private final ShufflerRegistry shufflers;
+
+    @Inject
+    public AdminResourceImpl(ShuffleQualityAnalyzer shuffleQualityAnalyzer, Metrics metrics,
+                             DeckImporter deckImporter,
+                             @Named(ServiceModule.IMPORT_DIRECTORY_PROPERTY) String importDirectory,
+                             SlowRequests slowRequests, Readiness readiness, ReplicationStandby standby,
+                             DeckDao deckDao, ShufflerRegistry shufflers) {
+        this.shuffleQualityAnalyzer = shuffleQualityAnalyzer;
+        this.metrics = metrics;
+        this.deckImporter = deckImporter;
+        this.importDirectory = importDirectory;
+        this.slowRequests = slowRequests;
+        this.readiness = readiness;
+        this.standby = standby;
+        this.deckDao = deckDao;
+        this.shufflers = shufflers;
+    }
+
+    @Override
+    public Map<String, Long> getMetrics() {
+        return metrics.snapshot();
+    }
+
+    @Override
+    public Response getReadiness() {
+        Readiness.State state = readiness.getState();
+        Response.Status status = state == Readiness.State.READY ? Response.Status.OK
+                : Response.Status.SERVICE_UNAVAILABLE;
+        return Response.status(status)
+                .entity(Collections.singletonMap("state", state.name()))
+                .build();
+    }
+
+    @Override
+    public Response promote() {
+        if (!standby.promote()) {
+            throw new WebApplicationException(NOT_STANDBY, Response.Status.CONFLICT);
+        }
+        return Response.noContent().build();
+    }
+
+    @Override
+    public List<RequestTraceDto> getSlowestRequests() {
+        List<RequestTraceDto> traces = Lists.newArrayList();
+        for (RequestTrace trace : slowRequests.snapshot()) {
+            Map<String, Long> stageMicros = new LinkedHashMap<>();
+            for (Stage stage : Stage.values()) {
+                stageMicros.put(stage.name().toLowerCase(), TimeUnit.NANOSECONDS.toMicros(trace.getStageNanos(stage)));
+            }
+            traces.add(RequestTraceDto.create(trace.getMethod(), trace.getPath(), trace.getStatus(),
+                    trace.getStartMillis(), TimeUnit.NANOSECONDS.toMicros(trace.getTotalNanos()), stageMicros));
+        }
+        return traces;
+    }
+
+    @Override
+    public Response clearSlowestRequests() {
+        slowRequests.clear();
+        return Response.noContent().build();
+    }
+
+    @Override
+    public List<ShuffleQualityDto> getShuffleQuality(String algorithm, int deckSize, int iterations) {
+        if (algorithm != null && shufflers.get(algorithm) == null) {
+            throw new WebApplicationException(UNKNOWN_ALGORITHM, Response.Status.BAD_REQUEST);
+        } else if (deckSize < 2 || deckSize > MAX_DECK_SIZE) {
+            throw new WebApplicationException(DECK_SIZE_ERROR, Response.Status.BAD_REQUEST);
+        } else if (iterations < 1 || iterations > MAX_ITERATIONS) {
+            throw new WebApplicationException(ITERATIONS_ERROR, Response.Status.BAD_REQUEST);
+        }
+        Collection<String> algorithms = algorithm == null ? shufflers.names() : Collections.singleton(algorithm);
+        if ((long) iterations * deckSize * algorithms.size() > MAX_ANALYSIS_CARDS) {
+            throw new WebApplicationException(ANALYSIS_SIZE_ERROR, Response.Status.BAD_REQUEST);
+        }
+
+        List<ShuffleQualityDto> reports = Lists.newArrayList();
+        for (String name : algorithms) {
+            // the shuffler the registry meters, so that analyses don't count as live traffic
+            reports.add(shuffleQualityAnalyzer.analyze(name, shufflers.get(name).getShuffler(), deckSize,
+                    iterations));
+        }
+        return reports;
+    }
+
+    @Override
+    public ImportResultDto importDecks(String file) {
+        if (importDirectory == null || importDirectory.isEmpty()) {
+            throw new WebApplicationException(IMPORT_DISABLED, Response.Status.FORBIDDEN);
+        } else if (file == null) {
+            throw new WebApplicationException(IMPORT_FILE_ERROR, Response.Status.BAD_REQUEST);
+        }
+
+        File importFile;
+        try {
+            // canonical paths so that neither "../" nor symbolic links escape the import directory
+            File directory = new File(importDirectory).getCanonicalFile();
+            importFile = new File(directory, file).getCanonicalFile();
+            if (!importFile.toPath().startsWith(directory.toPath()) || !importFile.isFile()
+                    || !importFile.canRead()) {
+                throw new WebApplicationException(IMPORT_FILE_ERROR, Response.Status.BAD_REQUEST);
+            }
+        } catch (IOException ioe) {
+            throw new WebApplicationException(IMPORT_FILE_ERROR, Response.Status.BAD_REQUEST);
+        }
+        return deckImporter.importFile(importFile, null);
+    }
+
+    @Override
+    public FootprintDto getFootprint(int sample) {
+        if (sample < 1 || sample > MAX_SAMPLE_SIZE) {
+            throw new WebApplicationException(SAMPLE_SIZE_ERROR, Response.Status.BAD_REQUEST);
+        }
+        return deckDao.getFootprint(sample);
+    }
+
+    @Override
+    public Response compact() {
+        CompactionDto started;
+        try {
+            started = deckDao.startCompaction(COMPACTION_BATCH_SIZE);
+        } catch (IllegalStateException ise) {
+            throw new WebApplicationException(COMPACTION_RUNNING, Response.Status.CONFLICT);
+        }
+        return Response.accepted(started).build();
+    }
+
+    @Override
+    public CompactionDto getCompaction() {
+        return deckDao.getCompaction();
+    }
+}
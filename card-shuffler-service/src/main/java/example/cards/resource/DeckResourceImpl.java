@@ -1,15 +1,23 @@
 package example.cards.resource;
 
+import com.google.common.collect.Lists;
 import example.cards.dao.DeckDao;
+import example.cards.dao.SnapshotExpiredException;
+import example.cards.dao.VersionConflictException;
 import example.cards.shuffler.DeckShuffler;
+import example.cards.shuffler.ShufflerRegistry;
 import example.cards.entity.DeckEntity;
+import example.cards.model.CardArray;
 import example.cards.model.DeckDto;
 import example.cards.model.DeckListDto;
+import example.cards.model.DeckPageDto;
 
 import javax.inject.Inject;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
 import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Implementation of deck resource.
@@ -24,23 +32,38 @@ public class DeckResourceImpl implements DeckResource {
     public static final String LIMIT_MUST_BE_A_POSITIVE_INTEGER = "Limit must be a positive integer";
     public static final String START_PARAM_ERROR = "Start must be 0 or a positive integer";
     public static final String ENTITY_NOT_FOUND = "No entity found for id.";
+    public static final String SHOE_SIZE_ERROR = "Shoe size must be between 1 and 8.";
+    public static final String DECK_ID_REQUIRED = "Id of the other deck is required.";
+    public static final String SAME_DECK_ERROR = "The other deck must be a different deck.";
+    public static final String SPLIT_POSITION_ERROR = "Split position must leave cards in both decks.";
+    public static final String TRANSFER_COUNT_ERROR = "Count must be between 1 and the number of cards in the deck.";
+    public static final String SIZE_PARAM_ERROR = "Sizes must be 0 or positive integers.";
+    public static final String CURSOR_ERROR = "Cursor is invalid.";
+    public static final String BULK_SIZE_ERROR = "Between 1 and 500 decks must be given.";
+    public static final String DECK_REQUIRED = "A deck is required.";
+    public static final String VERSION_CONFLICT = "Deck has been modified since the given version.";
+    public static final String EXPIRY_ERROR = "Time to live and idle timeout must be positive integers.";
+    public static final String UNKNOWN_ALGORITHM = "Unknown algorithm.";
+    public static final String SNAPSHOT_EXPIRED = "Snapshot is unknown or expired, list the decks again.";
+    public static final int MAX_SHOE_SIZE = 8;
+    public static final int MAX_BULK_SIZE = 500;
     private final DeckDao deckDao;
-    private final DeckShuffler deckShuffler;
+    private final ShufflerRegistry shufflers;
 
     /**
-     * To note: the DeckShuffler is injected here and not in the dao so that we could manage this
-     * more easily a per request basis with different semantics from the dao.
+     * To note: the shufflers are injected here and not in the dao so that each request can choose its
+     * algorithm, with different semantics from the dao.
      *
      * Do not consume this outside of testing or Guice integration.  Not meant for reuse.
      */
     @Inject
-    public DeckResourceImpl(DeckDao deckDao, DeckShuffler deckShuffler) {
+    public DeckResourceImpl(DeckDao deckDao, ShufflerRegistry shufflers) {
         this.deckDao = deckDao;
-        this.deckShuffler = deckShuffler;
+        this.shufflers = shufflers;
     }
 
     @Override
-    public DeckListDto getDecks(int start, int limit) {
+    public DeckListDto getDecks(int start, int limit, String snapshot) {
         if (limit > 100) {
             throw new WebApplicationException(LIMIT_MAY_NOT_EXCEED_100, Response.Status.BAD_REQUEST);  // these messages should really be at least static or, better yet, localized variables
         } else if (limit <= 0) {
@@ -48,18 +71,97 @@ public class DeckResourceImpl implements DeckResource {
         } else if (start < 0) {
             throw new WebApplicationException(START_PARAM_ERROR, Response.Status.BAD_REQUEST);
         }
-        return deckDao.getDecks(start, limit);
+        try {
+            return deckDao.getDecks(start, limit, snapshot);
+        } catch (SnapshotExpiredException see) {
+            throw new WebApplicationException(SNAPSHOT_EXPIRED, Response.Status.GONE);
+        }
+    }
+
+    @Override
+    public DeckPageDto searchDecks(String namePrefix, String card, Integer minSize, Integer maxSize, String cursor,
+                                   int limit) {
+        if (limit > 100) {
+            throw new WebApplicationException(LIMIT_MAY_NOT_EXCEED_100, Response.Status.BAD_REQUEST);
+        } else if (limit <= 0) {
+            throw new WebApplicationException(LIMIT_MUST_BE_A_POSITIVE_INTEGER, Response.Status.BAD_REQUEST);
+        } else if ((minSize != null && minSize < 0) || (maxSize != null && maxSize < 0)) {
+            throw new WebApplicationException(SIZE_PARAM_ERROR, Response.Status.BAD_REQUEST);
+        }
+        try {
+            return deckDao.searchDecks(namePrefix, card, minSize, maxSize, cursor, limit);
+        } catch (IllegalArgumentException iae) {
+            throw new WebApplicationException(CURSOR_ERROR, Response.Status.BAD_REQUEST);
+        }
     }
 
     @Override
-    public Response createDeck(DeckDto deck) {
-        DeckEntity created = deckDao.createDeck(deck);
+    public Response createDeck(DeckDto deck, int shoeSize, Long ttlSeconds, Long idleSeconds) {
+        if (deck == null) {
+            throw new WebApplicationException(DECK_REQUIRED, Response.Status.BAD_REQUEST);
+        } else if (shoeSize < 1 || shoeSize > MAX_SHOE_SIZE) {
+            throw new WebApplicationException(SHOE_SIZE_ERROR, Response.Status.BAD_REQUEST);
+        }
+        DeckEntity created = deckDao.createDeck(shoeSize == 1 ? deck : toShoe(deck, shoeSize),
+                expiryMillis(ttlSeconds), expiryMillis(idleSeconds));
         if (created != null) {
             return Response.created(URI.create("/decks/" + Integer.toString(created.getId()))).build();
         }
         return Response.status(500).entity("Unable to build entity").build();
     }
 
+    @Override
+    public List<Integer> createDecks(List<DeckDto> decks, Long ttlSeconds, Long idleSeconds) {
+        checkBulkSize(decks);
+        // a json null in the list would otherwise fail the dao with a NullPointerException, answered with a 500
+        if (decks.contains(null)) {
+            throw new WebApplicationException(DECK_REQUIRED, Response.Status.BAD_REQUEST);
+        }
+        int firstId = deckDao.createDecks(decks, expiryMillis(ttlSeconds), expiryMillis(idleSeconds));
+        List<Integer> ids = Lists.newArrayListWithCapacity(decks.size());
+        for (int i = 0; i < decks.size(); i++) {
+            ids.add(firstId + i);
+        }
+        return ids;
+    }
+
+    @Override
+    public List<DeckDto> shuffleDecks(List<Integer> ids, String algorithm) {
+        checkBulkSize(ids);
+        // unlike a single shuffle, a missing deck doesn't fail the others
+        return deckDao.shuffleDecks(ids, shuffler(algorithm));
+    }
+
+    /**
+     * @param algorithm name of the algorithm, or null for the default algorithm
+     * @return shuffler of the algorithm
+     */
+    private DeckShuffler shuffler(String algorithm) {
+        DeckShuffler deckShuffler = shufflers.get(algorithm);
+        if (deckShuffler == null) {
+            throw new WebApplicationException(UNKNOWN_ALGORITHM, Response.Status.BAD_REQUEST);
+        }
+        return deckShuffler;
+    }
+
+    /**
+     * @return the given time to live or idle timeout in milliseconds, 0 if none was given
+     */
+    static long expiryMillis(Long seconds) {
+        if (seconds == null) {
+            return 0;
+        } else if (seconds <= 0 || seconds > TimeUnit.MILLISECONDS.toSeconds(Long.MAX_VALUE) / 2) {
+            throw new WebApplicationException(EXPIRY_ERROR, Response.Status.BAD_REQUEST);
+        }
+        return TimeUnit.SECONDS.toMillis(seconds);
+    }
+
+    private static void checkBulkSize(List<?> items) {
+        if (items == null || items.isEmpty() || items.size() > MAX_BULK_SIZE) {
+            throw new WebApplicationException(BULK_SIZE_ERROR, Response.Status.BAD_REQUEST);
+        }
+    }
+
     @Override
     public DeckDto getDeck(int id) {
         DeckDto deck = deckDao.getDeck(id);
@@ -70,21 +172,115 @@ public class DeckResourceImpl implements DeckResource {
     }
 
     @Override
-    public DeckDto shuffleDeck(int id) {
-        DeckDto shuffled = deckDao.shuffleDeck(id, deckShuffler);
+    public DeckDto shuffleDeck(int id, String ifMatch, String algorithm) {
+        DeckShuffler deckShuffler = shuffler(algorithm);
+        DeckDto shuffled;
+        try {
+            shuffled = deckDao.shuffleDeck(id, deckShuffler, parseVersion(ifMatch));
+        } catch (VersionConflictException vce) {
+            throw new WebApplicationException(VERSION_CONFLICT, Response.Status.PRECONDITION_FAILED);
+        }
         if (shuffled == null) {
             throw new WebApplicationException(ENTITY_NOT_FOUND, Response.Status.NOT_FOUND);
         }
-        return deckDao.shuffleDeck(id, deckShuffler);
+        return shuffled;
     }
 
     @Override
-    public Response deleteDeck(int id) {
-        DeckEntity deck = deckDao.remove(id);
+    public Response deleteDeck(int id, String ifMatch) {
+        DeckEntity deck;
+        try {
+            deck = deckDao.remove(id, parseVersion(ifMatch));
+        } catch (VersionConflictException vce) {
+            throw new WebApplicationException(VERSION_CONFLICT, Response.Status.PRECONDITION_FAILED);
+        }
         if (deck == null) {
             throw new WebApplicationException(ENTITY_NOT_FOUND, Response.Status.NOT_FOUND);
         }
 
         return Response.noContent().build();
     }
+
+    /**
+     * Parses an If-Match header holding a deck version, either as sent back from the ETag ("3", W/"3") or bare.
+     *
+     * @return expected version, null if the header is absent or "*"
+     */
+    static Long parseVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String version = ifMatch.trim();
+        if (version.startsWith("W/")) {
+            version = version.substring(2);
+        }
+        if (version.length() >= 2 && version.startsWith("\"") && version.endsWith("\"")) {
+            version = version.substring(1, version.length() - 1);
+        }
+        try {
+            return Long.parseLong(version);
+        } catch (NumberFormatException nfe) {
+            // matches no version
+            throw new WebApplicationException(VERSION_CONFLICT, Response.Status.PRECONDITION_FAILED);
+        }
+    }
+
+    @Override
+    public DeckDto mergeDeck(int id, Integer sourceId) {
+        checkOtherDeck(id, sourceId);
+        DeckDto merged = deckDao.merge(id, sourceId);
+        if (merged == null) {
+            throw new WebApplicationException(ENTITY_NOT_FOUND, Response.Status.NOT_FOUND);
+        }
+        return merged;
+    }
+
+    @Override
+    public Response splitDeck(int id, int at, String name) {
+        DeckEntity split;
+        try {
+            split = deckDao.split(id, at, name);
+        } catch (IllegalArgumentException iae) {
+            throw new WebApplicationException(SPLIT_POSITION_ERROR, Response.Status.BAD_REQUEST);
+        }
+        if (split == null) {
+            throw new WebApplicationException(ENTITY_NOT_FOUND, Response.Status.NOT_FOUND);
+        }
+        return Response.created(URI.create("/decks/" + Integer.toString(split.getId()))).build();
+    }
+
+    @Override
+    public List<DeckDto> transferCards(int id, Integer targetId, int count) {
+        checkOtherDeck(id, targetId);
+        List<DeckDto> decks;
+        try {
+            decks = deckDao.transfer(id, targetId, count);
+        } catch (IllegalArgumentException iae) {
+            throw new WebApplicationException(TRANSFER_COUNT_ERROR, Response.Status.BAD_REQUEST);
+        }
+        if (decks == null) {
+            throw new WebApplicationException(ENTITY_NOT_FOUND, Response.Status.NOT_FOUND);
+        }
+        return decks;
+    }
+
+    private static void checkOtherDeck(int id, Integer otherId) {
+        if (otherId == null) {
+            throw new WebApplicationException(DECK_ID_REQUIRED, Response.Status.BAD_REQUEST);
+        } else if (otherId == id) {
+            throw new WebApplicationException(SAME_DECK_ERROR, Response.Status.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Builds a shoe holding shoeSize consecutive copies of the given deck's cards.
+     */
+    private static DeckDto toShoe(DeckDto deck, int shoeSize) {
+        List<String> single = deck.getCards();
+        String[] cards = new String[single.size() * shoeSize];
+        for (int i = 0; i < cards.length; i++) {
+            cards[i] = single.get(i % single.size());
+        }
+        return DeckDto.create(deck.getId(), deck.getName(), CardArray.wrap(cards));
+    }
 }
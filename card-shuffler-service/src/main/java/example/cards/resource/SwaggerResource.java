@@ -0,0 +1,35 @@
+package example.cards.resource;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import example.cards.swagger.SwaggerSpec;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Serves the swagger spec pre-serialized by the build, see {@link SwaggerSpec}.  Each format is loaded on its
+ * first request, so serving the spec costs nothing at startup.
+ */
+@Path("/")
+public class SwaggerResource {
+
+    private static final Supplier<byte[]> JSON = Suppliers.memoize(() -> SwaggerSpec.load(SwaggerSpec.JSON));
+    private static final Supplier<byte[]> YAML = Suppliers.memoize(() -> SwaggerSpec.load(SwaggerSpec.YAML));
+
+    @GET
+    @Path(SwaggerSpec.JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public byte[] getSwaggerJson() {
+        return JSON.get();
+    }
+
+    @GET
+    @Path(SwaggerSpec.YAML)
+    @Produces("application/yaml")
+    public byte[] getSwaggerYaml() {
+        return YAML.get();
+    }
+}
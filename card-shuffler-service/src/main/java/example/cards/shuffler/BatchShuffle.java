@@ -0,0 +1,81 @@
+package example.cards.shuffler;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Fisher-Yates shuffle of many decks of the same size laid out in a single int array, see
+ * {@link DeckShuffler#shuffleDecks(int[], int)}.
+ * <p>
+ * The random positions of a deck are drawn in bulk ahead of its swaps: two positions per random long, each
+ * bounded with Lemire's nearly divisionless method (a multiply and shift, with a division only in the rare case
+ * where the draw has to be checked for bias), so the swaps themselves are a tight loop over primitives.  Nothing is
+ * allocated per deck.
+ */
+final class BatchShuffle {
+
+    private BatchShuffle() {
+    }
+
+    /**
+     * Shuffles each deck of the range [from, to) of the array in place.
+     *
+     * @param decks decks laid out one after the other
+     * @param from inclusive start of the first deck
+     * @param to exclusive end of the last deck
+     * @param deckSize number of values per deck
+     * @param random source of randomness, expected to be confined to the calling thread
+     * @throws IllegalArgumentException if deckSize isn't positive or the range doesn't hold whole decks
+     */
+    static void shuffle(int[] decks, int from, int to, int deckSize, ThreadLocalRandom random) {
+        check(decks, from, to, deckSize);
+        if (deckSize < 2) {
+            return;
+        }
+        int[] swaps = new int[deckSize];
+        for (int base = from; base < to; base += deckSize) {
+            draw(swaps, random);
+            for (int i = deckSize - 1; i > 0; i--) {
+                int j = base + swaps[i];
+                int value = decks[base + i];
+                decks[base + i] = decks[j];
+                decks[j] = value;
+            }
+        }
+    }
+
+    static void check(int[] decks, int from, int to, int deckSize) {
+        Preconditions.checkArgument(deckSize > 0, "deckSize must be a positive integer");
+        Preconditions.checkPositionIndexes(from, to, decks.length);
+        Preconditions.checkArgument((to - from) % deckSize == 0, "decks must hold a whole number of decks");
+    }
+
+    /**
+     * Draws, for every position i above 0, the position in [0, i] it is swapped with.
+     */
+    static void draw(int[] swaps, ThreadLocalRandom random) {
+        for (int i = swaps.length - 1; i > 0; i -= 2) {
+            long bits = random.nextLong();
+            swaps[i] = bounded((int) bits, i + 1, random);
+            if (i > 1) {
+                swaps[i - 1] = bounded((int) (bits >>> 32), i, random);
+            }
+        }
+    }
+
+    /**
+     * Maps 32 random bits to [0, bound) without bias: the high half of their product with the bound, unless the low
+     * half falls in the few values which would favor some results, in which case other bits are drawn.
+     */
+    static int bounded(int bits, int bound, ThreadLocalRandom random) {
+        long product = (bits & 0xFFFFFFFFL) * bound;
+        if (Integer.compareUnsigned((int) product, bound) < 0) {
+            int threshold = Integer.remainderUnsigned(-bound, bound);
+            while (Integer.compareUnsigned((int) product, threshold) < 0) {
+                product = (random.nextInt() & 0xFFFFFFFFL) * bound;
+            }
+        }
+        return (int) (product >>> 32);
+    }
+}
@@ -2,15 +2,33 @@ package example.cards.shuffler;
 
 import example.cards.entity.DeckEntity;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
  * Interface for doing deck shuffling.
  */
 public interface DeckShuffler {
 
     /**
-     * Shuffles a deck of cards to return a newly ordered list.
+     * Shuffles a deck of cards to return a newly ordered list.  The cards returned must be a permutation of the
+     * deck's, as the dao doesn't re-index the cards of a shuffled deck.
      * @param deck non null deck of cards to be shuffled
      * @return DeckEntity that has a newly ordered cards list
      */
     public DeckEntity shuffleDeck(DeckEntity deck);
+
+    /**
+     * Shuffles many decks of the same size at once, e.g. for bulk shuffles of 52 card decks.  The decks are laid
+     * out one after the other in a single array, deck i holding the range [i * deckSize, (i + 1) * deckSize), and
+     * each is shuffled in place.  Values are typically the positions of the cards in their deck.
+     * <p>
+     * The default implementation is a Fisher-Yates shuffle of each deck, with the random positions drawn in bulk
+     * ahead of a tight loop of swaps, and nothing allocated per deck.
+     * @param decks decks laid out one after the other
+     * @param deckSize number of values per deck
+     * @throws IllegalArgumentException if deckSize isn't positive or the array doesn't hold whole decks
+     */
+    public default void shuffleDecks(int[] decks, int deckSize) {
+        BatchShuffle.shuffle(decks, 0, decks.length, deckSize, ThreadLocalRandom.current());
+    }
 }
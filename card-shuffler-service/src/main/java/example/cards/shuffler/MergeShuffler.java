@@ -0,0 +1,124 @@
+package example.cards.shuffler;
+
+import com.google.common.base.Preconditions;
+import example.cards.entity.DeckEntity;
+import example.cards.model.CardArray;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Parallel shuffler for very large decks (shoes, custom decks of 100k+ cards).
+ * <p>
+ * Implements MergeShuffle (Bacher, Bodini, Hollender and Lumbroso): the deck is split in halves which are
+ * shuffled independently on fork-join workers, and the halves are then merged by flipping a coin for each
+ * position.  The final fix up step of the merge keeps the result uniform, so the output is unbiased just like
+ * a plain Fisher-Yates shuffle.  Below {@link #DEFAULT_BLOCK_SIZE} cards a sub range is shuffled sequentially,
+ * which keeps each worker inside a block that fits in cache instead of jumping across the whole deck.
+ */
+public class MergeShuffler implements DeckShuffler {
+
+    /**
+     * Number of cards below which a range is shuffled sequentially.  A block of references this size sits
+     * comfortably in L2 cache.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 14;
+
+    private final ForkJoinPool pool;
+    private final int blockSize;
+
+    public MergeShuffler() {
+        this(ForkJoinPool.commonPool(), DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param pool pool the shuffle work is split across
+     * @param blockSize number of cards below which a range is shuffled sequentially, must be positive
+     */
+    public MergeShuffler(ForkJoinPool pool, int blockSize) {
+        Preconditions.checkArgument(blockSize > 0, "blockSize must be a positive integer");
+        this.pool = Preconditions.checkNotNull(pool);
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public DeckEntity shuffleDeck(DeckEntity deck) {
+        Preconditions.checkNotNull(deck, "deck cannot be null");
+        String[] cards = deck.getCards().toArray(new String[deck.getCards().size()]);
+        shuffle(cards);
+        return deck.setCards(CardArray.wrap(cards));
+    }
+
+    /**
+     * Shuffles the given array in place.
+     *
+     * @param cards non null array to be shuffled
+     */
+    public void shuffle(Object[] cards) {
+        if (cards.length <= blockSize) {
+            RandomShuffler.fisherYates(cards, 0, cards.length, ThreadLocalRandom.current());
+        } else {
+            pool.invoke(new ShuffleTask(cards, 0, cards.length, blockSize));
+        }
+    }
+
+    /**
+     * Merges the two independently shuffled ranges [from, mid) and [mid, to) into a uniformly shuffled
+     * range [from, to).
+     */
+    static void merge(Object[] cards, int from, int mid, int to, ThreadLocalRandom random) {
+        int i = from;
+        int j = mid;
+        long bits = 0;
+        int remainingBits = 0;
+        while (true) {
+            if (remainingBits == 0) {
+                bits = random.nextLong();
+                remainingBits = Long.SIZE;
+            }
+            boolean takeRight = (bits & 1) == 0;
+            bits >>>= 1;
+            remainingBits--;
+            if (takeRight) {
+                if (j == to) {
+                    break;
+                }
+                RandomShuffler.swap(cards, i, j);
+                j++;
+            } else if (i == j) {
+                break;
+            }
+            i++;
+        }
+        // one of the halves ran out, insert what is left at uniformly random positions
+        for (; i < to; i++) {
+            RandomShuffler.swap(cards, i, from + random.nextInt(i - from + 1));
+        }
+    }
+
+    private static class ShuffleTask extends RecursiveAction {
+        private final Object[] cards;
+        private final int from;
+        private final int to;
+        private final int blockSize;
+
+        ShuffleTask(Object[] cards, int from, int to, int blockSize) {
+            this.cards = cards;
+            this.from = from;
+            this.to = to;
+            this.blockSize = blockSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= blockSize) {
+                RandomShuffler.fisherYates(cards, from, to, ThreadLocalRandom.current());
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ShuffleTask(cards, from, mid, blockSize), new ShuffleTask(cards, mid, to, blockSize));
+            merge(cards, from, mid, to, ThreadLocalRandom.current());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package example.cards.shuffler;
+
+import com.google.common.base.Preconditions;
+import example.cards.entity.DeckEntity;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shuffler counting the shuffles, cards and time of the shuffler it wraps, so that algorithms serving live
+ * traffic side by side can be compared.
+ */
+public final class MeteredShuffler implements DeckShuffler {
+
+    private final DeckShuffler shuffler;
+    private final LongAdder shuffles = new LongAdder();
+    private final LongAdder cards = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+    public MeteredShuffler(DeckShuffler shuffler) {
+        this.shuffler = Preconditions.checkNotNull(shuffler);
+    }
+
+    @Override
+    public DeckEntity shuffleDeck(DeckEntity deck) {
+        long start = System.nanoTime();
+        DeckEntity shuffled = shuffler.shuffleDeck(deck);
+        nanos.add(System.nanoTime() - start);
+        shuffles.increment();
+        cards.add(shuffled.getCards().size());
+        return shuffled;
+    }
+
+    /**
+     * Counts each deck of the batch as a shuffle.
+     */
+    @Override
+    public void shuffleDecks(int[] decks, int deckSize) {
+        long start = System.nanoTime();
+        shuffler.shuffleDecks(decks, deckSize);
+        nanos.add(System.nanoTime() - start);
+        shuffles.add(decks.length / deckSize);
+        cards.add(decks.length);
+    }
+
+    /**
+     * @return the shuffler measured
+     */
+    public DeckShuffler getShuffler() {
+        return shuffler;
+    }
+
+    public long getShuffles() {
+        return shuffles.sum();
+    }
+
+    /**
+     * @return total number of cards shuffled
+     */
+    public long getCards() {
+        return cards.sum();
+    }
+
+    /**
+     * @return total time spent shuffling, in nanoseconds
+     */
+    public long getNanos() {
+        return nanos.sum();
+    }
+}
@@ -0,0 +1,191 @@
+package example.cards.shuffler;
+
+import com.google.common.base.Preconditions;
+import example.cards.entity.DeckEntity;
+import example.cards.model.CardArray;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Shuffler for fixed size decks which takes the random work off the request thread.
+ * <p>
+ * Background workers keep a bounded {@link PermutationRing} topped up with random permutations of the deck size,
+ * and shuffling a deck of that size just applies a ready permutation in a single pass.  When the ring has been
+ * drained by a burst of shuffles, or the deck has a different size, the deck is shuffled inline exactly as
+ * {@link RandomShuffler} would.  Workers are started on the first shuffle, so registering the shuffler costs
+ * nothing when it isn't used.
+ */
+public class PermutationPoolShuffler implements DeckShuffler {
+
+    public static final String DECK_SIZE_PROPERTY = "pool.deckSize";
+    public static final String CAPACITY_PROPERTY = "pool.capacity";
+    public static final String WORKERS_PROPERTY = "pool.workers";
+
+    private static final long FULL_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final int deckSize;
+    private final int workers;
+    private final PermutationRing ring;
+    private final RandomShuffler fallback = new RandomShuffler();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile boolean closed;
+    private final LongAdder pooled = new LongAdder();
+    private final LongAdder drained = new LongAdder();
+    private final LongAdder otherSize = new LongAdder();
+
+    /**
+     * Pool configured from the pool.deckSize (default 52), pool.capacity (default 4096) and pool.workers
+     * (default 1) system properties.
+     */
+    public PermutationPoolShuffler() {
+        this(Integer.getInteger(DECK_SIZE_PROPERTY, 52), Integer.getInteger(CAPACITY_PROPERTY, 4096),
+                Integer.getInteger(WORKERS_PROPERTY, 1));
+    }
+
+    /**
+     * @param deckSize size of the decks permutations are generated for, must be positive
+     * @param capacity maximum number of ready permutations, must be a power of two
+     * @param workers number of background threads generating permutations, must be positive
+     */
+    public PermutationPoolShuffler(int deckSize, int capacity, int workers) {
+        Preconditions.checkArgument(deckSize > 0, "deckSize must be a positive integer");
+        Preconditions.checkArgument(workers > 0, "workers must be a positive integer");
+        this.deckSize = deckSize;
+        this.workers = workers;
+        this.ring = new PermutationRing(capacity);
+    }
+
+    @Override
+    public DeckEntity shuffleDeck(DeckEntity deck) {
+        Preconditions.checkNotNull(deck, "deck cannot be null");
+        List<String> cards = deck.getCards();
+        if (cards.size() != deckSize) {
+            otherSize.increment();
+            return fallback.shuffleDeck(deck);
+        }
+        start();
+        int[] permutation = ring.poll();
+        if (permutation == null) {
+            drained.increment();
+            return fallback.shuffleDeck(deck);
+        }
+        pooled.increment();
+        String[] shuffled = new String[deckSize];
+        for (int i = 0; i < deckSize; i++) {
+            shuffled[i] = cards.get(permutation[i]);
+        }
+        return deck.setCards(CardArray.wrap(shuffled));
+    }
+
+    /**
+     * Applies a ready permutation to each deck of the pool's size, shuffling the decks left inline once the pool is
+     * drained.
+     */
+    @Override
+    public void shuffleDecks(int[] decks, int deckSize) {
+        BatchShuffle.check(decks, 0, decks.length, deckSize);
+        if (deckSize != this.deckSize) {
+            otherSize.add(decks.length / deckSize);
+            BatchShuffle.shuffle(decks, 0, decks.length, deckSize, ThreadLocalRandom.current());
+            return;
+        }
+        start();
+        int[] deck = new int[deckSize];
+        for (int base = 0; base < decks.length; base += deckSize) {
+            int[] permutation = ring.poll();
+            if (permutation == null) {
+                drained.add((decks.length - base) / deckSize);
+                BatchShuffle.shuffle(decks, base, decks.length, deckSize, ThreadLocalRandom.current());
+                return;
+            }
+            pooled.increment();
+            System.arraycopy(decks, base, deck, 0, deckSize);
+            for (int i = 0; i < deckSize; i++) {
+                decks[base + i] = deck[permutation[i]];
+            }
+        }
+    }
+
+    private void start() {
+        if (!started.get() && started.compareAndSet(false, true)) {
+            for (int i = 0; i < workers; i++) {
+                Thread worker = new Thread(this::fill, "permutation-pool-" + i);
+                worker.setDaemon(true);
+                worker.start();
+            }
+        }
+    }
+
+    private void fill() {
+        int[] permutation = null;
+        while (!closed) {
+            if (permutation == null) {
+                permutation = randomPermutation(deckSize);
+            }
+            if (ring.offer(permutation)) {
+                permutation = null;
+            } else {
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+            }
+        }
+    }
+
+    static int[] randomPermutation(int size) {
+        int[] permutation = new int[size];
+        for (int i = 0; i < size; i++) {
+            permutation[i] = i;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = swap;
+        }
+        return permutation;
+    }
+
+    /**
+     * Stops the background workers; shuffles keep working, inline, once the ring is drained.
+     */
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * @return number of ready permutations
+     */
+    public long getPoolLevel() {
+        return ring.size();
+    }
+
+    public long getPoolCapacity() {
+        return ring.capacity();
+    }
+
+    /**
+     * @return number of shuffles served from the pool
+     */
+    public long getPooledShuffles() {
+        return pooled.sum();
+    }
+
+    /**
+     * @return number of shuffles done inline because the pool was empty
+     */
+    public long getDrainedShuffles() {
+        return drained.sum();
+    }
+
+    /**
+     * @return number of shuffles done inline because the deck size didn't match the pool's
+     */
+    public long getOtherSizeShuffles() {
+        return otherSize.sum();
+    }
+}
@@ -0,0 +1,95 @@
+package example.cards.shuffler;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free multi producer, multi consumer ring buffer of permutations (Dmitry Vyukov's design).
+ * <p>
+ * Every slot carries a sequence number telling producers and consumers whose turn it is; claiming a slot is a
+ * single CAS on the enqueue or dequeue position, and the slot's sequence is published after the permutation is
+ * written, which makes the permutation visible to the consumer that claims it.
+ */
+class PermutationRing {
+
+    private final int mask;
+    private final int[][] permutations;
+    private final AtomicLongArray sequences;
+    private final AtomicLong enqueuePosition = new AtomicLong();
+    private final AtomicLong dequeuePosition = new AtomicLong();
+
+    /**
+     * @param capacity number of slots, must be a power of two
+     */
+    PermutationRing(int capacity) {
+        Preconditions.checkArgument(capacity > 0 && Integer.bitCount(capacity) == 1,
+                "capacity must be a positive power of two");
+        mask = capacity - 1;
+        permutations = new int[capacity][];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return false if the ring is full
+     */
+    boolean offer(int[] permutation) {
+        long position = enqueuePosition.get();
+        while (true) {
+            int slot = (int) (position & mask);
+            long difference = sequences.get(slot) - position;
+            if (difference == 0) {
+                if (enqueuePosition.compareAndSet(position, position + 1)) {
+                    permutations[slot] = permutation;
+                    sequences.lazySet(slot, position + 1);
+                    return true;
+                }
+                position = enqueuePosition.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = enqueuePosition.get();
+            }
+        }
+    }
+
+    /**
+     * @return a permutation, or null if the ring is empty
+     */
+    int[] poll() {
+        long position = dequeuePosition.get();
+        while (true) {
+            int slot = (int) (position & mask);
+            long difference = sequences.get(slot) - (position + 1);
+            if (difference == 0) {
+                if (dequeuePosition.compareAndSet(position, position + 1)) {
+                    int[] permutation = permutations[slot];
+                    permutations[slot] = null;
+                    sequences.lazySet(slot, position + mask + 1);
+                    return permutation;
+                }
+                position = dequeuePosition.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = dequeuePosition.get();
+            }
+        }
+    }
+
+    /**
+     * @return approximate number of permutations in the ring
+     */
+    int size() {
+        long size = enqueuePosition.get() - dequeuePosition.get();
+        return (int) Math.max(0, Math.min(size, mask + 1));
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
@@ -1,30 +1,51 @@
 package example.cards.shuffler;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Lists;
 import example.cards.entity.DeckEntity;
+import example.cards.model.CardArray;
 
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Random shuffler for a given deck.
+ * <p>
+ * Uses an in place Fisher-Yates shuffle over a copy of the cards, which is O(n) and unbiased.  The previous
+ * implementation removed cards from the middle of an array list, which was O(n^2) and fell over on shoes and
+ * other large decks.
  */
 public class RandomShuffler implements DeckShuffler {
 
     @Override
     public DeckEntity shuffleDeck(DeckEntity deck) {
         Preconditions.checkNotNull(deck, "deck cannot be null");
-        List<String> cards = Lists.newArrayList(deck.getCards()); // create a copy so as not to modify original list
-        List<String> shuffledCards = Lists.newArrayList();
-        for (int i = cards.size(); i > 0; i--) {
-            int card = (int) (Math.random() * i);
-            shuffledCards.add(cards.remove(card));
-        }
+        String[] cards = deck.getCards().toArray(new String[deck.getCards().size()]); // copy so as not to modify original list
+        fisherYates(cards, 0, cards.length, ThreadLocalRandom.current());
 
         // This is an extremely lazy way to do this - better would be to understand the underlying
         // data model to do this more appropriately (in the case of Hibernate possibly not so bad,
         // but in this case we should really be making a defensive copy of the deck and return a
         // brand new instance.
-        return deck.setCards(shuffledCards);
+        return deck.setCards(CardArray.wrap(cards));
+    }
+
+    /**
+     * Shuffles the range [from, to) of the given array in place.
+     *
+     * @param cards array to be shuffled
+     * @param from inclusive start of the range
+     * @param to exclusive end of the range
+     * @param random source of randomness, expected to be confined to the calling thread
+     */
+    static void fisherYates(Object[] cards, int from, int to, ThreadLocalRandom random) {
+        for (int i = to - 1; i > from; i--) {
+            swap(cards, i, from + random.nextInt(i - from + 1));
+        }
+    }
+
+    static void swap(Object[] cards, int i, int j) {
+        Object card = cards[i];
+        cards[i] = cards[j];
+        cards[j] = card;
     }
 }
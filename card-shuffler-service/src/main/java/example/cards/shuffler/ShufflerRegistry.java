@@ -0,0 +1,91 @@
+package example.cards.shuffler;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shufflers requests may choose from, by algorithm name, each measured on its own (see {@link MeteredShuffler}).
+ * <p>
+ * The registry is immutable and its shufflers shared and thread safe, so a look up is a single hash map read.
+ * The shufflers here are metered as they serve requests, while quality analysis and warm up shuffle with the
+ * shufflers they wrap (see {@link MeteredShuffler#getShuffler()}), so their metrics only reflect live traffic.
+ * <p>
+ * The registry owns its shufflers: closing it stops the background threads of those which have any.
+ */
+public class ShufflerRegistry implements AutoCloseable {
+
+    private final ImmutableMap<String, MeteredShuffler> shufflers;
+    private final String defaultAlgorithm;
+
+    /**
+     * @param shufflers shufflers by algorithm name
+     * @param defaultAlgorithm algorithm of requests which don't choose one
+     * @throws IllegalArgumentException if there is no shuffler for the default algorithm
+     */
+    public ShufflerRegistry(Map<String, DeckShuffler> shufflers, String defaultAlgorithm) {
+        Preconditions.checkArgument(shufflers.containsKey(defaultAlgorithm), "Unknown default algorithm %s",
+                defaultAlgorithm);
+        ImmutableMap.Builder<String, MeteredShuffler> metered = ImmutableMap.builder();
+        shufflers.forEach((algorithm, shuffler) -> metered.put(algorithm, new MeteredShuffler(shuffler)));
+        this.shufflers = metered.build();
+        this.defaultAlgorithm = defaultAlgorithm;
+    }
+
+    /**
+     * @param defaultAlgorithm algorithm of requests which don't choose one, the default algorithm if unknown
+     * @return registry of new shufflers of every algorithm in {@link Shufflers}
+     */
+    public static ShufflerRegistry create(String defaultAlgorithm) {
+        ImmutableMap.Builder<String, DeckShuffler> shufflers = ImmutableMap.builder();
+        for (String algorithm : Shufflers.names()) {
+            shufflers.put(algorithm, Shufflers.create(algorithm));
+        }
+        return new ShufflerRegistry(shufflers.build(),
+                Shufflers.exists(defaultAlgorithm) ? defaultAlgorithm : Shufflers.DEFAULT);
+    }
+
+    /**
+     * @param algorithm name of the algorithm, or null for the default algorithm
+     * @return shuffler of the algorithm, null if the algorithm is unknown
+     */
+    public MeteredShuffler get(String algorithm) {
+        return shufflers.get(algorithm == null ? defaultAlgorithm : algorithm);
+    }
+
+    public String getDefaultAlgorithm() {
+        return defaultAlgorithm;
+    }
+
+    /**
+     * @return names of every algorithm, in registration order
+     */
+    public Set<String> names() {
+        return shufflers.keySet();
+    }
+
+    /**
+     * @return the permutation pool, null if none is registered
+     */
+    public PermutationPoolShuffler getPermutationPool() {
+        for (MeteredShuffler shuffler : shufflers.values()) {
+            if (shuffler.getShuffler() instanceof PermutationPoolShuffler) {
+                return (PermutationPoolShuffler) shuffler.getShuffler();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stops the background threads of the shufflers, which keep shuffling inline.
+     */
+    @Override
+    public void close() {
+        PermutationPoolShuffler pool = getPermutationPool();
+        if (pool != null) {
+            pool.close();
+        }
+    }
+}
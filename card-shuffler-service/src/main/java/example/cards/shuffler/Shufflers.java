@@ -0,0 +1,54 @@
+package example.cards.shuffler;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Set;
+
+/**
+ * Available shuffle algorithms, by the names used for the algorithm system property.
+ * <p>
+ * Every shuffler is thread safe, so a single instance per algorithm is shared by the whole service, held by its
+ * {@link ShufflerRegistry}.  Some (such as the permutation pool) own background threads, so instances aren't
+ * shared across services, each registry stopping the threads of its own when closed.
+ */
+public final class Shufflers {
+
+    public static final String RANDOM = "random";
+    public static final String MERGE = "merge";
+    public static final String POOL = "pool";
+    public static final String DEFAULT = RANDOM;
+
+    private static final ImmutableMap<String, Supplier<DeckShuffler>> ALGORITHMS =
+            ImmutableMap.<String, Supplier<DeckShuffler>>builder()
+                    .put(RANDOM, RandomShuffler::new)
+                    .put(MERGE, MergeShuffler::new)
+                    .put(POOL, PermutationPoolShuffler::new)
+                    .build();
+
+    private Shufflers() {
+    }
+
+    /**
+     * @return names of every registered algorithm, in registration order
+     */
+    public static Set<String> names() {
+        return ALGORITHMS.keySet();
+    }
+
+    /**
+     * @param algorithm name of the algorithm
+     * @return new shuffler for the algorithm, or for the default algorithm if the name is unknown
+     */
+    public static DeckShuffler create(String algorithm) {
+        return ALGORITHMS.getOrDefault(algorithm, ALGORITHMS.get(DEFAULT)).get();
+    }
+
+    /**
+     * @param algorithm name of the algorithm
+     * @return true if an algorithm is registered under the name
+     */
+    public static boolean exists(String algorithm) {
+        return ALGORITHMS.containsKey(algorithm);
+    }
+}
@@ -0,0 +1,87 @@
+package example.cards.swagger;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import example.cards.resource.AdminResource;
+import example.cards.resource.DeckResource;
+import io.swagger.jaxrs.Reader;
+import io.swagger.models.Info;
+import io.swagger.models.Scheme;
+import io.swagger.models.Swagger;
+import io.swagger.util.Json;
+import io.swagger.util.Yaml;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
+/**
+ * Swagger spec of the service, read from the annotations of an explicit list of resources rather than by
+ * scanning the classpath.
+ * <p>
+ * The build runs {@link #main(String[])} to write the serialized spec into the service's resources, so at runtime
+ * it is served as is.  Running from a tree where the build hasn't generated it (e.g. from an IDE) falls back to
+ * reading the annotations on first use.
+ */
+public final class SwaggerSpec {
+
+    public static final String JSON = "swagger.json";
+    public static final String YAML = "swagger.yaml";
+    public static final String RESOURCE_DIRECTORY = "swagger";
+
+    /**
+     * Resources documented by the spec.
+     */
+    static final ImmutableSet<Class<?>> RESOURCES = ImmutableSet.of(DeckResource.class, AdminResource.class);
+
+    private SwaggerSpec() {
+    }
+
+    /**
+     * Writes swagger.json and swagger.yaml to the swagger directory of the given resource directory.
+     *
+     * @param args output resource directory
+     */
+    public static void main(String[] args) throws IOException {
+        File directory = new File(args[0], RESOURCE_DIRECTORY);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+        Swagger swagger = generate();
+        Files.write(new File(directory, JSON).toPath(), Json.pretty().writeValueAsBytes(swagger));
+        Files.write(new File(directory, YAML).toPath(), Yaml.pretty().writeValueAsBytes(swagger));
+    }
+
+    /**
+     * @return spec read from the resource annotations
+     */
+    public static Swagger generate() {
+        Swagger swagger = new Swagger()
+                .info(new Info().title("Cards shuffler").version("1.0.2"))
+                .scheme(Scheme.HTTP) // should support https in future.
+                .host("localhost:8080") // should be configured to DNS in future.
+                .basePath("/"); // the dispatcher is mounted at the root of the context
+        return new Reader(swagger).read(RESOURCES);
+    }
+
+    /**
+     * Loads the serialized spec generated by the build, or serializes a freshly generated spec if it is missing.
+     *
+     * @param name {@link #JSON} or {@link #YAML}
+     * @return serialized spec
+     */
+    public static byte[] load(String name) {
+        try (InputStream in = SwaggerSpec.class.getResourceAsStream("/" + RESOURCE_DIRECTORY + "/" + name)) {
+            if (in != null) {
+                return ByteStreams.toByteArray(in);
+            }
+            Swagger swagger = generate();
+            return YAML.equals(name) ? Yaml.pretty().writeValueAsBytes(swagger)
+                    : Json.pretty().writeValueAsBytes(swagger);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to load " + name, ioe);
+        }
+    }
+}
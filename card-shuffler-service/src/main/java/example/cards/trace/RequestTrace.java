@@ -0,0 +1,129 @@
+package example.cards.trace;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timing of a single request, broken down by {@link Stage}.
+ * <p>
+ * The trace of the request being served is attached to the serving thread, so that code anywhere along the request
+ * path records the end of a stage with a static {@link #mark(Stage)}, which does nothing on threads not serving a
+ * traced request.  A mark costs a thread local look up and a clock read, cheap enough to leave tracing on.
+ * <p>
+ * When the JVM supports Flight Recorder, each stage is also committed as a {@link StageEvent} while a recording
+ * has them enabled.
+ */
+public final class RequestTrace {
+
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+    private static final boolean FLIGHT_RECORDER = isFlightRecorderAvailable();
+
+    private final String method;
+    private final String path;
+    private final long startMillis;
+    private final long startNanos;
+    private final long[] stageNanos = new long[Stage.STAGES.length];
+    private long lastNanos;
+    private long totalNanos;
+    private int status;
+    // pending flight recorder event, typed as an object as the event class can't be loaded on every JVM
+    private Object event;
+
+    private RequestTrace(String method, String path) {
+        this.method = method;
+        this.path = path;
+        this.startMillis = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+        this.lastNanos = startNanos;
+        if (FLIGHT_RECORDER) {
+            event = StageEvent.begin(method, path);
+        }
+    }
+
+    private static boolean isFlightRecorderAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, RequestTrace.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Starts tracing a request on the current thread, replacing any trace left over by a previous request.
+     *
+     * @return the new trace
+     */
+    public static RequestTrace start(String method, String path) {
+        RequestTrace trace = new RequestTrace(method, path);
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    /**
+     * Ends a stage of the request traced on the current thread, if any.
+     */
+    public static void mark(Stage stage) {
+        RequestTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.record(stage);
+        }
+    }
+
+    /**
+     * Stops tracing the request of the current thread.
+     *
+     * @param status response status
+     * @return the finished trace, null if no request was traced on the current thread
+     */
+    public static RequestTrace finish(int status) {
+        RequestTrace trace = CURRENT.get();
+        if (trace == null) {
+            return null;
+        }
+        CURRENT.remove();
+        trace.status = status;
+        trace.totalNanos = System.nanoTime() - trace.startNanos;
+        return trace;
+    }
+
+    private void record(Stage stage) {
+        long now = System.nanoTime();
+        stageNanos[stage.ordinal()] += now - lastNanos;
+        lastNanos = now;
+        if (event != null) {
+            event = ((StageEvent) event).next(stage);
+        }
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * @return time spent in the stage, in nanoseconds
+     */
+    public long getStageNanos(Stage stage) {
+        return stageNanos[stage.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + path + " " + status + " in " + TimeUnit.NANOSECONDS.toMicros(totalNanos) + "us";
+    }
+}
@@ -0,0 +1,73 @@
+package example.cards.trace;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The slowest requests traced since the service started, or since last cleared.
+ * <p>
+ * Kept in a heap bounded to the given capacity, whose fastest request is evicted by any slower one.  Once full,
+ * requests no slower than that fastest request are turned away by reading a volatile, without locking, so the
+ * common case of an ordinary request costs next to nothing.
+ */
+public class SlowRequests {
+
+    public static final int DEFAULT_CAPACITY = 20;
+
+    private static final Comparator<RequestTrace> BY_TOTAL = Comparator.comparingLong(RequestTrace::getTotalNanos);
+
+    private final int capacity;
+    // guarded by this
+    private final PriorityQueue<RequestTrace> slowest;
+    // total time of the fastest kept request once full, 0 until then
+    private volatile long threshold;
+
+    /**
+     * @param capacity number of requests kept, must be positive
+     */
+    public SlowRequests(int capacity) {
+        Preconditions.checkArgument(capacity > 0, "capacity must be a positive integer");
+        this.capacity = capacity;
+        this.slowest = new PriorityQueue<>(capacity, BY_TOTAL);
+    }
+
+    public void offer(RequestTrace trace) {
+        if (trace.getTotalNanos() <= threshold) {
+            return;
+        }
+        synchronized (this) {
+            if (slowest.size() == capacity) {
+                if (trace.getTotalNanos() <= slowest.peek().getTotalNanos()) {
+                    return;
+                }
+                slowest.poll();
+            }
+            slowest.add(trace);
+            if (slowest.size() == capacity) {
+                threshold = slowest.peek().getTotalNanos();
+            }
+        }
+    }
+
+    /**
+     * @return the requests kept, slowest first
+     */
+    public synchronized List<RequestTrace> snapshot() {
+        List<RequestTrace> traces = Lists.newArrayList(slowest);
+        traces.sort(BY_TOTAL.reversed());
+        return traces;
+    }
+
+    public synchronized void clear() {
+        slowest.clear();
+        threshold = 0;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
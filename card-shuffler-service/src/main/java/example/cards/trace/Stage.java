@@ -0,0 +1,34 @@
+package example.cards.trace;
+
+/**
+ * Stages of a request, each lasting from the end of the previous stage to its own end (see
+ * {@link RequestTrace#mark(Stage)}).  A stage reached several times, such as taking a lock twice, adds up.
+ */
+public enum Stage {
+    /**
+     * Request dispatched and admitted, see {@link example.cards.filter.AdmissionFilter}.
+     */
+    ADMISSION,
+    /**
+     * Deck locks acquired, including the time spent waiting for them.
+     */
+    LOCK,
+    /**
+     * Cards shuffled.
+     */
+    SHUFFLE,
+    /**
+     * Deck converted into a dto.
+     */
+    CONVERT,
+    /**
+     * Resource call returned, covering whatever the resource did after the last of the stages above.
+     */
+    RESOURCE,
+    /**
+     * Response serialized and written.
+     */
+    SERIALIZE;
+
+    static final Stage[] STAGES = values();
+}
@@ -0,0 +1,57 @@
+package example.cards.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a stage of a request, from the end of the previous stage to the end of this one.
+ * Disabled by default, record them with e.g. -XX:StartFlightRecording and a settings file enabling
+ * {@code example.cards.RequestStage}.
+ * <p>
+ * Only loaded once {@link RequestTrace} found the Flight Recorder API, which older JVMs don't have.
+ */
+@Name("example.cards.RequestStage")
+@Label("Request Stage")
+@Category("Card Shuffler")
+@Description("A stage of a deck request, lasting from the end of the previous stage.")
+@StackTrace(false)
+class StageEvent extends Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Path")
+    String path;
+
+    @Label("Stage")
+    String stage;
+
+    /**
+     * @return an event begun now, null if the event isn't being recorded
+     */
+    static StageEvent begin(String method, String path) {
+        StageEvent event = new StageEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.method = method;
+        event.path = path;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Commits this event as the given stage.
+     *
+     * @return event for the next stage, begun now
+     */
+    StageEvent next(Stage stage) {
+        this.stage = stage.name();
+        commit();
+        return begin(method, path);
+    }
+}
@@ -0,0 +1,96 @@
+package example.cards;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import example.cards.model.DeckDto;
+import org.eclipse.jetty.server.Server;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Tests compression of request and response bodies against a running jetty server.
+ *
+ * Runs against its own server (and so its own deck store) to keep clear of the deck ids asserted in
+ * {@link ApplicationTest}.  Plain url connections are used, as the JAX-RS client transparently decodes gzip.
+ */
+public class ApplicationCompressionTest {
+
+    private static final String DECKS = "http://localhost:8081/decks";
+
+    private static Server server;
+
+    @BeforeClass
+    public static void before() {
+        try {
+            server = Application.startJetty(8081, "jetty");
+        } catch (Exception e) {
+            Assert.fail("Server failed to start.");
+        }
+    }
+
+    @AfterClass
+    public static void after() throws Exception {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testGzipRoundTrip() throws IOException {
+        List<String> cards = Lists.newArrayList();
+        for (int i = 0; i < 1000; i++) {
+            cards.add("card" + i);
+        }
+        DeckDto deck = DeckDto.create(0, "large", cards);
+
+        HttpURLConnection create = (HttpURLConnection) new URL(DECKS).openConnection();
+        create.setRequestMethod("PUT");
+        create.setDoOutput(true);
+        create.setRequestProperty(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON);
+        create.setRequestProperty(HttpHeaders.CONTENT_ENCODING, "gzip");
+        try (OutputStream out = new GZIPOutputStream(create.getOutputStream())) {
+            out.write(new ObjectMapper().writeValueAsBytes(deck));
+        }
+        Assert.assertEquals("Gzip request body should be accepted.",
+                Response.Status.CREATED.getStatusCode(), create.getResponseCode());
+        String location = create.getHeaderField(HttpHeaders.LOCATION);
+        create.disconnect();
+
+        HttpURLConnection get = (HttpURLConnection) new URL(location).openConnection();
+        get.setRequestProperty(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        Assert.assertEquals(Response.Status.OK.getStatusCode(), get.getResponseCode());
+        Assert.assertEquals("Large response should be compressed.", "gzip", get.getContentEncoding());
+        DeckDto retrieved;
+        try (GZIPInputStream in = new GZIPInputStream(get.getInputStream())) {
+            retrieved = new ObjectMapper().readValue(in, DeckDto.class);
+        }
+        Assert.assertEquals(deck.getName(), retrieved.getName());
+        Assert.assertEquals(deck.getCards(), retrieved.getCards());
+    }
+
+    @Test
+    public void testSmallResponseNotCompressed() throws IOException {
+        HttpURLConnection list = (HttpURLConnection) new URL(DECKS + "?limit=1&start=1000").openConnection();
+        list.setRequestProperty(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        Assert.assertEquals(Response.Status.OK.getStatusCode(), list.getResponseCode());
+        Assert.assertNull("Small response should not be compressed.", list.getContentEncoding());
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        ByteStreams.copy(list.getInputStream(), body);
+        Assert.assertEquals("Response should have a content length.", body.size(), list.getContentLength());
+    }
+}
@@ -4,15 +4,22 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Lists;
 import example.cards.model.DeckDto;
 import example.cards.model.DeckListDto;
+import example.cards.model.DeckPageDto;
+import example.cards.model.FootprintDto;
+import example.cards.model.RequestTraceDto;
+import example.cards.model.ShuffleQualityDto;
+import example.cards.shuffler.Shufflers;
 import org.eclipse.jetty.server.Server;
 import org.junit.*;
 
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.io.IOException;
+import java.util.Map;
 
 /**
  * Tests running a jetty server from the application.
@@ -50,17 +57,120 @@ public class ApplicationTest {
         Response swaggerJson = client.target("http://localhost:8080/swagger.json")
                 .request(MediaType.APPLICATION_JSON).get();
         Assert.assertTrue("Should have /swagger.json path mounted.", swaggerJson.getStatus() == 200);
+        Assert.assertTrue("Should document the deck resource.",
+                swaggerJson.readEntity(String.class).contains("\"/decks/{deckId}\""));
         swaggerJson.close();
     }
 
     @Test
     public void getSwaggerYaml() {
-        Response swaggerYaml = client.target("http://localhost:8080/swagger.json")
-                .request(MediaType.APPLICATION_JSON).get();
-        Assert.assertTrue("Should have /swagger.json path mounted.", swaggerYaml.getStatus() == 200);
+        Response swaggerYaml = client.target("http://localhost:8080/swagger.yaml")
+                .request("application/yaml").get();
+        Assert.assertTrue("Should have /swagger.yaml path mounted.", swaggerYaml.getStatus() == 200);
         swaggerYaml.close();
     }
 
+    @Test
+    public void testGetShuffleQuality() throws Exception {
+        Response quality = client.target("http://localhost:8080/admin/shuffle-quality")
+                .queryParam("iterations", "1000")
+                .request(MediaType.APPLICATION_JSON).get();
+        Assert.assertEquals(Response.Status.OK.getStatusCode(), quality.getStatus());
+        ShuffleQualityDto[] reports = new ObjectMapper().readValue(quality.readEntity(String.class),
+                ShuffleQualityDto[].class);
+        Assert.assertEquals("Should report every algorithm.", Shufflers.names().size(), reports.length);
+        Assert.assertEquals(52, reports[0].getDeckSize());
+        quality.close();
+    }
+
+    @Test
+    public void testGetMetrics() throws Exception {
+        Response metrics = client.target("http://localhost:8080/admin/metrics")
+                .request(MediaType.APPLICATION_JSON).get();
+        Assert.assertEquals(Response.Status.OK.getStatusCode(), metrics.getStatus());
+        Map<?, ?> values = new ObjectMapper().readValue(metrics.readEntity(String.class), Map.class);
+        Assert.assertTrue("Should expose the permutation pool level.", values.containsKey("shuffler.pool.level"));
+        Assert.assertTrue("Should expose each algorithm's shuffles.", values.containsKey("shuffler.merge.shuffles"));
+        metrics.close();
+    }
+
+    @Test
+    public void testAdmissionSlotsReleasedOnFailure() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            Response create = client.target("http://localhost:8080/decks/bulk")
+                    .request(MediaType.APPLICATION_JSON).put(Entity.json("[null]"));
+            Assert.assertTrue("Should fail.", create.getStatus() >= 400);
+            create.close();
+        }
+        Response metrics = client.target("http://localhost:8080/admin/metrics")
+                .request(MediaType.APPLICATION_JSON).get();
+        Map<?, ?> values = new ObjectMapper().readValue(metrics.readEntity(String.class), Map.class);
+        Assert.assertEquals("Only the metrics request should be in flight.", 1,
+                ((Number) values.get("admission.concurrency.inFlight")).intValue());
+        metrics.close();
+    }
+
+    @Test
+    public void testShuffleUnknownAlgorithm() {
+        Response shuffle = client.target("http://localhost:8080/decks/0")
+                .queryParam("algorithm", "bogo")
+                .request(MediaType.APPLICATION_JSON).post(null);
+        Assert.assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), shuffle.getStatus());
+        shuffle.close();
+    }
+
+    @Test
+    public void testReadyOnceStarted() {
+        Response ready = client.target("http://localhost:8080/admin/ready")
+                .request(MediaType.APPLICATION_JSON).get();
+        Assert.assertEquals(Response.Status.OK.getStatusCode(), ready.getStatus());
+        ready.close();
+    }
+
+    @Test
+    public void testPromoteNotStandby() {
+        Response promote = client.target("http://localhost:8080/admin/promote")
+                .request(MediaType.APPLICATION_JSON).post(null);
+        Assert.assertEquals(Response.Status.CONFLICT.getStatusCode(), promote.getStatus());
+        promote.close();
+    }
+
+    @Test
+    public void testGetDecksSnapshotExpired() {
+        Response decks = client.target("http://localhost:8080/decks").queryParam("snapshot", "unknown")
+                .request(MediaType.APPLICATION_JSON).get();
+        Assert.assertEquals(Response.Status.GONE.getStatusCode(), decks.getStatus());
+        decks.close();
+    }
+
+    @Test
+    public void testGetFootprint() throws Exception {
+        Response footprint = client.target("http://localhost:8080/admin/footprint")
+                .request(MediaType.APPLICATION_JSON).get();
+        Assert.assertEquals(Response.Status.OK.getStatusCode(), footprint.getStatus());
+        FootprintDto dto = new ObjectMapper().readValue(footprint.readEntity(String.class), FootprintDto.class);
+        Assert.assertTrue(dto.getSampledDecks() <= dto.getDecks());
+        Assert.assertEquals("Decks should all be on heap.", dto.getDecks(), dto.getHeapDecks());
+    }
+
+    @Test
+    public void testGetSlowestRequests() throws Exception {
+        client.target("http://localhost:8080/decks").request(MediaType.APPLICATION_JSON).get().close();
+        Response traces = client.target("http://localhost:8080/admin/traces")
+                .request(MediaType.APPLICATION_JSON).get();
+        Assert.assertEquals(Response.Status.OK.getStatusCode(), traces.getStatus());
+        RequestTraceDto[] slowest = new ObjectMapper().readValue(traces.readEntity(String.class),
+                RequestTraceDto[].class);
+        Assert.assertTrue("Should have traced the deck list.", slowest.length > 0);
+        Assert.assertTrue(slowest[0].getStageMicros().containsKey("serialize"));
+        traces.close();
+
+        Response cleared = client.target("http://localhost:8080/admin/traces")
+                .request(MediaType.APPLICATION_JSON).delete();
+        Assert.assertEquals(Response.Status.NO_CONTENT.getStatusCode(), cleared.getStatus());
+        cleared.close();
+    }
+
     @Test
     public void testGetEmptyDeckList() throws Exception {
         Response decks = client.target("http://localhost:8080/decks").request(MediaType.APPLICATION_JSON).get();
@@ -119,11 +229,20 @@ public class ApplicationTest {
             decks.close();
         }
 
+        Response searchResponse = client.target("http://localhost:8080/decks/search")
+                .queryParam("card", "A-spades")
+                .request(MediaType.APPLICATION_JSON).get();
+        Assert.assertEquals(Response.Status.OK.getStatusCode(), searchResponse.getStatus());
+        DeckPageDto searchPage = objectMapper.readValue(searchResponse.readEntity(String.class), DeckPageDto.class);
+        Assert.assertEquals(Lists.newArrayList(deck2), searchPage.getDecks());
+        searchResponse.close();
+
         Response deck2Response = client.target("http://localhost:8080/decks/1")
                 .request(MediaType.APPLICATION_JSON).get();
         Assert.assertEquals(Response.Status.OK.getStatusCode(), deck2Response.getStatus());
         DeckDto retrievedDeck2 = objectMapper.readValue(deck2Response.readEntity(String.class), DeckDto.class);
         Assert.assertEquals(deck2, retrievedDeck2);
+        Assert.assertEquals("\"0\"", deck2Response.getHeaderString(HttpHeaders.ETAG));
         deck2Response.close();
 
         Response shuffleDeck2Response = client.target("http://localhost:8080/decks/1")
@@ -136,8 +255,21 @@ public class ApplicationTest {
         for (String card : deck2.getCards()) {
             Assert.assertTrue(shuffledDeck2.getCards().contains(card));
         }
+        Assert.assertEquals("\"1\"", shuffleDeck2Response.getHeaderString(HttpHeaders.ETAG));
         shuffleDeck2Response.close();
 
+        Response staleShuffleResponse = client.target("http://localhost:8080/decks/1")
+                .request(MediaType.APPLICATION_JSON).header(HttpHeaders.IF_MATCH, "\"0\"").post(null);
+        Assert.assertEquals(Response.Status.PRECONDITION_FAILED.getStatusCode(), staleShuffleResponse.getStatus());
+        staleShuffleResponse.close();
+
+        // the earlier read of deck 2 is cached, but must not be served once shuffled
+        Response shuffledDeck2Response = client.target("http://localhost:8080/decks/1")
+                .request(MediaType.APPLICATION_JSON).get();
+        Assert.assertEquals(shuffledDeck2, objectMapper.readValue(shuffledDeck2Response.readEntity(String.class),
+                DeckDto.class));
+        shuffledDeck2Response.close();
+
         Response deleteDeck1Response = client.target("http://localhost:8080/decks/0")
                 .request(MediaType.APPLICATION_JSON).delete();
         Assert.assertEquals(Response.Status.NO_CONTENT.getStatusCode(), deleteDeck1Response.getStatus());
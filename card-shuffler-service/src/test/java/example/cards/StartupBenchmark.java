@@ -0,0 +1,77 @@
+package example.cards;
+
+import com.google.common.collect.Lists;
+import org.eclipse.jetty.server.Server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rough benchmark of cold start, run by hand rather than as part of the test suite:
+ * <pre>
+ * java -cp ... example.cards.StartupBenchmark [runs] [port] [jvm options...]
+ * </pre>
+ * Each run starts the service in a fresh JVM, with the given options, and measures the time from JVM start until
+ * the first request has been served, which is what an autoscaling event waits for.  Prints the time of each run and
+ * the median.
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && "child".equals(args[0])) {
+            child(Integer.parseInt(args[1]));
+            return;
+        }
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8090;
+        List<String> command = Lists.newArrayList(System.getProperty("java.home") + "/bin/java");
+        command.addAll(Arrays.asList(args).subList(Math.min(2, args.length), args.length));
+        if (System.getProperty("logback.configurationFile") != null) {
+            command.add("-Dlogback.configurationFile=" + System.getProperty("logback.configurationFile"));
+        }
+        command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"), StartupBenchmark.class.getName(),
+                "child", String.valueOf(port)));
+
+        long[] millis = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            String last = null;
+            try (BufferedReader out = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                for (String line = out.readLine(); line != null; line = out.readLine()) {
+                    last = line;
+                }
+            }
+            if (process.waitFor() != 0 || last == null) {
+                throw new IllegalStateException("Run " + i + " failed: " + last);
+            }
+            millis[i] = Long.parseLong(last.trim());
+            System.out.printf("run %-3d  %6d ms%n", i, millis[i]);
+        }
+        Arrays.sort(millis);
+        System.out.printf("median   %6d ms%n", millis[runs / 2]);
+    }
+
+    /**
+     * Starts the service, serves a single request, and prints the time since JVM start as the last line.
+     */
+    private static void child(int port) throws Exception {
+        Server server = Application.startJetty(port, "jetty");
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/decks")
+                .openConnection();
+        if (connection.getResponseCode() != 200) {
+            throw new IOException("Unexpected status " + connection.getResponseCode());
+        }
+        connection.getInputStream().close();
+        long elapsed = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        server.stop();
+        System.out.println(elapsed);
+    }
+}
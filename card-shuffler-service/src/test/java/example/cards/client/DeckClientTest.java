@@ -0,0 +1,127 @@
+package example.cards.client;
+
+import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
+import com.google.common.collect.Lists;
+import example.cards.Application;
+import example.cards.model.DeckDto;
+import org.eclipse.jetty.server.Server;
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the asynchronous client against a running service.
+ */
+public class DeckClientTest {
+
+    private static Server server;
+    private static ResteasyClient client;
+
+    @BeforeClass
+    public static void before() throws Exception {
+        server = Application.startJetty(8081, "jetty");
+        client = new ResteasyClientBuilder().connectionPoolSize(4).maxPooledPerRoute(4).build();
+        client.register(JacksonJsonProvider.class);
+    }
+
+    @AfterClass
+    public static void after() throws Exception {
+        client.close();
+        server.stop();
+    }
+
+    @Test
+    public void testBatchedCreatesAndShuffles() throws Exception {
+        List<String> cards = Lists.newArrayList("card1", "card2", "card3", "card4", "card5");
+        try (DeckClient decks = new DeckClient(client.target("http://localhost:8081/decks"), 10, 50, 50)) {
+            List<CompletableFuture<Integer>> created = Lists.newArrayList();
+            for (int i = 0; i < 10; i++) {
+                created.add(decks.createDeck(DeckDto.create(0, "deck" + i, cards)));
+            }
+            Set<Integer> ids = new HashSet<>();
+            for (CompletableFuture<Integer> id : created) {
+                ids.add(id.get(10, TimeUnit.SECONDS));
+            }
+            Assert.assertEquals("Every deck should have its own id.", 10, ids.size());
+            Assert.assertEquals("Creates should be sent in a single request.", 1, decks.getRequests());
+
+            List<CompletableFuture<DeckDto>> shuffled = Lists.newArrayList();
+            for (Integer id : ids) {
+                shuffled.add(decks.shuffleDeck(id));
+            }
+            for (CompletableFuture<DeckDto> deck : shuffled) {
+                DeckDto shuffledDeck = deck.get(10, TimeUnit.SECONDS);
+                Assert.assertTrue(ids.contains(shuffledDeck.getId()));
+                Assert.assertEquals(1, shuffledDeck.getVersion());
+            }
+            Assert.assertEquals("Shuffles should be sent in a single request.", 2, decks.getRequests());
+
+            Integer id = ids.iterator().next();
+            Assert.assertEquals(id.intValue(), decks.getDeck(id).get(10, TimeUnit.SECONDS).getId());
+            decks.deleteDeck(id).get(10, TimeUnit.SECONDS);
+            assertStatus(Response.Status.NOT_FOUND, decks.getDeck(id));
+            assertStatus(Response.Status.NOT_FOUND, decks.shuffleDeck(id));
+            Assert.assertTrue(decks.getDecks(0, 20).get(10, TimeUnit.SECONDS).getTotal() >= 9);
+        }
+    }
+
+    @Test
+    public void testNullCreateNotBatched() throws Exception {
+        List<String> cards = Lists.newArrayList("card1", "card2");
+        try (DeckClient decks = new DeckClient(client.target("http://localhost:8081/decks"), 10, 50, 0)) {
+            CompletableFuture<Integer> first = decks.createDeck(DeckDto.create(0, "first", cards));
+            try {
+                decks.createDeck(null);
+                Assert.fail("Exception should have been thrown.");
+            } catch (NullPointerException npe) {
+                // rejected before joining the batch
+            }
+            CompletableFuture<Integer> second = decks.createDeck(DeckDto.create(0, "second", cards));
+            Assert.assertEquals("first", decks.getDeck(first.get(10, TimeUnit.SECONDS)).get(10, TimeUnit.SECONDS)
+                    .getName());
+            Assert.assertEquals("second", decks.getDeck(second.get(10, TimeUnit.SECONDS)).get(10, TimeUnit.SECONDS)
+                    .getName());
+        }
+    }
+
+    @Test
+    public void testNullBulkCreateRejected() {
+        Response response = client.target("http://localhost:8081/decks/bulk").request()
+                .put(Entity.json("[{\"name\":\"deck\",\"cards\":[\"card1\"]},null]"));
+        Assert.assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+        response.close();
+    }
+
+    @Test
+    public void testUnbatchedCreate() throws Exception {
+        try (DeckClient decks = new DeckClient(client.target("http://localhost:8081/decks"), 1, 0, 0)) {
+            Integer id = decks.createDeck(DeckDto.create(0, "deck", Lists.newArrayList("card1")))
+                    .get(10, TimeUnit.SECONDS);
+            Assert.assertEquals("deck", decks.getDeck(id).get(10, TimeUnit.SECONDS).getName());
+        }
+    }
+
+    private static void assertStatus(Response.Status status, CompletableFuture<?> call) throws Exception {
+        try {
+            call.get(10, TimeUnit.SECONDS);
+            Assert.fail("Exception should have been thrown.");
+        } catch (ExecutionException ee) {
+            Assert.assertTrue(ee.getCause() instanceof WebApplicationException);
+            Assert.assertEquals(status.getStatusCode(),
+                    ((WebApplicationException) ee.getCause()).getResponse().getStatus());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package example.cards.dao;
+
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Tests for the memory-mapped cold deck store.
+ */
+public class ColdDeckStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ColdDeckStore store;
+
+    @Before
+    public void before() {
+        store = new ColdDeckStore(folder.getRoot(), 64);
+    }
+
+    @After
+    public void after() throws IOException {
+        store.close();
+    }
+
+    @Test
+    public void testRoundTrip() {
+        List<String> cards = Lists.newArrayList("A-spades", null, "", "10-♥");
+        long address = store.write(cards);
+        Assert.assertEquals(cards, store.read(address));
+        Assert.assertEquals(4, store.readSize(address));
+    }
+
+    @Test
+    public void testRecordsSpanSegments() {
+        List<String> small = Lists.newArrayList("card1", "card2");
+        List<String> large = Lists.newArrayList();
+        for (int i = 0; i < 20; i++) {
+            large.add("card" + i);
+        }
+        long first = store.write(small);
+        long second = store.write(large); // larger than a segment
+        long third = store.write(small);
+        Assert.assertEquals(small, store.read(first));
+        Assert.assertEquals(large, store.read(second));
+        Assert.assertEquals(small, store.read(third));
+        Assert.assertEquals(3, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void testFreeAccounting() {
+        long address = store.write(Lists.newArrayList("card1", "card2"));
+        long live = store.getLiveBytes();
+        Assert.assertEquals(4 + 2 * (4 + 5), live);
+        store.free(address);
+        Assert.assertEquals(0, store.getLiveBytes());
+    }
+
+    @Test
+    public void testMoveReleasesSegment() throws IOException {
+        List<String> cards = Lists.newArrayList("card1", "card2");
+        int recordSize = 4 + 2 * (4 + 5);
+        store.close();
+        store = new ColdDeckStore(folder.getRoot(), 2 * recordSize);
+        long first = store.write(cards);
+        long second = store.write(cards);
+        long third = store.write(cards);
+        Assert.assertFalse("Active segment is never sparse.", store.isSparse(third));
+        Assert.assertFalse(store.isSparse(first));
+
+        store.free(first);
+        Assert.assertTrue(store.isSparse(second));
+        long moved = store.move(second);
+        Assert.assertEquals(cards, store.read(moved));
+        Assert.assertEquals(1, store.getReleasedSegments());
+        Assert.assertEquals(2 * recordSize, store.getLiveBytes());
+        Assert.assertEquals(2 * recordSize, store.getMappedBytes());
+        Assert.assertEquals(1, folder.getRoot().list().length);
+    }
+}
@@ -1,18 +1,31 @@
 package example.cards.dao;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import example.cards.entity.DeckEntity;
+import example.cards.model.CompactionDto;
 import example.cards.model.DeckDto;
 import example.cards.model.DeckListDto;
+import example.cards.model.DeckPageDto;
+import example.cards.model.FootprintDto;
 import example.cards.shuffler.DeckShuffler;
 import org.junit.Assert;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Tests for the deck persistence layer.
@@ -66,6 +79,459 @@ public class DeckDaoTest {
         Assert.assertEquals(deck1.getCards(), deckDto1.getCards());
     }
 
+    @Test
+    public void testDaoGetDecksLastPage() {
+        DeckDao dao = new DeckDao();
+        for (int i = 0; i < 5; i++) {
+            dao.createDeck(DeckDto.create(0, "deck" + i, Lists.newArrayList("card" + i)));
+        }
+        dao.remove(1);
+
+        DeckListDto page = dao.getDecks(2, 3);
+        Assert.assertEquals("Should have 4 decks.", 4, page.getTotal());
+        Assert.assertEquals("Should have no more results.", false, page.hasMoreResults());
+        Assert.assertEquals("Last page should only hold the remaining decks.", 2, page.getDecks().size());
+        Assert.assertEquals(3, page.getDecks().get(0).getId());
+        Assert.assertEquals("deck4", page.getDecks().get(1).getName());
+        Assert.assertEquals(Lists.newArrayList("card4"), page.getDecks().get(1).getCards());
+    }
+
+    @Test
+    public void testGetDecksSnapshot() {
+        DeckDao dao = new DeckDao();
+        for (int i = 0; i < 5; i++) {
+            dao.createDeck(DeckDto.create(0, "deck" + i, Lists.newArrayList("card" + i)));
+        }
+        DeckListDto first = dao.getDecks(0, 2);
+        Assert.assertNotNull(first.getSnapshot());
+
+        dao.remove(0);
+        dao.remove(3);
+        dao.createDeck(DeckDto.create(0, "deck5", Lists.newArrayList("card5")));
+        Assert.assertTrue(dao.replicate(2, "deck2", Lists.newArrayList("changed"), 10));
+
+        DeckListDto second = dao.getDecks(2, 2, first.getSnapshot());
+        Assert.assertEquals("Total should be as of the snapshot.", 5, second.getTotal());
+        Assert.assertTrue(second.hasMoreResults());
+        Assert.assertEquals(first.getSnapshot(), second.getSnapshot());
+        Assert.assertEquals(Lists.newArrayList(DeckDto.create(2, "deck2", Lists.newArrayList("card2"), 0),
+                DeckDto.create(3, "deck3", Lists.newArrayList("card3"), 0)), second.getDecks());
+        DeckListDto last = dao.getDecks(4, 2, first.getSnapshot());
+        Assert.assertFalse(last.hasMoreResults());
+        Assert.assertEquals(Lists.newArrayList(4), ids(last));
+
+        DeckListDto current = dao.getDecks(0, 10);
+        Assert.assertEquals("A listing held by its first page should hold no snapshot.", "", current.getSnapshot());
+        Assert.assertEquals(1, dao.getSnapshots().getHeld());
+        Assert.assertEquals(Lists.newArrayList(1, 2, 4, 5), ids(current));
+        Assert.assertEquals(Lists.newArrayList("changed"), current.getDecks().get(1).getCards());
+        Assert.assertEquals(10, current.getDecks().get(1).getVersion());
+    }
+
+    @Test
+    public void testGetDecksSnapshotPaging() {
+        DeckDao dao = new DeckDao();
+        for (int i = 0; i < 2000; i++) {
+            dao.createDeck(DeckDto.create(0, "deck" + i, Lists.newArrayList("card" + i)));
+        }
+        String snapshot = dao.getDecks(0, 1).getSnapshot();
+        for (int i = 0; i < 2000; i += 2) {
+            dao.remove(i);
+            dao.createDeck(DeckDto.create(0, "deck", Lists.newArrayList("card")));
+        }
+
+        List<Integer> listed = Lists.newArrayList();
+        for (int start = 0; ; start += 100) {
+            DeckListDto page = dao.getDecks(start, 100, snapshot);
+            listed.addAll(ids(page));
+            if (!page.hasMoreResults()) {
+                break;
+            }
+        }
+        Assert.assertEquals("Should list every deck of the snapshot once, in order.", 2000, listed.size());
+        for (int i = 0; i < 2000; i++) {
+            Assert.assertEquals(i, (int) listed.get(i));
+        }
+        Assert.assertEquals(Lists.newArrayList(1999, 2000, 2001), ids(dao.getDecks(999, 3)));
+    }
+
+    @Test
+    public void testGetDecksSnapshotTiered() throws IOException {
+        TemporaryFolder folder = new TemporaryFolder();
+        folder.create();
+        ColdDeckStore coldStore = new ColdDeckStore(folder.getRoot(), 1024);
+        try {
+            DeckDao dao = new DeckDao(new TieredStorage(1, coldStore));
+            dao.createDeck(DeckDto.create(0, "deck1", Lists.newArrayList("card1", "card2")));
+            dao.createDeck(DeckDto.create(0, "deck2", Lists.newArrayList("card3", "card4")));
+            String snapshot = dao.getDecks(0, 1).getSnapshot();
+
+            dao.replicate(0, "deck1", Lists.newArrayList("card5"), 5);
+            dao.remove(1);
+
+            DeckListDto page = dao.getDecks(0, 10, snapshot);
+            Assert.assertEquals(Lists.newArrayList("card1", "card2"), page.getDecks().get(0).getCards());
+            Assert.assertEquals(Lists.newArrayList("card3", "card4"), page.getDecks().get(1).getCards());
+            Assert.assertEquals(Lists.newArrayList("card5"), dao.getDecks(0, 10).getDecks().get(0).getCards());
+        } finally {
+            coldStore.close();
+            folder.delete();
+        }
+    }
+
+    @Test
+    public void testGetDecksSnapshotExpired() throws InterruptedException {
+        DeckDao dao = new DeckDao(null, new DeckReadCache(), new DeckSnapshots(1, 10));
+        dao.createDeck(DeckDto.create(0, "deck0", Lists.newArrayList("card0")));
+        dao.createDeck(DeckDto.create(0, "deck1", Lists.newArrayList("card1")));
+        String snapshot = dao.getDecks(0, 1).getSnapshot();
+        Thread.sleep(10);
+        dao.getDecks(0, 1);
+        Assert.assertEquals("Expired snapshots should be swept however few are held.", 1,
+                dao.getSnapshots().getHeld());
+        try {
+            dao.getDecks(0, 1, snapshot);
+            Assert.fail("Exception should have been thrown.");
+        } catch (SnapshotExpiredException expected) {
+            // expected
+        }
+        try {
+            dao.getDecks(0, 1, "unknown");
+            Assert.fail("Exception should have been thrown.");
+        } catch (SnapshotExpiredException expected) {
+            // expected
+        }
+    }
+
+    private static List<Integer> ids(DeckListDto page) {
+        List<Integer> ids = Lists.newArrayList();
+        for (DeckDto deck : page.getDecks()) {
+            ids.add(deck.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void testDaoGetDeckAfterShuffle() {
+        DeckDao dao = new DeckDao();
+        dao.createDeck(DeckDto.create(0, "deck", Lists.newArrayList("card1", "card2")));
+        DeckDto read = dao.getDeck(0);
+        Assert.assertSame("Repeated reads should be shared.", read, dao.getDeck(0));
+
+        Mockito.when(deckShuffler.shuffleDeck(Mockito.any(DeckEntity.class)))
+                .then(invocation -> ((DeckEntity) invocation.getArgument(0))
+                        .setCards(Lists.newArrayList("card2", "card1")));
+        dao.shuffleDeck(0, deckShuffler);
+        Assert.assertEquals("Read after a shuffle should see the shuffled deck.",
+                Lists.newArrayList("card2", "card1"), dao.getDeck(0).getCards());
+
+        dao.remove(0);
+        Assert.assertNull("Removed deck should not be served.", dao.getDeck(0));
+    }
+
+    @Test
+    public void testConditionalShuffleAndRemove() {
+        DeckDao dao = new DeckDao();
+        dao.createDeck(DeckDto.create(0, "deck1", Lists.newArrayList("card1", "card2")));
+        Mockito.when(deckShuffler.shuffleDeck(Mockito.any(DeckEntity.class))).then(i -> i.getArgument(0));
+
+        Assert.assertEquals(1, dao.shuffleDeck(0, deckShuffler, 0L).getVersion());
+        try {
+            dao.shuffleDeck(0, deckShuffler, 0L);
+            Assert.fail("Stale version should conflict.");
+        } catch (VersionConflictException vce) {
+            Assert.assertEquals(1, vce.getActualVersion());
+        }
+        try {
+            dao.remove(0, 0L);
+            Assert.fail("Stale version should conflict.");
+        } catch (VersionConflictException vce) {
+            Assert.assertEquals(1, vce.getActualVersion());
+        }
+        Assert.assertNotNull(dao.remove(0, 1L));
+    }
+
+    @Test
+    public void testConcurrentShufflesOfOneDeck() throws Exception {
+        DeckDao dao = new DeckDao();
+        dao.createDeck(DeckDto.create(0, "deck1", Lists.newArrayList("card1", "card2", "card3")));
+        DeckShuffler reverse = deck -> deck.setCards(Lists.reverse(deck.getCards()));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = Lists.newArrayList();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 250; i++) {
+                    dao.shuffleDeck(0, reverse);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        DeckDto deck = dao.getDeck(0);
+        Assert.assertEquals("No shuffle should be lost.", 1000, deck.getVersion());
+        Assert.assertEquals("An even number of reversals restores the order.",
+                Lists.newArrayList("card1", "card2", "card3"), deck.getCards());
+    }
+
+    @Test
+    public void testMerge() {
+        DeckDao dao = new DeckDao();
+        dao.createDeck(DeckDto.create(0, "deck1", Lists.newArrayList("card1", "card2")));
+        dao.createDeck(DeckDto.create(0, "deck2", Lists.newArrayList("card3")));
+
+        DeckDto merged = dao.merge(0, 1);
+        Assert.assertEquals(Lists.newArrayList("card1", "card2", "card3"), merged.getCards());
+        Assert.assertEquals(merged, dao.getDeck(0));
+        Assert.assertNull("Merged deck should be removed.", dao.getDeck(1));
+        Assert.assertEquals(1, dao.getDecks(0, 10).getTotal());
+        Assert.assertNull("Missing deck should not be merged.", dao.merge(0, 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeSameDeck() {
+        new DeckDao().merge(0, 0);
+    }
+
+    @Test
+    public void testSplit() {
+        DeckDao dao = new DeckDao();
+        dao.createDeck(DeckDto.create(0, "deck1", Lists.newArrayList("card1", "card2", "card3")));
+
+        DeckEntity split = dao.split(0, 1, null);
+        Assert.assertEquals(1, split.getId());
+        Assert.assertEquals("Name should default to the split deck's.", "deck1", split.getName());
+        Assert.assertEquals(Lists.newArrayList("card2", "card3"), dao.getDeck(1).getCards());
+        Assert.assertEquals(Lists.newArrayList("card1"), dao.getDeck(0).getCards());
+        Assert.assertNull(dao.split(5, 1, "missing"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSplitEmptyingDeck() {
+        DeckDao dao = new DeckDao();
+        dao.createDeck(DeckDto.create(0, "deck1", Lists.newArrayList("card1", "card2")));
+        dao.split(0, 2, null);
+    }
+
+    @Test
+    public void testRejectedSplitKeepsIds() {
+        DeckDao dao = new DeckDao();
+        dao.createDeck(DeckDto.create(0, "deck1", Lists.newArrayList("card1", "card2")));
+        for (int at : new int[]{0, 2}) {
+            try {
+                dao.split(0, at, null);
+                Assert.fail("Exception should have been thrown.");
+            } catch (IllegalArgumentException iae) {
+                // leaves no card in one of the decks
+            }
+        }
+        Assert.assertNull(dao.split(5, 1, "missing"));
+        Assert.assertEquals("Rejected splits should not use up ids.", 1,
+                dao.createDeck(DeckDto.create(0, "deck2", Lists.newArrayList("card3"))).getId());
+    }
+
+    @Test
+    public void testTransfer() {
+        DeckDao dao = new DeckDao();
+        dao.createDeck(DeckDto.create(0, "deck1", Lists.newArrayList("card1", "card2", "card3")));
+        dao.createDeck(DeckDto.create(0, "deck2", Lists.newArrayList("card4")));
+
+        List<DeckDto> decks = dao.transfer(0, 1, 2);
+        Assert.assertEquals(Lists.newArrayList("card3"), decks.get(0).getCards());
+        Assert.assertEquals(Lists.newArrayList("card4", "card1", "card2"), decks.get(1).getCards());
+        Assert.assertEquals(decks.get(1), dao.getDeck(1));
+        Assert.assertNull(dao.transfer(0, 2, 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTransferTooManyCards() {
+        DeckDao dao = new DeckDao();
+        dao.createDeck(DeckDto.create(0, "deck1", Lists.newArrayList("card1")));
+        dao.createDeck(DeckDto.create(0, "deck2", Lists.newArrayList("card2")));
+        dao.transfer(0, 1, 2);
+    }
+
+    @Test
+    public void testConcurrentTransfers() throws Exception {
+        DeckDao dao = new DeckDao();
+        int decks = 8;
+        for (int i = 0; i < decks; i++) {
+            dao.createDeck(DeckDto.create(0, "deck" + i, Collections.nCopies(100, "card" + i)));
+        }
+
+        // transfers in both directions between the same decks would deadlock without ordered locking
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = Lists.newArrayList();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 2000; i++) {
+                    int source = random.nextInt(decks);
+                    int target = (source + 1 + random.nextInt(decks - 1)) % decks;
+                    try {
+                        dao.transfer(source, target, 1);
+                    } catch (IllegalArgumentException emptyDeck) {
+                        // the source deck ran out of cards
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        int cards = 0;
+        for (int i = 0; i < decks; i++) {
+            cards += dao.getDeckSize(i);
+        }
+        Assert.assertEquals("Transfers should neither lose nor duplicate cards.", decks * 100, cards);
+    }
+
+    @Test
+    public void testNullCards() {
+        DeckDao dao = new DeckDao();
+        dao.createDeck(DeckDto.create(0, "nulls", Arrays.asList("card1", null, "card2")));
+        dao.createDeck(DeckDto.create(0, "other", Lists.newArrayList("card3")));
+        Assert.assertNotNull(dao.split(0, 2, "split"));
+        Assert.assertNotNull(dao.transfer(0, 1, 1));
+        Assert.assertTrue(dao.replicate(5, "replica", Arrays.asList(null, "card4"), 1));
+
+        Assert.assertEquals(Collections.singletonList(null), dao.getDeck(0).getCards());
+        Assert.assertEquals(Arrays.asList("card3", "card1"), dao.getDeck(1).getCards());
+        Assert.assertEquals(Lists.newArrayList(1), ids(dao.searchDecks(null, "card3", null, null, null, 10)));
+        Assert.assertEquals(Lists.newArrayList(5), ids(dao.searchDecks(null, "card4", null, null, null, 10)));
+        Assert.assertNotNull(dao.remove(1));
+        Assert.assertEquals(0, dao.searchDecks(null, "card3", null, null, null, 10).getDecks().size());
+    }
+
+    @Test
+    public void testSearchDecks() {
+        DeckDao dao = new DeckDao();
+        dao.createDeck(DeckDto.create(0, "spades", Lists.newArrayList("AS", "KS", "QS")));
+        dao.createDeck(DeckDto.create(0, "hearts", Lists.newArrayList("AH", "KH")));
+        dao.createDeck(DeckDto.create(0, "spades-short", Lists.newArrayList("AS")));
+        dao.createDeck(DeckDto.create(0, "mixed", Lists.newArrayList("AS", "AH", "KH", "KS")));
+
+        Assert.assertEquals(Lists.newArrayList(0, 2), ids(dao.searchDecks("spades", null, null, null, null, 10)));
+        Assert.assertEquals(Lists.newArrayList(0, 2, 3), ids(dao.searchDecks(null, "AS", null, null, null, 10)));
+        Assert.assertEquals(Lists.newArrayList(0, 1), ids(dao.searchDecks(null, null, 2, 3, null, 10)));
+        Assert.assertEquals(Lists.newArrayList(0), ids(dao.searchDecks("sp", "AS", 2, null, null, 10)));
+        Assert.assertEquals(Lists.newArrayList(3), ids(dao.searchDecks(null, "KH", null, null, "1", 10)));
+        Assert.assertEquals(Lists.newArrayList(0, 1, 2, 3), ids(dao.searchDecks(null, null, null, null, null, 10)));
+        Assert.assertEquals(Collections.emptyList(), ids(dao.searchDecks("clubs", null, null, null, null, 10)));
+        Assert.assertEquals(Collections.emptyList(), ids(dao.searchDecks(null, "AS", 5, null, null, 10)));
+    }
+
+    @Test
+    public void testSearchDecksManyNames() {
+        DeckDao dao = new DeckDao();
+        int decks = 3 * DeckIndex.MAX_MERGED_TERMS;
+        for (int i = 0; i < decks; i++) {
+            // distinct names under one prefix, interleaved with others
+            String name = (i % 4 == 3 ? "other" : "deck") + i;
+            List<String> cards = i % 3 == 0 ? Lists.newArrayList("AS", "KH") : Lists.newArrayList("KH");
+            dao.createDeck(DeckDto.create(0, name, cards));
+        }
+        // merged from few enough names, then found by going through the decks
+        for (String prefix : new String[]{"deck12", "deck", "other"}) {
+            for (String card : new String[]{null, "AS"}) {
+                List<Integer> expected = Lists.newArrayList();
+                for (int i = 0; i < decks; i++) {
+                    String name = dao.getDeck(i).getName();
+                    if (name.startsWith(prefix) && (card == null || dao.getDeck(i).getCards().contains(card))) {
+                        expected.add(i);
+                    }
+                }
+                List<Integer> found = Lists.newArrayList();
+                String cursor = null;
+                DeckPageDto page;
+                do {
+                    page = dao.searchDecks(prefix, card, null, null, cursor, 37);
+                    found.addAll(ids(page));
+                    cursor = page.getCursor();
+                } while (page.hasMoreResults());
+                Assert.assertEquals(prefix + " " + card, expected, found);
+            }
+        }
+    }
+
+    @Test
+    public void testSearchDecksCursor() {
+        DeckDao dao = new DeckDao();
+        for (int i = 0; i < 10; i++) {
+            dao.createDeck(DeckDto.create(0, i % 2 == 0 ? "even" : "odd", Lists.newArrayList("card" + i)));
+        }
+
+        DeckPageDto first = dao.searchDecks("even", null, null, null, null, 3);
+        Assert.assertEquals(Lists.newArrayList(0, 2, 4), ids(first));
+        Assert.assertTrue(first.hasMoreResults());
+
+        // a page continues after the previous one even if decks before it were removed
+        dao.remove(0);
+        dao.remove(2);
+        DeckPageDto second = dao.searchDecks("even", null, null, null, first.getCursor(), 3);
+        Assert.assertEquals(Lists.newArrayList(6, 8), ids(second));
+        Assert.assertFalse(second.hasMoreResults());
+
+        DeckPageDto last = dao.searchDecks("even", null, null, null, second.getCursor(), 3);
+        Assert.assertTrue(last.getDecks().isEmpty());
+        Assert.assertEquals(second.getCursor(), last.getCursor());
+    }
+
+    @Test
+    public void testSearchDecksAfterChanges() {
+        DeckDao dao = new DeckDao();
+        dao.createDeck(DeckDto.create(0, "target", Lists.newArrayList("AS")));
+        dao.createDeck(DeckDto.create(0, "source", Lists.newArrayList("KS", "QS")));
+
+        dao.transfer(1, 0, 1);
+        Assert.assertEquals(Lists.newArrayList(0), ids(dao.searchDecks(null, "KS", null, null, null, 10)));
+        Assert.assertEquals(Lists.newArrayList(0), ids(dao.searchDecks(null, null, 2, 2, null, 10)));
+
+        dao.merge(0, 1);
+        Assert.assertEquals(Lists.newArrayList(0), ids(dao.searchDecks(null, "QS", 3, null, null, 10)));
+        Assert.assertEquals(Collections.emptyList(), ids(dao.searchDecks("source", null, null, null, null, 10)));
+
+        dao.split(0, 1, "split");
+        Assert.assertEquals(Lists.newArrayList(2), ids(dao.searchDecks(null, "KS", null, null, null, 10)));
+        Assert.assertEquals(Lists.newArrayList(0), ids(dao.searchDecks(null, null, null, 1, null, 10)));
+
+        dao.remove(2);
+        Assert.assertEquals(Collections.emptyList(), ids(dao.searchDecks(null, "KS", null, null, null, 10)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSearchDecksInvalidCursor() {
+        new DeckDao().searchDecks(null, null, null, null, "abc", 10);
+    }
+
+    private static List<Integer> ids(DeckPageDto page) {
+        List<Integer> ids = Lists.newArrayList();
+        for (DeckDto deck : page.getDecks()) {
+            ids.add(deck.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void testDaoCreateDecks() {
+        DeckDao dao = new DeckDao();
+        dao.createDeck(DeckDto.create(0, "first", Lists.newArrayList("card")));
+        int firstId = dao.createDecks(Lists.newArrayList(
+                DeckDto.create(0, "deck1", Lists.newArrayList("card1")),
+                DeckDto.create(0, "deck2", Lists.newArrayList("card2", "card3"))));
+
+        Assert.assertEquals("Should return the id of the first deck.", 1, firstId);
+        Assert.assertEquals("Should create every deck.", 3, dao.getDecks(0, 10).getTotal());
+        Assert.assertEquals("deck1", dao.getDeck(1).getName());
+        Assert.assertEquals("Ids should be assigned in list order.", "deck2", dao.getDeck(2).getName());
+        Assert.assertEquals(2, dao.getDeckSize(2));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testDaoGetDecksNegativeStart() {
         new DeckDao().getDecks(-1, 20);
@@ -111,10 +577,13 @@ public class DeckDaoTest {
                 .setId(0)
                 .setName("deck1")
                 .setCards(Lists.newArrayList("card2", "card1", "card3"));
-        Mockito.when(deckShuffler.shuffleDeck(deck)).thenReturn(preShuffledDeck);
+        // shuffles work on a copy of the stored deck
+        Mockito.when(deckShuffler.shuffleDeck(Mockito.any(DeckEntity.class))).thenReturn(preShuffledDeck);
 
         DeckDto shuffled = dao.shuffleDeck(0, deckShuffler);
         Assert.assertEquals(preShuffledDeck.getCards(), shuffled.getCards());
+        Assert.assertEquals("Shuffle should increment the version.", 1, shuffled.getVersion());
+        Assert.assertEquals(1, deck.getVersion());
     }
 
     @Test
@@ -154,8 +623,364 @@ public class DeckDaoTest {
         Assert.assertEquals(deck.getCards(), retrievedDeck.getCards());
     }
 
+    @Test
+    public void testTieredStorage() throws IOException {
+        TemporaryFolder folder = new TemporaryFolder();
+        folder.create();
+        ColdDeckStore coldStore = new ColdDeckStore(folder.getRoot(), 1024);
+        try {
+            TieredStorage storage = new TieredStorage(4, coldStore);
+            DeckDao dao = new DeckDao(storage);
+            dao.createDeck(DeckDto.create(0, "deck1", Lists.newArrayList("card1", "card2", "card3")));
+            dao.createDeck(DeckDto.create(0, "deck2", Lists.newArrayList("card4", "card5", "card6")));
+            Assert.assertEquals("First deck should have been spilled.", 1, storage.getEvictions());
+            Assert.assertEquals(3, storage.getHotCards());
+
+            // listing reads spilled decks without promoting them
+            DeckListDto page = dao.getDecks(0, 2);
+            Assert.assertEquals(Lists.newArrayList("card1", "card2", "card3"), page.getDecks().get(0).getCards());
+            Assert.assertEquals(0, storage.getMisses());
+            Assert.assertEquals(3, dao.getDeckSize(0));
+
+            // reading promotes the first deck and spills the second
+            DeckDto deck1 = dao.getDeck(0);
+            Assert.assertEquals(Lists.newArrayList("card1", "card2", "card3"), deck1.getCards());
+            Assert.assertEquals(1, storage.getMisses());
+            Assert.assertEquals(2, storage.getEvictions());
+
+            Mockito.when(deckShuffler.shuffleDeck(Mockito.any(DeckEntity.class))).thenAnswer(i -> i.getArgument(0));
+            DeckDto deck2 = dao.shuffleDeck(1, deckShuffler);
+            Assert.assertEquals(Lists.newArrayList("card4", "card5", "card6"), deck2.getCards());
+            Assert.assertEquals(2, storage.getMisses());
+
+            DeckEntity removed = dao.remove(0);
+            Assert.assertEquals("Removed spilled deck should carry its cards.",
+                    Lists.newArrayList("card1", "card2", "card3"), removed.getCards());
+            Assert.assertEquals(0, coldStore.getLiveBytes());
+        } finally {
+            coldStore.close();
+            folder.delete();
+        }
+    }
+
+    @Test
+    public void testCompact() {
+        DeckDao dao = new DeckDao();
+        for (int i = 0; i < 10; i++) {
+            // distinct instances of the same cards, as deserialized from separate requests
+            dao.createDeck(DeckDto.create(0, "deck" + i, Lists.newArrayList(new String("AS"), new String("KH"))));
+        }
+        dao.split(9, 1, "split");
+        FootprintDto before = dao.getFootprint(100);
+        Assert.assertEquals(11, before.getDecks());
+        Assert.assertEquals(11, before.getSampledDecks());
+        Assert.assertEquals(10.0, before.getDuplicationRatio(), 0.0);
+        Assert.assertTrue(before.getDuplicateBytes() > 0);
+        Assert.assertEquals(11 + 10 * 2 + 11, before.getIndexEntries());
+
+        CompactionDto compaction = dao.compact(4);
+        Assert.assertEquals(11, compaction.getDecks());
+        Assert.assertEquals("The index holds the first deck's cards.", 10, compaction.getInternedDecks());
+        Assert.assertEquals(18, compaction.getInternedCards());
+        Assert.assertEquals(2, compaction.getRepackedDecks());
+        Assert.assertEquals(0, compaction.getMovedRecords());
+
+        FootprintDto after = dao.getFootprint(100);
+        Assert.assertEquals(1.0, after.getDuplicationRatio(), 0.0);
+        Assert.assertEquals(0, after.getDuplicateBytes());
+        Assert.assertTrue(after.getHeapBytesPerDeck() < before.getHeapBytesPerDeck());
+        Assert.assertSame(dao.getDeck(0).getCards().get(0), dao.getDeck(5).getCards().get(0));
+        Assert.assertEquals(Lists.newArrayList("AS", "KH"), dao.getDeck(5).getCards());
+        Assert.assertEquals(Lists.newArrayList("KH"), dao.getDeck(10).getCards());
+        Assert.assertEquals("Compaction leaves versions unchanged.", 0, dao.getDeck(5).getVersion());
+        Assert.assertEquals(10, dao.searchDecks(null, "AS", null, null, null, 20).getDecks().size());
+        Assert.assertEquals(0, dao.compact(4).getInternedDecks());
+    }
+
+    @Test
+    public void testStartCompaction() throws InterruptedException {
+        DeckDao dao = new DeckDao();
+        Assert.assertFalse(dao.getCompaction().isRunning());
+        Assert.assertEquals(0, dao.getCompaction().getDecks());
+        for (int i = 0; i < 10; i++) {
+            dao.createDeck(DeckDto.create(0, "deck" + i, Lists.newArrayList(new String("AS"), new String("KH"))));
+        }
+        dao.startCompaction(4);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (dao.getCompaction().isRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        CompactionDto compaction = dao.getCompaction();
+        Assert.assertFalse(compaction.isRunning());
+        Assert.assertEquals(10, compaction.getDecks());
+        Assert.assertEquals(9, compaction.getInternedDecks());
+        Assert.assertSame(dao.getDeck(0).getCards().get(0), dao.getDeck(9).getCards().get(0));
+    }
+
+    @Test
+    public void testCompactTiered() throws IOException {
+        TemporaryFolder folder = new TemporaryFolder();
+        folder.create();
+        // a segment holds exactly two decks of three cards
+        ColdDeckStore coldStore = new ColdDeckStore(folder.getRoot(), 2 * (4 + 3 * (4 + 5)));
+        try {
+            TieredStorage storage = new TieredStorage(3, coldStore);
+            DeckDao dao = new DeckDao(storage);
+            for (int i = 0; i < 9; i++) {
+                dao.createDeck(DeckDto.create(0, "deck" + i, Lists.newArrayList("card1", "card2", "card3")));
+            }
+            // the first eight decks are spilled across four segments, one of each pair is removed
+            for (int i = 0; i < 8; i += 2) {
+                dao.remove(i);
+            }
+            FootprintDto before = dao.getFootprint(100);
+            Assert.assertEquals(4, before.getColdDecks());
+            Assert.assertEquals(1, before.getHeapDecks());
+            Assert.assertEquals(4 + 3 * (4 + 5), before.getColdBytesPerDeck());
+            Assert.assertEquals(4 * 62, before.getColdMappedBytes());
+
+            CompactionDto compaction = dao.compact(256);
+            Assert.assertEquals(5, compaction.getDecks());
+            Assert.assertEquals(4, compaction.getMovedRecords());
+            Assert.assertEquals(4, compaction.getReleasedSegments());
+
+            FootprintDto after = dao.getFootprint(100);
+            Assert.assertEquals(4 * (4 + 3 * (4 + 5)), after.getColdLiveBytes());
+            Assert.assertEquals("Four live decks should fit two segments.", 2 * 62, after.getColdMappedBytes());
+            for (int i = 1; i < 8; i += 2) {
+                Assert.assertEquals(Lists.newArrayList("card1", "card2", "card3"), dao.getDeck(i).getCards());
+            }
+        } finally {
+            coldStore.close();
+            folder.delete();
+        }
+    }
+
     @Test
     public void testGetDeckInvalidId() {
         Assert.assertNull(new DeckDao().getDeck(0));
     }
+
+    @Test
+    public void testExpireByTtl() {
+        DeckDao dao = new DeckDao();
+        DeckEntity expiring = dao.createDeck(DeckDto.create(0, "deck1", Lists.newArrayList("card1")), 5_000, 0);
+        DeckEntity kept = dao.createDeck(DeckDto.create(0, "deck2", Lists.newArrayList("card2")));
+        long created = expiring.getLastUsedAt();
+
+        dao.expireDecks(created + 2_000, 100);
+        Assert.assertNotNull("Deck should live until its time to live elapsed.", dao.getDeck(expiring.getId()));
+
+        dao.expireDecks(created + 7_000, 100);
+        Assert.assertNull(dao.getDeck(expiring.getId()));
+        Assert.assertNotNull(dao.getDeck(kept.getId()));
+        Assert.assertEquals(1, dao.getExpiredByTtl());
+        Assert.assertEquals(0, dao.getExpiredByIdle());
+        Assert.assertEquals(0, dao.getScheduledExpiries());
+        Assert.assertEquals(0, dao.searchDecks(null, "card1", null, null, null, 10).getDecks().size());
+    }
+
+    @Test
+    public void testExpireByIdle() {
+        DeckDao dao = new DeckDao();
+        DeckEntity deck = dao.createDeck(DeckDto.create(0, "deck1", Lists.newArrayList("card1")), 0, 5_000);
+        long created = deck.getLastUsedAt();
+        deck.setLastUsedAt(created + 10_000); // used later on
+
+        dao.expireDecks(created + 7_000, 100);
+        Assert.assertNotNull("Deck used since it was created should be kept.", dao.getDeck(deck.getId()));
+        Assert.assertEquals(1, dao.getScheduledExpiries());
+
+        dao.expireDecks(created + 17_000, 100);
+        Assert.assertNull(dao.getDeck(deck.getId()));
+        Assert.assertEquals(1, dao.getExpiredByIdle());
+    }
+
+    @Test
+    public void testExpireBeyondWheelTurn() {
+        DeckDao dao = new DeckDao();
+        long ttl = 3 * ExpiryWheel.DEFAULT_SLOTS * ExpiryWheel.DEFAULT_TICK_MILLIS;
+        DeckEntity deck = dao.createDeck(DeckDto.create(0, "deck1", Lists.newArrayList("card1")), ttl, 0);
+        long created = deck.getLastUsedAt();
+
+        dao.expireDecks(created + ttl - 5_000, 100);
+        Assert.assertNotNull(dao.getDeck(deck.getId()));
+        dao.expireDecks(created + ttl + 5_000, 100);
+        Assert.assertNull(dao.getDeck(deck.getId()));
+    }
+
+    @Test
+    public void testExpireInBatches() {
+        DeckDao dao = new DeckDao();
+        List<DeckDto> dtos = Lists.newArrayList();
+        for (int i = 0; i < 250; i++) {
+            dtos.add(DeckDto.create(0, "deck" + i, Lists.newArrayList("card" + i)));
+        }
+        long created = System.currentTimeMillis();
+        dao.createDecks(dtos, 1_000, 0);
+        dao.remove(0);
+
+        Assert.assertEquals(100, dao.expireDecks(created + 10_000, 100));
+        Assert.assertEquals(150, dao.getDecks(0, 10).getTotal());
+        Assert.assertEquals(100, dao.expireDecks(created + 10_000, 100));
+        Assert.assertEquals(50, dao.expireDecks(created + 10_000, 100));
+        Assert.assertEquals(0, dao.getDecks(0, 10).getTotal());
+        Assert.assertEquals("Removed deck should not count as expired.", 249, dao.getExpiredByTtl());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateDeckNegativeTtl() {
+        new DeckDao().createDeck(DeckDto.create(0, "deck1", Lists.newArrayList("card1")), -1, 0);
+    }
+
+    @Test
+    public void testReplicate() {
+        DeckDao dao = new DeckDao();
+        Assert.assertTrue(dao.replicate(5, "deck5", Lists.newArrayList("card1", "card2"), 3));
+        Assert.assertEquals(DeckDto.create(5, "deck5", Lists.newArrayList("card1", "card2"), 3), dao.getDeck(5));
+
+        Assert.assertFalse("Older changes should be ignored.",
+                dao.replicate(5, "deck5", Lists.newArrayList("card3"), 2));
+        Assert.assertTrue(dao.replicate(5, "deck5", Lists.newArrayList("card2", "card1"), 7));
+        Assert.assertEquals(DeckDto.create(5, "deck5", Lists.newArrayList("card2", "card1"), 7), dao.getDeck(5));
+        Assert.assertEquals(5, dao.searchDecks(null, "card1", null, null, null, 10).getDecks().get(0).getId());
+
+        Assert.assertEquals("Ids should follow the replicated deck.", 6,
+                dao.createDeck(DeckDto.create(0, "deck6", Lists.newArrayList("card1"))).getId());
+        Assert.assertEquals(2, dao.removeAll());
+        Assert.assertEquals(0, dao.getDecks(0, 10).getTotal());
+    }
+
+    @Test
+    public void testChangeListener() {
+        DeckDao dao = new DeckDao();
+        List<String> changes = Lists.newArrayList();
+        dao.setChangeListener(new DeckChangeListener() {
+            @Override
+            public void changed(int id, String name, List<String> cards, long version, long expiresAt,
+                                long idleMillis) {
+                changes.add("changed " + id + " " + cards + " " + version);
+            }
+
+            @Override
+            public void removed(int id, long version) {
+                changes.add("removed " + id + " " + version);
+            }
+        });
+        dao.createDeck(DeckDto.create(0, "deck0", Lists.newArrayList("card1", "card2")));
+        dao.createDeck(DeckDto.create(0, "deck1", Lists.newArrayList("card3")));
+        dao.merge(0, 1);
+        dao.shuffleDeck(0, deck -> deck.setCards(Lists.reverse(deck.getCards())));
+        dao.remove(0);
+        Assert.assertEquals(Lists.newArrayList(
+                "changed 0 [card1, card2] 0",
+                "changed 1 [card3] 0",
+                "removed 1 1",
+                "changed 0 [card1, card2, card3] 1",
+                "changed 0 [card3, card2, card1] 2",
+                "removed 0 3"), changes);
+
+        List<DeckEntity> snapshot = Lists.newArrayList();
+        dao.createDeck(DeckDto.create(0, "deck2", Lists.newArrayList("card4")), 60_000, 0);
+        dao.snapshot(snapshot::add);
+        Assert.assertEquals(1, snapshot.size());
+        Assert.assertEquals(2, snapshot.get(0).getId());
+        Assert.assertEquals("deck2", snapshot.get(0).getName());
+        Assert.assertEquals(Lists.newArrayList("card4"), snapshot.get(0).getCards());
+        Assert.assertEquals(0, snapshot.get(0).getVersion());
+        Assert.assertTrue(snapshot.get(0).getExpiresAt() > 0);
+    }
+
+    @Test
+    public void testReplicateExpiry() {
+        DeckDao dao = new DeckDao();
+        long now = System.currentTimeMillis();
+        Assert.assertTrue(dao.replicate(0, "deck0", Lists.newArrayList("card1"), 1, now + 1000, 0));
+        Assert.assertTrue(dao.replicate(1, "deck1", Lists.newArrayList("card2"), 1, 0, 500));
+        Assert.assertTrue(dao.replicate(2, "deck2", Lists.newArrayList("card3"), 1));
+        Assert.assertEquals(0, dao.expireDecks(now + 100, 10));
+        Assert.assertEquals(3, dao.getDecks(0, 10).getTotal());
+        dao.expireDecks(now + 2000, 10);
+        Assert.assertEquals(Lists.newArrayList(DeckDto.create(2, "deck2", Lists.newArrayList("card3"), 1)),
+                dao.getDecks(0, 10).getDecks());
+    }
+
+    @Test
+    public void testReconcile() {
+        DeckDao dao = new DeckDao();
+        dao.createDeck(DeckDto.create(0, "deck0", Lists.newArrayList("card1", "card2")));
+        dao.createDeck(DeckDto.create(0, "deck1", Lists.newArrayList("card3")));
+        dao.createDeck(DeckDto.create(0, "deck2", Lists.newArrayList("card4")));
+        dao.shuffleDeck(0, deck -> deck.setCards(Lists.reverse(deck.getCards())));
+
+        Assert.assertFalse("Same deck should be left untouched.", dao.reconcile(new DeckEntity()
+                .setId(0).setName("deck0").setCards(Lists.newArrayList("card2", "card1")).setVersion(1)));
+        Assert.assertTrue("Diverged cards should be replaced whatever the version.", dao.reconcile(new DeckEntity()
+                .setId(1).setName("deck1").setCards(Lists.newArrayList("card5")).setVersion(0)));
+        Assert.assertTrue("Renamed deck should be created anew.", dao.reconcile(new DeckEntity()
+                .setId(2).setName("other").setCards(Lists.newArrayList("card4")).setVersion(0)));
+        Assert.assertTrue(dao.reconcile(new DeckEntity()
+                .setId(4).setName("deck4").setCards(Lists.newArrayList("card6")).setVersion(3)));
+        Assert.assertEquals(1, dao.retainDecks(id -> id != 0));
+        Assert.assertEquals(Lists.newArrayList(
+                DeckDto.create(1, "deck1", Lists.newArrayList("card5"), 0),
+                DeckDto.create(2, "other", Lists.newArrayList("card4"), 0),
+                DeckDto.create(4, "deck4", Lists.newArrayList("card6"), 3)), dao.getDecks(0, 10).getDecks());
+        Assert.assertEquals(1, dao.searchDecks("other", null, null, null, null, 10).getDecks().size());
+        Assert.assertEquals("Ids should follow the reconciled decks.", 5,
+                dao.createDeck(DeckDto.create(0, "deck5", Lists.newArrayList("card7"))).getId());
+    }
+
+    @Test
+    public void testShuffleDecks() {
+        DeckDao dao = new DeckDao();
+        dao.createDeck(DeckDto.create(0, "deck0", Lists.newArrayList("card1", "card2", "card3")));
+        dao.createDeck(DeckDto.create(0, "deck1", Lists.newArrayList("card4", "card5")));
+        dao.createDeck(DeckDto.create(0, "deck2", Lists.newArrayList("card6", "card7", "card8")));
+        List<Integer> batchSizes = Lists.newArrayList();
+        DeckShuffler reverse = new DeckShuffler() {
+            @Override
+            public DeckEntity shuffleDeck(DeckEntity deck) {
+                return deck.setCards(Lists.reverse(deck.getCards()));
+            }
+
+            @Override
+            public void shuffleDecks(int[] decks, int deckSize) {
+                batchSizes.add(decks.length / deckSize);
+                for (int base = 0; base < decks.length; base += deckSize) {
+                    for (int k = 0; k < deckSize; k++) {
+                        decks[base + k] = deckSize - 1 - k;
+                    }
+                }
+            }
+        };
+
+        List<DeckDto> shuffled = dao.shuffleDecks(Lists.newArrayList(2, null, 1, 5, 0, 2), reverse);
+        Assert.assertEquals(Lists.newArrayList(
+                DeckDto.create(2, "deck2", Lists.newArrayList("card8", "card7", "card6"), 1),
+                null,
+                DeckDto.create(1, "deck1", Lists.newArrayList("card5", "card4"), 1),
+                null,
+                DeckDto.create(0, "deck0", Lists.newArrayList("card3", "card2", "card1"), 1),
+                DeckDto.create(2, "deck2", Lists.newArrayList("card6", "card7", "card8"), 2)), shuffled);
+        Assert.assertEquals("Decks of the same size should be shuffled together.", Lists.newArrayList(3, 1),
+                batchSizes);
+        Assert.assertEquals(shuffled.get(5), dao.getDeck(2));
+    }
+
+    @Test
+    public void testShuffleDecksWithEmptyDeck() {
+        DeckDao dao = new DeckDao();
+        dao.createDeck(DeckDto.create(0, "empty", Lists.newArrayList()));
+        dao.createDeck(DeckDto.create(0, "single", Lists.newArrayList("card1")));
+        dao.createDeck(DeckDto.create(0, "full", Lists.newArrayList("card2", "card3", "card4")));
+        // default bulk shuffle, which rejects a deck size of 0
+        DeckShuffler identity = deck -> deck;
+
+        List<DeckDto> shuffled = dao.shuffleDecks(Lists.newArrayList(0, 2, 1), identity);
+        Assert.assertEquals(DeckDto.create(0, "empty", Lists.newArrayList(), 0), shuffled.get(0));
+        Assert.assertEquals(DeckDto.create(1, "single", Lists.newArrayList("card1"), 0), shuffled.get(2));
+        Assert.assertEquals(1, shuffled.get(1).getVersion());
+        Assert.assertEquals(Sets.newHashSet("card2", "card3", "card4"), Sets.newHashSet(shuffled.get(1).getCards()));
+    }
 }
@@ -0,0 +1,61 @@
+package example.cards.dao;
+
+import example.cards.model.CardArray;
+import example.cards.model.DeckDto;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Rough benchmark of the memory allocated by deck reads, run by hand rather than as part of the test suite:
+ * <pre>
+ * java -cp ... example.cards.dao.DeckReadAllocationBenchmark [reads]
+ * </pre>
+ * Prints the bytes allocated per read of a single deck, with read coalescing disabled so every read goes to the
+ * stored deck, and per deck of a page, for decks of increasing size.  Reads share the stored cards, so the figures
+ * should stay flat as decks grow.
+ */
+public class DeckReadAllocationBenchmark {
+
+    public static void main(String[] args) {
+        int reads = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        System.out.printf("%8s %14s %14s%n", "cards", "bytes/get", "bytes/listed");
+        for (int size : new int[]{1, 52, 416, 10_000}) {
+            DeckDao dao = new DeckDao(null, new DeckReadCache(0, DeckReadCache.DEFAULT_MAX_DECKS));
+            String[] cards = new String[size];
+            for (int i = 0; i < size; i++) {
+                cards[i] = "card" + i;
+            }
+            for (int i = 0; i < 100; i++) {
+                dao.createDeck(DeckDto.create(0, "deck", CardArray.wrap(cards)));
+            }
+
+            double perGet = bytesPer(threads, thread, reads, i -> dao.getDeck(i % 100));
+            double perListed = bytesPer(threads, thread, reads / 100, i -> dao.getDecks(0, 100)) / 100;
+            System.out.printf("%8d %14.1f %14.1f%n", size, perGet, perListed);
+        }
+    }
+
+    private interface Read {
+        Object read(int i);
+    }
+
+    /**
+     * Runs the reads once to warm up, then returns the average bytes allocated by the current thread per read.
+     */
+    private static double bytesPer(com.sun.management.ThreadMXBean threads, long thread, int reads, Read read) {
+        Object sink = null;
+        for (int i = 0; i < reads; i++) {
+            sink = read.read(i);
+        }
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < reads; i++) {
+            sink = read.read(i);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        return sink == null ? 0 : (double) allocated / reads;
+    }
+}
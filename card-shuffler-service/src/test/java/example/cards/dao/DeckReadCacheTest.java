@@ -0,0 +1,116 @@
+package example.cards.dao;
+
+import com.google.common.collect.Lists;
+import example.cards.entity.DeckEntity;
+import example.cards.model.DeckDto;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Tests for the coalescing deck read cache.
+ */
+public class DeckReadCacheTest {
+
+    private final DeckEntity entity = new DeckEntity().setId(0).setName("deck").setCards(Lists.newArrayList("AS"));
+    private final AtomicInteger loads = new AtomicInteger();
+    private final IntFunction<DeckReadCache.Snapshot> loader = id -> {
+        loads.incrementAndGet();
+        return new DeckReadCache.Snapshot(entity, DeckDao.DeckConverter.convertToDto(entity));
+    };
+
+    @Test
+    public void testConcurrentReadsShareOneLoad() throws Exception {
+        DeckReadCache cache = new DeckReadCache(60_000, 10);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IntFunction<DeckReadCache.Snapshot> slowLoader = id -> {
+            loading.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return loader.apply(id);
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<DeckDto> first = executor.submit(() -> cache.get(0, slowLoader));
+            Assert.assertTrue(loading.await(10, TimeUnit.SECONDS));
+            Future<DeckDto> second = executor.submit(() -> cache.get(0, slowLoader));
+            Future<DeckDto> third = executor.submit(() -> cache.get(0, slowLoader));
+            // give the later readers time to find the read in flight
+            Thread.sleep(100);
+            release.countDown();
+
+            Assert.assertSame("Readers should share the same dto.", first.get(), second.get());
+            Assert.assertSame(first.get(), third.get());
+            Assert.assertEquals("Deck should be loaded once.", 1, loads.get());
+            Assert.assertEquals("Later readers should wait for the load, or be served its result.", 2,
+                    cache.getCoalesced() + cache.getHits());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testReadsServedUntilDeckChanges() {
+        DeckReadCache cache = new DeckReadCache(60_000, 10);
+        DeckDto first = cache.get(0, loader);
+        Assert.assertSame(first, cache.get(0, loader));
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(1, cache.getHits());
+
+        entity.setVersion(entity.getVersion() + 1);
+        Assert.assertNotSame("Changed deck should be read again.", first, cache.get(0, loader));
+        Assert.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testReadsExpire() {
+        DeckReadCache cache = new DeckReadCache(0, 10);
+        cache.get(0, loader);
+        cache.get(0, loader);
+        Assert.assertEquals("Completed reads should not be served with no ttl.", 2, loads.get());
+    }
+
+    @Test
+    public void testMissingDeckNotCached() {
+        DeckReadCache cache = new DeckReadCache(60_000, 10);
+        Assert.assertNull(cache.get(0, id -> null));
+        Assert.assertNotNull("Deck created since should be found.", cache.get(0, loader));
+    }
+
+    @Test
+    public void testSerializedOncePerRead() {
+        DeckReadCache cache = new DeckReadCache(60_000, 10);
+        DeckDto dto = cache.get(0, loader);
+        AtomicInteger serializations = new AtomicInteger();
+        byte[] first = cache.serialized(dto, () -> new byte[serializations.incrementAndGet()]);
+        Assert.assertSame(first, cache.serialized(dto, () -> new byte[serializations.incrementAndGet()]));
+        Assert.assertEquals(1, serializations.get());
+
+        DeckDto uncached = DeckDto.create(0, "deck", Lists.newArrayList("AS"));
+        cache.serialized(uncached, () -> new byte[serializations.incrementAndGet()]);
+        Assert.assertEquals("Dtos other than the cached one should be serialized each time.", 2,
+                serializations.get());
+    }
+
+    @Test
+    public void testEviction() {
+        DeckReadCache cache = new DeckReadCache(60_000, 2);
+        for (int i = 0; i < 5; i++) {
+            cache.get(i, loader);
+        }
+        cache.get(0, loader);
+        Assert.assertEquals("Evicted deck should be read again.", 6, loads.get());
+    }
+}
@@ -0,0 +1,60 @@
+package example.cards.dao;
+
+import com.google.common.collect.Lists;
+import example.cards.model.DeckDto;
+
+import java.util.List;
+
+/**
+ * Rough benchmark of name prefix searches over distinct names, run by hand rather than as part of the test suite:
+ * <pre>
+ * java -cp ... example.cards.dao.DeckSearchBenchmark [searches]
+ * </pre>
+ * Prints the time taken by the first page of a search for a prefix every deck's name starts with, for a prefix a
+ * hundred names start with, and for either combined with a card a tenth of the decks hold, as the number of decks
+ * grows.  A page seeks at most a bounded number of times, so the figures should stay roughly flat.
+ */
+public class DeckSearchBenchmark {
+
+    public static void main(String[] args) {
+        int searches = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        List<String> cards = Lists.newArrayList("KH");
+        List<String> rare = Lists.newArrayList("AS", "KH");
+
+        System.out.printf("%10s %14s %14s %14s %14s%n", "decks", "broad us", "narrow us", "broad+card us",
+                "narrow+card us");
+        for (int decks : new int[]{10_000, 100_000, 1_000_000}) {
+            DeckDao dao = new DeckDao();
+            for (int i = 0; i < decks; i++) {
+                dao.createDeck(DeckDto.create(0, "deck" + i, i % 10 == 0 ? rare : cards));
+            }
+            // names from deck10 up to deck19, then deck100 up to deck199, and so on
+            String narrow = "deck" + decks / 100;
+            System.out.printf("%10d %14.1f %14.1f %14.1f %14.1f%n", decks,
+                    microsPer(searches, () -> dao.searchDecks("deck", null, null, null, null, 100)),
+                    microsPer(searches, () -> dao.searchDecks(narrow, null, null, null, null, 100)),
+                    microsPer(searches, () -> dao.searchDecks("deck", "AS", null, null, null, 100)),
+                    microsPer(searches, () -> dao.searchDecks(narrow, "AS", null, null, null, 100)));
+        }
+    }
+
+    private interface Search {
+        Object search();
+    }
+
+    /**
+     * Runs the searches once to warm up, then returns the average microseconds per search.
+     */
+    private static double microsPer(int searches, Search search) {
+        Object sink = null;
+        for (int i = 0; i < searches; i++) {
+            sink = search.search();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < searches; i++) {
+            sink = search.search();
+        }
+        long elapsed = System.nanoTime() - start;
+        return sink == null ? 0 : elapsed / 1_000.0 / searches;
+    }
+}
@@ -0,0 +1,51 @@
+package example.cards.filter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the adaptive concurrency limit.
+ */
+public class AdaptiveConcurrencyLimitTest {
+
+    @Test
+    public void testLimitIsEnforced() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, 2.0);
+        Assert.assertTrue(limit.tryAcquire());
+        Assert.assertTrue(limit.tryAcquire());
+        Assert.assertFalse("Limit should be reached.", limit.tryAcquire());
+        Assert.assertEquals(2, limit.getInFlight());
+    }
+
+    @Test
+    public void testLimitGrowsWhileLatencyIsStable() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, 2.0);
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(limit.tryAcquire());
+            Assert.assertTrue(limit.tryAcquire());
+            limit.release(TimeUnit.MILLISECONDS.toNanos(2));
+            limit.release(TimeUnit.MILLISECONDS.toNanos(2));
+        }
+        Assert.assertTrue("Limit should have grown.", limit.getLimit() > 2);
+        Assert.assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    public void testLimitShrinksWhenLatencyDegrades() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 10, 2.0);
+        Assert.assertTrue(limit.tryAcquire());
+        limit.release(TimeUnit.MILLISECONDS.toNanos(2));
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(limit.tryAcquire());
+            limit.release(TimeUnit.MILLISECONDS.toNanos(50));
+        }
+        Assert.assertTrue("Limit should have shrunk.", limit.getLimit() < 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBounds() {
+        new AdaptiveConcurrencyLimit(20, 1, 10, 2.0);
+    }
+}
@@ -0,0 +1,180 @@
+package example.cards.filter;
+
+import example.cards.dao.DeckDao;
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.util.Arrays;
+
+/**
+ * Tests for the admission filter, using mocked request contexts.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class AdmissionFilterTest {
+
+    @Mock
+    DeckDao deckDao;
+
+    @Mock
+    ContainerRequestContext requestContext;
+
+    @Mock
+    UriInfo uriInfo;
+
+    @Mock
+    HttpServletRequest servletRequest;
+
+    @After
+    public void after() {
+        ResteasyProviderFactory.clearContextData();
+    }
+
+    @Test
+    public void testShuffleCostWeightedByDeckSize() {
+        MultivaluedMap<String, String> pathParameters = new MultivaluedHashMap<>();
+        pathParameters.putSingle("deckId", "3");
+        Mockito.when(requestContext.getMethod()).thenReturn(HttpMethod.POST);
+        Mockito.when(requestContext.getUriInfo()).thenReturn(uriInfo);
+        Mockito.when(uriInfo.getPathParameters()).thenReturn(pathParameters);
+        Mockito.when(deckDao.getDeckSize(3)).thenReturn(8 * 52);
+
+        AdmissionFilter filter = new AdmissionFilter(deckDao, 1, 10, new AdaptiveConcurrencyLimit(1, 1, 1, 2.0));
+        Assert.assertEquals(9, filter.cost(requestContext));
+    }
+
+    @Test
+    public void testBulkShuffleCostSumsDecks() {
+        MultivaluedMap<String, String> queryParameters = new MultivaluedHashMap<>();
+        queryParameters.put("id", Arrays.asList("3", "4"));
+        Mockito.when(requestContext.getMethod()).thenReturn(HttpMethod.POST);
+        Mockito.when(requestContext.getUriInfo()).thenReturn(uriInfo);
+        Mockito.when(uriInfo.getPath()).thenReturn("/decks/bulk/shuffle");
+        Mockito.when(uriInfo.getQueryParameters()).thenReturn(queryParameters);
+        Mockito.when(deckDao.getDeckSize(3)).thenReturn(52);
+        Mockito.when(deckDao.getDeckSize(4)).thenReturn(0);
+
+        AdmissionFilter filter = new AdmissionFilter(deckDao, 1, 10, new AdaptiveConcurrencyLimit(1, 1, 1, 2.0));
+        Assert.assertEquals(3, filter.cost(requestContext));
+    }
+
+    @Test
+    public void testBulkCreateCostWeightedByLength() {
+        Mockito.when(requestContext.getMethod()).thenReturn(HttpMethod.PUT);
+        Mockito.when(requestContext.getUriInfo()).thenReturn(uriInfo);
+        Mockito.when(uriInfo.getPath()).thenReturn("/decks/bulk");
+        Mockito.when(requestContext.getLength()).thenReturn(10 * AdmissionFilter.BULK_BYTES_PER_TOKEN);
+
+        AdmissionFilter filter = new AdmissionFilter(deckDao, 1, 10, new AdaptiveConcurrencyLimit(1, 1, 1, 2.0));
+        Assert.assertEquals(11, filter.cost(requestContext));
+    }
+
+    @Test
+    public void testNonShuffleCostsOneToken() {
+        Mockito.when(requestContext.getMethod()).thenReturn(HttpMethod.GET);
+        AdmissionFilter filter = new AdmissionFilter(deckDao, 1, 10, new AdaptiveConcurrencyLimit(1, 1, 1, 2.0));
+        Assert.assertEquals(1, filter.cost(requestContext));
+        Mockito.verifyNoMoreInteractions(deckDao);
+    }
+
+    @Test
+    public void testRateLimitedPerClient() {
+        Mockito.when(requestContext.getMethod()).thenReturn(HttpMethod.GET);
+        Mockito.when(servletRequest.getRemoteAddr()).thenReturn("10.0.0.1");
+        ResteasyProviderFactory.pushContext(HttpServletRequest.class, servletRequest);
+        AdmissionFilter filter = new AdmissionFilter(deckDao, 1, 1, new AdaptiveConcurrencyLimit(10, 1, 10, 2.0));
+
+        filter.filter(requestContext);
+        filter.filter(requestContext);
+
+        ArgumentCaptor<Response> response = ArgumentCaptor.forClass(Response.class);
+        Mockito.verify(requestContext, Mockito.times(1)).abortWith(response.capture());
+        Assert.assertEquals(AdmissionFilter.TOO_MANY_REQUESTS, response.getValue().getStatus());
+        Assert.assertEquals(AdmissionFilter.RATE_LIMITED, response.getValue().getEntity());
+        Assert.assertEquals(1, filter.getAdmitted());
+        Assert.assertEquals(1, filter.getRateLimited());
+
+        // a different client has its own bucket
+        Mockito.when(servletRequest.getRemoteAddr()).thenReturn("10.0.0.2");
+        filter.filter(requestContext);
+        Assert.assertEquals(2, filter.getAdmitted());
+    }
+
+    @Test
+    public void testRateLimitedPerApiKey() {
+        Mockito.when(requestContext.getMethod()).thenReturn(HttpMethod.GET);
+        Mockito.when(requestContext.getHeaderString(AdmissionFilter.API_KEY_HEADER)).thenReturn("key1");
+        Mockito.when(servletRequest.getRemoteAddr()).thenReturn("10.0.0.1");
+        ResteasyProviderFactory.pushContext(HttpServletRequest.class, servletRequest);
+        AdmissionFilter filter = new AdmissionFilter(deckDao, 1, 1, 1, 10, new AdaptiveConcurrencyLimit(10, 1, 10, 2.0));
+
+        filter.filter(requestContext);
+        filter.filter(requestContext);
+        Assert.assertEquals(1, filter.getAdmitted());
+        Assert.assertEquals(1, filter.getRateLimited());
+
+        // clients behind the same address have a bucket per key
+        Mockito.when(requestContext.getHeaderString(AdmissionFilter.API_KEY_HEADER)).thenReturn("key2");
+        filter.filter(requestContext);
+        Assert.assertEquals(2, filter.getAdmitted());
+    }
+
+    @Test
+    public void testApiKeysChargedToAddress() {
+        Mockito.when(requestContext.getMethod()).thenReturn(HttpMethod.GET);
+        Mockito.when(servletRequest.getRemoteAddr()).thenReturn("10.0.0.1");
+        ResteasyProviderFactory.pushContext(HttpServletRequest.class, servletRequest);
+        AdmissionFilter filter = new AdmissionFilter(deckDao, 1, 1, 1, 3, new AdaptiveConcurrencyLimit(10, 1, 10, 2.0));
+
+        for (int i = 0; i < 4; i++) {
+            Mockito.when(requestContext.getHeaderString(AdmissionFilter.API_KEY_HEADER)).thenReturn("key" + i);
+            filter.filter(requestContext);
+        }
+        Assert.assertEquals("Made up keys should be limited by the address.", 3, filter.getAdmitted());
+        Assert.assertEquals(1, filter.getRateLimited());
+    }
+
+    @Test
+    public void testCostClampedToBurst() {
+        MultivaluedMap<String, String> pathParameters = new MultivaluedHashMap<>();
+        pathParameters.putSingle("deckId", "3");
+        Mockito.when(requestContext.getMethod()).thenReturn(HttpMethod.POST);
+        Mockito.when(requestContext.getUriInfo()).thenReturn(uriInfo);
+        Mockito.when(uriInfo.getPathParameters()).thenReturn(pathParameters);
+        Mockito.when(deckDao.getDeckSize(3)).thenReturn(100 * 52);
+        AdmissionFilter filter = new AdmissionFilter(deckDao, 1, 10, new AdaptiveConcurrencyLimit(10, 1, 10, 2.0));
+
+        filter.filter(requestContext);
+        Assert.assertEquals("A shuffle costing more than the burst should still be admitted from a full bucket.", 1,
+                filter.getAdmitted());
+        filter.filter(requestContext);
+        Assert.assertEquals(1, filter.getRateLimited());
+    }
+
+    @Test
+    public void testConcurrencyLimited() {
+        Mockito.when(requestContext.getMethod()).thenReturn(HttpMethod.GET);
+        AdmissionFilter filter = new AdmissionFilter(deckDao, 100, 100, new AdaptiveConcurrencyLimit(1, 1, 1, 2.0));
+
+        filter.filter(requestContext);
+        filter.filter(requestContext);
+
+        ArgumentCaptor<Response> response = ArgumentCaptor.forClass(Response.class);
+        Mockito.verify(requestContext, Mockito.times(1)).abortWith(response.capture());
+        Assert.assertEquals(AdmissionFilter.CONCURRENCY_LIMITED, response.getValue().getEntity());
+        Assert.assertEquals(1, filter.getConcurrencyLimited());
+    }
+}
@@ -0,0 +1,81 @@
+package example.cards.filter;
+
+import example.cards.dao.DeckDao;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.ContainerRequestContext;
+
+/**
+ * Tests for the release of admission slots by the servlet filter.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class AdmissionReleaseFilterTest {
+
+    @Mock
+    DeckDao deckDao;
+
+    @Mock
+    ContainerRequestContext requestContext;
+
+    @Mock
+    HttpServletRequest servletRequest;
+
+    @Mock
+    HttpServletResponse servletResponse;
+
+    @Mock
+    FilterChain chain;
+
+    @Test
+    public void testReleasedOnUnhandledException() throws Exception {
+        AdmissionFilter admissionFilter = new AdmissionFilter(deckDao, 100, 100,
+                new AdaptiveConcurrencyLimit(1, 1, 1, 2.0));
+        Mockito.when(requestContext.getMethod()).thenReturn(HttpMethod.GET);
+        admissionFilter.filter(requestContext);
+        Assert.assertEquals(1, admissionFilter.getConcurrencyLimit().getInFlight());
+        ArgumentCaptor<Object> slot = ArgumentCaptor.forClass(Object.class);
+        Mockito.verify(requestContext).setProperty(ArgumentMatchers.eq(AdmissionFilter.SLOT_PROPERTY), slot.capture());
+        Mockito.when(servletRequest.getAttribute(AdmissionFilter.SLOT_PROPERTY)).thenReturn(slot.getValue());
+        Mockito.doThrow(new NullPointerException()).when(chain).doFilter(servletRequest, servletResponse);
+
+        try {
+            new AdmissionReleaseFilter().doFilter(servletRequest, servletResponse, chain);
+            Assert.fail("Exception should have been thrown.");
+        } catch (NullPointerException npe) {
+            // as thrown by the resource
+        }
+        Assert.assertEquals(0, admissionFilter.getConcurrencyLimit().getInFlight());
+        Mockito.verify(servletRequest).removeAttribute(AdmissionFilter.SLOT_PROPERTY);
+    }
+
+    @Test
+    public void testReleasedOnce() throws Exception {
+        AdmissionFilter admissionFilter = new AdmissionFilter(deckDao, 100, 100,
+                new AdaptiveConcurrencyLimit(2, 2, 2, 2.0));
+        Mockito.when(requestContext.getMethod()).thenReturn(HttpMethod.GET);
+        admissionFilter.filter(requestContext);
+        admissionFilter.filter(requestContext);
+        ArgumentCaptor<Object> slot = ArgumentCaptor.forClass(Object.class);
+        Mockito.verify(requestContext, Mockito.times(2))
+                .setProperty(ArgumentMatchers.eq(AdmissionFilter.SLOT_PROPERTY), slot.capture());
+        Mockito.when(requestContext.getProperty(AdmissionFilter.SLOT_PROPERTY)).thenReturn(slot.getValue());
+        Mockito.when(servletRequest.getAttribute(AdmissionFilter.SLOT_PROPERTY)).thenReturn(slot.getValue());
+
+        // the response filter releases the slot, then the servlet filter finds it already released
+        admissionFilter.filter(requestContext, null);
+        new AdmissionReleaseFilter().doFilter(servletRequest, servletResponse, chain);
+        Assert.assertEquals("The other request's slot should still be held.", 1,
+                admissionFilter.getConcurrencyLimit().getInFlight());
+    }
+}
@@ -0,0 +1,46 @@
+package example.cards.filter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the token bucket.  Time is passed in explicitly so none of these depend on the speed of the machine.
+ */
+public class TokenBucketTest {
+
+    @Test
+    public void testBurstThenRefill() {
+        long now = System.nanoTime();
+        TokenBucket bucket = new TokenBucket(10, 5);
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals("Burst should be admitted.", 0, bucket.tryAcquire(1, now));
+        }
+        Assert.assertTrue("Bucket should be empty.", bucket.tryAcquire(1, now) > 0);
+
+        // 10 tokens a second, so one token comes back every 100ms
+        long later = now + TimeUnit.MILLISECONDS.toNanos(100);
+        Assert.assertEquals("Token should have been refilled.", 0, bucket.tryAcquire(1, later));
+        Assert.assertTrue("Only one token should have been refilled.", bucket.tryAcquire(1, later) > 0);
+    }
+
+    @Test
+    public void testWeightedCost() {
+        long now = System.nanoTime();
+        TokenBucket bucket = new TokenBucket(10, 5);
+        Assert.assertEquals(0, bucket.tryAcquire(4, now));
+        long wait = bucket.tryAcquire(4, now);
+        Assert.assertEquals("Should wait for three more tokens.", TimeUnit.MILLISECONDS.toNanos(300), wait);
+    }
+
+    @Test
+    public void testCostLargerThanBurstIsRejected() {
+        Assert.assertTrue(new TokenBucket(10, 5).tryAcquire(6, System.nanoTime()) > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRate() {
+        new TokenBucket(0, 5);
+    }
+}
@@ -0,0 +1,129 @@
+package example.cards.importer;
+
+import com.google.common.collect.Lists;
+import example.cards.dao.DeckDao;
+import example.cards.metrics.Metrics;
+import example.cards.model.DeckDto;
+import example.cards.model.ImportResultDto;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests for the bulk deck importer.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class DeckImporterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    DeckDao mockDao;
+
+    @Test
+    public void testImportFile() throws IOException {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            ndjson.append("{\"name\":\"deck").append(i).append("\",\"cards\":[\"AS\",\"KH\",\"").append(i)
+                    .append("\"]}\n");
+        }
+        File file = write(ndjson.toString());
+        DeckDao deckDao = new DeckDao();
+        Metrics metrics = new Metrics();
+        AtomicLong lastBytesDone = new AtomicLong();
+
+        // small chunks so that the file is split into many batches parsed in parallel
+        ImportResultDto result = new DeckImporter(deckDao, metrics, new ForkJoinPool(4), 1000)
+                .importFile(file, (bytesDone, totalBytes, decks) -> lastBytesDone.accumulateAndGet(bytesDone, Math::max));
+
+        Assert.assertEquals(500, result.getDecks());
+        Assert.assertEquals(0, result.getErrors());
+        Assert.assertEquals(file.length(), result.getBytes());
+        Assert.assertEquals("Progress should reach the end of the file.", file.length(), lastBytesDone.get());
+        Assert.assertEquals(500L, (long) metrics.snapshot().get("import.decks"));
+
+        Set<String> names = new HashSet<>();
+        for (DeckDto deck : deckDao.getDecks(0, 1000).getDecks()) {
+            names.add(deck.getName());
+            Assert.assertEquals(3, deck.getCards().size());
+        }
+        Assert.assertEquals("Every line should be imported exactly once.", 500, names.size());
+    }
+
+    @Test
+    public void testImportFileSkipsInvalidLines() throws IOException {
+        File file = write("{\"name\":\"deck1\",\"cards\":[\"AS\"]}\n\n  \nnot json\n{\"name\":\"deck2\",\"cards\":[\"KH\"]}");
+        DeckDao deckDao = new DeckDao();
+
+        ImportResultDto result = new DeckImporter(deckDao, new Metrics()).importFile(file, null);
+
+        Assert.assertEquals("Last line needs no trailing newline.", 2, result.getDecks());
+        Assert.assertEquals("Blank lines should not count as errors.", 1, result.getErrors());
+        Assert.assertEquals(2, deckDao.getDecks(0, 10).getTotal());
+    }
+
+    @Test
+    public void testImportFileSkipsNullDecks() throws IOException {
+        File file = write("{\"name\":\"deck1\",\"cards\":[\"AS\"]}\nnull\n{\"name\":\"deck2\",\"cards\":[\"KH\"]}\n");
+        DeckDao deckDao = new DeckDao();
+
+        ImportResultDto result = new DeckImporter(deckDao, new Metrics()).importFile(file, null);
+
+        Assert.assertEquals(2, result.getDecks());
+        Assert.assertEquals(1, result.getErrors());
+        Assert.assertEquals("The rest of the chunk should be imported.", 2, deckDao.getDecks(0, 10).getTotal());
+    }
+
+    @Test
+    public void testImportFileSkipsRejectedDecks() throws IOException {
+        File file = write("{\"name\":\"deck1\",\"cards\":[\"AS\"]}\n{\"name\":\"deck2\",\"cards\":[\"KH\"]}\n");
+        DeckDto rejected = DeckDto.create(0, "deck2", Lists.newArrayList("KH"));
+        Mockito.when(mockDao.createDecks(ArgumentMatchers.anyList())).thenThrow(new IllegalArgumentException());
+        Mockito.when(mockDao.createDeck(rejected)).thenThrow(new IllegalArgumentException());
+
+        ImportResultDto result = new DeckImporter(mockDao, new Metrics()).importFile(file, null);
+
+        Assert.assertEquals(1, result.getDecks());
+        Assert.assertEquals(1, result.getErrors());
+        Mockito.verify(mockDao).createDeck(DeckDto.create(0, "deck1", Lists.newArrayList("AS")));
+    }
+
+    @Test
+    public void testImportLineLongerThanChunk() throws IOException {
+        File file = write("{\"name\":\"deck1\",\"cards\":[\"AS\",\"KH\",\"QD\"]}\n{\"name\":\"deck2\",\"cards\":[]}\n");
+
+        ImportResultDto result = new DeckImporter(new DeckDao(), new Metrics(), ForkJoinPool.commonPool(), 4)
+                .importFile(file, null);
+
+        Assert.assertEquals(2, result.getDecks());
+        Assert.assertEquals(0, result.getErrors());
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void testImportMissingFile() {
+        new DeckImporter(new DeckDao(), new Metrics()).importFile(new File(folder.getRoot(), "missing"), null);
+    }
+
+    private File write(String content) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,50 @@
+package example.cards.lifecycle;
+
+import example.cards.shuffler.ShufflerRegistry;
+import example.cards.shuffler.Shufflers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for the warm up.
+ */
+public class WarmUpTest {
+
+    private final ShufflerRegistry shufflers = ShufflerRegistry.create(Shufflers.DEFAULT);
+
+    @After
+    public void after() {
+        shufflers.close();
+    }
+
+    @Test
+    public void testRunsAtLeastMinIterations() {
+        Assert.assertTrue(new WarmUp(shufflers, 2000, 60_000).run() >= 2000);
+    }
+
+    @Test
+    public void testStopsAtMaxMillis() {
+        long start = System.nanoTime();
+        Assert.assertTrue("Should run at least one round.", new WarmUp(shufflers, Integer.MAX_VALUE, 0).run() > 0);
+        Assert.assertTrue((System.nanoTime() - start) / 1_000_000 < 10_000);
+    }
+
+    @Test
+    public void testUnmetered() {
+        new WarmUp(shufflers, 1000, 60_000).run();
+        for (String algorithm : shufflers.names()) {
+            Assert.assertEquals(0, shufflers.get(algorithm).getShuffles());
+        }
+    }
+
+    @Test
+    public void testDisabled() {
+        Assert.assertEquals(0, new WarmUp(shufflers, 0, 60_000).run());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidIterations() {
+        new WarmUp(shufflers, -1, 60_000);
+    }
+}
@@ -0,0 +1,76 @@
+package example.cards.quality;
+
+import example.cards.model.ShuffleQualityDto;
+import example.cards.shuffler.DeckShuffler;
+import example.cards.shuffler.Shufflers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Verifies every registered shuffle algorithm against the quality analyzer, and that the analyzer catches the
+ * classic biased shuffle.
+ *
+ * The p-value threshold is deliberately tiny: a correct shuffle fails it about once in a million runs, while the
+ * biased shuffle below fails with a p-value indistinguishable from 0.
+ */
+public class ShuffleQualityAnalyzerTest {
+
+    private static final double P_VALUE_THRESHOLD = 1e-6;
+
+    @Test
+    public void testRegisteredAlgorithmsAreUnbiased() {
+        ShuffleQualityAnalyzer analyzer = new ShuffleQualityAnalyzer();
+        for (String algorithm : Shufflers.names()) {
+            ShuffleQualityDto quality = analyzer.analyze(algorithm, Shufflers.create(algorithm), 8, 200_000);
+            Assert.assertEquals(algorithm, quality.getAlgorithm());
+            Assert.assertEquals(200_000, quality.getIterations());
+            Assert.assertTrue(algorithm + " should pass chi-square, p=" + quality.getPValue(),
+                    quality.getPValue() > P_VALUE_THRESHOLD);
+            Assert.assertTrue(algorithm + " should have no large position bias.", quality.getMaxPositionBias() < 0.05);
+            Assert.assertEquals(quality.getExpectedRisingSequences(), quality.getMeanRisingSequences(), 0.05);
+            Assert.assertEquals(quality.getExpectedAdjacentPairs(), quality.getMeanAdjacentPairs(), 0.05);
+        }
+    }
+
+    /**
+     * Swapping every card with any card of the deck (rather than one not yet visited) produces n^n equally likely
+     * outcomes, which can't map evenly onto n! permutations.
+     */
+    @Test
+    public void testBiasedShuffleIsDetected() {
+        DeckShuffler naive = deck -> {
+            List<String> cards = deck.getCards();
+            for (int i = 0; i < cards.size(); i++) {
+                Collections.swap(cards, i, ThreadLocalRandom.current().nextInt(cards.size()));
+            }
+            return deck;
+        };
+        ShuffleQualityDto quality = new ShuffleQualityAnalyzer().analyze("naive", naive, 8, 200_000);
+        Assert.assertTrue("Naive shuffle should fail chi-square, p=" + quality.getPValue(),
+                quality.getPValue() < P_VALUE_THRESHOLD);
+    }
+
+    @Test
+    public void testUnshuffledDeck() {
+        ShuffleQualityDto quality = new ShuffleQualityAnalyzer().analyze("none", deck -> deck, 10, 1000);
+        Assert.assertEquals("Unshuffled deck is one rising sequence.", 1, quality.getMeanRisingSequences(), 0);
+        Assert.assertEquals("Every pair stays adjacent.", 9, quality.getMeanAdjacentPairs(), 0);
+        Assert.assertEquals(0, quality.getPValue(), 1e-9);
+    }
+
+    @Test
+    public void testNormalCdf() {
+        Assert.assertEquals(0.5, Statistics.normalCdf(0), 1e-7);
+        Assert.assertEquals(0.975, Statistics.normalCdf(1.959964), 1e-6);
+        Assert.assertEquals(0.025, Statistics.normalCdf(-1.959964), 1e-6);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidDeckSize() {
+        new ShuffleQualityAnalyzer().analyze("random", Shufflers.create("random"), 1, 1000);
+    }
+}
@@ -0,0 +1,169 @@
+package example.cards.replication;
+
+import com.google.common.collect.Lists;
+import example.cards.dao.DeckDao;
+import example.cards.model.DeckDto;
+import example.cards.shuffler.Shufflers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Tests replicating a dao to a standby dao over a loopback connection.
+ */
+public class ReplicationTest {
+
+    private DeckDao primaryDao;
+    private DeckDao standbyDao;
+    private ReplicationPrimary primary;
+    private ReplicationStandby standby;
+
+    @Before
+    public void before() throws IOException {
+        primaryDao = new DeckDao();
+        standbyDao = new DeckDao();
+        primary = new ReplicationPrimary(primaryDao, 0, 1024, 16).start();
+    }
+
+    @After
+    public void after() {
+        if (standby != null) {
+            standby.close();
+        }
+        primary.close();
+    }
+
+    @Test
+    public void testSnapshotThenChanges() {
+        List<DeckDto> decks = Lists.newArrayList();
+        for (int i = 0; i < 100; i++) {
+            decks.add(DeckDto.create(0, "deck" + i, Lists.newArrayList("card" + i, "other" + i)));
+        }
+        primaryDao.createDecks(decks);
+        startStandby();
+        awaitReplicated();
+        Assert.assertEquals(100, standbyDao.getDecks(0, 1).getTotal());
+        Assert.assertEquals(1, primary.getStandbys());
+
+        primaryDao.shuffleDeck(3, Shufflers.create(Shufflers.DEFAULT));
+        primaryDao.remove(7);
+        primaryDao.createDeck(DeckDto.create(0, "deck100", Lists.newArrayList("card100")));
+        primaryDao.merge(10, 11);
+        awaitReplicated();
+        Assert.assertEquals(primaryDao.getDecks(0, 200).getDecks(), standbyDao.getDecks(0, 200).getDecks());
+        Assert.assertNull(standbyDao.getDeck(7));
+        Assert.assertEquals(primaryDao.getDeck(3), standbyDao.getDeck(3));
+        Assert.assertTrue(primary.getBatches() < primary.getSent());
+    }
+
+    @Test
+    public void testSnapshotReplacesStandbyDecks() {
+        primaryDao.createDeck(DeckDto.create(0, "deck0", Lists.newArrayList("card0")));
+        standbyDao.createDeck(DeckDto.create(0, "stale", Lists.newArrayList("stale")));
+        standbyDao.createDeck(DeckDto.create(0, "stale", Lists.newArrayList("stale")));
+        startStandby();
+        awaitReplicated();
+        Assert.assertEquals(primaryDao.getDecks(0, 10).getDecks(), standbyDao.getDecks(0, 10).getDecks());
+
+        primary.close();
+        await(() -> !standby.isConnected());
+        primaryDao.createDeck(DeckDto.create(0, "deck1", Lists.newArrayList("card1")));
+        Assert.assertEquals("Standby should keep serving the decks it has.", 1,
+                standbyDao.getDecks(0, 10).getTotal());
+    }
+
+    @Test
+    public void testDecksCreatedWhileConnecting() throws IOException, InterruptedException {
+        // a queue large enough for every deck created, for the standby not to be disconnected
+        primary.close();
+        primary = new ReplicationPrimary(primaryDao, 0, ReplicationPrimary.DEFAULT_QUEUE_CAPACITY,
+                ReplicationPrimary.DEFAULT_MAX_BATCH_SIZE).start();
+        AtomicBoolean creating = new AtomicBoolean(true);
+        Thread creator = new Thread(() -> {
+            for (int i = 0; i < 50_000 && (creating.get() || i < 1000); i++) {
+                primaryDao.createDeck(DeckDto.create(0, "deck" + i, Lists.newArrayList("card" + i)));
+            }
+        });
+        creator.start();
+        await(() -> primaryDao.getDecks(0, 1).getTotal() > 100);
+        startStandby();
+        await(() -> primary.getSyncedStandbys() > 0);
+        creating.set(false);
+        creator.join();
+        awaitReplicated();
+        int total = primaryDao.getDecks(0, 1).getTotal();
+        Assert.assertEquals(total, standbyDao.getDecks(0, 1).getTotal());
+        Assert.assertEquals(primaryDao.getDecks(0, total).getDecks(), standbyDao.getDecks(0, total).getDecks());
+    }
+
+    @Test
+    public void testExpiry() {
+        primaryDao.createDeck(DeckDto.create(0, "deck0", Lists.newArrayList("card0")), 60_000, 0);
+        startStandby();
+        awaitReplicated();
+        primaryDao.createDeck(DeckDto.create(0, "deck1", Lists.newArrayList("card1")), 0, 60_000);
+        primaryDao.createDeck(DeckDto.create(0, "deck2", Lists.newArrayList("card2")));
+        awaitReplicated();
+        Assert.assertEquals(3, standbyDao.getDecks(0, 10).getTotal());
+
+        standbyDao.expireDecks(System.currentTimeMillis() + 120_000, 10);
+        Assert.assertEquals("Standby should expire the decks as the primary does.",
+                Lists.newArrayList(DeckDto.create(2, "deck2", Lists.newArrayList("card2"), 0)),
+                standbyDao.getDecks(0, 10).getDecks());
+    }
+
+    @Test
+    public void testPromote() {
+        primaryDao.createDeck(DeckDto.create(0, "deck0", Lists.newArrayList("card0")));
+        startStandby();
+        awaitReplicated();
+        Assert.assertTrue(standby.isReadOnly());
+
+        Assert.assertTrue(standby.promote());
+        Assert.assertFalse(standby.isReadOnly());
+        Assert.assertFalse(standby.promote());
+        await(() -> primary.getStandbys() == 0);
+        primaryDao.createDeck(DeckDto.create(0, "deck1", Lists.newArrayList("card1")));
+        Assert.assertEquals("Promoted standby should assign ids after the replicated decks.", 1,
+                standbyDao.createDeck(DeckDto.create(0, "mine", Lists.newArrayList("mine"))).getId());
+        Assert.assertEquals("mine", standbyDao.getDeck(1).getName());
+    }
+
+    @Test
+    public void testDisabled() throws IOException {
+        ReplicationPrimary disabled = new ReplicationPrimary(primaryDao, -1, 1024, 16).start();
+        Assert.assertFalse(disabled.isEnabled());
+        Assert.assertEquals(-1, disabled.getLocalPort());
+        ReplicationStandby notStandby = new ReplicationStandby(standbyDao, null, 1000).start();
+        Assert.assertFalse(notStandby.isEnabled());
+        Assert.assertFalse(notStandby.isReadOnly());
+        Assert.assertFalse(notStandby.promote());
+    }
+
+    private void startStandby() {
+        standby = new ReplicationStandby(standbyDao, "localhost:" + primary.getLocalPort(), 100).start();
+    }
+
+    private void awaitReplicated() {
+        await(() -> primary.getSyncedStandbys() > 0 && primary.getLag() == 0
+                && standby.getApplied() == primary.getSent());
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("Timed out.", System.currentTimeMillis() < deadline);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package example.cards.resource;
+
+import example.cards.dao.DeckDao;
+import example.cards.importer.DeckImporter;
+import example.cards.lifecycle.Readiness;
+import example.cards.metrics.Metrics;
+import example.cards.model.CompactionDto;
+import example.cards.model.ShuffleQualityDto;
+import example.cards.quality.ShuffleQualityAnalyzer;
+import example.cards.replication.ReplicationStandby;
+import example.cards.shuffler.DeckShuffler;
+import example.cards.shuffler.ShufflerRegistry;
+import example.cards.shuffler.Shufflers;
+import example.cards.trace.SlowRequests;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test for the admin resource impl class.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class AdminResourceImplTest {
+
+    @Mock
+    ShuffleQualityAnalyzer shuffleQualityAnalyzer;
+
+    @Mock
+    Metrics metrics;
+
+    @Mock
+    DeckImporter deckImporter;
+
+    @Mock
+    ReplicationStandby standby;
+
+    @Mock
+    DeckDao deckDao;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ShufflerRegistry shufflers = ShufflerRegistry.create(Shufflers.DEFAULT);
+
+    @Test
+    public void testShuffleQualityAllAlgorithms() {
+        AdminResourceImpl adminResource = adminResource("");
+        List<ShuffleQualityDto> reports = adminResource.getShuffleQuality(null, 52, 1000);
+        Assert.assertEquals(Shufflers.names().size(), reports.size());
+        for (String algorithm : Shufflers.names()) {
+            Mockito.verify(shuffleQualityAnalyzer, Mockito.times(1))
+                    .analyze(ArgumentMatchers.eq(algorithm), ArgumentMatchers.any(DeckShuffler.class),
+                            ArgumentMatchers.eq(52), ArgumentMatchers.eq(1000));
+        }
+    }
+
+    @Test
+    public void testReadiness() {
+        Readiness readiness = new Readiness();
+        AdminResourceImpl adminResource = new AdminResourceImpl(shuffleQualityAnalyzer, metrics, deckImporter, "",
+                new SlowRequests(SlowRequests.DEFAULT_CAPACITY), readiness, standby, deckDao, shufflers);
+        assertReadiness(adminResource, Response.Status.SERVICE_UNAVAILABLE, Readiness.State.STARTING);
+        readiness.ready();
+        assertReadiness(adminResource, Response.Status.OK, Readiness.State.READY);
+        readiness.drain();
+        readiness.ready();
+        assertReadiness(adminResource, Response.Status.SERVICE_UNAVAILABLE, Readiness.State.DRAINING);
+    }
+
+    @Test
+    public void testPromote() {
+        Mockito.when(standby.promote()).thenReturn(true, false);
+        AdminResourceImpl adminResource = adminResource("");
+        Assert.assertEquals(Response.Status.NO_CONTENT.getStatusCode(), adminResource.promote().getStatus());
+        try {
+            adminResource.promote();
+            Assert.fail("Exception should have been thrown.");
+        } catch (WebApplicationException wae) {
+            Assert.assertEquals(Response.Status.CONFLICT.getStatusCode(), wae.getResponse().getStatus());
+            Assert.assertEquals(AdminResourceImpl.NOT_STANDBY, wae.getMessage());
+        }
+    }
+
+    @Test
+    public void testGetFootprintInvalidSample() {
+        AdminResourceImpl adminResource = adminResource("");
+        for (int sample : new int[] {0, AdminResourceImpl.MAX_SAMPLE_SIZE + 1}) {
+            try {
+                adminResource.getFootprint(sample);
+                Assert.fail("Exception should have been thrown.");
+            } catch (WebApplicationException wae) {
+                Assert.assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), wae.getResponse().getStatus());
+                Assert.assertEquals(AdminResourceImpl.SAMPLE_SIZE_ERROR, wae.getMessage());
+            }
+        }
+        Mockito.verifyNoMoreInteractions(deckDao);
+    }
+
+    @Test
+    public void testCompact() {
+        CompactionDto started = CompactionDto.create(0, 0, 0, 0, 0, 0, 0, true);
+        Mockito.when(deckDao.startCompaction(AdminResourceImpl.COMPACTION_BATCH_SIZE)).thenReturn(started);
+        Response response = adminResource("").compact();
+        Assert.assertEquals(Response.Status.ACCEPTED.getStatusCode(), response.getStatus());
+        Assert.assertSame(started, response.getEntity());
+    }
+
+    @Test
+    public void testCompactRunning() {
+        Mockito.when(deckDao.startCompaction(AdminResourceImpl.COMPACTION_BATCH_SIZE))
+                .thenThrow(new IllegalStateException("A compaction is already running"));
+        try {
+            adminResource("").compact();
+            Assert.fail("Exception should have been thrown.");
+        } catch (WebApplicationException wae) {
+            Assert.assertEquals(Response.Status.CONFLICT.getStatusCode(), wae.getResponse().getStatus());
+            Assert.assertEquals(AdminResourceImpl.COMPACTION_RUNNING, wae.getMessage());
+        }
+    }
+
+    private void assertReadiness(AdminResourceImpl adminResource, Response.Status status, Readiness.State state) {
+        Response response = adminResource.getReadiness();
+        Assert.assertEquals(status.getStatusCode(), response.getStatus());
+        Assert.assertEquals(state.name(), ((Map<?, ?>) response.getEntity()).get("state"));
+    }
+
+    @Test
+    public void testShuffleQualitySingleAlgorithm() {
+        AdminResourceImpl adminResource = adminResource("");
+        Assert.assertEquals(1, adminResource.getShuffleQuality(Shufflers.MERGE, 52, 1000).size());
+        Mockito.verify(shuffleQualityAnalyzer).analyze(ArgumentMatchers.eq(Shufflers.MERGE),
+                ArgumentMatchers.same(shufflers.get(Shufflers.MERGE).getShuffler()), ArgumentMatchers.eq(52),
+                ArgumentMatchers.eq(1000));
+        Assert.assertEquals("Analyses shouldn't count as live traffic.", 0,
+                shufflers.get(Shufflers.MERGE).getShuffles());
+    }
+
+    @Test
+    public void testShuffleQualityUnknownAlgorithm() {
+        assertBadRequest("bogo", 52, 1000, AdminResourceImpl.UNKNOWN_ALGORITHM);
+    }
+
+    @Test
+    public void testShuffleQualityInvalidDeckSize() {
+        assertBadRequest(null, 1, 1000, AdminResourceImpl.DECK_SIZE_ERROR);
+        assertBadRequest(null, 1001, 1000, AdminResourceImpl.DECK_SIZE_ERROR);
+    }
+
+    @Test
+    public void testShuffleQualityInvalidIterations() {
+        assertBadRequest(null, 52, 0, AdminResourceImpl.ITERATIONS_ERROR);
+        assertBadRequest(null, 52, 10_000_001, AdminResourceImpl.ITERATIONS_ERROR);
+    }
+
+    @Test
+    public void testShuffleQualityTooLarge() {
+        assertBadRequest(Shufflers.MERGE, 1000, 1_000_000, AdminResourceImpl.ANALYSIS_SIZE_ERROR);
+        assertBadRequest(null, 52, 2_000_000, AdminResourceImpl.ANALYSIS_SIZE_ERROR);
+    }
+
+    @Test
+    public void testImportDecks() throws IOException {
+        File file = folder.newFile("decks.ndjson");
+        adminResource(folder.getRoot().getPath()).importDecks("decks.ndjson");
+        Mockito.verify(deckImporter).importFile(file.getCanonicalFile(), null);
+    }
+
+    @Test
+    public void testImportDecksDisabled() throws IOException {
+        folder.newFile("decks.ndjson");
+        assertImportRejected("", "decks.ndjson", Response.Status.FORBIDDEN, AdminResourceImpl.IMPORT_DISABLED);
+    }
+
+    @Test
+    public void testImportDecksOutsideDirectory() throws IOException {
+        folder.newFile("decks.ndjson");
+        File directory = folder.newFolder("imports");
+        assertImportRejected(directory.getPath(), "../decks.ndjson", Response.Status.BAD_REQUEST,
+                AdminResourceImpl.IMPORT_FILE_ERROR);
+        assertImportRejected(directory.getPath(), "missing.ndjson", Response.Status.BAD_REQUEST,
+                AdminResourceImpl.IMPORT_FILE_ERROR);
+        assertImportRejected(directory.getPath(), null, Response.Status.BAD_REQUEST,
+                AdminResourceImpl.IMPORT_FILE_ERROR);
+    }
+
+    private void assertImportRejected(String directory, String file, Response.Status status, String message) {
+        try {
+            adminResource(directory).importDecks(file);
+            Assert.fail("Exception should have been thrown.");
+        } catch (WebApplicationException wae) {
+            Assert.assertEquals(status.getStatusCode(), wae.getResponse().getStatus());
+            Assert.assertEquals(message, wae.getMessage());
+        }
+        Mockito.verifyNoMoreInteractions(deckImporter);
+    }
+
+    private AdminResourceImpl adminResource(String importDirectory) {
+        return new AdminResourceImpl(shuffleQualityAnalyzer, metrics, deckImporter, importDirectory,
+                new SlowRequests(SlowRequests.DEFAULT_CAPACITY), new Readiness(), standby, deckDao, shufflers);
+    }
+
+    private void assertBadRequest(String algorithm, int deckSize, int iterations, String message) {
+        try {
+            adminResource("").getShuffleQuality(algorithm, deckSize, iterations);
+            Assert.fail("Exception should have been thrown.");
+        } catch (WebApplicationException wae) {
+            Assert.assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), wae.getResponse().getStatus());
+            Assert.assertEquals(message, wae.getMessage());
+        }
+        Mockito.verifyNoMoreInteractions(shuffleQualityAnalyzer);
+    }
+}
@@ -1,12 +1,18 @@
 package example.cards.resource;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import example.cards.dao.DeckDao;
+import example.cards.dao.SnapshotExpiredException;
+import example.cards.dao.VersionConflictException;
 import example.cards.entity.DeckEntity;
 import example.cards.model.DeckDto;
 import example.cards.model.DeckListDto;
+import example.cards.model.DeckPageDto;
 import example.cards.shuffler.DeckShuffler;
+import example.cards.shuffler.ShufflerRegistry;
 import org.junit.Assert;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
@@ -15,6 +21,7 @@ import org.mockito.junit.MockitoJUnitRunner;
 
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
+import java.util.List;
 
 /**
  * Test for the resource impl class.  Some repeat tests exist here and the ApplicationTest.
@@ -28,21 +35,44 @@ public class DeckResourceImplTest {
     @Mock
     DeckShuffler deckShuffler;
 
+    @Mock
+    DeckShuffler otherShuffler;
+
+    ShufflerRegistry shufflers;
+
+    @Before
+    public void setUp() {
+        shufflers = new ShufflerRegistry(ImmutableMap.of("default", deckShuffler, "other", otherShuffler), "default");
+    }
+
     @Test
     public void testGetDecks() {
-        DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, deckShuffler);
+        DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, shufflers);
         DeckDto deck = DeckDto.create(0, "deck1", Lists.newArrayList("card1", "card2"));
-        Mockito.when(deckDao.getDecks(0, 1))
-                .thenReturn(DeckListDto.create(1, 0, 1, false, Lists.newArrayList(deck)));
-        deckResource.getDecks(0, 1);
-        Mockito.verify(deckDao, Mockito.times(1)).getDecks(0, 1);
+        Mockito.when(deckDao.getDecks(0, 1, null))
+                .thenReturn(DeckListDto.create(1, 0, 1, false, "token", Lists.newArrayList(deck)));
+        deckResource.getDecks(0, 1, null);
+        Mockito.verify(deckDao, Mockito.times(1)).getDecks(0, 1, null);
+    }
+
+    @Test
+    public void testGetDecksSnapshotExpired() {
+        DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, shufflers);
+        Mockito.when(deckDao.getDecks(20, 20, "token")).thenThrow(new SnapshotExpiredException("token"));
+        try {
+            deckResource.getDecks(20, 20, "token");
+            Assert.fail("Exception should have been thrown.");
+        } catch (WebApplicationException wae) {
+            Assert.assertEquals(Response.Status.GONE.getStatusCode(), wae.getResponse().getStatus());
+            Assert.assertEquals(DeckResourceImpl.SNAPSHOT_EXPIRED, wae.getMessage());
+        }
     }
 
     @Test
     public void testGetDecksInvalidStart() {
         try {
-            DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, deckShuffler);
-            deckResource.getDecks(-1, 20);
+            DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, shufflers);
+            deckResource.getDecks(-1, 20, null);
             Assert.fail("Exception should have been thrown.");
         } catch (WebApplicationException wae) {
             Assert.assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), wae.getResponse().getStatus());
@@ -54,8 +84,8 @@ public class DeckResourceImplTest {
     @Test
     public void testGetDecksInvalidLimit() {
         try {
-            DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, deckShuffler);
-            deckResource.getDecks(0, -1);
+            DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, shufflers);
+            deckResource.getDecks(0, -1, null);
             Assert.fail("Exception should have been thrown.");
         } catch (WebApplicationException wae) {
             Assert.assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), wae.getResponse().getStatus());
@@ -67,8 +97,8 @@ public class DeckResourceImplTest {
     @Test
     public void testGetDecksZeroLimit() {
         try {
-            DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, deckShuffler);
-            deckResource.getDecks(0, 0);
+            DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, shufflers);
+            deckResource.getDecks(0, 0, null);
             Assert.fail("Exception should have been thrown.");
         } catch (WebApplicationException wae) {
             Assert.assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), wae.getResponse().getStatus());
@@ -80,8 +110,8 @@ public class DeckResourceImplTest {
     @Test
     public void testGetDecksGreaterThan100() {
         try {
-            DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, deckShuffler);
-            deckResource.getDecks(0, 101);
+            DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, shufflers);
+            deckResource.getDecks(0, 101, null);
             Assert.fail("Exception should have been thrown.");
         } catch (WebApplicationException wae) {
             Assert.assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), wae.getResponse().getStatus());
@@ -90,20 +120,141 @@ public class DeckResourceImplTest {
         Mockito.verifyNoMoreInteractions(deckDao);
     }
 
+    @Test
+    public void testSearchDecks() {
+        DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, shufflers);
+        DeckPageDto page = DeckPageDto.create(10, false, "", Lists.newArrayList());
+        Mockito.when(deckDao.searchDecks("deck", "card1", 1, 52, null, 10)).thenReturn(page);
+        Assert.assertEquals(page, deckResource.searchDecks("deck", "card1", 1, 52, null, 10));
+    }
+
+    @Test
+    public void testSearchDecksInvalidSize() {
+        try {
+            new DeckResourceImpl(deckDao, shufflers).searchDecks(null, null, -1, null, null, 10);
+            Assert.fail("Exception should have been thrown.");
+        } catch (WebApplicationException wae) {
+            Assert.assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), wae.getResponse().getStatus());
+            Assert.assertEquals(DeckResourceImpl.SIZE_PARAM_ERROR, wae.getMessage());
+        }
+    }
+
+    @Test
+    public void testSearchDecksInvalidCursor() {
+        Mockito.when(deckDao.searchDecks(null, null, null, null, "abc", 10))
+                .thenThrow(new IllegalArgumentException());
+        try {
+            new DeckResourceImpl(deckDao, shufflers).searchDecks(null, null, null, null, "abc", 10);
+            Assert.fail("Exception should have been thrown.");
+        } catch (WebApplicationException wae) {
+            Assert.assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), wae.getResponse().getStatus());
+            Assert.assertEquals(DeckResourceImpl.CURSOR_ERROR, wae.getMessage());
+        }
+    }
+
+    @Test
+    public void testSearchDecksGreaterThan100() {
+        try {
+            new DeckResourceImpl(deckDao, shufflers).searchDecks(null, null, null, null, null, 101);
+            Assert.fail("Exception should have been thrown.");
+        } catch (WebApplicationException wae) {
+            Assert.assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), wae.getResponse().getStatus());
+            Assert.assertEquals(DeckResourceImpl.LIMIT_MAY_NOT_EXCEED_100, wae.getMessage());
+        }
+    }
+
     @Test
     public void testCreateDeck() {
-        DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, deckShuffler);
+        DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, shufflers);
         DeckDto deck = DeckDto.create(0, "deck1", Lists.newArrayList());
-        Mockito.when(deckDao.createDeck(deck)).thenReturn(new DeckEntity()
+        Mockito.when(deckDao.createDeck(deck, 0, 0)).thenReturn(new DeckEntity()
             .setId(0).setName("deck1").setCards(Lists.newArrayList()));
-        Response response = deckResource.createDeck(deck);
+        Response response = deckResource.createDeck(deck, 1, null, null);
         Assert.assertEquals(Response.Status.CREATED.getStatusCode(), response.getStatus());
         Assert.assertEquals("/decks/0", response.getHeaderString("Location")); // host info not included
     }
 
+    @Test
+    public void testCreateShoe() {
+        DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, shufflers);
+        DeckDto deck = DeckDto.create(0, "deck1", Lists.newArrayList("card1", "card2"));
+        DeckDto shoe = DeckDto.create(0, "deck1", Lists.newArrayList("card1", "card2", "card1", "card2", "card1", "card2"));
+        Mockito.when(deckDao.createDeck(shoe, 0, 0)).thenReturn(new DeckEntity()
+            .setId(0).setName("deck1").setCards(shoe.getCards()));
+        Response response = deckResource.createDeck(deck, 3, null, null);
+        Assert.assertEquals(Response.Status.CREATED.getStatusCode(), response.getStatus());
+        Mockito.verify(deckDao, Mockito.times(1)).createDeck(shoe, 0, 0);
+    }
+
+    @Test
+    public void testCreateNullDeck() {
+        DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, shufflers);
+        DeckDto deck = DeckDto.create(0, "deck1", Lists.newArrayList("card1"));
+        try {
+            deckResource.createDeck(null, 1, null, null);
+            Assert.fail("Exception should have been thrown.");
+        } catch (WebApplicationException wae) {
+            Assert.assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), wae.getResponse().getStatus());
+            Assert.assertEquals(DeckResourceImpl.DECK_REQUIRED, wae.getMessage());
+        }
+        try {
+            deckResource.createDecks(Lists.newArrayList(deck, null, deck), null, null);
+            Assert.fail("Exception should have been thrown.");
+        } catch (WebApplicationException wae) {
+            Assert.assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), wae.getResponse().getStatus());
+            Assert.assertEquals(DeckResourceImpl.DECK_REQUIRED, wae.getMessage());
+        }
+        Mockito.verifyNoMoreInteractions(deckDao);
+    }
+
+    @Test
+    public void testCreateDeckWithExpiry() {
+        DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, shufflers);
+        DeckDto deck = DeckDto.create(0, "deck1", Lists.newArrayList("card1"));
+        Mockito.when(deckDao.createDeck(deck, 60_000, 30_000)).thenReturn(new DeckEntity()
+            .setId(0).setName("deck1").setCards(deck.getCards()));
+        Response response = deckResource.createDeck(deck, 1, 60L, 30L);
+        Assert.assertEquals(Response.Status.CREATED.getStatusCode(), response.getStatus());
+    }
+
+    @Test
+    public void testCreateDeckInvalidExpiry() {
+        DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, shufflers);
+        DeckDto deck = DeckDto.create(0, "deck1", Lists.newArrayList("card1"));
+        for (Long seconds : new Long[]{0L, -1L, Long.MAX_VALUE}) {
+            try {
+                deckResource.createDeck(deck, 1, seconds, null);
+                Assert.fail("Exception should have been thrown.");
+            } catch (WebApplicationException wae) {
+                Assert.assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), wae.getResponse().getStatus());
+                Assert.assertEquals(DeckResourceImpl.EXPIRY_ERROR, wae.getMessage());
+            }
+            try {
+                deckResource.createDecks(Lists.newArrayList(deck), null, seconds);
+                Assert.fail("Exception should have been thrown.");
+            } catch (WebApplicationException wae) {
+                Assert.assertEquals(DeckResourceImpl.EXPIRY_ERROR, wae.getMessage());
+            }
+        }
+        Mockito.verifyNoMoreInteractions(deckDao);
+    }
+
+    @Test
+    public void testCreateShoeInvalidSize() {
+        try {
+            DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, shufflers);
+            deckResource.createDeck(DeckDto.create(0, "deck1", Lists.newArrayList()), 9, null, null);
+            Assert.fail("Exception should have been thrown.");
+        } catch (WebApplicationException wae) {
+            Assert.assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), wae.getResponse().getStatus());
+            Assert.assertEquals(DeckResourceImpl.SHOE_SIZE_ERROR, wae.getMessage());
+        }
+        Mockito.verifyNoMoreInteractions(deckDao);
+    }
+
     @Test
     public void testGetDeck() {
-        DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, deckShuffler);
+        DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, shufflers);
         DeckDto mockDeck = DeckDto.create(0, "deck1", Lists.newArrayList());
         Mockito.when(deckDao.getDeck(0)).thenReturn(mockDeck);
         DeckDto deck = deckResource.getDeck(0);
@@ -113,7 +264,7 @@ public class DeckResourceImplTest {
     @Test
     public void testGetDeckInvalidId() {
         try {
-            DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, deckShuffler);
+            DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, shufflers);
             deckResource.getDeck(0);
             Assert.fail("Exception should have been thrown.");
         } catch (WebApplicationException wae) {
@@ -124,18 +275,18 @@ public class DeckResourceImplTest {
 
     @Test
     public void testShuffleDeck() {
-        DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, deckShuffler);
+        DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, shufflers);
         DeckDto mockDeck = DeckDto.create(0, "deck1", Lists.newArrayList());
-        Mockito.when(deckDao.shuffleDeck(0, deckShuffler)).thenReturn(mockDeck);
-        DeckDto deck = deckResource.shuffleDeck(0);
+        Mockito.when(deckDao.shuffleDeck(0, shufflers.get("default"), null)).thenReturn(mockDeck);
+        DeckDto deck = deckResource.shuffleDeck(0, null, null);
         Assert.assertEquals(mockDeck, deck);
     }
 
     @Test
     public void testShuffleDeckInvalidId() {
         try {
-            DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, deckShuffler);
-            deckResource.shuffleDeck(0);
+            DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, shufflers);
+            deckResource.shuffleDeck(0, null, null);
             Assert.fail("Exception should have been thrown.");
         } catch (WebApplicationException wae) {
             Assert.assertEquals(Response.Status.NOT_FOUND.getStatusCode(), wae.getResponse().getStatus());
@@ -143,22 +294,94 @@ public class DeckResourceImplTest {
         }
     }
 
+    @Test
+    public void testShuffleDeckAlgorithm() {
+        DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, shufflers);
+        DeckDto mockDeck = DeckDto.create(0, "deck1", Lists.newArrayList("card1"));
+        Mockito.when(deckDao.shuffleDeck(0, shufflers.get("other"), null)).thenReturn(mockDeck);
+        Assert.assertEquals(mockDeck, deckResource.shuffleDeck(0, null, "other"));
+        Mockito.when(deckDao.shuffleDecks(Lists.newArrayList(1, 2), shufflers.get("other")))
+                .thenReturn(Lists.newArrayList(mockDeck, null));
+        Assert.assertEquals(Lists.newArrayList(mockDeck, null),
+                deckResource.shuffleDecks(Lists.newArrayList(1, 2), "other"));
+    }
+
+    @Test
+    public void testShuffleDeckUnknownAlgorithm() {
+        DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, shufflers);
+        try {
+            deckResource.shuffleDeck(0, null, "bogo");
+            Assert.fail("Exception should have been thrown.");
+        } catch (WebApplicationException wae) {
+            Assert.assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), wae.getResponse().getStatus());
+            Assert.assertEquals(DeckResourceImpl.UNKNOWN_ALGORITHM, wae.getMessage());
+        }
+        try {
+            deckResource.shuffleDecks(Lists.newArrayList(0), "bogo");
+            Assert.fail("Exception should have been thrown.");
+        } catch (WebApplicationException wae) {
+            Assert.assertEquals(DeckResourceImpl.UNKNOWN_ALGORITHM, wae.getMessage());
+        }
+        Mockito.verifyNoMoreInteractions(deckDao);
+    }
+
+    @Test
+    public void testShuffleDeckIfMatch() {
+        DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, shufflers);
+        DeckDto mockDeck = DeckDto.create(0, "deck1", Lists.newArrayList(), 4);
+        Mockito.when(deckDao.shuffleDeck(0, shufflers.get("default"), 3L)).thenReturn(mockDeck);
+        Assert.assertEquals(mockDeck, deckResource.shuffleDeck(0, "\"3\"", null));
+    }
+
+    @Test
+    public void testShuffleDeckVersionConflict() {
+        Mockito.when(deckDao.shuffleDeck(0, shufflers.get("default"), 3L)).thenThrow(new VersionConflictException(0, 3, 4));
+        assertPreconditionFailed(() -> new DeckResourceImpl(deckDao, shufflers).shuffleDeck(0, "3", null));
+    }
+
+    @Test
+    public void testRemoveDeckVersionConflict() {
+        Mockito.when(deckDao.remove(0, 3L)).thenThrow(new VersionConflictException(0, 3, 4));
+        assertPreconditionFailed(() -> new DeckResourceImpl(deckDao, shufflers).deleteDeck(0, "W/\"3\""));
+    }
+
+    @Test
+    public void testParseVersion() {
+        Assert.assertNull(DeckResourceImpl.parseVersion(null));
+        Assert.assertNull(DeckResourceImpl.parseVersion("*"));
+        Assert.assertEquals(Long.valueOf(7), DeckResourceImpl.parseVersion("7"));
+        Assert.assertEquals(Long.valueOf(7), DeckResourceImpl.parseVersion("\"7\""));
+        Assert.assertEquals(Long.valueOf(7), DeckResourceImpl.parseVersion("W/\"7\""));
+        assertPreconditionFailed(() -> DeckResourceImpl.parseVersion("\"abc\""));
+    }
+
+    private static void assertPreconditionFailed(Runnable call) {
+        try {
+            call.run();
+            Assert.fail("Exception should have been thrown.");
+        } catch (WebApplicationException wae) {
+            Assert.assertEquals(Response.Status.PRECONDITION_FAILED.getStatusCode(),
+                    wae.getResponse().getStatus());
+            Assert.assertEquals(DeckResourceImpl.VERSION_CONFLICT, wae.getMessage());
+        }
+    }
+
     @Test
     public void testRemoveDeck() {
-        DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, deckShuffler);
-        Mockito.when(deckDao.remove(0)).thenReturn(new DeckEntity()
+        DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, shufflers);
+        Mockito.when(deckDao.remove(0, null)).thenReturn(new DeckEntity()
             .setId(0)
             .setName("name")
             .setCards(Lists.newArrayList()));
-        Response response = deckResource.deleteDeck(0);
+        Response response = deckResource.deleteDeck(0, null);
         Assert.assertEquals(Response.Status.NO_CONTENT.getStatusCode(), response.getStatus());
     }
 
     @Test
     public void testRemoveDeckInvalidId() {
         try {
-            DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, deckShuffler);
-            deckResource.deleteDeck(0);
+            DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, shufflers);
+            deckResource.deleteDeck(0, null);
             Assert.fail("Exception should have been thrown.");
         } catch (WebApplicationException wae) {
             Assert.assertEquals(Response.Status.NOT_FOUND.getStatusCode(), wae.getResponse().getStatus());
@@ -166,4 +389,73 @@ public class DeckResourceImplTest {
         }
     }
 
+
+    @Test
+    public void testMergeDeck() {
+        DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, shufflers);
+        DeckDto merged = DeckDto.create(0, "deck1", Lists.newArrayList("card1", "card2"));
+        Mockito.when(deckDao.merge(0, 1)).thenReturn(merged);
+        Assert.assertEquals(merged, deckResource.mergeDeck(0, 1));
+    }
+
+    @Test
+    public void testMergeDeckNotFound() {
+        try {
+            new DeckResourceImpl(deckDao, shufflers).mergeDeck(0, 1);
+            Assert.fail("Exception should have been thrown.");
+        } catch (WebApplicationException wae) {
+            Assert.assertEquals(Response.Status.NOT_FOUND.getStatusCode(), wae.getResponse().getStatus());
+        }
+    }
+
+    @Test
+    public void testMergeDeckInvalidSource() {
+        assertBadRequest(() -> new DeckResourceImpl(deckDao, shufflers).mergeDeck(0, null),
+                DeckResourceImpl.DECK_ID_REQUIRED);
+        assertBadRequest(() -> new DeckResourceImpl(deckDao, shufflers).mergeDeck(0, 0),
+                DeckResourceImpl.SAME_DECK_ERROR);
+        Mockito.verifyNoMoreInteractions(deckDao);
+    }
+
+    @Test
+    public void testSplitDeck() {
+        DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, shufflers);
+        Mockito.when(deckDao.split(0, 1, "half")).thenReturn(new DeckEntity().setId(3));
+        Response response = deckResource.splitDeck(0, 1, "half");
+        Assert.assertEquals(Response.Status.CREATED.getStatusCode(), response.getStatus());
+        Assert.assertEquals("/decks/3", response.getLocation().toString());
+    }
+
+    @Test
+    public void testSplitDeckInvalidPosition() {
+        Mockito.when(deckDao.split(0, 0, null)).thenThrow(new IllegalArgumentException());
+        assertBadRequest(() -> new DeckResourceImpl(deckDao, shufflers).splitDeck(0, 0, null),
+                DeckResourceImpl.SPLIT_POSITION_ERROR);
+    }
+
+    @Test
+    public void testTransferCards() {
+        DeckResourceImpl deckResource = new DeckResourceImpl(deckDao, shufflers);
+        List<DeckDto> decks = Lists.newArrayList(DeckDto.create(0, "deck1", Lists.newArrayList()),
+                DeckDto.create(1, "deck2", Lists.newArrayList("card1")));
+        Mockito.when(deckDao.transfer(0, 1, 1)).thenReturn(decks);
+        Assert.assertEquals(decks, deckResource.transferCards(0, 1, 1));
+    }
+
+    @Test
+    public void testTransferCardsInvalidCount() {
+        Mockito.when(deckDao.transfer(0, 1, 0)).thenThrow(new IllegalArgumentException());
+        assertBadRequest(() -> new DeckResourceImpl(deckDao, shufflers).transferCards(0, 1, 0),
+                DeckResourceImpl.TRANSFER_COUNT_ERROR);
+    }
+
+    private static void assertBadRequest(Runnable call, String message) {
+        try {
+            call.run();
+            Assert.fail("Exception should have been thrown.");
+        } catch (WebApplicationException wae) {
+            Assert.assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), wae.getResponse().getStatus());
+            Assert.assertEquals(message, wae.getMessage());
+        }
+    }
 }
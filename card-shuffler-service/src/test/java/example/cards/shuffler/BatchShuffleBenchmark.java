@@ -0,0 +1,83 @@
+package example.cards.shuffler;
+
+import com.google.common.collect.Lists;
+import example.cards.entity.DeckEntity;
+import example.cards.model.CardArray;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Rough benchmark of bulk shuffles of small decks, run by hand rather than as part of the test suite:
+ * <pre>
+ * java -cp ... example.cards.shuffler.BatchShuffleBenchmark [decks] [deckSize] [rounds]
+ * </pre>
+ * Prints the average time to shuffle the given number of decks one at a time through
+ * {@link DeckShuffler#shuffleDeck(DeckEntity)}, then in a single batch through
+ * {@link DeckShuffler#shuffleDecks(int[], int)}, both the batch alone and with the cards gathered into shuffled
+ * decks as the dao does, along with the speed up over the per deck path.
+ */
+public class BatchShuffleBenchmark {
+
+    public static void main(String[] args) {
+        int decks = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int deckSize = args.length > 1 ? Integer.parseInt(args[1]) : 52;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        String[] cards = new String[deckSize];
+        for (int i = 0; i < deckSize; i++) {
+            cards[i] = "card" + i;
+        }
+        CardArray deck = CardArray.wrap(cards);
+        RandomShuffler shuffler = new RandomShuffler();
+        List<List<String>> results = Lists.newArrayList(Collections.nCopies(decks, (List<String>) null));
+
+        double perDeck = time(rounds, () -> {
+            for (int d = 0; d < decks; d++) {
+                results.set(d, shuffler.shuffleDeck(new DeckEntity().setCards(deck)).getCards());
+            }
+        });
+        System.out.printf("per deck            %8.3f ms%n", perDeck);
+
+        int[] batch = new int[decks * deckSize];
+        double kernel = time(rounds, () -> {
+            fill(batch, deckSize);
+            shuffler.shuffleDecks(batch, deckSize);
+        });
+        System.out.printf("batch               %8.3f ms  speed up %5.2f%n", kernel, perDeck / kernel);
+
+        double gathered = time(rounds, () -> {
+            fill(batch, deckSize);
+            shuffler.shuffleDecks(batch, deckSize);
+            for (int d = 0, base = 0; d < decks; d++, base += deckSize) {
+                String[] shuffled = new String[deckSize];
+                for (int k = 0; k < deckSize; k++) {
+                    shuffled[k] = deck.get(batch[base + k]);
+                }
+                results.set(d, CardArray.wrap(shuffled));
+            }
+        });
+        System.out.printf("batch and gather    %8.3f ms  speed up %5.2f%n", gathered, perDeck / gathered);
+    }
+
+    private static void fill(int[] batch, int deckSize) {
+        for (int base = 0; base < batch.length; base += deckSize) {
+            for (int k = 0; k < deckSize; k++) {
+                batch[base + k] = k;
+            }
+        }
+    }
+
+    /**
+     * Runs the task for a few warm up rounds, then returns the average time in milliseconds of the measured rounds.
+     */
+    private static double time(int rounds, Runnable task) {
+        for (int i = 0; i < Math.max(3, rounds / 4); i++) {
+            task.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            task.run();
+        }
+        return (System.nanoTime() - start) / 1e6 / rounds;
+    }
+}
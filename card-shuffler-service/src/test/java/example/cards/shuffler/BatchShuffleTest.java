@@ -0,0 +1,96 @@
+package example.cards.shuffler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Tests for the batch shuffle of decks laid out in a single array.
+ */
+public class BatchShuffleTest {
+
+    @Test
+    public void testShufflesEachDeck() {
+        int[] decks = identities(1000, 52);
+        new RandomShuffler().shuffleDecks(decks, 52);
+        assertPermutations(decks, 52);
+        int unchanged = 0;
+        for (int base = 0; base < decks.length; base += 52) {
+            boolean same = true;
+            for (int k = 0; k < 52; k++) {
+                same &= decks[base + k] == k;
+            }
+            unchanged += same ? 1 : 0;
+        }
+        Assert.assertEquals(0, unchanged);
+    }
+
+    /**
+     * Every one of the 24 orders of a 4 card deck should come up about as often, within a bound far wider than the
+     * expected deviation.
+     */
+    @Test
+    public void testUniform() {
+        int decks = 240_000;
+        int[] batch = identities(decks, 4);
+        BatchShuffle.shuffle(batch, 0, batch.length, 4, ThreadLocalRandom.current());
+        int[] counts = new int[256];
+        for (int base = 0; base < batch.length; base += 4) {
+            counts[batch[base] << 6 | batch[base + 1] << 4 | batch[base + 2] << 2 | batch[base + 3]]++;
+        }
+        int orders = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                orders++;
+                Assert.assertEquals(decks / 24.0, count, 500);
+            }
+        }
+        Assert.assertEquals(24, orders);
+    }
+
+    @Test
+    public void testBounded() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Assert.assertEquals(0, BatchShuffle.bounded(0x1234, 52, random));
+        Assert.assertEquals(51, BatchShuffle.bounded(0xFFFFFFFF, 52, random));
+        Assert.assertEquals(25, BatchShuffle.bounded(0x7FFFFFFF, 52, random));
+        for (int i = 0; i < 1000; i++) {
+            int bounded = BatchShuffle.bounded(0, 3, random); // biased low bits, drawn again
+            Assert.assertTrue(bounded >= 0 && bounded < 3);
+        }
+    }
+
+    @Test
+    public void testShuffleRange() {
+        int[] decks = identities(3, 5);
+        BatchShuffle.shuffle(decks, 5, 10, 5, ThreadLocalRandom.current());
+        Assert.assertArrayEquals(new int[]{0, 1, 2, 3, 4}, Arrays.copyOfRange(decks, 0, 5));
+        Assert.assertArrayEquals(new int[]{0, 1, 2, 3, 4}, Arrays.copyOfRange(decks, 10, 15));
+        assertPermutations(decks, 5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPartialDeck() {
+        new RandomShuffler().shuffleDecks(new int[10], 3);
+    }
+
+    static int[] identities(int decks, int deckSize) {
+        int[] batch = new int[decks * deckSize];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = i % deckSize;
+        }
+        return batch;
+    }
+
+    static void assertPermutations(int[] decks, int deckSize) {
+        for (int base = 0; base < decks.length; base += deckSize) {
+            boolean[] seen = new boolean[deckSize];
+            for (int k = 0; k < deckSize; k++) {
+                Assert.assertFalse("Position should appear once per deck.", seen[decks[base + k]]);
+                seen[decks[base + k]] = true;
+            }
+        }
+    }
+}
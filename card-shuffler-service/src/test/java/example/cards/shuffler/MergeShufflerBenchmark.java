@@ -0,0 +1,54 @@
+package example.cards.shuffler;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Rough benchmark of the merge shuffler across pool sizes, run by hand rather than as part of the test suite:
+ * <pre>
+ * java -cp ... example.cards.shuffler.MergeShufflerBenchmark [cards] [rounds]
+ * </pre>
+ * Prints the average time to shuffle a deck of the given size for each parallelism from 1 up to the number of
+ * available cores, along with the speed up over a single worker and the sequential Fisher-Yates baseline.
+ */
+public class MergeShufflerBenchmark {
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        Integer[] cards = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            cards[i] = i;
+        }
+
+        double baseline = time(rounds, () -> RandomShuffler.fisherYates(cards, 0, size,
+                ThreadLocalRandom.current()));
+        System.out.printf("fisher-yates        %8.2f ms%n", baseline);
+
+        double single = 0;
+        for (int parallelism = 1; parallelism <= Runtime.getRuntime().availableProcessors(); parallelism++) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            MergeShuffler shuffler = new MergeShuffler(pool, MergeShuffler.DEFAULT_BLOCK_SIZE);
+            double millis = time(rounds, () -> shuffler.shuffle(cards));
+            if (parallelism == 1) {
+                single = millis;
+            }
+            System.out.printf("merge x%-3d          %8.2f ms  speed up %5.2f%n", parallelism, millis, single / millis);
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Runs the task for a few warm up rounds, then returns the average time in milliseconds of the measured rounds.
+     */
+    private static double time(int rounds, Runnable task) {
+        for (int i = 0; i < Math.max(3, rounds / 4); i++) {
+            task.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            task.run();
+        }
+        return (System.nanoTime() - start) / 1e6 / rounds;
+    }
+}
@@ -0,0 +1,97 @@
+package example.cards.shuffler;
+
+import com.google.common.collect.Lists;
+import example.cards.entity.DeckEntity;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Tests the parallel merge shuffler.  A tiny block size is used throughout so that the merge step is exercised
+ * on small decks rather than only on decks large enough to be split with the default block size.
+ */
+public class MergeShufflerTest {
+
+    @Test
+    public void testLargeDeckKeepsAllCards() {
+        List<String> cards = Lists.newArrayList();
+        for (int i = 0; i < 100_000; i++) {
+            cards.add("card" + i);
+        }
+        List<String> cardCopy = Lists.newArrayList(cards);
+        DeckEntity deck = new DeckEntity()
+                .setId(1)
+                .setName("shoe")
+                .setCards(cards);
+
+        DeckEntity shuffledDeck = new MergeShuffler(ForkJoinPool.commonPool(), 1024).shuffleDeck(deck);
+        Assert.assertEquals("Passed in list should not be modified", cardCopy, cards);
+        Assert.assertEquals("Expected same ids.", 1, shuffledDeck.getId());
+        Assert.assertNotEquals("Deck should be reordered.", cardCopy, shuffledDeck.getCards());
+
+        List<String> sorted = Lists.newArrayList(shuffledDeck.getCards());
+        Collections.sort(sorted);
+        List<String> sortedCopy = Lists.newArrayList(cardCopy);
+        Collections.sort(sortedCopy);
+        Assert.assertEquals("Shuffled deck should contain exactly the same cards.", sortedCopy, sorted);
+    }
+
+    @Test
+    public void testEmptyDeck() {
+        DeckEntity deck = new DeckEntity()
+                .setId(1)
+                .setName("deck1")
+                .setCards(Lists.newArrayList());
+        DeckEntity shuffledDeck = new MergeShuffler().shuffleDeck(deck);
+        Assert.assertEquals("Deck should have empty list of cards.", (List<String>) Lists.<String> newArrayList(),
+                shuffledDeck.getCards());
+    }
+
+    /**
+     * Every card of a 4 card deck should land on every position with roughly equal odds once the deck is split
+     * down to single cards and merged back together.  The bound is loose enough that a correct implementation
+     * effectively never fails, while a biased merge (e.g. skipping the fix up step) fails every time.
+     */
+    @Test
+    public void testMergeIsUniform() {
+        int size = 4;
+        int iterations = 200_000;
+        int[][] counts = new int[size][size];
+        MergeShuffler shuffler = new MergeShuffler(ForkJoinPool.commonPool(), 1);
+        Integer[] cards = new Integer[size];
+        for (int n = 0; n < iterations; n++) {
+            for (int i = 0; i < size; i++) {
+                cards[i] = i;
+            }
+            shuffler.shuffle(cards);
+            for (int i = 0; i < size; i++) {
+                counts[cards[i]][i]++;
+            }
+        }
+        double expected = iterations / (double) size;
+        for (int[] card : counts) {
+            for (int count : card) {
+                Assert.assertEquals("Positions should be uniformly distributed.", expected, count, expected * 0.05);
+            }
+        }
+    }
+
+    @Test
+    public void testMergeKeepsAllCards() {
+        Integer[] cards = new Integer[]{0, 1, 2, 3, 4, 5, 6};
+        MergeShuffler.merge(cards, 0, 3, cards.length, ThreadLocalRandom.current());
+        Integer[] sorted = cards.clone();
+        Arrays.sort(sorted);
+        Assert.assertArrayEquals(new Integer[]{0, 1, 2, 3, 4, 5, 6}, sorted);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullDeck() {
+        new MergeShuffler().shuffleDeck(null);
+    }
+}
@@ -0,0 +1,114 @@
+package example.cards.shuffler;
+
+import com.google.common.collect.Lists;
+import example.cards.entity.DeckEntity;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for the permutation pool shuffler.
+ */
+public class PermutationPoolShufflerTest {
+
+    @Test
+    public void testShufflesFromPool() throws InterruptedException {
+        PermutationPoolShuffler shuffler = new PermutationPoolShuffler(10, 64, 1);
+        try {
+            List<String> cards = cards(10);
+            shuffler.shuffleDeck(new DeckEntity().setCards(cards)); // starts the workers
+            waitForPool(shuffler, 64);
+            Assert.assertEquals(64, shuffler.getPoolLevel());
+            long pooled = shuffler.getPooledShuffles(); // the first shuffle may or may not have found one ready
+
+            DeckEntity shuffled = shuffler.shuffleDeck(new DeckEntity().setId(3).setName("deck").setCards(cards));
+            Assert.assertEquals(3, shuffled.getId());
+            Assert.assertEquals("deck", shuffled.getName());
+            Assert.assertEquals(pooled + 1, shuffler.getPooledShuffles());
+            assertSameCards(cards, shuffled.getCards());
+        } finally {
+            shuffler.close();
+        }
+    }
+
+    @Test
+    public void testOtherSizeShuffledInline() {
+        PermutationPoolShuffler shuffler = new PermutationPoolShuffler(52, 64, 1);
+        List<String> cards = cards(10);
+        DeckEntity shuffled = shuffler.shuffleDeck(new DeckEntity().setCards(cards));
+        assertSameCards(cards, shuffled.getCards());
+        Assert.assertEquals(1, shuffler.getOtherSizeShuffles());
+        Assert.assertEquals("Workers should not have been started.", 0, shuffler.getPoolLevel());
+    }
+
+    @Test
+    public void testDrainedPoolShufflesInline() {
+        PermutationPoolShuffler shuffler = new PermutationPoolShuffler(10, 64, 1);
+        shuffler.close(); // workers exit straight away, so the pool never fills
+        List<String> cards = cards(10);
+        DeckEntity shuffled = shuffler.shuffleDeck(new DeckEntity().setCards(cards));
+        assertSameCards(cards, shuffled.getCards());
+        Assert.assertEquals(1, shuffler.getDrainedShuffles() + shuffler.getPooledShuffles());
+    }
+
+    @Test
+    public void testShuffleDecksFromPool() throws InterruptedException {
+        PermutationPoolShuffler shuffler = new PermutationPoolShuffler(10, 64, 1);
+        try {
+            shuffler.shuffleDecks(new int[10], 10); // starts the workers
+            waitForPool(shuffler, 64);
+            long pooled = shuffler.getPooledShuffles();
+            long drained = shuffler.getDrainedShuffles();
+
+            int[] decks = BatchShuffleTest.identities(100, 10);
+            shuffler.shuffleDecks(decks, 10);
+            BatchShuffleTest.assertPermutations(decks, 10);
+            Assert.assertTrue("Ready permutations should be used.", shuffler.getPooledShuffles() - pooled >= 64);
+            Assert.assertEquals(100, shuffler.getPooledShuffles() - pooled + shuffler.getDrainedShuffles() - drained);
+
+            shuffler.shuffleDecks(BatchShuffleTest.identities(3, 4), 4);
+            Assert.assertEquals(3, shuffler.getOtherSizeShuffles());
+        } finally {
+            shuffler.close();
+        }
+    }
+
+    @Test
+    public void testRandomPermutation() {
+        int[] permutation = PermutationPoolShuffler.randomPermutation(100);
+        boolean[] seen = new boolean[100];
+        for (int index : permutation) {
+            Assert.assertFalse("Index should appear once.", seen[index]);
+            seen[index] = true;
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacityNotPowerOfTwo() {
+        new PermutationPoolShuffler(52, 100, 1);
+    }
+
+    private static void waitForPool(PermutationPoolShuffler shuffler, int level) throws InterruptedException {
+        for (int i = 0; i < 500 && shuffler.getPoolLevel() < level; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static List<String> cards(int size) {
+        List<String> cards = Lists.newArrayList();
+        for (int i = 0; i < size; i++) {
+            cards.add("card" + i);
+        }
+        return cards;
+    }
+
+    private static void assertSameCards(List<String> expected, List<String> actual) {
+        List<String> sortedExpected = Lists.newArrayList(expected);
+        List<String> sortedActual = Lists.newArrayList(actual);
+        Collections.sort(sortedExpected);
+        Collections.sort(sortedActual);
+        Assert.assertEquals("Shuffled deck should contain exactly the same cards.", sortedExpected, sortedActual);
+    }
+}
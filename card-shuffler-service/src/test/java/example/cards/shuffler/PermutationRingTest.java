@@ -0,0 +1,73 @@
+package example.cards.shuffler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the lock-free permutation ring.
+ */
+public class PermutationRingTest {
+
+    @Test
+    public void testFifoUntilFull() {
+        PermutationRing ring = new PermutationRing(4);
+        Assert.assertNull("Ring should start empty.", ring.poll());
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(ring.offer(new int[]{i}));
+        }
+        Assert.assertFalse("Ring should be full.", ring.offer(new int[]{4}));
+        Assert.assertEquals(4, ring.size());
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(i, ring.poll()[0]);
+        }
+        Assert.assertNull(ring.poll());
+        Assert.assertEquals(0, ring.size());
+    }
+
+    /**
+     * Producers and consumers hammer the ring concurrently; every value offered must be polled exactly once.
+     */
+    @Test
+    public void testConcurrentProducersAndConsumers() throws Exception {
+        PermutationRing ring = new PermutationRing(16);
+        int perProducer = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int p = 0; p < 2; p++) {
+                int producer = p;
+                executor.submit(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        int[] value = new int[]{producer * perProducer + i};
+                        while (!ring.offer(value)) {
+                            Thread.yield();
+                        }
+                    }
+                });
+            }
+            boolean[] seen = new boolean[2 * perProducer];
+            Future<?> consumer = executor.submit(() -> {
+                for (int received = 0; received < seen.length; ) {
+                    int[] value = ring.poll();
+                    if (value == null) {
+                        Thread.yield();
+                    } else {
+                        Assert.assertFalse("Value should be polled once.", seen[value[0]]);
+                        seen[value[0]] = true;
+                        received++;
+                    }
+                }
+            });
+            consumer.get(30, TimeUnit.SECONDS);
+            for (boolean value : seen) {
+                Assert.assertTrue(value);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package example.cards.shuffler;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import example.cards.entity.DeckEntity;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+
+/**
+ * Test for the registry of the shufflers requests choose from.
+ */
+public class ShufflerRegistryTest {
+
+    @Test
+    public void testLookUp() {
+        ShufflerRegistry registry = ShufflerRegistry.create(Shufflers.MERGE);
+        Assert.assertEquals(Shufflers.names(), registry.names());
+        Assert.assertEquals(Shufflers.MERGE, registry.getDefaultAlgorithm());
+        Assert.assertTrue(registry.get(null).getShuffler() instanceof MergeShuffler);
+        Assert.assertSame(registry.getPermutationPool(), registry.get(Shufflers.POOL).getShuffler());
+        Assert.assertSame("Shufflers should be shared.", registry.get(Shufflers.POOL), registry.get(Shufflers.POOL));
+        Assert.assertNull(registry.get("bogo"));
+        registry.close();
+    }
+
+    @Test
+    public void testCloseStopsOwnPoolOnly() throws InterruptedException {
+        ShufflerRegistry closed = ShufflerRegistry.create(Shufflers.POOL);
+        ShufflerRegistry open = ShufflerRegistry.create(Shufflers.POOL);
+        Assert.assertNotSame("Each registry should have a pool of its own.", closed.getPermutationPool(),
+                open.getPermutationPool());
+        closed.close();
+        try {
+            DeckEntity deck = new DeckEntity().setCards(Lists.newArrayList(Collections.nCopies(52, "card")));
+            open.get(null).shuffleDeck(deck);
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (open.getPermutationPool().getPoolLevel() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            long pooled = open.getPermutationPool().getPooledShuffles();
+            open.get(null).shuffleDeck(deck);
+            Assert.assertEquals("The open registry's workers should fill its pool.", pooled + 1,
+                    open.getPermutationPool().getPooledShuffles());
+        } finally {
+            open.close();
+        }
+    }
+
+    @Test
+    public void testUnknownDefaultFallsBack() {
+        Assert.assertEquals(Shufflers.DEFAULT, ShufflerRegistry.create("bogo").getDefaultAlgorithm());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingDefault() {
+        new ShufflerRegistry(ImmutableMap.of(Shufflers.RANDOM, new RandomShuffler()), Shufflers.MERGE);
+    }
+
+    @Test
+    public void testMetered() {
+        ShufflerRegistry registry = new ShufflerRegistry(ImmutableMap.of(Shufflers.RANDOM, new RandomShuffler(),
+                Shufflers.MERGE, new MergeShuffler()), Shufflers.RANDOM);
+        for (int i = 0; i < 3; i++) {
+            registry.get(null).shuffleDeck(new DeckEntity().setCards(Lists.newArrayList("card1", "card2")));
+        }
+        MeteredShuffler random = registry.get(Shufflers.RANDOM);
+        Assert.assertEquals(3, random.getShuffles());
+        Assert.assertEquals(6, random.getCards());
+        Assert.assertTrue(random.getNanos() > 0);
+        Assert.assertEquals("Algorithms should be measured apart.", 0, registry.get(Shufflers.MERGE).getShuffles());
+    }
+}
@@ -0,0 +1,48 @@
+package example.cards.swagger;
+
+import io.swagger.models.Swagger;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Tests for the swagger spec generation.
+ */
+public class SwaggerSpecTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testGenerate() {
+        Swagger swagger = SwaggerSpec.generate();
+        Assert.assertTrue("Should document the deck resource.", swagger.getPaths().containsKey("/decks/{deckId}"));
+        Assert.assertTrue("Should document the admin resource.", swagger.getPaths().containsKey("/admin/metrics"));
+        Assert.assertTrue("Should document the models.", swagger.getDefinitions().containsKey("DeckDto"));
+    }
+
+    @Test
+    public void testMainWritesSpecs() throws IOException {
+        SwaggerSpec.main(new String[]{folder.getRoot().getPath()});
+        File directory = new File(folder.getRoot(), SwaggerSpec.RESOURCE_DIRECTORY);
+        String json = new String(Files.readAllBytes(new File(directory, SwaggerSpec.JSON).toPath()),
+                StandardCharsets.UTF_8);
+        String yaml = new String(Files.readAllBytes(new File(directory, SwaggerSpec.YAML).toPath()),
+                StandardCharsets.UTF_8);
+        Assert.assertTrue(json.contains("\"/decks\""));
+        Assert.assertTrue(yaml.contains("/decks:"));
+    }
+
+    @Test
+    public void testLoadFallsBackToGenerating() {
+        // the tests run without the build generated resources
+        String json = new String(SwaggerSpec.load(SwaggerSpec.JSON), StandardCharsets.UTF_8);
+        Assert.assertTrue(json.contains("\"/admin/shuffle-quality\""));
+    }
+}
@@ -0,0 +1,72 @@
+package example.cards.trace;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * Test for the request traces and the slowest requests kept.
+ */
+public class SlowRequestsTest {
+
+    @After
+    public void tearDown() {
+        RequestTrace.finish(0);
+    }
+
+    @Test
+    public void testStages() throws InterruptedException {
+        RequestTrace trace = RequestTrace.start("GET", "/decks/0");
+        RequestTrace.mark(Stage.ADMISSION);
+        Thread.sleep(5);
+        RequestTrace.mark(Stage.SHUFFLE);
+        RequestTrace.mark(Stage.SHUFFLE);
+        Assert.assertSame(trace, RequestTrace.finish(200));
+        Assert.assertNull("Trace should be finished once.", RequestTrace.finish(200));
+
+        Assert.assertEquals(200, trace.getStatus());
+        Assert.assertTrue(trace.getStageNanos(Stage.SHUFFLE) >= 5_000_000);
+        Assert.assertEquals(0, trace.getStageNanos(Stage.LOCK));
+        long stages = 0;
+        for (Stage stage : Stage.values()) {
+            stages += trace.getStageNanos(stage);
+        }
+        Assert.assertTrue(stages <= trace.getTotalNanos());
+    }
+
+    @Test
+    public void testMarkWithoutTrace() {
+        RequestTrace.mark(Stage.LOCK);
+        Assert.assertNull(RequestTrace.finish(200));
+    }
+
+    @Test
+    public void testKeepsSlowest() throws InterruptedException {
+        // the first trace loads the flight recorder classes, which is slower than any of the requests below
+        RequestTrace.start("GET", "/decks");
+        RequestTrace.finish(200);
+        SlowRequests slowRequests = new SlowRequests(2);
+        for (int sleep : new int[]{20, 1, 40, 0}) {
+            RequestTrace.start("GET", "/decks/" + sleep);
+            Thread.sleep(sleep);
+            slowRequests.offer(RequestTrace.finish(200));
+        }
+        List<RequestTrace> slowest = slowRequests.snapshot();
+        Assert.assertEquals(2, slowest.size());
+        Assert.assertEquals("/decks/40", slowest.get(0).getPath());
+        Assert.assertEquals("/decks/20", slowest.get(1).getPath());
+
+        slowRequests.clear();
+        Assert.assertTrue(slowRequests.snapshot().isEmpty());
+        RequestTrace.start("GET", "/decks");
+        slowRequests.offer(RequestTrace.finish(200));
+        Assert.assertEquals("Should keep requests again once cleared.", 1, slowRequests.snapshot().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() {
+        new SlowRequests(0);
+    }
+}
@@ -0,0 +1,117 @@
+package example.cards.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Gathers individual calls into bulk calls.  A batch is sent once it holds the maximum number of items, or once
+ * its first item has waited for the linger time, whichever comes first; the result of each item is then completed
+ * from the bulk result at the same position.
+ *
+ * @param <T> item of a call
+ * @param <R> result of a call
+ */
+class Batcher<T, R> {
+
+    private final int maxBatchSize;
+    private final long lingerMillis;
+    private final ScheduledExecutorService scheduler;
+    private final Function<List<T>, CompletableFuture<List<R>>> bulkCall;
+
+    // batch being filled, guarded by this
+    private Batch current;
+
+    /**
+     * @param maxBatchSize largest number of items in a bulk call
+     * @param lingerMillis longest time an item waits for others before being sent
+     * @param scheduler scheduler of the lingering batches
+     * @param bulkCall call for a batch of items, returning the results in the same order
+     */
+    Batcher(int maxBatchSize, long lingerMillis, ScheduledExecutorService scheduler,
+            Function<List<T>, CompletableFuture<List<R>>> bulkCall) {
+        this.maxBatchSize = maxBatchSize;
+        this.lingerMillis = lingerMillis;
+        this.scheduler = scheduler;
+        this.bulkCall = bulkCall;
+    }
+
+    CompletableFuture<R> submit(T item) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        Batch full = null;
+        synchronized (this) {
+            if (current == null) {
+                Batch batch = new Batch();
+                current = batch;
+                if (lingerMillis > 0) {
+                    scheduler.schedule(() -> flush(batch), lingerMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+            current.items.add(item);
+            current.results.add(result);
+            if (current.items.size() >= maxBatchSize || lingerMillis <= 0) {
+                full = current;
+                current = null;
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return result;
+    }
+
+    /**
+     * Sends the batch being filled, if any.
+     */
+    void flush() {
+        Batch batch;
+        synchronized (this) {
+            batch = current;
+            current = null;
+        }
+        if (batch != null) {
+            send(batch);
+        }
+    }
+
+    private void flush(Batch batch) {
+        synchronized (this) {
+            if (current != batch) {
+                return; // already sent as full
+            }
+            current = null;
+        }
+        send(batch);
+    }
+
+    private void send(Batch batch) {
+        CompletableFuture<List<R>> bulkResult;
+        try {
+            bulkResult = bulkCall.apply(batch.items);
+        } catch (RuntimeException e) {
+            batch.results.forEach(result -> result.completeExceptionally(e));
+            return;
+        }
+        bulkResult.whenComplete((values, error) -> {
+            if (error == null && values.size() != batch.items.size()) {
+                error = new IllegalStateException("Expected " + batch.items.size() + " results but received "
+                        + values.size());
+            }
+            for (int i = 0; i < batch.results.size(); i++) {
+                if (error != null) {
+                    batch.results.get(i).completeExceptionally(error);
+                } else {
+                    batch.results.get(i).complete(values.get(i));
+                }
+            }
+        });
+    }
+
+    private class Batch {
+        private final List<T> items = new ArrayList<>();
+        private final List<CompletableFuture<R>> results = new ArrayList<>();
+    }
+}
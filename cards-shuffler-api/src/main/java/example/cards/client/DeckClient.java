@@ -0,0 +1,284 @@
+package example.cards.client;
+
+import example.cards.model.DeckDto;
+import example.cards.model.DeckListDto;
+
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.client.AsyncInvoker;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous client of the deck resource, where every call returns a {@link CompletableFuture} rather than
+ * blocking the caller.
+ * <p>
+ * Calls go through the asynchronous invoker of a JAX-RS client, which must have a JSON provider registered.
+ * Connections are pooled and kept alive by that client, e.g. with RESTEasy:
+ * <pre>
+ * Client client = new ResteasyClientBuilder().connectionPoolSize(20).maxPooledPerRoute(20).build();
+ * client.register(JacksonJsonProvider.class);
+ * DeckClient decks = new DeckClient(client.target("http://localhost:8080/decks"));
+ * </pre>
+ * To need far fewer requests in flight, and so connections and client threads, than there are calls in flight:
+ * <ul>
+ *     <li>Creates and shuffles made within a short linger time of each other are sent together as a single bulk
+ *     request.</li>
+ *     <li>Reads of a deck are hedged: if no response came within the hedge delay, or the first request failed for a
+ *     reason worth retrying, a second request is sent and the first response wins.  Reads are idempotent, so this
+ *     trades a little extra load for a much shorter tail of latency.</li>
+ * </ul>
+ * Batching saves threads as well as requests, but reads aren't batched: the asynchronous invoker of RESTEasy's
+ * client runs each request on a thread of its own until the response is read, so every read in flight still takes a
+ * client thread, and a hedged read two.  Only a JAX-RS client on a non-blocking engine would avoid that.
+ * <p>
+ * Failed calls complete exceptionally with the {@link WebApplicationException} matching the response status, or a
+ * {@link ProcessingException} if no response was received.  Closing the client sends any pending batch but leaves
+ * the JAX-RS client open.
+ */
+public class DeckClient implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+    public static final long DEFAULT_LINGER_MILLIS = 2;
+    public static final long DEFAULT_HEDGE_DELAY_MILLIS = 50;
+
+    private static final GenericType<List<Integer>> IDS = new GenericType<List<Integer>>() {};
+    private static final GenericType<List<DeckDto>> DECKS = new GenericType<List<DeckDto>>() {};
+
+    private final WebTarget decks;
+    private final long hedgeDelayMillis;
+    private final ScheduledExecutorService scheduler;
+    private final Batcher<DeckDto, Integer> creates;
+    private final Batcher<Integer, DeckDto> shuffles;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+
+    /**
+     * @param decks target of the deck resource, e.g. http://localhost:8080/decks
+     */
+    public DeckClient(WebTarget decks) {
+        this(decks, DEFAULT_MAX_BATCH_SIZE, DEFAULT_LINGER_MILLIS, DEFAULT_HEDGE_DELAY_MILLIS);
+    }
+
+    /**
+     * @param decks target of the deck resource, e.g. http://localhost:8080/decks
+     * @param maxBatchSize largest number of creates or shuffles sent in a single request, 1 to disable batching
+     * @param lingerMillis longest time a create or shuffle waits for others to be sent with, 0 to send right away
+     * @param hedgeDelayMillis time after which a read is sent again if it didn't complete, 0 to disable hedging
+     */
+    public DeckClient(WebTarget decks, int maxBatchSize, long lingerMillis, long hedgeDelayMillis) {
+        if (maxBatchSize < 1 || maxBatchSize > 500) {
+            throw new IllegalArgumentException("maxBatchSize must be between 1 and 500");
+        } else if (lingerMillis < 0 || hedgeDelayMillis < 0) {
+            throw new IllegalArgumentException("lingerMillis and hedgeDelayMillis must be 0 or positive");
+        }
+        this.decks = decks;
+        this.hedgeDelayMillis = hedgeDelayMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "deck-client-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long linger = maxBatchSize == 1 ? 0 : lingerMillis;
+        this.creates = new Batcher<>(maxBatchSize, linger, scheduler, this::createDecks);
+        this.shuffles = new Batcher<>(maxBatchSize, linger, scheduler, this::shuffleDecks);
+    }
+
+    public CompletableFuture<DeckListDto> getDecks(int start, int limit) {
+        return getDecks(start, limit, null);
+    }
+
+    /**
+     * Reads a page of decks from a snapshot, failing with a {@link javax.ws.rs.ClientErrorException} of status 410
+     * once the snapshot has expired.
+     *
+     * @param snapshot token of the snapshot returned with the first page, or null to take a new snapshot
+     */
+    public CompletableFuture<DeckListDto> getDecks(int start, int limit, String snapshot) {
+        WebTarget page = decks.queryParam("start", start).queryParam("limit", limit);
+        return call(snapshot == null ? page : page.queryParam("snapshot", snapshot), "GET", null,
+                new GenericType<>(DeckListDto.class));
+    }
+
+    /**
+     * Reads a deck, with a hedged request if the first one is slow or fails.
+     */
+    public CompletableFuture<DeckDto> getDeck(int id) {
+        WebTarget deck = decks.path(Integer.toString(id));
+        return hedged(() -> call(deck, "GET", null, new GenericType<>(DeckDto.class)));
+    }
+
+    /**
+     * Creates a deck, as part of a bulk request.
+     *
+     * @return id of the created deck
+     * @throws NullPointerException if deck is null, rather than failing the calls it would be sent with
+     */
+    public CompletableFuture<Integer> createDeck(DeckDto deck) {
+        return creates.submit(Objects.requireNonNull(deck, "deck cannot be null"));
+    }
+
+    /**
+     * Shuffles a deck, as part of a bulk request.
+     *
+     * @return the shuffled deck, or a {@link NotFoundException} if the deck doesn't exist
+     */
+    public CompletableFuture<DeckDto> shuffleDeck(int id) {
+        return shuffles.submit(id).thenApply(deck -> {
+            if (deck == null) {
+                throw new NotFoundException();
+            }
+            return deck;
+        });
+    }
+
+    public CompletableFuture<Void> deleteDeck(int id) {
+        return call(decks.path(Integer.toString(id)), "DELETE", null, new GenericType<>(Void.class));
+    }
+
+    private CompletableFuture<List<Integer>> createDecks(List<DeckDto> batch) {
+        return call(decks.path("bulk"), "PUT", Entity.entity(batch, MediaType.APPLICATION_JSON), IDS);
+    }
+
+    private CompletableFuture<List<DeckDto>> shuffleDecks(List<Integer> batch) {
+        return call(decks.path("bulk/shuffle").queryParam("id", batch.toArray()), "POST", null, DECKS);
+    }
+
+    /**
+     * Sends a request with the asynchronous invoker.  Cancelling the returned future cancels the request.
+     */
+    private <T> CompletableFuture<T> call(WebTarget target, String method, Entity<?> entity, GenericType<T> type) {
+        requests.increment();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        InvocationCallback<Response> callback = new InvocationCallback<Response>() {
+            @Override
+            public void completed(Response response) {
+                try {
+                    if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+                        result.completeExceptionally(new WebApplicationException(response.getStatus()));
+                    } else if (type.getRawType() == Void.class || !response.hasEntity()) {
+                        result.complete(null);
+                    } else {
+                        result.complete(response.readEntity(type));
+                    }
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    response.close();
+                }
+            }
+
+            @Override
+            public void failed(Throwable throwable) {
+                result.completeExceptionally(throwable);
+            }
+        };
+        AsyncInvoker invoker = target.request(MediaType.APPLICATION_JSON).async();
+        Future<Response> request = entity == null ? invoker.method(method, callback)
+                : invoker.method(method, entity, callback);
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                request.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Makes a call, and makes it a second time if it hasn't completed after the hedge delay, or as soon as it
+     * failed with an error worth retrying.  The first successful response completes the result and cancels the
+     * other request; the result only fails once every request made failed, or one failed with a client error.
+     */
+    private <T> CompletableFuture<T> hedged(Supplier<CompletableFuture<T>> call) {
+        if (hedgeDelayMillis == 0) {
+            return call.get();
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger started = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        Runnable attempt = new Runnable() {
+            @Override
+            public void run() {
+                int attempts = started.get();
+                if (result.isDone() || attempts >= 2 || !started.compareAndSet(attempts, attempts + 1)) {
+                    return;
+                } else if (attempts > 0) {
+                    hedges.increment();
+                }
+                CompletableFuture<T> request = call.get();
+                result.whenComplete((value, error) -> request.cancel(true));
+                request.whenComplete((value, error) -> {
+                    if (error == null) {
+                        result.complete(value);
+                        return;
+                    }
+                    int failures = failed.incrementAndGet();
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    if (!isRetryable(cause)) {
+                        result.completeExceptionally(cause);
+                    } else if (started.get() < 2) {
+                        run();
+                    } else if (failures == 2) {
+                        result.completeExceptionally(cause);
+                    }
+                });
+            }
+        };
+        attempt.run();
+        ScheduledFuture<?> hedge = scheduler.schedule(attempt, hedgeDelayMillis, TimeUnit.MILLISECONDS);
+        result.whenComplete((value, error) -> hedge.cancel(false));
+        return result;
+    }
+
+    /**
+     * Server errors and failures to get a response may not happen again, client errors will.
+     */
+    private static boolean isRetryable(Throwable error) {
+        if (error instanceof WebApplicationException) {
+            int status = ((WebApplicationException) error).getResponse().getStatus();
+            return status >= 500 || status == 429;
+        }
+        return error instanceof ProcessingException;
+    }
+
+    /**
+     * @return number of HTTP requests sent, including bulk and hedged requests
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * @return number of hedged requests sent
+     */
+    public long getHedges() {
+        return hedges.sum();
+    }
+
+    /**
+     * Sends any pending batch of creates or shuffles, and stops the client's scheduler.
+     */
+    @Override
+    public void close() {
+        creates.flush();
+        shuffles.flush();
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,137 @@
+package example.cards.model;
+
+import java.lang.reflect.Array;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+
+/**
+ * Immutable list of cards backed by an array which is never modified once wrapped.
+ * <p>
+ * As nothing can change the cards, the array is shared rather than copied: between a stored deck and every
+ * {@link DeckDto} read from it, and between a list and its {@link #subList(int, int) sub lists}, which are views of
+ * the same array.  Copying an existing card array is free, so code handed a list of cards can always take an
+ * immutable copy of it with {@link #copyOf(Collection)}.
+ */
+public final class CardArray extends AbstractList<String> implements RandomAccess {
+
+    private static final CardArray EMPTY = new CardArray(new String[0], 0, 0);
+
+    private final String[] cards;
+    private final int offset;
+    private final int size;
+
+    private CardArray(String[] cards, int offset, int size) {
+        this.cards = cards;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    /**
+     * @return the given cards, copied
+     */
+    public static CardArray of(String... cards) {
+        return wrap(cards.clone());
+    }
+
+    /**
+     * @return the given cards, copied unless they already are a card array
+     * @throws NullPointerException if cards is null
+     */
+    public static CardArray copyOf(Collection<String> cards) {
+        if (cards instanceof CardArray) {
+            return (CardArray) cards;
+        }
+        return wrap(cards.toArray(new String[cards.size()]));
+    }
+
+    /**
+     * Wraps an array without copying it.  The caller hands the array over, and must not modify it afterwards.
+     *
+     * @param cards array of cards
+     * @return card array backed by the given array
+     */
+    public static CardArray wrap(String[] cards) {
+        return cards.length == 0 ? EMPTY : new CardArray(cards, 0, cards.length);
+    }
+
+    /**
+     * @return the cards of the first list followed by the cards of the second, copied into a single array
+     */
+    public static CardArray concat(List<String> first, List<String> second) {
+        String[] cards = new String[first.size() + second.size()];
+        copyInto(first, cards, 0);
+        copyInto(second, cards, first.size());
+        return wrap(cards);
+    }
+
+    private static void copyInto(List<String> source, String[] target, int position) {
+        if (source instanceof CardArray) {
+            CardArray array = (CardArray) source;
+            System.arraycopy(array.cards, array.offset, target, position, array.size);
+        } else {
+            for (String card : source) {
+                target[position++] = card;
+            }
+        }
+    }
+
+    @Override
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return cards[offset + index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return a view of the given range, sharing this list's array
+     */
+    @Override
+    public CardArray subList(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("From: " + fromIndex + ", To: " + toIndex + ", Size: " + size);
+        }
+        return fromIndex == toIndex ? EMPTY : new CardArray(cards, offset + fromIndex, toIndex - fromIndex);
+    }
+
+    /**
+     * @return true if this list is a view of part of a larger array, e.g. a sub list, which keeps the whole array
+     *         reachable
+     */
+    public boolean isView() {
+        return size != cards.length;
+    }
+
+    @Override
+    public Object[] toArray() {
+        return Arrays.copyOfRange(cards, offset, offset + size, Object[].class);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] array) {
+        T[] target = array.length >= size ? array
+                : (T[]) Array.newInstance(array.getClass().getComponentType(), size);
+        System.arraycopy(cards, offset, target, 0, size);
+        if (target.length > size) {
+            target[size] = null;
+        }
+        return target;
+    }
+
+    @Override
+    public void forEach(Consumer<? super String> action) {
+        for (int i = offset; i < offset + size; i++) {
+            action.accept(cards[i]);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package example.cards.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.google.auto.value.AutoValue;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * Progress or outcome of a compaction of the deck store.
+ */
+@AutoValue
+@ApiModel(description = "Progress or outcome of a compaction of the deck store.")
+@JsonPropertyOrder(alphabetic = true)
+public abstract class CompactionDto {
+
+    /**
+     * Factory method for creating instances of a CompactionDto.
+     */
+    @JsonCreator
+    public static CompactionDto create(
+            @JsonProperty(value = "decks", required = true) long decks,
+            @JsonProperty(value = "internedDecks", required = true) long internedDecks,
+            @JsonProperty(value = "internedCards", required = true) long internedCards,
+            @JsonProperty(value = "repackedDecks", required = true) long repackedDecks,
+            @JsonProperty(value = "movedRecords", required = true) long movedRecords,
+            @JsonProperty(value = "releasedSegments", required = true) long releasedSegments,
+            @JsonProperty(value = "elapsedMillis", required = true) long elapsedMillis,
+            @JsonProperty(value = "running", required = true) boolean running
+    ) {
+        return new AutoValue_CompactionDto(decks, internedDecks, internedCards, repackedDecks, movedRecords,
+                releasedSegments, elapsedMillis, running);
+    }
+
+    @ApiModelProperty(value = "Number of decks gone through.", required = true)
+    @JsonProperty(value = "decks", required = true)
+    public abstract long getDecks();
+
+    @ApiModelProperty(value = "Number of decks given shared instances of their cards.", required = true)
+    @JsonProperty(value = "internedDecks", required = true)
+    public abstract long getInternedDecks();
+
+    @ApiModelProperty(value = "Number of cards replaced by a shared instance.", required = true)
+    @JsonProperty(value = "internedCards", required = true)
+    public abstract long getInternedCards();
+
+    @ApiModelProperty(value = "Number of decks whose cards were copied out of a larger array they were a view of.",
+            required = true)
+    @JsonProperty(value = "repackedDecks", required = true)
+    public abstract long getRepackedDecks();
+
+    @ApiModelProperty(value = "Number of spilled decks moved out of sparse cold storage segments.", required = true)
+    @JsonProperty(value = "movedRecords", required = true)
+    public abstract long getMovedRecords();
+
+    @ApiModelProperty(value = "Number of cold storage segments released.", required = true)
+    @JsonProperty(value = "releasedSegments", required = true)
+    public abstract long getReleasedSegments();
+
+    @ApiModelProperty(value = "Time taken by the compaction, so far if it is running.", required = true)
+    @JsonProperty(value = "elapsedMillis", required = true)
+    public abstract long getElapsedMillis();
+
+    @ApiModelProperty(value = "If the compaction is still running, the counts being those so far.", required = true)
+    @JsonProperty(value = "running", required = true)
+    public abstract boolean isRunning();
+}
@@ -14,15 +14,24 @@ import java.util.List;
 @JsonPropertyOrder(alphabetic = true)
 public abstract class DeckDto {
     /**
-     * Factory method for creating instances of a DeckDto.
+     * Factory method for creating instances of a DeckDto, at the version of a new deck.
+     */
+    public static DeckDto create(int id, String name, List<String> cards) {
+        return create(id, name, cards, 0);
+    }
+
+    /**
+     * Factory method for creating instances of a DeckDto.  The cards are held as a {@link CardArray}, which is only
+     * copied if they aren't one already.
      */
     @JsonCreator
     public static DeckDto create(
             @JsonProperty("id") int id,
             @JsonProperty("name") String name,
-            @JsonProperty("cards") List<String> cards
+            @JsonProperty("cards") List<String> cards,
+            @JsonProperty("version") long version
     ) {
-        return new AutoValue_DeckDto(id, name, cards);
+        return new AutoValue_DeckDto(id, name, CardArray.copyOf(cards), version);
     }
 
     /**
@@ -44,8 +53,17 @@ public abstract class DeckDto {
     /**
      * Shuffled card list.
      *
-     * @return list of shuffled cards
+     * @return immutable list of shuffled cards
      */
     @ApiModelProperty("Returns a list of cards (order implied by list)")
     public abstract List<String> getCards();
+
+    /**
+     * Version of the deck, incremented every time the deck is modified.  Sent back in an If-Match header to make a
+     * modification conditional on the deck being unchanged since it was read.
+     *
+     * @return version of the deck, 0 for a deck which was never modified
+     */
+    @ApiModelProperty("Returns the version of the deck, incremented every time the deck is modified.")
+    public abstract long getVersion();
 }
@@ -26,9 +26,10 @@ public abstract class DeckListDto {
             @JsonProperty(value = "start", required = true) int start,
             @JsonProperty(value = "limit", required = true) int limit,
             @JsonProperty(value = "moreResults", required = true) Boolean hasMoreResults,
+            @JsonProperty(value = "snapshot", required = true) String snapshot,
             @JsonProperty(value = "decks", required = true) List<DeckDto> decks
     ) {
-        return new AutoValue_DeckListDto(total, start, limit, hasMoreResults, decks);
+        return new AutoValue_DeckListDto(total, start, limit, hasMoreResults, snapshot, decks);
     }
 
     @ApiModelProperty(value = "Total number of decks.", required = true)
@@ -47,6 +48,12 @@ public abstract class DeckListDto {
     @JsonProperty(value = "moreResults", required = true)
     public abstract Boolean hasMoreResults();
 
+    @ApiModelProperty(value = "Token of the snapshot the decks were read from, to read the next pages from, "
+            + "empty if the first page held every deck.",
+            required = true)
+    @JsonProperty(value = "snapshot", required = true)
+    public abstract String getSnapshot();
+
     @ApiModelProperty(value = "List of retrieved deck.", required = true)
     @JsonProperty(value = "decks", required = true)
     public abstract List<DeckDto> getDecks();
@@ -0,0 +1,49 @@
+package example.cards.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.google.auto.value.AutoValue;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+import java.util.List;
+
+/**
+ * Definition of a page of decks returned by a search, continued from a cursor rather than an offset.
+ */
+@AutoValue
+@ApiModel(description = "Definition of the data transfer object for a page of searched Decks.")
+@JsonPropertyOrder(alphabetic = true)
+public abstract class DeckPageDto {
+
+    /**
+     * Factory method for creating instances of a DeckPageDto.
+     */
+    @JsonCreator
+    public static DeckPageDto create(
+            @JsonProperty(value = "limit", required = true) int limit,
+            @JsonProperty(value = "moreResults", required = true) Boolean hasMoreResults,
+            @JsonProperty(value = "cursor", required = true) String cursor,
+            @JsonProperty(value = "decks", required = true) List<DeckDto> decks
+    ) {
+        return new AutoValue_DeckPageDto(limit, hasMoreResults, cursor, decks);
+    }
+
+    @ApiModelProperty(value = "Pagination limit.", required = true)
+    @JsonProperty(value = "limit", required = true)
+    public abstract int getLimit();
+
+    @ApiModelProperty(value = "If more results can be retrieved on next page.", required = true)
+    @JsonProperty(value = "moreResults", required = true)
+    public abstract Boolean hasMoreResults();
+
+    @ApiModelProperty(value = "Opaque cursor to pass to retrieve the next page.", required = true)
+    @JsonProperty(value = "cursor", required = true)
+    public abstract String getCursor();
+
+    @ApiModelProperty(value = "List of retrieved decks, ordered by id.", required = true)
+    @JsonProperty(value = "decks", required = true)
+    public abstract List<DeckDto> getDecks();
+
+}
@@ -0,0 +1,92 @@
+package example.cards.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.google.auto.value.AutoValue;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * Estimated footprint of the deck store.
+ */
+@AutoValue
+@ApiModel(description = "Estimated memory and storage footprint of the decks, from a sample of the decks.")
+@JsonPropertyOrder(alphabetic = true)
+public abstract class FootprintDto {
+
+    /**
+     * Factory method for creating instances of a FootprintDto.
+     */
+    @JsonCreator
+    public static FootprintDto create(
+            @JsonProperty(value = "decks", required = true) int decks,
+            @JsonProperty(value = "sampledDecks", required = true) int sampledDecks,
+            @JsonProperty(value = "heapDecks", required = true) int heapDecks,
+            @JsonProperty(value = "coldDecks", required = true) int coldDecks,
+            @JsonProperty(value = "heapBytesPerDeck", required = true) long heapBytesPerDeck,
+            @JsonProperty(value = "coldBytesPerDeck", required = true) long coldBytesPerDeck,
+            @JsonProperty(value = "duplicationRatio", required = true) double duplicationRatio,
+            @JsonProperty(value = "duplicateBytes", required = true) long duplicateBytes,
+            @JsonProperty(value = "indexEntries", required = true) long indexEntries,
+            @JsonProperty(value = "indexBytes", required = true) long indexBytes,
+            @JsonProperty(value = "coldLiveBytes", required = true) long coldLiveBytes,
+            @JsonProperty(value = "coldMappedBytes", required = true) long coldMappedBytes
+    ) {
+        return new AutoValue_FootprintDto(decks, sampledDecks, heapDecks, coldDecks, heapBytesPerDeck,
+                coldBytesPerDeck, duplicationRatio, duplicateBytes, indexEntries, indexBytes, coldLiveBytes,
+                coldMappedBytes);
+    }
+
+    @ApiModelProperty(value = "Number of decks.", required = true)
+    @JsonProperty(value = "decks", required = true)
+    public abstract int getDecks();
+
+    @ApiModelProperty(value = "Number of decks the estimates were made from.", required = true)
+    @JsonProperty(value = "sampledDecks", required = true)
+    public abstract int getSampledDecks();
+
+    @ApiModelProperty(value = "Number of decks whose cards are on heap.", required = true)
+    @JsonProperty(value = "heapDecks", required = true)
+    public abstract int getHeapDecks();
+
+    @ApiModelProperty(value = "Number of decks whose cards are spilled to cold storage.", required = true)
+    @JsonProperty(value = "coldDecks", required = true)
+    public abstract int getColdDecks();
+
+    @ApiModelProperty(value = "Estimated heap bytes of a deck whose cards are on heap, including its share of the " +
+            "card strings.", required = true)
+    @JsonProperty(value = "heapBytesPerDeck", required = true)
+    public abstract long getHeapBytesPerDeck();
+
+    @ApiModelProperty(value = "Bytes of cold storage taken by the cards of a spilled deck.", required = true)
+    @JsonProperty(value = "coldBytesPerDeck", required = true)
+    public abstract long getColdBytesPerDeck();
+
+    @ApiModelProperty(value = "Number of card string instances per distinct card, 1 when every card is shared.",
+            required = true)
+    @JsonProperty(value = "duplicationRatio", required = true)
+    public abstract double getDuplicationRatio();
+
+    @ApiModelProperty(value = "Estimated heap bytes taken by duplicate card strings, which compaction reclaims.",
+            required = true)
+    @JsonProperty(value = "duplicateBytes", required = true)
+    public abstract long getDuplicateBytes();
+
+    @ApiModelProperty(value = "Number of entries of the search indexes.", required = true)
+    @JsonProperty(value = "indexEntries", required = true)
+    public abstract long getIndexEntries();
+
+    @ApiModelProperty(value = "Estimated heap bytes of the deck map, listing tree and search indexes.",
+            required = true)
+    @JsonProperty(value = "indexBytes", required = true)
+    public abstract long getIndexBytes();
+
+    @ApiModelProperty(value = "Bytes of cold storage still in use.", required = true)
+    @JsonProperty(value = "coldLiveBytes", required = true)
+    public abstract long getColdLiveBytes();
+
+    @ApiModelProperty(value = "Bytes of cold storage mapped, in use or not.", required = true)
+    @JsonProperty(value = "coldMappedBytes", required = true)
+    public abstract long getColdMappedBytes();
+}
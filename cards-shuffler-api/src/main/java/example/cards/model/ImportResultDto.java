@@ -0,0 +1,52 @@
+package example.cards.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.google.auto.value.AutoValue;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * Outcome of a bulk deck import.
+ */
+@AutoValue
+@ApiModel(description = "Outcome of a bulk import of decks from a local file.")
+@JsonPropertyOrder(alphabetic = true)
+public abstract class ImportResultDto {
+
+    /**
+     * Factory method for creating instances of an ImportResultDto.
+     */
+    @JsonCreator
+    public static ImportResultDto create(
+            @JsonProperty(value = "file", required = true) String file,
+            @JsonProperty(value = "decks", required = true) long decks,
+            @JsonProperty(value = "errors", required = true) long errors,
+            @JsonProperty(value = "bytes", required = true) long bytes,
+            @JsonProperty(value = "elapsedMillis", required = true) long elapsedMillis
+    ) {
+        return new AutoValue_ImportResultDto(file, decks, errors, bytes, elapsedMillis);
+    }
+
+    @ApiModelProperty(value = "Name of the imported file.", required = true)
+    @JsonProperty(value = "file", required = true)
+    public abstract String getFile();
+
+    @ApiModelProperty(value = "Number of decks created.", required = true)
+    @JsonProperty(value = "decks", required = true)
+    public abstract long getDecks();
+
+    @ApiModelProperty(value = "Number of lines which could not be parsed into a deck and were skipped.",
+            required = true)
+    @JsonProperty(value = "errors", required = true)
+    public abstract long getErrors();
+
+    @ApiModelProperty(value = "Size of the imported file in bytes.", required = true)
+    @JsonProperty(value = "bytes", required = true)
+    public abstract long getBytes();
+
+    @ApiModelProperty(value = "Time taken by the import.", required = true)
+    @JsonProperty(value = "elapsedMillis", required = true)
+    public abstract long getElapsedMillis();
+}
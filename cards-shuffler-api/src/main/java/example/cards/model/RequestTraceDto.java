@@ -0,0 +1,59 @@
+package example.cards.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.google.auto.value.AutoValue;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+import java.util.Map;
+
+/**
+ * Timing of a traced request, broken down by stage.
+ */
+@AutoValue
+@ApiModel(description = "Timing of a traced request, broken down by stage.")
+@JsonPropertyOrder(alphabetic = true)
+public abstract class RequestTraceDto {
+
+    /**
+     * Factory method for creating instances of a RequestTraceDto.
+     */
+    @JsonCreator
+    public static RequestTraceDto create(
+            @JsonProperty(value = "method", required = true) String method,
+            @JsonProperty(value = "path", required = true) String path,
+            @JsonProperty(value = "status", required = true) int status,
+            @JsonProperty(value = "startedAt", required = true) long startedAt,
+            @JsonProperty(value = "totalMicros", required = true) long totalMicros,
+            @JsonProperty(value = "stageMicros", required = true) Map<String, Long> stageMicros
+    ) {
+        return new AutoValue_RequestTraceDto(method, path, status, startedAt, totalMicros, stageMicros);
+    }
+
+    @ApiModelProperty(value = "HTTP method of the request.", required = true)
+    @JsonProperty(value = "method", required = true)
+    public abstract String getMethod();
+
+    @ApiModelProperty(value = "Path of the request.", required = true)
+    @JsonProperty(value = "path", required = true)
+    public abstract String getPath();
+
+    @ApiModelProperty(value = "Status of the response.", required = true)
+    @JsonProperty(value = "status", required = true)
+    public abstract int getStatus();
+
+    @ApiModelProperty(value = "Time the request started, in milliseconds since the epoch.", required = true)
+    @JsonProperty(value = "startedAt", required = true)
+    public abstract long getStartedAt();
+
+    @ApiModelProperty(value = "Time taken by the request.", required = true)
+    @JsonProperty(value = "totalMicros", required = true)
+    public abstract long getTotalMicros();
+
+    @ApiModelProperty(value = "Time taken by each stage of the request, in the order the stages happen; time not " +
+            "attributed to any stage is the difference with the total.", required = true)
+    @JsonProperty(value = "stageMicros", required = true)
+    public abstract Map<String, Long> getStageMicros();
+}
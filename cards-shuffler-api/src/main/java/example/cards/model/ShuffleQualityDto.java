@@ -0,0 +1,86 @@
+package example.cards.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.google.auto.value.AutoValue;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * Statistical quality report of a shuffle algorithm.
+ */
+@AutoValue
+@ApiModel(description = "Statistical quality of a shuffle algorithm, measured over many shuffles of one deck.")
+@JsonPropertyOrder(alphabetic = true)
+public abstract class ShuffleQualityDto {
+
+    /**
+     * Factory method for creating instances of a ShuffleQualityDto.
+     */
+    @JsonCreator
+    public static ShuffleQualityDto create(
+            @JsonProperty(value = "algorithm", required = true) String algorithm,
+            @JsonProperty(value = "deckSize", required = true) int deckSize,
+            @JsonProperty(value = "iterations", required = true) long iterations,
+            @JsonProperty(value = "chiSquare", required = true) double chiSquare,
+            @JsonProperty(value = "pValue", required = true) double pValue,
+            @JsonProperty(value = "maxPositionBias", required = true) double maxPositionBias,
+            @JsonProperty(value = "meanRisingSequences", required = true) double meanRisingSequences,
+            @JsonProperty(value = "expectedRisingSequences", required = true) double expectedRisingSequences,
+            @JsonProperty(value = "meanAdjacentPairs", required = true) double meanAdjacentPairs,
+            @JsonProperty(value = "expectedAdjacentPairs", required = true) double expectedAdjacentPairs,
+            @JsonProperty(value = "elapsedMillis", required = true) long elapsedMillis
+    ) {
+        return new AutoValue_ShuffleQualityDto(algorithm, deckSize, iterations, chiSquare, pValue, maxPositionBias,
+                meanRisingSequences, expectedRisingSequences, meanAdjacentPairs, expectedAdjacentPairs,
+                elapsedMillis);
+    }
+
+    @ApiModelProperty(value = "Name of the shuffle algorithm.", required = true)
+    @JsonProperty(value = "algorithm", required = true)
+    public abstract String getAlgorithm();
+
+    @ApiModelProperty(value = "Number of cards in the shuffled deck.", required = true)
+    @JsonProperty(value = "deckSize", required = true)
+    public abstract int getDeckSize();
+
+    @ApiModelProperty(value = "Number of shuffles the statistics were computed over.", required = true)
+    @JsonProperty(value = "iterations", required = true)
+    public abstract long getIterations();
+
+    @ApiModelProperty(value = "Chi-square statistic of the card by position counts.", required = true)
+    @JsonProperty(value = "chiSquare", required = true)
+    public abstract double getChiSquare();
+
+    @ApiModelProperty(value = "Probability of a chi-square at least this large from a uniform shuffle.",
+            required = true)
+    @JsonProperty(value = "pValue", required = true)
+    public abstract double getPValue();
+
+    @ApiModelProperty(value = "Largest relative deviation of any card by position count from its expected value.",
+            required = true)
+    @JsonProperty(value = "maxPositionBias", required = true)
+    public abstract double getMaxPositionBias();
+
+    @ApiModelProperty(value = "Mean number of rising sequences per shuffled deck.", required = true)
+    @JsonProperty(value = "meanRisingSequences", required = true)
+    public abstract double getMeanRisingSequences();
+
+    @ApiModelProperty(value = "Mean number of rising sequences expected from a uniform shuffle.", required = true)
+    @JsonProperty(value = "expectedRisingSequences", required = true)
+    public abstract double getExpectedRisingSequences();
+
+    @ApiModelProperty(value = "Mean number of originally adjacent cards still adjacent after shuffling.",
+            required = true)
+    @JsonProperty(value = "meanAdjacentPairs", required = true)
+    public abstract double getMeanAdjacentPairs();
+
+    @ApiModelProperty(value = "Mean number of adjacent pairs expected from a uniform shuffle.", required = true)
+    @JsonProperty(value = "expectedAdjacentPairs", required = true)
+    public abstract double getExpectedAdjacentPairs();
+
+    @ApiModelProperty(value = "Time taken to run the analysis.", required = true)
+    @JsonProperty(value = "elapsedMillis", required = true)
+    public abstract long getElapsedMillis();
+}
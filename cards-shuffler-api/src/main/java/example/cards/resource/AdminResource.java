@@ -0,0 +1,200 @@
+package example.cards.resource;
+
+import example.cards.model.CompactionDto;
+import example.cards.model.FootprintDto;
+import example.cards.model.ImportResultDto;
+import example.cards.model.RequestTraceDto;
+import example.cards.model.ShuffleQualityDto;
+import io.swagger.annotations.*;
+
+import javax.ws.rs.*;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Administrative operations on the service, see swagger documentation for more details.
+ *
+ * Kept apart from {@link DeckResource} so that it can be secured or left unmounted separately from the public API.
+ */
+@Path("admin")
+@Api(value = "Administrative operations.")
+public interface AdminResource {
+
+    @GET
+    @Path("/metrics")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "Retrieves the current value of every service metric, by name.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    code = 200,
+                    message = "Metric values by name.",
+                    response = Long.class,
+                    responseContainer = "Map"
+            )
+    })
+    public Map<String, Long> getMetrics();
+
+    @GET
+    @Path("/ready")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "Retrieves whether the service should be sent traffic, with its state: STARTING while it " +
+            "warms up, READY, or DRAINING once it is shutting down.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    code = 200,
+                    message = "Service is ready.",
+                    response = String.class,
+                    responseContainer = "Map"
+            ),
+            @ApiResponse(
+                    code = 503,
+                    message = "Service is starting or draining.",
+                    response = String.class,
+                    responseContainer = "Map"
+            )
+    })
+    public Response getReadiness();
+
+    @POST
+    @Path("/promote")
+    @ApiOperation(value = "Promotes a standby to a primary: replication from the primary stops for good, and the " +
+            "service accepts modifications.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    code = 204,
+                    message = "Standby promoted."
+            ),
+            @ApiResponse(
+                    code = 409,
+                    message = "Service is not a standby, or was already promoted."
+            )
+    })
+    public Response promote();
+
+    @GET
+    @Path("/traces")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "Retrieves the slowest requests since the service started or the traces were cleared, " +
+            "slowest first, with the time taken by each stage.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    code = 200,
+                    message = "Slowest request traces.",
+                    response = RequestTraceDto.class,
+                    responseContainer = "List"
+            )
+    })
+    public List<RequestTraceDto> getSlowestRequests();
+
+    @DELETE
+    @Path("/traces")
+    @ApiOperation(value = "Clears the slowest requests, e.g. to only see those after a change.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    code = 204,
+                    message = "Traces cleared."
+            )
+    })
+    public Response clearSlowestRequests();
+
+    @GET
+    @Path("/shuffle-quality")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "Runs a statistical quality analysis of the shuffle algorithms.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    code = 200,
+                    message = "Quality report for each requested algorithm.",
+                    response = ShuffleQualityDto.class,
+                    responseContainer = "List"
+            ),
+            @ApiResponse(
+                    code = 400,
+                    message = "Unknown algorithm, or deck size or iterations out of range."
+            )
+    })
+    public List<ShuffleQualityDto> getShuffleQuality(
+            @ApiParam(name = "algorithm", value = "Algorithm to analyze, all registered algorithms if omitted.")
+            @QueryParam("algorithm") String algorithm,
+            @ApiParam(name = "deckSize", defaultValue = "52") @QueryParam("deckSize") @DefaultValue("52") int deckSize,
+            @ApiParam(name = "iterations", defaultValue = "100000") @QueryParam("iterations")
+            @DefaultValue("100000") int iterations);
+
+    @POST
+    @Path("/import")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "Imports decks from a newline delimited JSON file, one deck per line, within the " +
+            "service's import directory.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    code = 200,
+                    message = "Import outcome.",
+                    response = ImportResultDto.class
+            ),
+            @ApiResponse(
+                    code = 400,
+                    message = "File is missing, or is not a readable file within the import directory."
+            ),
+            @ApiResponse(
+                    code = 403,
+                    message = "Imports are disabled as no import directory is configured."
+            )
+    })
+    public ImportResultDto importDecks(
+            @ApiParam(name = "file", value = "Path of the file, relative to the import directory.", required = true)
+            @QueryParam("file") String file);
+
+    @GET
+    @Path("/footprint")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "Estimates the memory and storage taken by the decks, by representation, along with the " +
+            "duplication of card strings and the overhead of the indexes.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    code = 200,
+                    message = "Estimated footprint.",
+                    response = FootprintDto.class
+            ),
+            @ApiResponse(
+                    code = 400,
+                    message = "Sample size out of range."
+            )
+    })
+    public FootprintDto getFootprint(
+            @ApiParam(name = "sample", value = "Number of decks to estimate from.", defaultValue = "1000")
+            @QueryParam("sample") @DefaultValue("1000") int sample);
+
+    @POST
+    @Path("/compact")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "Starts compacting the decks in the background, one at a time while requests carry on: " +
+            "cards on heap are replaced by shared instances, and spilled cards are moved out of sparse cold " +
+            "storage segments, which are released.  Progress is read from GET /admin/compact.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    code = 202,
+                    message = "Compaction started, with its progress.",
+                    response = CompactionDto.class
+            ),
+            @ApiResponse(
+                    code = 409,
+                    message = "A compaction is already running."
+            )
+    })
+    public Response compact();
+
+    @GET
+    @Path("/compact")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "Progress of the running compaction, or outcome of the last one.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    code = 200,
+                    message = "Compaction progress or outcome.",
+                    response = CompactionDto.class
+            )
+    })
+    public CompactionDto getCompaction();
+}
@@ -2,17 +2,23 @@ package example.cards.resource;
 
 import example.cards.model.DeckDto;
 import example.cards.model.DeckListDto;
+import example.cards.model.DeckPageDto;
 import io.swagger.annotations.*;
 
 import javax.ws.rs.*;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.util.List;
 
 /**
  * Deck resource definition, see swagger documentation for more details.
  *
  * This is abstracted into an interface to allow a consumer to easily build both resource implementations
  * as well as client proxies.  The code for this is very straight forward with RestEasy client proxying.
+ *
+ * Decks are returned with an ETag holding their version, which can be sent back in an If-Match header to only
+ * shuffle or delete the deck if nobody else has modified it since.  Passing null skips the check.
  */
 @Path("decks")
 @Api(value = "Definition of deck resource.")
@@ -20,7 +26,9 @@ public interface DeckResource {
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    @ApiOperation(value = "Retrieves a list of all current decks.")
+    @ApiOperation(value = "Retrieves a list of all current decks.",
+            notes = "The first page takes a snapshot of the decks; pass its token to read the next pages from the "
+                    + "same snapshot, unaffected by decks created, shuffled or removed since.")
     @ApiResponses(value = {
             @ApiResponse(
                     code = 200,
@@ -30,15 +38,45 @@ public interface DeckResource {
             @ApiResponse(
                     code = 400,
                     message = "Limit provided was > 100."
+            ),
+            @ApiResponse(
+                    code = 410,
+                    message = "The snapshot is unknown or expired, the listing must start again."
             )
     })
     public DeckListDto getDecks(
             @ApiParam(name = "start", defaultValue = "0") @QueryParam("start") @DefaultValue("0") int start,
+            @ApiParam(name = "limit", defaultValue = "20") @QueryParam("limit") @DefaultValue("20") int limit,
+            @ApiParam(name = "snapshot") @QueryParam("snapshot") String snapshot);
+
+    @GET
+    @Path("/search")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "Searches decks by name prefix, card and number of cards, ordered by id.  Criteria are " +
+            "combined, and every deck matches when none is given.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    code = 200,
+                    message = "Page of matching decks, continued by passing back its cursor.",
+                    response = DeckPageDto.class
+            ),
+            @ApiResponse(
+                    code = 400,
+                    message = "Limit provided was > 100, a size was negative or the cursor is invalid."
+            )
+    })
+    public DeckPageDto searchDecks(
+            @ApiParam(name = "name", value = "Prefix of the deck names.") @QueryParam("name") String namePrefix,
+            @ApiParam(name = "card", value = "Card held by the decks.") @QueryParam("card") String card,
+            @ApiParam(name = "minSize", value = "Smallest number of cards.") @QueryParam("minSize") Integer minSize,
+            @ApiParam(name = "maxSize", value = "Largest number of cards.") @QueryParam("maxSize") Integer maxSize,
+            @ApiParam(name = "cursor", value = "Cursor returned with the previous page.")
+            @QueryParam("cursor") String cursor,
             @ApiParam(name = "limit", defaultValue = "20") @QueryParam("limit") @DefaultValue("20") int limit);
 
     @PUT
     @Consumes(MediaType.APPLICATION_JSON)
-    @ApiOperation(value = "Creates a new shuffled deck.")
+    @ApiOperation(value = "Creates a new shuffled deck, or a casino style shoe of several copies of the deck.")
     @ApiResponses(value = {
             @ApiResponse(
                     code = 204,
@@ -51,9 +89,67 @@ public interface DeckResource {
                             )
                     }
 
+            ),
+            @ApiResponse(
+                    code = 400,
+                    message = "Shoe size provided was not between 1 and 8, or time to live or idle timeout was not " +
+                            "positive."
+            )
+    })
+    public Response createDeck(
+            DeckDto deck,
+            @ApiParam(name = "shoeSize", defaultValue = "1") @QueryParam("shoeSize") @DefaultValue("1") int shoeSize,
+            @ApiParam(name = "ttlSeconds", value = "Time after which the deck is removed.")
+            @QueryParam("ttlSeconds") Long ttlSeconds,
+            @ApiParam(name = "idleSeconds", value = "Time after which the deck is removed once no longer used.")
+            @QueryParam("idleSeconds") Long idleSeconds);
+
+    @PUT
+    @Path("/bulk")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "Creates several decks at once.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    code = 200,
+                    message = "Ids of the created decks, in the order of the decks provided.",
+                    response = Integer.class,
+                    responseContainer = "List"
+            ),
+            @ApiResponse(
+                    code = 400,
+                    message = "No decks provided, or more than 500, or time to live or idle timeout was not positive."
+            )
+    })
+    public List<Integer> createDecks(
+            List<DeckDto> decks,
+            @ApiParam(name = "ttlSeconds", value = "Time after which the decks are removed.")
+            @QueryParam("ttlSeconds") Long ttlSeconds,
+            @ApiParam(name = "idleSeconds", value = "Time after which each deck is removed once no longer used.")
+            @QueryParam("idleSeconds") Long idleSeconds);
+
+    @POST
+    @Path("/bulk/shuffle")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "Shuffles several decks at once.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    code = 200,
+                    message = "Reshuffled decks in the order of the ids provided, null for ids with no deck.",
+                    response = DeckDto.class,
+                    responseContainer = "List"
+            ),
+            @ApiResponse(
+                    code = 400,
+                    message = "No ids provided, or more than 500, or unknown algorithm."
             )
     })
-    public Response createDeck(DeckDto deck);
+    public List<DeckDto> shuffleDecks(
+            @ApiParam(name = "id", value = "Ids of the decks to shuffle.", required = true)
+            @QueryParam("id") List<Integer> ids,
+            @ApiParam(name = "algorithm", value = "Shuffle algorithm, the service's default if not given.",
+                    allowableValues = "random, merge, pool")
+            @QueryParam("algorithm") String algorithm);
 
     @GET
     @Path("/{deckId}")
@@ -82,12 +178,26 @@ public interface DeckResource {
                     message = "Reshuffled deck is returned.",
                     response = DeckDto.class
             ),
+            @ApiResponse(
+                    code = 400,
+                    message = "Unknown algorithm."
+            ),
             @ApiResponse(
                     code = 404,
                     message = "No deck found for the corresponding id."
+            ),
+            @ApiResponse(
+                    code = 412,
+                    message = "Deck is not at the version given in If-Match."
             )
     })
-    public DeckDto shuffleDeck(@PathParam("deckId") int id);
+    public DeckDto shuffleDeck(
+            @PathParam("deckId") int id,
+            @ApiParam(name = "If-Match", value = "Version the deck must be at for the shuffle to happen.")
+            @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch,
+            @ApiParam(name = "algorithm", value = "Shuffle algorithm, the service's default if not given.",
+                    allowableValues = "random, merge, pool")
+            @QueryParam("algorithm") String algorithm);
 
     @DELETE
     @Path("/{deckId}")
@@ -96,7 +206,96 @@ public interface DeckResource {
             @ApiResponse(
                     code = 204,
                     message = "Object successfully deleted."
+            ),
+            @ApiResponse(
+                    code = 412,
+                    message = "Deck is not at the version given in If-Match."
+            )
+    })
+    public Response deleteDeck(
+            @PathParam("deckId") int id,
+            @ApiParam(name = "If-Match", value = "Version the deck must be at for the deletion to happen.")
+            @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch);
+
+    @POST
+    @Path("/{deckId}/merge")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "Moves every card of another deck onto the bottom of this deck, and deletes the other deck.")
+    @ApiResponses({
+            @ApiResponse(
+                    code = 200,
+                    message = "Merged deck is returned.",
+                    response = DeckDto.class
+            ),
+            @ApiResponse(
+                    code = 400,
+                    message = "No source deck provided, or the source deck is this deck."
+            ),
+            @ApiResponse(
+                    code = 404,
+                    message = "No deck found for one of the ids."
+            )
+    })
+    public DeckDto mergeDeck(
+            @PathParam("deckId") int id,
+            @ApiParam(name = "from", value = "Id of the deck merged into this deck.", required = true)
+            @QueryParam("from") Integer sourceId);
+
+    @POST
+    @Path("/{deckId}/split")
+    @ApiOperation(value = "Splits a deck in two, moving the cards from a position onward into a new deck.")
+    @ApiResponses({
+            @ApiResponse(
+                    code = 201,
+                    message = "New deck successfully created.",
+                    responseHeaders = {
+                            @ResponseHeader(
+                                    name = "location",
+                                    description = "location for the new deck",
+                                    response = String.class
+                            )
+                    }
+            ),
+            @ApiResponse(
+                    code = 400,
+                    message = "Position provided does not leave cards in both decks."
+            ),
+            @ApiResponse(
+                    code = 404,
+                    message = "No deck found for the corresponding id."
+            )
+    })
+    public Response splitDeck(
+            @PathParam("deckId") int id,
+            @ApiParam(name = "at", value = "Position of the first card moved to the new deck.", required = true)
+            @QueryParam("at") int at,
+            @ApiParam(name = "name", value = "Name of the new deck, the split deck's name if omitted.")
+            @QueryParam("name") String name);
+
+    @POST
+    @Path("/{deckId}/transfer")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "Moves cards from the top of this deck onto the bottom of another deck.")
+    @ApiResponses({
+            @ApiResponse(
+                    code = 200,
+                    message = "This deck and the target deck are returned, in that order.",
+                    response = DeckDto.class,
+                    responseContainer = "List"
+            ),
+            @ApiResponse(
+                    code = 400,
+                    message = "No target deck provided, the target deck is this deck, or count was not between 1 " +
+                            "and the number of cards in this deck."
+            ),
+            @ApiResponse(
+                    code = 404,
+                    message = "No deck found for one of the ids."
             )
     })
-    public Response deleteDeck(@PathParam("deckId") int id);
+    public List<DeckDto> transferCards(
+            @PathParam("deckId") int id,
+            @ApiParam(name = "to", value = "Id of the deck receiving the cards.", required = true)
+            @QueryParam("to") Integer targetId,
+            @ApiParam(name = "count", defaultValue = "1") @QueryParam("count") @DefaultValue("1") int count);
 }
@@ -0,0 +1,93 @@
+package example.cards.client;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the batching of individual calls into bulk calls.
+ */
+public class BatcherTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final List<List<Integer>> batches = new ArrayList<>();
+
+    @After
+    public void after() {
+        scheduler.shutdownNow();
+    }
+
+    private synchronized CompletableFuture<List<Integer>> doubled(List<Integer> batch) {
+        batches.add(new ArrayList<>(batch));
+        List<Integer> results = new ArrayList<>();
+        for (Integer item : batch) {
+            results.add(item * 2);
+        }
+        return CompletableFuture.completedFuture(results);
+    }
+
+    @Test
+    public void testFullBatchSentRightAway() throws Exception {
+        Batcher<Integer, Integer> batcher = new Batcher<>(3, TimeUnit.HOURS.toMillis(1), scheduler, this::doubled);
+        CompletableFuture<Integer> first = batcher.submit(1);
+        CompletableFuture<Integer> second = batcher.submit(2);
+        Assert.assertFalse("Batch should wait for more items.", first.isDone());
+        CompletableFuture<Integer> third = batcher.submit(3);
+
+        Assert.assertEquals(Integer.valueOf(2), first.get(1, TimeUnit.SECONDS));
+        Assert.assertEquals(Integer.valueOf(4), second.get(1, TimeUnit.SECONDS));
+        Assert.assertEquals(Integer.valueOf(6), third.get(1, TimeUnit.SECONDS));
+        Assert.assertEquals(1, batches.size());
+    }
+
+    @Test
+    public void testLingeringBatchSent() throws Exception {
+        Batcher<Integer, Integer> batcher = new Batcher<>(100, 10, scheduler, this::doubled);
+        CompletableFuture<Integer> first = batcher.submit(1);
+        CompletableFuture<Integer> second = batcher.submit(2);
+
+        Assert.assertEquals(Integer.valueOf(4), second.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(Integer.valueOf(2), first.get(5, TimeUnit.SECONDS));
+        synchronized (this) {
+            Assert.assertEquals(1, batches.size());
+            Assert.assertEquals(2, batches.get(0).size());
+        }
+    }
+
+    @Test
+    public void testFlush() throws Exception {
+        Batcher<Integer, Integer> batcher = new Batcher<>(100, TimeUnit.HOURS.toMillis(1), scheduler, this::doubled);
+        CompletableFuture<Integer> first = batcher.submit(1);
+        batcher.flush();
+        Assert.assertEquals(Integer.valueOf(2), first.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFailedBatchFailsEveryItem() throws Exception {
+        IllegalStateException failure = new IllegalStateException();
+        Batcher<Integer, Integer> batcher = new Batcher<>(2, TimeUnit.HOURS.toMillis(1), scheduler, batch -> {
+            CompletableFuture<List<Integer>> result = new CompletableFuture<>();
+            result.completeExceptionally(failure);
+            return result;
+        });
+        CompletableFuture<Integer> first = batcher.submit(1);
+        CompletableFuture<Integer> second = batcher.submit(2);
+        for (CompletableFuture<Integer> item : Arrays.asList(first, second)) {
+            try {
+                item.get(1, TimeUnit.SECONDS);
+                Assert.fail("Exception should have been thrown.");
+            } catch (ExecutionException ee) {
+                Assert.assertSame(failure, ee.getCause());
+            }
+        }
+    }
+}
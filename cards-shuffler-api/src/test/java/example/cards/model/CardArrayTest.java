@@ -0,0 +1,59 @@
+package example.cards.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for the immutable card list.
+ */
+public class CardArrayTest {
+
+    @Test
+    public void testCopyOf() {
+        List<String> cards = new ArrayList<>(Arrays.asList("AS", "KS", "QS"));
+        CardArray copy = CardArray.copyOf(cards);
+        cards.set(0, "2S");
+        Assert.assertEquals(Arrays.asList("AS", "KS", "QS"), copy);
+        Assert.assertSame("Card arrays should not be copied.", copy, CardArray.copyOf(copy));
+        Assert.assertEquals(copy.hashCode(), Arrays.asList("AS", "KS", "QS").hashCode());
+    }
+
+    @Test
+    public void testSubList() {
+        CardArray cards = CardArray.of("AS", "KS", "QS", "JS");
+        CardArray middle = cards.subList(1, 3);
+        Assert.assertEquals(Arrays.asList("KS", "QS"), middle);
+        Assert.assertEquals(Collections.singletonList("QS"), middle.subList(1, 2));
+        Assert.assertArrayEquals(new String[]{"KS", "QS"}, middle.toArray(new String[0]));
+        Assert.assertTrue(cards.subList(2, 2).isEmpty());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testSubListGetOutOfRange() {
+        CardArray.of("AS", "KS", "QS").subList(0, 2).get(2);
+    }
+
+    @Test
+    public void testConcat() {
+        CardArray cards = CardArray.of("AS", "KS", "QS");
+        Assert.assertEquals(Arrays.asList("KS", "QS", "2H", "3H"),
+                CardArray.concat(cards.subList(1, 3), Arrays.asList("2H", "3H")));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutable() {
+        CardArray.of("AS").set(0, "KS");
+    }
+
+    @Test
+    public void testDeckDtoHoldsCardArray() {
+        CardArray cards = CardArray.of("AS", "KS");
+        Assert.assertSame(cards, DeckDto.create(0, "deck", cards).getCards());
+        Assert.assertTrue(DeckDto.create(0, "deck", Arrays.asList("AS", "KS")).getCards() instanceof CardArray);
+    }
+}
@@ -0,0 +1,50 @@
+package example.cards.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Ids of the decks created during a run, so reads, shuffles and deletes can target decks that exist.
+ * <p>
+ * Guarded by its own monitor, which is never held for more than a couple of array accesses and so doesn't skew
+ * the client side of the measurements.
+ */
+public class LiveDecks {
+
+    private int[] ids = new int[1024];
+    private int size;
+
+    public synchronized void add(int id) {
+        if (size == ids.length) {
+            int[] grown = new int[size * 2];
+            System.arraycopy(ids, 0, grown, 0, size);
+            ids = grown;
+        }
+        ids[size++] = id;
+    }
+
+    /**
+     * @return a random live deck id, or -1 if there are none
+     */
+    public synchronized int pick() {
+        return size == 0 ? -1 : ids[ThreadLocalRandom.current().nextInt(size)];
+    }
+
+    /**
+     * Removes a random live deck id.
+     *
+     * @return the removed id, or -1 if there are none
+     */
+    public synchronized int take() {
+        if (size == 0) {
+            return -1;
+        }
+        int index = ThreadLocalRandom.current().nextInt(size);
+        int id = ids[index];
+        ids[index] = ids[--size];
+        return id;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,226 @@
+package example.cards.loadtest;
+
+import com.google.common.base.Preconditions;
+import example.cards.model.DeckDto;
+import example.cards.resource.DeckResource;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.core.Response;
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open loop load generator driving a {@link DeckResource} client proxy.
+ * <p>
+ * Requests are scheduled at a fixed rate regardless of how quickly earlier requests complete, and the latency of
+ * each request is measured from the time it was <i>scheduled</i> to start rather than from when a worker got
+ * round to sending it.  A closed loop generator (send, wait, send) slows down along with the service and so hides
+ * exactly the stalls we want to see; this is the coordinated omission problem.  When the service can't keep up,
+ * requests queue up in the worker pool and that queueing time shows up in the recorded latencies.
+ */
+public class LoadGenerator {
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    // one hour in microseconds, anything slower is recorded as an hour
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private final DeckResource decks;
+    private final OperationMix mix;
+    private final List<String> cards;
+    private final double requestsPerSecond;
+    private final int workers;
+    private final LiveDecks liveDecks = new LiveDecks();
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, Histogram> totals = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> rejected = new EnumMap<>(Operation.class);
+    private final LongAdder notFound = new LongAdder();
+    private long totalErrors;
+
+    /**
+     * @param decks client proxy for the deck resource
+     * @param mix operation mix to issue
+     * @param cards cards of every created deck
+     * @param requestsPerSecond target request rate, must be positive
+     * @param workers number of threads issuing requests, bounds the number of requests in flight
+     */
+    public LoadGenerator(DeckResource decks, OperationMix mix, List<String> cards, double requestsPerSecond,
+                         int workers) {
+        Preconditions.checkArgument(requestsPerSecond > 0, "requestsPerSecond must be positive");
+        Preconditions.checkArgument(workers > 0, "workers must be a positive integer");
+        this.decks = decks;
+        this.mix = mix;
+        this.cards = cards;
+        this.requestsPerSecond = requestsPerSecond;
+        this.workers = workers;
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder(HIGHEST_TRACKABLE_MICROS, 3));
+            totals.put(operation, new Histogram(HIGHEST_TRACKABLE_MICROS, 3));
+            errors.put(operation, new LongAdder());
+            rejected.put(operation, new LongAdder());
+        }
+    }
+
+    /**
+     * Runs the load for the given duration, printing a summary line per operation after every interval.
+     *
+     * @param durationNanos how long to issue requests for
+     * @param reportIntervalNanos how often to print interval statistics
+     * @param monitor optional monitor sampled on every report, may be null
+     * @param out stream reports are printed to
+     */
+    public void run(long durationNanos, long reportIntervalNanos, SoakMonitor monitor, PrintStream out)
+            throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+        long start = System.nanoTime();
+        long nextReport = start + reportIntervalNanos;
+        try {
+            for (long i = 0; ; i++) {
+                long intended = start + i * intervalNanos;
+                if (intended - start >= durationNanos) {
+                    break;
+                }
+                long now;
+                while ((now = System.nanoTime()) < intended) {
+                    LockSupport.parkNanos(intended - now);
+                }
+                if (now >= nextReport) {
+                    report(now - start, monitor, out);
+                    nextReport += reportIntervalNanos;
+                }
+                Operation operation = mix.next();
+                pool.execute(() -> execute(operation, intended));
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        report(System.nanoTime() - start, monitor, out);
+    }
+
+    private void execute(Operation operation, long intendedStart) {
+        try {
+            switch (operation) {
+                case CREATE:
+                    create();
+                    break;
+                case GET:
+                    int getId = liveDecks.pick();
+                    if (getId < 0) {
+                        create();
+                    } else {
+                        decks.getDeck(getId);
+                    }
+                    break;
+                case LIST:
+                    decks.getDecks(ThreadLocalRandom.current().nextInt(liveDecks.size() + 1), 20, null);
+                    break;
+                case SHUFFLE:
+                    int shuffleId = liveDecks.pick();
+                    if (shuffleId < 0) {
+                        create();
+                    } else {
+                        decks.shuffleDeck(shuffleId, null, null);
+                    }
+                    break;
+                case DELETE:
+                    int deleteId = liveDecks.take();
+                    if (deleteId < 0) {
+                        create();
+                    } else {
+                        decks.deleteDeck(deleteId, null).close();
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown operation " + operation);
+            }
+        } catch (NotFoundException nfe) {
+            // expected now and again, a deck picked for a read can be deleted by a concurrent request
+            notFound.increment();
+        } catch (ClientErrorException cee) {
+            if (cee.getResponse().getStatus() == TOO_MANY_REQUESTS) {
+                rejected.get(operation).increment();
+            } else {
+                errors.get(operation).increment();
+            }
+        } catch (RuntimeException e) {
+            errors.get(operation).increment();
+        } finally {
+            long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart);
+            recorders.get(operation).recordValue(Math.min(latencyMicros, HIGHEST_TRACKABLE_MICROS));
+        }
+    }
+
+    private void create() {
+        Response response = decks.createDeck(DeckDto.create(0, "load-test", cards), 1, null, null);
+        try {
+            if (response.getStatusInfo().getFamily() == Response.Status.Family.CLIENT_ERROR) {
+                throw new ClientErrorException(response.getStatus()); // proxies only throw for typed responses
+            } else if (response.getStatus() != Response.Status.CREATED.getStatusCode()) {
+                throw new IllegalStateException("Unexpected status " + response.getStatus());
+            }
+            String location = response.getHeaderString("Location");
+            liveDecks.add(Integer.parseInt(location.substring(location.lastIndexOf('/') + 1)));
+        } finally {
+            response.close();
+        }
+    }
+
+    private synchronized void report(long elapsedNanos, SoakMonitor monitor, PrintStream out) {
+        out.printf("--- %ds, %d live decks, %d not found%n", TimeUnit.NANOSECONDS.toSeconds(elapsedNanos),
+                liveDecks.size(), notFound.sum());
+        out.printf("%-8s %10s %10s %10s %10s %10s %8s %8s%n", "op", "count", "p50 ms", "p99 ms", "p99.9 ms",
+                "max ms", "rejected", "errors");
+        for (Operation operation : Operation.values()) {
+            Histogram interval = recorders.get(operation).getIntervalHistogram();
+            totals.get(operation).add(interval);
+            long intervalErrors = errors.get(operation).sumThenReset();
+            totalErrors += intervalErrors;
+            if (interval.getTotalCount() > 0) {
+                out.printf("%-8s %10d %10.2f %10.2f %10.2f %10.2f %8d %8d%n", operation, interval.getTotalCount(),
+                        millis(interval.getValueAtPercentile(50)), millis(interval.getValueAtPercentile(99)),
+                        millis(interval.getValueAtPercentile(99.9)), millis(interval.getMaxValue()),
+                        rejected.get(operation).sumThenReset(), intervalErrors);
+            }
+        }
+        if (monitor != null) {
+            monitor.sample(elapsedNanos, liveDecks.size(), out);
+        }
+    }
+
+    /**
+     * Prints the full latency distribution of every operation over the whole run, in milliseconds.
+     */
+    public synchronized void printDistributions(PrintStream out) {
+        for (Operation operation : Operation.values()) {
+            Histogram total = totals.get(operation);
+            if (total.getTotalCount() > 0) {
+                out.printf("=== %s latency distribution (ms)%n", operation);
+                total.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+
+    /**
+     * @return number of failed requests over the whole run, not counting requests rejected by admission control
+     */
+    public synchronized long getErrors() {
+        return totalErrors;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
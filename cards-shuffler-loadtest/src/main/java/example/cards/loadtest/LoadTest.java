@@ -0,0 +1,91 @@
+package example.cards.loadtest;
+
+import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
+import com.google.common.collect.Lists;
+import example.cards.Application;
+import example.cards.resource.DeckResource;
+import org.eclipse.jetty.server.Server;
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command line entry point for the load generator.
+ * <p>
+ * Options are passed as {@code --name=value}:
+ * <ul>
+ *     <li>url - base url of the service (default http://localhost:8080)</li>
+ *     <li>rate - requests per second (default 500)</li>
+ *     <li>duration - seconds to run for (default 60, or 3600 in soak mode)</li>
+ *     <li>interval - seconds between reports (default 10, or 60 in soak mode)</li>
+ *     <li>workers - threads issuing requests, i.e. maximum requests in flight (default 64)</li>
+ *     <li>mix - weighted operation mix (default {@value OperationMix#DEFAULT_MIX})</li>
+ *     <li>deckSize - cards per created deck (default 52)</li>
+ *     <li>embedded - start the service in this JVM on the port of the url (default false)</li>
+ *     <li>soak - long running mode tracking heap growth of an embedded service (default false)</li>
+ * </ul>
+ * Exits with a non zero status if any request failed.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        boolean soak = Boolean.parseBoolean(options.getOrDefault("soak", "false"));
+        boolean embedded = soak || Boolean.parseBoolean(options.getOrDefault("embedded", "false"));
+        URI url = URI.create(options.getOrDefault("url", "http://localhost:8080"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "500"));
+        long duration = Long.parseLong(options.getOrDefault("duration", soak ? "3600" : "60"));
+        long interval = Long.parseLong(options.getOrDefault("interval", soak ? "60" : "10"));
+        int workers = Integer.parseInt(options.getOrDefault("workers", "64"));
+        OperationMix mix = OperationMix.parse(options.getOrDefault("mix", OperationMix.DEFAULT_MIX));
+        int deckSize = Integer.parseInt(options.getOrDefault("deckSize", "52"));
+
+        Server server = embedded ? Application.startJetty(url.getPort(), "jetty") : null;
+        ResteasyClient client = new ResteasyClientBuilder()
+                .connectionPoolSize(workers)
+                .maxPooledPerRoute(workers)
+                .build();
+        client.register(JacksonJsonProvider.class);
+        try {
+            DeckResource decks = client.target(url).proxy(DeckResource.class);
+            LoadGenerator generator = new LoadGenerator(decks, mix, cards(deckSize), rate, workers);
+            System.out.printf("Running %.0f requests/s against %s for %ds with %d workers%n", rate, url, duration,
+                    workers);
+            generator.run(TimeUnit.SECONDS.toNanos(duration), TimeUnit.SECONDS.toNanos(interval),
+                    soak ? new SoakMonitor() : null, System.out);
+            generator.printDistributions(System.out);
+            if (generator.getErrors() > 0) {
+                System.exit(1);
+            }
+        } finally {
+            client.close();
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but was " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    private static List<String> cards(int deckSize) {
+        List<String> cards = Lists.newArrayListWithCapacity(deckSize);
+        for (int i = 0; i < deckSize; i++) {
+            cards.add("card" + i);
+        }
+        return cards;
+    }
+}
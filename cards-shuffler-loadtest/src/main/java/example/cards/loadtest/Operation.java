@@ -0,0 +1,12 @@
+package example.cards.loadtest;
+
+/**
+ * Operations the load generator can issue against the deck resource.
+ */
+public enum Operation {
+    CREATE,
+    GET,
+    LIST,
+    SHUFFLE,
+    DELETE
+}
@@ -0,0 +1,71 @@
+package example.cards.loadtest;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Weighted mix of operations, e.g. {@code create=10,get=50,list=10,shuffle=25,delete=5}.
+ */
+public class OperationMix {
+
+    public static final String DEFAULT_MIX = "create=10,get=50,list=10,shuffle=25,delete=5";
+
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final int totalWeight;
+
+    private OperationMix(Map<Operation, Integer> weights) {
+        operations = weights.keySet().toArray(new Operation[weights.size()]);
+        cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += weights.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+        Preconditions.checkArgument(total > 0, "at least one operation must have a positive weight");
+        totalWeight = total;
+    }
+
+    /**
+     * @param mix comma separated operation=weight pairs, operation names are case insensitive
+     * @return parsed mix
+     * @throws IllegalArgumentException if an operation is unknown or a weight is negative
+     */
+    public static OperationMix parse(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (Map.Entry<String, String> entry : Splitter.on(',').trimResults().omitEmptyStrings()
+                .withKeyValueSeparator('=').split(mix).entrySet()) {
+            int weight = Integer.parseInt(entry.getValue().trim());
+            Preconditions.checkArgument(weight >= 0, "weight must be 0 or a positive integer");
+            weights.put(Operation.valueOf(entry.getKey().trim().toUpperCase(Locale.ROOT)), weight);
+        }
+        return new OperationMix(weights);
+    }
+
+    /**
+     * @return an operation picked at random according to the weights
+     */
+    public Operation next() {
+        int pick = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalStateException("weights are inconsistent");
+    }
+
+    public double getRatio(Operation operation) {
+        for (int i = 0; i < operations.length; i++) {
+            if (operations[i] == operation) {
+                return (cumulativeWeights[i] - (i == 0 ? 0 : cumulativeWeights[i - 1])) / (double) totalWeight;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,58 @@
+package example.cards.loadtest;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks heap growth of an embedded service over a long soak run.
+ * <p>
+ * Heap is sampled right after a full collection, so the samples reflect live data rather than garbage waiting
+ * to be collected.  Growth is reported as the least squares slope through all samples so far, normalized by
+ * the number of live decks: a slope that keeps climbing while the live deck count stays flat points at a leak.
+ * Only meaningful when the service runs in the same JVM as the load generator.
+ */
+public class SoakMonitor {
+
+    private static final double MEGABYTE = 1024 * 1024;
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private long samples;
+    private double sumX;
+    private double sumY;
+    private double sumXY;
+    private double sumXX;
+    private double firstHeap = -1;
+
+    /**
+     * Takes a heap sample and prints it along with the growth so far.
+     *
+     * @param elapsedNanos time since the start of the run
+     * @param liveDecks number of decks currently held by the service
+     * @param out stream the sample is printed to
+     */
+    public void sample(long elapsedNanos, int liveDecks, PrintStream out) {
+        memory.gc();
+        double heap = memory.getHeapMemoryUsage().getUsed() / MEGABYTE;
+        double hours = elapsedNanos / (double) TimeUnit.HOURS.toNanos(1);
+        if (firstHeap < 0) {
+            firstHeap = heap;
+        }
+        samples++;
+        sumX += hours;
+        sumY += heap;
+        sumXY += hours * heap;
+        sumXX += hours * hours;
+        out.printf("heap %.1f MB (%+.1f MB since start), %.1f KB per live deck, trend %+.1f MB/hour%n",
+                heap, heap - firstHeap, liveDecks == 0 ? 0 : heap * 1024 / liveDecks, slope());
+    }
+
+    /**
+     * @return least squares slope of heap in MB over time in hours, 0 until there are enough samples
+     */
+    public double slope() {
+        double denominator = samples * sumXX - sumX * sumX;
+        return samples < 2 || denominator == 0 ? 0 : (samples * sumXY - sumX * sumY) / denominator;
+    }
+}
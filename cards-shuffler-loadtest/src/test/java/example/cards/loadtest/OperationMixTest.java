@@ -0,0 +1,37 @@
+package example.cards.loadtest;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for parsing and sampling operation mixes.
+ */
+public class OperationMixTest {
+
+    @Test
+    public void testParse() {
+        OperationMix mix = OperationMix.parse("create=1, GET=3,shuffle=0");
+        Assert.assertEquals(0.25, mix.getRatio(Operation.CREATE), 0.0001);
+        Assert.assertEquals(0.75, mix.getRatio(Operation.GET), 0.0001);
+        Assert.assertEquals(0, mix.getRatio(Operation.SHUFFLE), 0.0001);
+        Assert.assertEquals(0, mix.getRatio(Operation.DELETE), 0.0001);
+    }
+
+    @Test
+    public void testNextFollowsWeights() {
+        OperationMix mix = OperationMix.parse("get=1,shuffle=0");
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(Operation.GET, mix.next());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownOperation() {
+        OperationMix.parse("create=1,explode=2");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoWeight() {
+        OperationMix.parse("create=0");
+    }
+}